@@ -0,0 +1,48 @@
+package com.healthbroadcast.forge;
+
+import net.minecraft.client.Minecraft;
+import net.minecraft.server.MinecraftServer;
+import net.minecraftforge.server.ServerLifecycleHooks;
+
+/**
+ * One captured call into the broadcaster, queued for the single writer.
+ * Carries the thread it came from and the client tick it was captured in.
+ * 
+ * @param maxHealth NaN when the writer should use the last known max health
+ */
+record Capture(Kind kind, float amount, float health, float maxHealth, String source, Origin origin, long tick) {
+    
+    enum Kind {
+        FORCE_HEALTH,
+        HEALTH,
+        DAMAGE,
+        DEATH,
+        HEAL,
+        END_TICK,
+        RESET,
+        CLOSE
+    }
+    
+    /**
+     * Thread a capture was made on
+     */
+    enum Origin {
+        /** Render/client thread (tick polling) */
+        CLIENT,
+        /** Integrated server thread (Living* events in singleplayer) */
+        SERVER,
+        /** Netty I/O thread (low-latency packet capture) or anything else */
+        NETWORK;
+        
+        static Origin current() {
+            if (Minecraft.getInstance().isSameThread()) {
+                return CLIENT;
+            }
+            MinecraftServer server = ServerLifecycleHooks.getCurrentServer();
+            if (server != null && server.isSameThread()) {
+                return SERVER;
+            }
+            return NETWORK;
+        }
+    }
+}
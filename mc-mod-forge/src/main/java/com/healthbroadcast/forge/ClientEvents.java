@@ -0,0 +1,310 @@
+package com.healthbroadcast.forge;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.minecraft.client.Minecraft;
+import net.minecraft.world.entity.Entity;
+import net.minecraft.world.entity.player.Player;
+import net.minecraftforge.client.ConfigScreenHandler;
+import net.minecraftforge.client.event.ClientPlayerNetworkEvent;
+import net.minecraftforge.client.event.CustomizeGuiOverlayEvent;
+import net.minecraftforge.common.MinecraftForge;
+import net.minecraftforge.event.GameShuttingDownEvent;
+import net.minecraftforge.event.TickEvent;
+import net.minecraftforge.event.entity.living.LivingDamageEvent;
+import net.minecraftforge.event.entity.living.LivingDeathEvent;
+import net.minecraftforge.event.entity.living.LivingHealEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.ModLoadingContext;
+import net.minecraftforge.fml.event.lifecycle.FMLClientSetupEvent;
+import net.minecraftforge.fml.javafmlmod.FMLJavaModLoadingContext;
+
+/**
+ * Client side: tracks the local player and feeds the client broadcaster.
+ * Only loaded on the physical client, so client-only classes never reach a dedicated server.
+ */
+final class ClientEvents {
+    
+    private static final Logger LOGGER = LoggerFactory.getLogger(ClientEvents.class);
+    
+    private float lastHealth = -1;
+    private float lastMaxHealth = -1;
+    private int tickCounter = 0;
+    private static final int FORCE_UPDATE_INTERVAL = 100;
+    /** Ticks to wait for the client thread to apply a packet the network thread already reported */
+    private static final int PACKET_APPLY_TICKS = 20;
+    
+    // Low-latency capture state, shared with the Netty I/O thread (guarded by this)
+    private long ticks;
+    private float packetHealth = -1;
+    private long packetTick;
+    private String packetSource;
+    private long packetSourceTick;
+    
+    private ClientEvents() {
+    }
+    
+    static void register() {
+        // Register config
+        Config.register();
+        
+        // Register config screen (游戏内配置界面)
+        ModLoadingContext.get().registerExtensionPoint(
+            ConfigScreenHandler.ConfigScreenFactory.class,
+            () -> new ConfigScreenHandler.ConfigScreenFactory(
+                (mc, parent) -> new ConfigScreen(parent)
+            )
+        );
+        
+        ClientEvents events = new ClientEvents();
+        
+        // Register mod event bus listener
+        FMLJavaModLoadingContext.get().getModEventBus().addListener(events::onClientSetup);
+        
+        // Register game event handlers
+        MinecraftForge.EVENT_BUS.register(events);
+    }
+    
+    private void onClientSetup(FMLClientSetupEvent event) {
+        // Setup runs on a parallel worker; apply on the main thread, which is also the capture thread
+        event.enqueueWork(() -> {
+            // Apply port from config
+            HealthBroadcaster.getInstance().setLogging(Config.getLogLevel(), Config.getDebugLogSampling());
+            HealthBroadcaster.getInstance().setDebugMode(Config.isDebugLogging());
+            HealthBroadcaster.getInstance().setPort(Config.getPort());
+            HealthBroadcaster.getInstance().setDestinations(Config.getDestinations());
+            HealthBroadcaster.getInstance().setWaitStrategy(Config.getWaitStrategy());
+            HealthBroadcaster.getInstance().setWireFormat(Config.getWireFormat());
+            HealthBroadcaster.getInstance().setBatchWindowMillis(Config.getBatchWindowMs());
+            HealthBroadcaster.getInstance().setMaxDatagramBytes(Config.getMaxDatagramBytes());
+            HealthBroadcaster.getInstance().setCriticalRedundancy(Config.getCriticalRedundancy());
+            HealthBroadcaster.getInstance().setSharedMemory(Config.isSharedMemoryEnabled(), Config.getSharedMemoryPath());
+            HealthBroadcaster.getInstance().setUnixSocket(Config.isUnixSocketEnabled(), Config.getUnixSocketPath());
+            HealthBroadcaster.getInstance().setOverlayServer(Config.isOverlayServerEnabled(), Config.getOverlayServerPort());
+            HealthBroadcaster.getInstance().setControlChannel(Config.isControlEnabled(), Config.getControlPort(), Config.isSubscribersOnly());
+            HealthBroadcaster.getInstance().setStatsInterval(Config.getStatsIntervalSeconds());
+            HealthBroadcaster.getInstance().setCorrelationWindow(Config.getCorrelationWindowTicks());
+            HealthBroadcaster.getInstance().setAggregationWindow(Config.getAggregationWindowMs());
+            LOGGER.info("[HealthBroadcast] Client setup complete! UDP port: " + Config.getPort());
+            
+            // Send test data
+            HealthBroadcaster.getInstance().forceHealth(20.0f, 20.0f);
+            LOGGER.info("[HealthBroadcast] Sent initial test health data");
+        });
+    }
+    
+    @SubscribeEvent
+    public void onLoggingIn(ClientPlayerNetworkEvent.LoggingIn event) {
+        if (Config.isLowLatencyCapture()) {
+            NetworkCapture.install(event.getConnection(), this);
+        }
+    }
+    
+    @SubscribeEvent
+    public void onGameShuttingDown(GameShuttingDownEvent event) {
+        // Drain queued events before the JVM exits
+        HealthBroadcaster.getInstance().close();
+    }
+    
+    @SubscribeEvent
+    public void onDebugText(CustomizeGuiOverlayEvent.DebugText event) {
+        if (Minecraft.getInstance().options.renderDebug && Config.isShowDebugMetrics()) {
+            event.getLeft().add("");
+            event.getLeft().add(HealthBroadcaster.getInstance().getMetricsSummary());
+        }
+    }
+    
+    @SubscribeEvent
+    public void onClientTick(TickEvent.ClientTickEvent event) {
+        if (event.phase != TickEvent.Phase.END) return;
+        
+        captureTick();
+        // Flush everything this tick produced as one datagram
+        HealthBroadcaster.getInstance().endTick();
+    }
+    
+    private synchronized void captureTick() {
+        ticks++;
+        Minecraft mc = Minecraft.getInstance();
+        if (mc.player == null || mc.level == null) {
+            if (lastHealth != -1) {
+                HealthBroadcaster.getInstance().reset();
+                lastHealth = -1;
+                lastMaxHealth = -1;
+                tickCounter = 0;
+                packetHealth = -1;
+                packetSource = null;
+            }
+            return;
+        }
+        
+        // Update port from config
+        HealthBroadcaster.getInstance().setPort(Config.getPort());
+        
+        Player player = mc.player;
+        float health = player.getHealth();
+        float maxHealth = player.getMaxHealth();
+        
+        if (packetHealth >= 0) {
+            if (Math.abs(health - packetHealth) > 0.01f && ticks - packetTick <= PACKET_APPLY_TICKS) {
+                // The network thread already reported a health packet the client thread hasn't applied yet
+                return;
+            }
+            packetHealth = -1;
+        }
+        if (packetSource != null && ticks - packetSourceTick > PACKET_APPLY_TICKS) {
+            packetSource = null;
+        }
+        
+        tickCounter++;
+        
+        // 定期强制发送
+        if (tickCounter >= FORCE_UPDATE_INTERVAL) {
+            tickCounter = 0;
+            HealthBroadcaster.getInstance().forceHealth(health, maxHealth);
+            lastHealth = health;
+            lastMaxHealth = maxHealth;
+            return;
+        }
+        
+        report(player, health, maxHealth);
+    }
+    
+    /**
+     * Low-latency capture: a health packet was just decoded on the Netty I/O thread.
+     * Max health is the last known value; until it is known the tick path handles everything.
+     */
+    synchronized void onHealthPacket(float health) {
+        if (lastHealth < 0 || lastMaxHealth <= 0) {
+            return;
+        }
+        float clamped = Math.max(0f, Math.min(lastMaxHealth, health));
+        packetHealth = clamped;
+        packetTick = ticks;
+        report(null, clamped, lastMaxHealth);
+    }
+    
+    /**
+     * Low-latency capture: the server reported damage to the local player (arrives before the health packet)
+     */
+    synchronized void onDamagePacket(String source) {
+        packetSource = source;
+        packetSourceTick = ticks;
+    }
+    
+    /**
+     * @param player null on the network thread, where the entity's damage source is not updated yet
+     */
+    private void report(Player player, float health, float maxHealth) {
+        // 首次进入游戏
+        if (lastHealth < 0) {
+            HealthBroadcaster.getInstance().forceHealth(health, maxHealth);
+            lastHealth = health;
+            lastMaxHealth = maxHealth;
+            return;
+        }
+        
+        // 检测血量变化
+        float healthDiff = health - lastHealth;
+        
+        if (healthDiff < -0.01f) {
+            // 受伤了
+            float damage = -healthDiff;
+            String source = "unknown";
+            if (packetSource != null) {
+                source = packetSource;
+                packetSource = null;
+            } else if (player != null) {
+                try {
+                    if (player.getLastDamageSource() != null) {
+                        source = player.getLastDamageSource().getMsgId();
+                    }
+                } catch (Exception e) {
+                    // 忽略
+                }
+            }
+            HealthBroadcaster.getInstance().sendDamage(damage, health, source);
+            
+            // 检测死亡
+            if (health <= 0 && lastHealth > 0) {
+                HealthBroadcaster.getInstance().sendDeath(source);
+            }
+        } else if (healthDiff > 0.01f) {
+            // 治疗了
+            HealthBroadcaster.getInstance().sendHeal(healthDiff, health);
+        } else {
+            // 普通更新
+            HealthBroadcaster.getInstance().sendHealth(health, maxHealth);
+        }
+        
+        lastHealth = health;
+        lastMaxHealth = maxHealth;
+    }
+    
+    @SubscribeEvent
+    public void onLivingDamage(LivingDamageEvent event) {
+        Minecraft mc = Minecraft.getInstance();
+        if (mc.player == null) return;
+        
+        if (isLocalPlayer(event.getEntity())) {
+            String source = "unknown";
+            try {
+                source = event.getSource().getMsgId();
+            } catch (Exception e) {
+                // Ignore
+            }
+            
+            float healthAfter = mc.player.getHealth() - event.getAmount();
+            LOGGER.debug("[HealthBroadcast] LivingDamageEvent: {} damage from {}", event.getAmount(), source);
+            HealthBroadcaster.getInstance().sendDamage(
+                event.getAmount(),
+                Math.max(0, healthAfter),
+                source
+            );
+        }
+    }
+    
+    @SubscribeEvent
+    public void onLivingDeath(LivingDeathEvent event) {
+        Minecraft mc = Minecraft.getInstance();
+        if (mc.player == null) return;
+        
+        if (isLocalPlayer(event.getEntity())) {
+            String source = "unknown";
+            try {
+                source = event.getSource().getMsgId();
+            } catch (Exception e) {
+                // Ignore
+            }
+            
+            LOGGER.debug("[HealthBroadcast] LivingDeathEvent: {}", source);
+            HealthBroadcaster.getInstance().sendDeath(source);
+        }
+    }
+    
+    @SubscribeEvent
+    public void onLivingHeal(LivingHealEvent event) {
+        Minecraft mc = Minecraft.getInstance();
+        Player player = mc.player;
+        if (player == null) return;
+        
+        if (isLocalPlayer(event.getEntity())) {
+            float healthAfter = player.getHealth() + event.getAmount();
+            LOGGER.debug("[HealthBroadcast] LivingHealEvent: +{}", event.getAmount());
+            HealthBroadcaster.getInstance().sendHeal(
+                event.getAmount(),
+                Math.min(healthAfter, player.getMaxHealth())
+            );
+        }
+    }
+    
+    /**
+     * Living* events fire for the integrated server's ServerPlayer, which is a different
+     * object from the client's LocalPlayer, so compare by UUID
+     */
+    private static boolean isLocalPlayer(Entity entity) {
+        Player player = Minecraft.getInstance().player;
+        return player != null && entity instanceof Player && entity.getUUID().equals(player.getUUID());
+    }
+}
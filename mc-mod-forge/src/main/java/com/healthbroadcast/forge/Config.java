@@ -1,8 +1,15 @@
 package com.healthbroadcast.forge;
 
+import com.healthbroadcast.common.log.LogLevel;
+import com.healthbroadcast.common.pipeline.WaitStrategyType;
+import com.healthbroadcast.common.transport.Destination;
+import com.healthbroadcast.common.wire.WireFormat;
 import net.minecraftforge.common.ForgeConfigSpec;
 import net.minecraftforge.fml.ModLoadingContext;
 import net.minecraftforge.fml.config.ModConfig;
+import net.minecraftforge.fml.loading.FMLPaths;
+
+import java.util.List;
 
 public class Config {
     
@@ -10,6 +17,29 @@ public class Config {
     public static final ForgeConfigSpec SPEC;
     
     public static final ForgeConfigSpec.IntValue UDP_PORT;
+    public static final ForgeConfigSpec.ConfigValue<List<? extends String>> DESTINATIONS;
+    public static final ForgeConfigSpec.EnumValue<WaitStrategyType> WAIT_STRATEGY;
+    public static final ForgeConfigSpec.EnumValue<WireFormat> WIRE_FORMAT;
+    public static final ForgeConfigSpec.IntValue BATCH_WINDOW_MS;
+    public static final ForgeConfigSpec.IntValue MAX_DATAGRAM_BYTES;
+    public static final ForgeConfigSpec.IntValue CRITICAL_REDUNDANCY;
+    public static final ForgeConfigSpec.BooleanValue SHARED_MEMORY_ENABLED;
+    public static final ForgeConfigSpec.ConfigValue<String> SHARED_MEMORY_PATH;
+    public static final ForgeConfigSpec.BooleanValue UNIX_SOCKET_ENABLED;
+    public static final ForgeConfigSpec.ConfigValue<String> UNIX_SOCKET_PATH;
+    public static final ForgeConfigSpec.BooleanValue OVERLAY_SERVER_ENABLED;
+    public static final ForgeConfigSpec.IntValue OVERLAY_SERVER_PORT;
+    public static final ForgeConfigSpec.BooleanValue CONTROL_ENABLED;
+    public static final ForgeConfigSpec.IntValue CONTROL_PORT;
+    public static final ForgeConfigSpec.BooleanValue SUBSCRIBERS_ONLY;
+    public static final ForgeConfigSpec.EnumValue<LogLevel> LOG_LEVEL;
+    public static final ForgeConfigSpec.BooleanValue DEBUG_LOGGING;
+    public static final ForgeConfigSpec.IntValue DEBUG_LOG_SAMPLING;
+    public static final ForgeConfigSpec.IntValue STATS_INTERVAL_SECONDS;
+    public static final ForgeConfigSpec.BooleanValue SHOW_DEBUG_METRICS;
+    public static final ForgeConfigSpec.BooleanValue LOW_LATENCY_CAPTURE;
+    public static final ForgeConfigSpec.IntValue CORRELATION_WINDOW_TICKS;
+    public static final ForgeConfigSpec.IntValue AGGREGATION_WINDOW_MS;
     
     static {
         BUILDER.push("Health Broadcast Settings");
@@ -18,6 +48,99 @@ public class Config {
             .comment("UDP port for broadcasting health data (1-65535)")
             .defineInRange("udpPort", 39571, 1, 65535);
         
+        DESTINATIONS = BUILDER
+            .comment("Extra destinations; empty = 127.0.0.1:udpPort.",
+                "Examples: \"127.0.0.1:39571\", \"multicast://239.255.42.99:39571?ttl=1\", \"broadcast://255.255.255.255:39571\"")
+            .defineList("destinations", List.of(), o -> o instanceof String s && Destination.isValid(s));
+        
+        WAIT_STRATEGY = BUILDER
+            .comment("How the sender thread waits for events: BUSY_SPIN (lowest latency, burns a core), PARK, BLOCKING")
+            .defineEnum("waitStrategy", WaitStrategyType.PARK);
+        
+        WIRE_FORMAT = BUILDER
+            .comment("Output format: JSON (default) or BINARY (compact frames, see README)")
+            .defineEnum("wireFormat", WireFormat.JSON);
+        
+        BATCH_WINDOW_MS = BUILDER
+            .comment("Events within this window (ms) share one datagram; the end of a client tick or a death flushes early. 0 = one datagram per event")
+            .defineInRange("batchWindowMs", 50, 0, 1000);
+        
+        MAX_DATAGRAM_BYTES = BUILDER
+            .comment("Maximum datagram size in bytes")
+            .defineInRange("maxDatagramBytes", 1400, 256, 65507);
+        
+        CRITICAL_REDUNDANCY = BUILDER
+            .comment("Extra copies of datagrams carrying damage/death; receivers drop duplicates by \"seq\"")
+            .defineInRange("criticalRedundancy", 0, 0, 3);
+        
+        SHARED_MEMORY_ENABLED = BUILDER
+            .comment("Also write events to a memory-mapped file for same-machine readers (see README)")
+            .define("sharedMemoryEnabled", false);
+        
+        SHARED_MEMORY_PATH = BUILDER
+            .comment("Shared memory file; empty = /dev/shm/hp_output.shm or the system temp directory")
+            .define("sharedMemoryPath", "");
+        
+        UNIX_SOCKET_ENABLED = BUILDER
+            .comment("Send to a Unix domain socket instead of 127.0.0.1 UDP (Java 16+; falls back to UDP otherwise)")
+            .define("unixSocketEnabled", false);
+        
+        UNIX_SOCKET_PATH = BUILDER
+            .comment("Socket path the receiver listens on; empty = config/hp_output.sock")
+            .define("unixSocketPath", "");
+        
+        OVERLAY_SERVER_ENABLED = BUILDER
+            .comment("Serve events to browser overlays (OBS browser source) over SSE (/events) and WebSocket (/ws)")
+            .define("overlayServerEnabled", false);
+        
+        OVERLAY_SERVER_PORT = BUILDER
+            .comment("Overlay HTTP server port, bound to 127.0.0.1 only")
+            .defineInRange("overlayServerPort", 39572, 1, 65535);
+        
+        CONTROL_ENABLED = BUILDER
+            .comment("Accept REGISTER / UNREGISTER / SNAPSHOT commands from receivers (see README)")
+            .define("controlEnabled", false);
+        
+        CONTROL_PORT = BUILDER
+            .comment("Control channel UDP port, bound to 127.0.0.1 only; events to subscribers are sent from this port")
+            .defineInRange("controlPort", 39573, 1, 65535);
+        
+        SUBSCRIBERS_ONLY = BUILDER
+            .comment("Only send to registered subscribers; with none registered, events are not encoded or sent at all")
+            .define("subscribersOnly", false);
+        
+        LOG_LEVEL = BUILDER
+            .comment("Minimum level written to the game log: DEBUG, INFO, WARN, ERROR, OFF")
+            .defineEnum("logLevel", LogLevel.INFO);
+        
+        DEBUG_LOGGING = BUILDER
+            .comment("Log every captured event and every sent packet (for debugging only)")
+            .define("debugLogging", false);
+        
+        DEBUG_LOG_SAMPLING = BUILDER
+            .comment("With debugLogging on, log 1 in N health events/packets; damage and death are always logged")
+            .defineInRange("debugLogSampling", 20, 1, 10000);
+        
+        STATS_INTERVAL_SECONDS = BUILDER
+            .comment("Send a \"stats\" event (counters and latency percentiles) on the output stream every N seconds. 0 = off")
+            .defineInRange("statsIntervalSeconds", 0, 0, 3600);
+        
+        SHOW_DEBUG_METRICS = BUILDER
+            .comment("Show a line of sender metrics on the F3 debug screen")
+            .define("showDebugMetrics", true);
+        
+        LOW_LATENCY_CAPTURE = BUILDER
+            .comment("Report health/damage packets on the network thread as soon as they are decoded instead of at the next client tick (up to 50 ms sooner). Applies from the next world join")
+            .define("lowLatencyCapture", false);
+        
+        CORRELATION_WINDOW_TICKS = BUILDER
+            .comment("Singleplayer: hold damage/heal/death from the server-side hooks this many client ticks for the client to observe the same hit, then send one merged event (server amount and source, client health). 0 = off")
+            .defineInRange("correlationWindowTicks", 3, 0, 20);
+        
+        AGGREGATION_WINDOW_MS = BUILDER
+            .comment("Fold periodic damage (fire, poison, wither, starvation...) and natural regeneration from the same source within this window into one event with count, firstTimestamp and minHealth. The first tick of a run is still sent immediately; discrete hits are never delayed. 0 = off")
+            .defineInRange("aggregationWindowMs", 3000, 0, 30000);
+        
         BUILDER.pop();
         SPEC = BUILDER.build();
     }
@@ -29,4 +152,98 @@ public class Config {
     public static int getPort() {
         return UDP_PORT.get();
     }
+    
+    @SuppressWarnings("unchecked")
+    public static List<String> getDestinations() {
+        return (List<String>) DESTINATIONS.get();
+    }
+    
+    public static WaitStrategyType getWaitStrategy() {
+        return WAIT_STRATEGY.get();
+    }
+    
+    public static WireFormat getWireFormat() {
+        return WIRE_FORMAT.get();
+    }
+    
+    public static int getBatchWindowMs() {
+        return BATCH_WINDOW_MS.get();
+    }
+    
+    public static int getMaxDatagramBytes() {
+        return MAX_DATAGRAM_BYTES.get();
+    }
+    
+    public static int getCriticalRedundancy() {
+        return CRITICAL_REDUNDANCY.get();
+    }
+    
+    public static boolean isSharedMemoryEnabled() {
+        return SHARED_MEMORY_ENABLED.get();
+    }
+    
+    public static String getSharedMemoryPath() {
+        return SHARED_MEMORY_PATH.get();
+    }
+    
+    public static boolean isUnixSocketEnabled() {
+        return UNIX_SOCKET_ENABLED.get();
+    }
+    
+    public static boolean isOverlayServerEnabled() {
+        return OVERLAY_SERVER_ENABLED.get();
+    }
+    
+    public static int getOverlayServerPort() {
+        return OVERLAY_SERVER_PORT.get();
+    }
+    
+    public static boolean isControlEnabled() {
+        return CONTROL_ENABLED.get();
+    }
+    
+    public static int getControlPort() {
+        return CONTROL_PORT.get();
+    }
+    
+    public static boolean isSubscribersOnly() {
+        return SUBSCRIBERS_ONLY.get();
+    }
+    
+    public static LogLevel getLogLevel() {
+        return LOG_LEVEL.get();
+    }
+    
+    public static boolean isDebugLogging() {
+        return DEBUG_LOGGING.get();
+    }
+    
+    public static int getDebugLogSampling() {
+        return DEBUG_LOG_SAMPLING.get();
+    }
+    
+    public static int getStatsIntervalSeconds() {
+        return STATS_INTERVAL_SECONDS.get();
+    }
+    
+    public static boolean isShowDebugMetrics() {
+        return SHOW_DEBUG_METRICS.get();
+    }
+    
+    public static boolean isLowLatencyCapture() {
+        return LOW_LATENCY_CAPTURE.get();
+    }
+    
+    public static int getCorrelationWindowTicks() {
+        return CORRELATION_WINDOW_TICKS.get();
+    }
+    
+    public static int getAggregationWindowMs() {
+        return AGGREGATION_WINDOW_MS.get();
+    }
+    
+    public static String getUnixSocketPath() {
+        String path = UNIX_SOCKET_PATH.get();
+        return path.isBlank() ? FMLPaths.CONFIGDIR.get().resolve("hp_output.sock").toString() : path;
+    }
 }
@@ -0,0 +1,142 @@
+package com.healthbroadcast.forge;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Merges hook-derived and tick-derived reports of the same hit into one event.
+ * 
+ * In singleplayer the Living* hooks fire on the integrated server thread with the
+ * authoritative amount and source, and a tick or two later the client sees the same
+ * change in its health. Server-origin damage/heal/death captures are held for a short
+ * window; when the client-side observation arrives they are emitted once, keeping the
+ * server amount and source and taking the health the client actually observed.
+ * Anything unmatched when the window closes is emitted as it was captured, and
+ * client-side captures with nothing to match (multiplayer) pass straight through.
+ * 
+ * Only used by the broadcaster's single writer.
+ */
+final class Correlator {
+    
+    public static final int DEFAULT_WINDOW_TICKS = 3;
+    public static final int MAX_WINDOW_TICKS = 20;
+    /** Amounts are sent with one decimal, so anything closer than this is the same hit */
+    private static final float AMOUNT_TOLERANCE = 0.1f;
+    
+    private final ArrayDeque<Capture> held = new ArrayDeque<>();
+    private final List<Capture> out = new ArrayList<>();
+    private volatile int windowTicks = DEFAULT_WINDOW_TICKS;
+    
+    /**
+     * @param ticks 0 disables correlation (every capture is emitted as it arrives)
+     */
+    void setWindowTicks(int ticks) {
+        windowTicks = Math.max(0, Math.min(MAX_WINDOW_TICKS, ticks));
+    }
+    
+    static boolean isCorrelated(Capture.Kind kind) {
+        return kind == Capture.Kind.DAMAGE || kind == Capture.Kind.HEAL || kind == Capture.Kind.DEATH;
+    }
+    
+    /**
+     * Accept a damage/heal/death capture
+     * @return captures to apply now, in order (reused on the next call)
+     */
+    List<Capture> offer(Capture capture) {
+        out.clear();
+        if (windowTicks == 0) {
+            out.add(capture);
+            return out;
+        }
+        if (capture.origin() == Capture.Origin.SERVER) {
+            held.addLast(capture);
+            return out;
+        }
+        
+        int matched = match(capture);
+        if (matched == 0) {
+            out.add(capture);
+            return out;
+        }
+        // Everything held before the matched capture is emitted as captured (for a run of
+        // hits that is the earlier hits), then the match itself with the observed health
+        Capture last = null;
+        int remaining = matched;
+        Iterator<Capture> it = held.iterator();
+        while (remaining > 0 && it.hasNext()) {
+            Capture candidate = it.next();
+            it.remove();
+            if (candidate.kind() == capture.kind() && candidate.tick() >= capture.tick() - windowTicks) {
+                remaining--;
+                if (remaining == 0) {
+                    last = candidate;
+                    break;
+                }
+            }
+            out.add(candidate);
+        }
+        out.add(new Capture(last.kind(), last.amount(), capture.health(), capture.maxHealth(),
+            last.source() != null ? last.source() : capture.source(), last.origin(), last.tick()));
+        return out;
+    }
+    
+    /**
+     * Position (1-based, counting held captures of the same kind in the window) of the
+     * capture the observation ends at, 0 for none. The client can see several server-side
+     * hits as one health drop, so damage also matches a run of hits adding up to the drop.
+     */
+    private int match(Capture observed) {
+        long oldest = observed.tick() - windowTicks;
+        float sum = 0;
+        int index = 0;
+        for (Capture candidate : held) {
+            if (candidate.kind() != observed.kind() || candidate.tick() < oldest) {
+                continue;
+            }
+            index++;
+            if (amountMatches(candidate, observed)) {
+                return index;
+            }
+            if (observed.kind() == Capture.Kind.DAMAGE) {
+                sum += candidate.amount();
+                if (index > 1 && Math.abs(sum - observed.amount()) <= AMOUNT_TOLERANCE) {
+                    return index;
+                }
+            }
+        }
+        return 0;
+    }
+    
+    private static boolean amountMatches(Capture server, Capture observed) {
+        return switch (observed.kind()) {
+            case DAMAGE -> Math.abs(server.amount() - observed.amount()) <= AMOUNT_TOLERANCE;
+            // Healing is capped at max health on the client, the hook reports the uncapped amount
+            case HEAL -> observed.amount() <= server.amount() + AMOUNT_TOLERANCE;
+            default -> true;
+        };
+    }
+    
+    /**
+     * Held captures whose window closed before this client tick
+     */
+    List<Capture> expire(long tick) {
+        out.clear();
+        long oldest = tick - windowTicks;
+        while (!held.isEmpty() && held.peekFirst().tick() < oldest) {
+            out.add(held.pollFirst());
+        }
+        return out;
+    }
+    
+    /**
+     * Everything still held (before a reset or close)
+     */
+    List<Capture> flush() {
+        out.clear();
+        out.addAll(held);
+        held.clear();
+        return out;
+    }
+}
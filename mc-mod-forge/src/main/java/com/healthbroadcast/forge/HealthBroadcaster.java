@@ -1,43 +1,43 @@
 package com.healthbroadcast.forge;
 
-import java.net.DatagramPacket;
-import java.net.DatagramSocket;
-import java.net.InetAddress;
+import com.healthbroadcast.common.log.Log;
+import com.healthbroadcast.common.log.LogLevel;
+import com.healthbroadcast.common.log.LogTopic;
+import com.healthbroadcast.common.pipeline.WaitStrategyType;
+import com.healthbroadcast.common.wire.WireFormat;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * UDP Broadcaster - Sends player health data via UDP
  * 支持 MC 1.12 ~ 最新版本
+ * 
+ * Thin Forge facade over the shared common pipeline: callers only capture
+ * primitive fields, encoding and sending happen on the sender thread.
+ * Capture methods may be called from any thread (see the single writer below).
  */
 public class HealthBroadcaster {
     
+    private static final long CLOSE_WAIT_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
     private static final HealthBroadcaster INSTANCE = new HealthBroadcaster();
-    private static final String UDP_HOST = "127.0.0.1";
     
-    private DatagramSocket socket;
-    private InetAddress address;
-    private int port = 39571;
-    private boolean debugMode = true;
+    private final com.healthbroadcast.common.HealthBroadcaster core =
+        com.healthbroadcast.common.HealthBroadcaster.getInstance();
     
-    // State cache
-    private float lastHealth = -1;
-    private float lastMaxHealth = -1;
+    private final Mailbox mailbox = new Mailbox();
+    private final AtomicBoolean draining = new AtomicBoolean();
+    /** Only touched by the thread currently draining */
+    private final Correlator correlator = new Correlator();
+    /** Written only by the thread currently draining */
+    private volatile long clientTick;
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+    /** Closes applied to the core so far; written only by the thread currently draining */
+    private volatile long closesApplied;
     
     private HealthBroadcaster() {
-        initSocket();
-    }
-    
-    private void initSocket() {
-        try {
-            if (socket != null && !socket.isClosed()) {
-                socket.close();
-            }
-            socket = new DatagramSocket();
-            address = InetAddress.getByName(UDP_HOST);
-            log("UDP socket created successfully, target: " + UDP_HOST + ":" + port);
-        } catch (Exception e) {
-            System.err.println("[HealthBroadcast] Failed to create UDP socket: " + e.getMessage());
-            e.printStackTrace();
-        }
     }
     
     public static HealthBroadcaster getInstance() {
@@ -45,139 +45,304 @@ public class HealthBroadcaster {
     }
     
     public void setDebugMode(boolean debug) {
-        this.debugMode = debug;
+        core.setDebugMode(debug);
     }
     
-    private void log(String message) {
-        if (debugMode) {
-            System.out.println("[HealthBroadcast] " + message);
-        }
+    public void setLogging(LogLevel level, int sampleEvery) {
+        core.setLogging(level, sampleEvery);
     }
     
     public void setPort(int newPort) {
-        if (newPort > 0 && newPort < 65536) {
-            if (this.port != newPort) {
-                this.port = newPort;
-                log("UDP port changed to: " + newPort);
-                initSocket();
-            }
-        }
+        core.setPort(newPort);
     }
     
     public int getPort() {
-        return port;
+        return core.getPort();
+    }
+    
+    public void setDestinations(List<String> destinations) {
+        core.setDestinations(destinations);
+    }
+    
+    public void setWaitStrategy(WaitStrategyType strategy) {
+        core.setWaitStrategy(strategy);
+    }
+    
+    public void setWireFormat(WireFormat format) {
+        core.setWireFormat(format);
+    }
+    
+    public void setBatchWindowMillis(int millis) {
+        core.setBatchWindowMillis(millis);
+    }
+    
+    public void setMaxDatagramBytes(int bytes) {
+        core.setMaxDatagramBytes(bytes);
+    }
+    
+    public void setCriticalRedundancy(int copies) {
+        core.setCriticalRedundancy(copies);
+    }
+    
+    public void setSharedMemory(boolean enabled, String path) {
+        core.setSharedMemory(enabled, path);
+    }
+    
+    public void setUnixSocket(boolean enabled, String path) {
+        core.setUnixSocket(enabled, path);
+    }
+    
+    public void setOverlayServer(boolean enabled, int port) {
+        core.setOverlayServer(enabled, port);
     }
     
+    public void setControlChannel(boolean enabled, int port, boolean subscribersOnly) {
+        core.setControlChannel(enabled, port, subscribersOnly);
+    }
+    
+    public void setStatsInterval(int seconds) {
+        core.setStatsInterval(seconds);
+    }
+    
+    /**
+     * Window for folding periodic damage/regeneration from the same source into one event; 0 = off
+     */
+    public void setAggregationWindow(int millis) {
+        core.setAggregationWindowMillis(millis);
+    }
+    
+    /**
+     * Window (client ticks) for merging a hook-reported hit with the tick-observed one; 0 = off
+     */
+    public void setCorrelationWindow(int ticks) {
+        correlator.setWindowTicks(ticks);
+    }
+    
+    /**
+     * One-line metrics summary for the F3 debug screen
+     */
+    public String getMetricsSummary() {
+        return core.getMetrics().summaryLine();
+    }
+    
+    /**
+     * Latest state published by the writer; safe to read from any thread
+     */
+    public Snapshot getSnapshot() {
+        return snapshot;
+    }
+    
+    /**
+     * Client ticks completed so far (captures are stamped with this value)
+     */
+    public long getClientTick() {
+        return clientTick;
+    }
+    
+    // ==================== Capture (any thread) ====================
+    
     /**
      * Force send health data (ignore cache)
      */
-    public boolean forceHealth(float health, float maxHealth) {
-        lastHealth = health;
-        lastMaxHealth = maxHealth;
-        
-        String json = String.format(
-            "{\"type\":\"health\",\"health\":%.1f,\"maxHealth\":%.1f,\"percentage\":%.3f,\"timestamp\":%d}",
-            health, maxHealth, maxHealth > 0 ? health / maxHealth : 0, System.currentTimeMillis()
-        );
-        
-        log("Force sending health: " + health + "/" + maxHealth);
-        return send(json);
+    public void forceHealth(float health, float maxHealth) {
+        submit(Capture.Kind.FORCE_HEALTH, 0, health, maxHealth, null);
     }
     
     /**
      * Send health data (only when changed)
      */
-    public boolean sendHealth(float health, float maxHealth) {
-        if (Math.abs(health - lastHealth) < 0.01f && Math.abs(maxHealth - lastMaxHealth) < 0.01f) {
-            return false;
-        }
-        
-        lastHealth = health;
-        lastMaxHealth = maxHealth;
-        
-        String json = String.format(
-            "{\"type\":\"health\",\"health\":%.1f,\"maxHealth\":%.1f,\"percentage\":%.3f,\"timestamp\":%d}",
-            health, maxHealth, maxHealth > 0 ? health / maxHealth : 0, System.currentTimeMillis()
-        );
-        
-        log("Sending health update: " + health + "/" + maxHealth);
-        return send(json);
+    public void sendHealth(float health, float maxHealth) {
+        submit(Capture.Kind.HEALTH, 0, health, maxHealth, null);
     }
     
     /**
      * Send damage event
      */
     public void sendDamage(float damage, float healthAfter, String source) {
-        String safeSource = source != null ? source.replace("\"", "\\\"") : "unknown";
-        float maxHealth = lastMaxHealth > 0 ? lastMaxHealth : 20.0f;
-        String json = String.format(
-            "{\"type\":\"damage\",\"damage\":%.1f,\"health\":%.1f,\"maxHealth\":%.1f,\"percentage\":%.3f,\"source\":\"%s\",\"timestamp\":%d}",
-            damage, healthAfter, maxHealth, maxHealth > 0 ? healthAfter / maxHealth : 0, safeSource, System.currentTimeMillis()
-        );
-        log("Sending damage event: " + damage + " from " + source);
-        send(json);
-        
-        lastHealth = healthAfter;
+        submit(Capture.Kind.DAMAGE, damage, healthAfter, Float.NaN, source);
     }
     
     /**
      * Send death event
      */
     public void sendDeath(String source) {
-        String safeSource = source != null ? source.replace("\"", "\\\"") : "unknown";
-        String json = String.format(
-            "{\"type\":\"death\",\"source\":\"%s\",\"timestamp\":%d}",
-            safeSource, System.currentTimeMillis()
-        );
-        log("Sending death event: " + source);
-        send(json);
-        reset();
+        submit(Capture.Kind.DEATH, 0, 0, Float.NaN, source);
     }
     
     /**
      * Send heal event
      */
     public void sendHeal(float amount, float healthAfter) {
-        float maxHealth = lastMaxHealth > 0 ? lastMaxHealth : 20.0f;
-        String json = String.format(
-            "{\"type\":\"heal\",\"amount\":%.1f,\"health\":%.1f,\"maxHealth\":%.1f,\"percentage\":%.3f,\"timestamp\":%d}",
-            amount, healthAfter, maxHealth, maxHealth > 0 ? healthAfter / maxHealth : 0, System.currentTimeMillis()
-        );
-        log("Sending heal event: +" + amount);
-        send(json);
-        
-        lastHealth = healthAfter;
+        submit(Capture.Kind.HEAL, amount, healthAfter, Float.NaN, null);
+    }
+    
+    /**
+     * End of client tick: flush this tick's events as one datagram
+     */
+    public void endTick() {
+        submit(Capture.Kind.END_TICK, 0, 0, Float.NaN, null);
     }
     
     /**
      * Reset state
      */
     public void reset() {
-        lastHealth = -1;
-        lastMaxHealth = -1;
-        log("State reset");
-    }
-    
-    private boolean send(String message) {
-        if (socket == null || socket.isClosed()) {
-            log("Socket is null or closed, reinitializing...");
-            initSocket();
-            if (socket == null || socket.isClosed()) {
-                log("Failed to reinitialize socket");
-                return false;
+        submit(Capture.Kind.RESET, 0, 0, Float.NaN, null);
+    }
+    
+    /**
+     * Drain pending events and close the socket; returns once the close has been applied,
+     * even when another thread was draining the mailbox at the time
+     */
+    public void close() {
+        long applied = closesApplied;
+        submit(Capture.Kind.CLOSE, 0, 0, Float.NaN, null);
+        while (closesApplied == applied) {
+            // The draining thread applies our CLOSE (correlator flush + socket drain); wait for it
+            LockSupport.parkNanos(CLOSE_WAIT_NANOS);
+            drain();
+        }
+    }
+    
+    // ==================== Single writer ====================
+    
+    // The core's ring buffer is single-producer, but in singleplayer the Living* events
+    // arrive on the integrated server thread (and low-latency captures on the Netty thread)
+    // while ticks run on the client thread. Every capture goes through a preallocated MPSC
+    // mailbox; whichever thread wins the drain flag applies everything queued, in order, so
+    // exactly one thread writes to the core at a time and no caller ever blocks on a lock.
+    
+    private void submit(Capture.Kind kind, float amount, float health, float maxHealth, String source) {
+        Capture.Origin origin = Capture.Origin.current();
+        while (!mailbox.offer(kind, amount, health, maxHealth, source, origin, clientTick)) {
+            // Full: another thread is draining; help or wait for it rather than drop the capture
+            drain();
+            Thread.onSpinWait();
+        }
+        drain();
+    }
+    
+    private void drain() {
+        while (draining.compareAndSet(false, true)) {
+            try {
+                int slot;
+                while ((slot = mailbox.peek()) >= 0) {
+                    try {
+                        apply(slot);
+                    } finally {
+                        mailbox.release(slot);
+                    }
+                }
+            } finally {
+                draining.set(false);
+            }
+            // A capture offered after the last poll but before the flag was cleared
+            // may have lost the CAS, so look again before leaving
+            if (mailbox.isEmpty()) {
+                return;
             }
         }
-        
-        try {
-            byte[] data = message.getBytes("UTF-8");
-            DatagramPacket packet = new DatagramPacket(data, data.length, address, port);
-            socket.send(packet);
-            log("Sent UDP packet to " + UDP_HOST + ":" + port + " - " + message);
-            return true;
-        } catch (Exception e) {
-            log("Failed to send UDP packet: " + e.getMessage());
-            e.printStackTrace();
-            return false;
+    }
+    
+    /**
+     * Health, tick and lifecycle captures are applied straight from the slot; only
+     * damage/heal/death become Capture records, since the correlator may hold them
+     */
+    private void apply(int slot) {
+        Capture.Kind kind = mailbox.kinds[slot];
+        if (Correlator.isCorrelated(kind)) {
+            emitAll(correlator.offer(mailbox.toCapture(slot)));
+            return;
         }
+        float health = mailbox.health[slot];
+        float maxHealth = mailbox.maxHealth[slot];
+        switch (kind) {
+            case FORCE_HEALTH -> {
+                core.forceHealthUpdate(health, maxHealth);
+                publish(health, maxHealth, mailbox.ticks[slot], mailbox.origins[slot]);
+            }
+            case HEALTH -> {
+                core.sendHealthUpdate(health, maxHealth);
+                publish(health, maxHealth, mailbox.ticks[slot], mailbox.origins[slot]);
+            }
+            case END_TICK -> {
+                // Hook events nobody observed go out with this tick's datagram
+                emitAll(correlator.expire(clientTick));
+                core.endTick();
+                clientTick++;
+            }
+            case RESET -> {
+                emitAll(correlator.flush());
+                core.reset();
+                snapshot = Snapshot.EMPTY;
+            }
+            case CLOSE -> {
+                try {
+                    emitAll(correlator.flush());
+                    core.close();
+                } finally {
+                    // Release close() callers even if the drain failed
+                    closesApplied++;
+                }
+            }
+            default -> {
+            }
+        }
+    }
+    
+    private void emitAll(List<Capture> captures) {
+        for (int i = 0; i < captures.size(); i++) {
+            emit(captures.get(i));
+        }
+    }
+    
+    /**
+     * Apply a damage/heal/death capture that made it through correlation
+     */
+    private void emit(Capture capture) {
+        switch (capture.kind()) {
+            case DAMAGE -> {
+                float maxHealth = lastMaxHealth();
+                logCapture(capture);
+                core.sendDamageEvent(capture.amount(), capture.health(), maxHealth, capture.source());
+                publish(capture.health(), maxHealth, capture.tick(), capture.origin());
+            }
+            case DEATH -> {
+                logCapture(capture);
+                float maxHealth = snapshot.maxHealth();
+                core.sendDeathEvent(capture.source());
+                core.reset();
+                publish(0, maxHealth, capture.tick(), capture.origin());
+            }
+            case HEAL -> {
+                float maxHealth = lastMaxHealth();
+                core.sendHealEvent(capture.amount(), capture.health(), maxHealth);
+                publish(capture.health(), maxHealth, capture.tick(), capture.origin());
+            }
+            default -> {
+            }
+        }
+    }
+    
+    /**
+     * Replace the snapshot only when the state changed, so the per-tick health capture allocates nothing
+     */
+    private void publish(float health, float maxHealth, long tick, Capture.Origin origin) {
+        Snapshot current = snapshot;
+        if (current.health() != health || current.maxHealth() != maxHealth || current.origin() != origin) {
+            snapshot = new Snapshot(health, maxHealth, tick, origin);
+        }
+    }
+    
+    private static void logCapture(Capture capture) {
+        if (Log.isEnabled(LogLevel.INFO, LogTopic.EVENTS)) {
+            Log.verbose(LogTopic.EVENTS, "{} captured on {} thread at tick {}",
+                capture.kind(), capture.origin(), capture.tick());
+        }
+    }
+    
+    private float lastMaxHealth() {
+        float maxHealth = core.getLastMaxHealth();
+        return maxHealth > 0 ? maxHealth : 20.0f;
     }
 }
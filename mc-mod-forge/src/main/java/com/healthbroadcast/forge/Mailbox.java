@@ -0,0 +1,94 @@
+package com.healthbroadcast.forge;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded multi-producer, single-consumer ring of reusable capture slots.
+ * Fields are stored in preallocated columns, so queuing a capture allocates nothing;
+ * only the broadcaster's single writer reads slots back out.
+ * 
+ * Each slot carries a sequence number: a producer may write a slot whose sequence equals
+ * its claimed position, and publishes it by setting position + 1; the consumer frees it
+ * for the next lap by setting position + capacity.
+ */
+final class Mailbox {
+    
+    static final int CAPACITY = 256;
+    private static final int MASK = CAPACITY - 1;
+    
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLongArray sequences = new AtomicLongArray(CAPACITY);
+    /** Only touched by the thread currently draining */
+    private long head;
+    
+    final Capture.Kind[] kinds = new Capture.Kind[CAPACITY];
+    final float[] amounts = new float[CAPACITY];
+    final float[] health = new float[CAPACITY];
+    final float[] maxHealth = new float[CAPACITY];
+    final String[] sources = new String[CAPACITY];
+    final Capture.Origin[] origins = new Capture.Origin[CAPACITY];
+    final long[] ticks = new long[CAPACITY];
+    
+    Mailbox() {
+        for (int i = 0; i < CAPACITY; i++) {
+            sequences.set(i, i);
+        }
+    }
+    
+    /**
+     * Queue a capture (any thread)
+     * @return false when the ring is full
+     */
+    boolean offer(Capture.Kind kind, float amount, float healthAfter, float max, String source,
+                  Capture.Origin origin, long tick) {
+        long position;
+        while (true) {
+            position = tail.get();
+            long available = sequences.get((int) position & MASK) - position;
+            if (available == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    break;
+                }
+            } else if (available < 0) {
+                return false;
+            }
+        }
+        int slot = (int) position & MASK;
+        kinds[slot] = kind;
+        amounts[slot] = amount;
+        health[slot] = healthAfter;
+        maxHealth[slot] = max;
+        sources[slot] = source;
+        origins[slot] = origin;
+        ticks[slot] = tick;
+        sequences.set(slot, position + 1);
+        return true;
+    }
+    
+    /**
+     * Next published slot (single consumer), -1 when none; release it with {@link #release}
+     */
+    int peek() {
+        int slot = (int) head & MASK;
+        return sequences.get(slot) == head + 1 ? slot : -1;
+    }
+    
+    void release(int slot) {
+        sources[slot] = null;
+        sequences.set(slot, head + CAPACITY);
+        head++;
+    }
+    
+    boolean isEmpty() {
+        return peek() < 0;
+    }
+    
+    /**
+     * Copy a slot into an immutable capture (for the correlator, which holds captures across ticks)
+     */
+    Capture toCapture(int slot) {
+        return new Capture(kinds[slot], amounts[slot], health[slot], maxHealth[slot], sources[slot],
+            origins[slot], ticks[slot]);
+    }
+}
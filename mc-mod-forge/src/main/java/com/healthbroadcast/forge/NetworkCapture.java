@@ -0,0 +1,64 @@
+package com.healthbroadcast.forge;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelPipeline;
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.player.LocalPlayer;
+import net.minecraft.network.Connection;
+import net.minecraft.network.protocol.game.ClientboundDamageEventPacket;
+import net.minecraft.network.protocol.game.ClientboundSetHealthPacket;
+
+/**
+ * Low-latency capture: sits in front of the vanilla packet handler and reports
+ * health and damage packets on the Netty I/O thread as soon as they are decoded,
+ * instead of waiting for the client thread to apply them at the next tick.
+ * Packets are always passed on unchanged.
+ */
+final class NetworkCapture extends ChannelInboundHandlerAdapter {
+    
+    static final String NAME = "hp_output_capture";
+    /** Vanilla handler that queues packets for the client thread (same name for remote and singleplayer) */
+    private static final String PACKET_HANDLER = "packet_handler";
+    
+    private final ClientEvents mod;
+    
+    private NetworkCapture(ClientEvents mod) {
+        this.mod = mod;
+    }
+    
+    /**
+     * Add the handler to a connection's pipeline (on its event loop, once per connection)
+     */
+    static void install(Connection connection, ClientEvents mod) {
+        Channel channel = connection.channel();
+        if (channel == null) {
+            return;
+        }
+        channel.eventLoop().execute(() -> {
+            ChannelPipeline pipeline = channel.pipeline();
+            if (pipeline.get(NAME) == null && pipeline.get(PACKET_HANDLER) != null) {
+                pipeline.addBefore(PACKET_HANDLER, NAME, new NetworkCapture(mod));
+            }
+        });
+    }
+    
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        try {
+            if (msg instanceof ClientboundSetHealthPacket health) {
+                mod.onHealthPacket(health.getHealth());
+            } else if (msg instanceof ClientboundDamageEventPacket damage) {
+                LocalPlayer player = Minecraft.getInstance().player;
+                if (player != null && damage.entityId() == player.getId()) {
+                    // Reading the level off-thread is not guaranteed safe; on failure the tick path attributes the hit
+                    mod.onDamagePacket(damage.getSource(player.level()).getMsgId());
+                }
+            }
+        } catch (RuntimeException e) {
+            // Never break the connection over a capture failure
+        }
+        super.channelRead(ctx, msg);
+    }
+}
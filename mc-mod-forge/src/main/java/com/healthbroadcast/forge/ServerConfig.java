@@ -0,0 +1,79 @@
+package com.healthbroadcast.forge;
+
+import com.healthbroadcast.common.log.LogLevel;
+import com.healthbroadcast.common.server.ServerBroadcaster;
+import com.healthbroadcast.common.transport.Destination;
+import net.minecraftforge.common.ForgeConfigSpec;
+import net.minecraftforge.fml.ModLoadingContext;
+import net.minecraftforge.fml.config.ModConfig;
+
+import java.util.List;
+
+/**
+ * Dedicated server settings, kept apart from the client config
+ */
+public class ServerConfig {
+    
+    public static final ForgeConfigSpec.Builder BUILDER = new ForgeConfigSpec.Builder();
+    public static final ForgeConfigSpec SPEC;
+    
+    public static final ForgeConfigSpec.ConfigValue<List<? extends String>> DESTINATIONS;
+    public static final ForgeConfigSpec.ConfigValue<List<? extends String>> PLAYER_ROUTES;
+    public static final ForgeConfigSpec.IntValue SENDER_THREADS;
+    public static final ForgeConfigSpec.IntValue MAX_DATAGRAM_BYTES;
+    public static final ForgeConfigSpec.EnumValue<LogLevel> LOG_LEVEL;
+    
+    static {
+        BUILDER.push("Health Broadcast Server Settings");
+        
+        DESTINATIONS = BUILDER
+            .comment("Where every online player's events go unless a player route says otherwise")
+            .defineList("destinations", List.of("127.0.0.1:39571"), o -> o instanceof String s && Destination.isValid(s));
+        
+        PLAYER_ROUTES = BUILDER
+            .comment("Per-player routing: \"<player name or UUID>=<destination>[,<destination>...]\".",
+                "Example: \"Steve=192.168.1.20:39571\". Routed players are sent only to their own destinations")
+            .defineList("playerRoutes", List.of(), o -> o instanceof String s && s.indexOf('=') > 0);
+        
+        SENDER_THREADS = BUILDER
+            .comment("Sender threads; destinations are split between them")
+            .defineInRange("senderThreads", ServerBroadcaster.DEFAULT_SENDER_THREADS, 1, ServerBroadcaster.MAX_SENDER_THREADS);
+        
+        MAX_DATAGRAM_BYTES = BUILDER
+            .comment("Maximum datagram size in bytes")
+            .defineInRange("maxDatagramBytes", 1400, 256, 65507);
+        
+        LOG_LEVEL = BUILDER
+            .comment("Minimum level written to the server log: DEBUG, INFO, WARN, ERROR, OFF")
+            .defineEnum("logLevel", LogLevel.INFO);
+        
+        BUILDER.pop();
+        SPEC = BUILDER.build();
+    }
+    
+    public static void register() {
+        ModLoadingContext.get().registerConfig(ModConfig.Type.COMMON, SPEC, "health-broadcast-server.toml");
+    }
+    
+    @SuppressWarnings("unchecked")
+    public static List<String> getDestinations() {
+        return (List<String>) DESTINATIONS.get();
+    }
+    
+    @SuppressWarnings("unchecked")
+    public static List<String> getPlayerRoutes() {
+        return (List<String>) PLAYER_ROUTES.get();
+    }
+    
+    public static int getSenderThreads() {
+        return SENDER_THREADS.get();
+    }
+    
+    public static int getMaxDatagramBytes() {
+        return MAX_DATAGRAM_BYTES.get();
+    }
+    
+    public static LogLevel getLogLevel() {
+        return LOG_LEVEL.get();
+    }
+}
@@ -0,0 +1,80 @@
+package com.healthbroadcast.forge;
+
+import com.healthbroadcast.common.log.Log;
+import com.healthbroadcast.common.pipeline.SourceRegistry;
+import com.healthbroadcast.common.server.ServerBroadcaster;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.damagesource.DamageSource;
+import net.minecraft.world.entity.Entity;
+import net.minecraftforge.common.MinecraftForge;
+import net.minecraftforge.event.TickEvent;
+import net.minecraftforge.event.entity.living.LivingDamageEvent;
+import net.minecraftforge.event.server.ServerStartingEvent;
+import net.minecraftforge.event.server.ServerStoppingEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+
+/**
+ * Dedicated server: reads every online player's health once per server tick and
+ * sends the changes, tagged with the player's name and UUID, to the configured destinations.
+ */
+final class ServerEvents {
+    
+    private static final Logger LOGGER = LoggerFactory.getLogger(ServerEvents.class);
+    
+    private final ServerBroadcaster broadcaster = new ServerBroadcaster();
+    
+    private ServerEvents() {
+    }
+    
+    static void register() {
+        ServerConfig.register();
+        MinecraftForge.EVENT_BUS.register(new ServerEvents());
+    }
+    
+    @SubscribeEvent
+    public void onServerStarting(ServerStartingEvent event) {
+        // Common configs are loaded by now
+        Log.setLevel(ServerConfig.getLogLevel());
+        broadcaster.configure(ServerConfig.getDestinations(), ServerConfig.getPlayerRoutes(),
+            ServerConfig.getSenderThreads(), ServerConfig.getMaxDatagramBytes());
+        LOGGER.info("[HealthBroadcast] Server mode started! Destinations: {}", ServerConfig.getDestinations());
+    }
+    
+    @SubscribeEvent
+    public void onServerStopping(ServerStoppingEvent event) {
+        broadcaster.close();
+    }
+    
+    @SubscribeEvent
+    public void onServerTick(TickEvent.ServerTickEvent event) {
+        if (event.phase != TickEvent.Phase.END) return;
+        
+        for (ServerPlayer player : event.getServer().getPlayerList().getPlayers()) {
+            broadcaster.capture(player.getUUID(), player.getGameProfile().getName(),
+                player.getHealth(), player.getMaxHealth());
+        }
+        broadcaster.endTick();
+    }
+    
+    /**
+     * Remember the source for the player's next health drop; the tick diff reports the amount
+     */
+    @SubscribeEvent
+    public void onLivingDamage(LivingDamageEvent event) {
+        if (event.getEntity() instanceof ServerPlayer player) {
+            broadcaster.damageSource(player.getUUID(), sourceId(event.getSource()));
+        }
+    }
+    
+    private int sourceId(DamageSource source) {
+        try {
+            Entity attacker = source.getEntity();
+            return broadcaster.sourceId(source.getMsgId(), attacker != null ? attacker.getName().getString() : null);
+        } catch (Exception e) {
+            return SourceRegistry.UNKNOWN;
+        }
+    }
+}
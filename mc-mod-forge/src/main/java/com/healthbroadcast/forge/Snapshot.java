@@ -0,0 +1,15 @@
+package com.healthbroadcast.forge;
+
+/**
+ * Immutable view of the broadcaster state, republished by the writer whenever an applied capture changes it
+ * and safe to read from any thread.
+ * 
+ * @param health last reported health, -1 when unknown
+ * @param maxHealth last reported max health, -1 when unknown
+ * @param tick client tick of the capture that last changed this state
+ * @param origin thread that capture came from, null before the first one
+ */
+public record Snapshot(float health, float maxHealth, long tick, Capture.Origin origin) {
+    
+    static final Snapshot EMPTY = new Snapshot(-1, -1, 0, null);
+}
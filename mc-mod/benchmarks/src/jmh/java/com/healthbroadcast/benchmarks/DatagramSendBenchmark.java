@@ -0,0 +1,117 @@
+package com.healthbroadcast.benchmarks;
+
+import com.healthbroadcast.common.transport.Destination;
+import com.healthbroadcast.common.transport.SendStatus;
+import com.healthbroadcast.common.transport.UdpTransport;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 回环 UDP 单包发送：DatagramSocket (原实现) 与 DatagramChannel (堆/直接缓冲区) 以及 Mod 使用的 UdpTransport
+ * 接收端由后台线程持续读取，避免接收缓冲区满后内核直接丢包，测到的不是真实路径
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DatagramSendBenchmark {
+    
+    @Param({"128", "1400"})
+    public int payloadBytes;
+    
+    private DatagramChannel receiver;
+    private Thread drainThread;
+    private DatagramSocket socket;
+    private DatagramPacket packet;
+    private DatagramChannel channel;
+    private ByteBuffer heapBuffer;
+    private ByteBuffer directBuffer;
+    private UdpTransport transport;
+    
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        receiver = DatagramChannel.open();
+        receiver.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        receiver.socket().setReceiveBufferSize(4 << 20);
+        InetSocketAddress target = (InetSocketAddress) receiver.getLocalAddress();
+        drainThread = new Thread(this::drain, "benchmark-drain");
+        drainThread.setDaemon(true);
+        drainThread.start();
+        
+        byte[] payload = new byte[payloadBytes];
+        Arrays.fill(payload, (byte) 'x');
+        
+        socket = new DatagramSocket();
+        socket.connect(target);
+        packet = new DatagramPacket(payload, payload.length, target);
+        
+        channel = DatagramChannel.open();
+        channel.connect(target);
+        heapBuffer = ByteBuffer.wrap(payload);
+        directBuffer = ByteBuffer.allocateDirect(payloadBytes);
+        directBuffer.put(payload);
+        directBuffer.flip();
+        
+        transport = new UdpTransport(Destination.unicast(target.getHostString(), target.getPort()));
+    }
+    
+    private void drain() {
+        ByteBuffer in = ByteBuffer.allocateDirect(65536);
+        try {
+            while (true) {
+                in.clear();
+                receiver.receive(in);
+            }
+        } catch (IOException e) {
+            // 接收端关闭，结束
+        }
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        transport.close();
+        channel.close();
+        socket.close();
+        receiver.close();
+    }
+    
+    @Benchmark
+    public void datagramSocket() throws IOException {
+        socket.send(packet);
+    }
+    
+    @Benchmark
+    public int datagramChannelHeap() throws IOException {
+        heapBuffer.rewind();
+        return channel.write(heapBuffer);
+    }
+    
+    @Benchmark
+    public int datagramChannelDirect() throws IOException {
+        directBuffer.rewind();
+        return channel.write(directBuffer);
+    }
+    
+    @Benchmark
+    public SendStatus udpTransport() {
+        directBuffer.rewind();
+        return transport.send(directBuffer);
+    }
+}
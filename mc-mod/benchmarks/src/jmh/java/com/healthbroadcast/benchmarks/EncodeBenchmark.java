@@ -0,0 +1,123 @@
+package com.healthbroadcast.benchmarks;
+
+import com.healthbroadcast.common.HealthBroadcaster;
+import com.healthbroadcast.common.pipeline.EventType;
+import com.healthbroadcast.common.pipeline.HealthEvent;
+import com.healthbroadcast.common.pipeline.SourceRegistry;
+import com.healthbroadcast.common.wire.BinaryEventEncoder;
+import com.healthbroadcast.common.wire.JsonEventEncoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 单个事件的编码耗时与分配：String.format 基线、*Data.toJson、JSON 编码器、二进制编码器
+ * 编码器写入复用的 ByteBuffer，gc.alloc.rate.norm 应接近 0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class EncodeBenchmark {
+    
+    private static final long TIMESTAMP = 1733990401456L;
+    private static final String SOURCE = "mob:Zombie";
+    
+    private final SourceRegistry sources = new SourceRegistry();
+    private final JsonEventEncoder json = new JsonEventEncoder(sources);
+    private final BinaryEventEncoder binary = new BinaryEventEncoder(sources);
+    private final ByteBuffer buffer = ByteBuffer.allocate(JsonEventEncoder.MAX_EVENT_BYTES);
+    private final HealthEvent health = new HealthEvent();
+    private final HealthEvent damage = new HealthEvent();
+    private final HealthBroadcaster.HealthData healthData = new HealthBroadcaster.HealthData();
+    private final HealthBroadcaster.DamageData damageData = new HealthBroadcaster.DamageData();
+    
+    @Setup
+    public void setup() {
+        health.type = EventType.HEALTH;
+        health.health = 18.0f;
+        health.maxHealth = 20.0f;
+        health.timestamp = TIMESTAMP;
+        health.sequence = 41;
+        
+        damage.type = EventType.DAMAGE;
+        damage.amount = 3.0f;
+        damage.health = 17.0f;
+        damage.maxHealth = 20.0f;
+        damage.sourceId = sources.intern(SOURCE);
+        damage.timestamp = TIMESTAMP;
+        damage.sequence = 42;
+        
+        healthData.type = "health";
+        healthData.health = 18.0f;
+        healthData.maxHealth = 20.0f;
+        healthData.percentage = 0.9f;
+        healthData.timestamp = TIMESTAMP;
+        
+        damageData.type = "damage";
+        damageData.damage = 3.0f;
+        damageData.health = 17.0f;
+        damageData.maxHealth = 20.0f;
+        damageData.percentage = 0.85f;
+        damageData.source = SOURCE;
+        damageData.timestamp = TIMESTAMP;
+        
+        // 稳态下来源定义只在第一次出现时发送
+        buffer.clear();
+        binary.encode(damage, buffer);
+    }
+    
+    @Benchmark
+    public String legacyFormatHealth() {
+        return LegacyJson.health(18.0f, 20.0f, 0.9f, TIMESTAMP);
+    }
+    
+    @Benchmark
+    public String legacyFormatDamage() {
+        return LegacyJson.damage(3.0f, 17.0f, 20.0f, 0.85f, SOURCE, TIMESTAMP);
+    }
+    
+    @Benchmark
+    public String dataToJsonHealth() {
+        return healthData.toJson();
+    }
+    
+    @Benchmark
+    public String dataToJsonDamage() {
+        return damageData.toJson();
+    }
+    
+    @Benchmark
+    public int jsonEncodeHealth() {
+        buffer.clear();
+        json.encode(health, buffer);
+        return buffer.position();
+    }
+    
+    @Benchmark
+    public int jsonEncodeDamage() {
+        buffer.clear();
+        json.encode(damage, buffer);
+        return buffer.position();
+    }
+    
+    @Benchmark
+    public int binaryEncodeHealth() {
+        buffer.clear();
+        binary.encode(health, buffer);
+        return buffer.position();
+    }
+    
+    @Benchmark
+    public int binaryEncodeDamage() {
+        buffer.clear();
+        binary.encode(damage, buffer);
+        return buffer.position();
+    }
+}
@@ -0,0 +1,145 @@
+package com.healthbroadcast.benchmarks;
+
+import com.healthbroadcast.common.pipeline.EventHandler;
+import com.healthbroadcast.common.pipeline.EventSender;
+import com.healthbroadcast.common.pipeline.EventType;
+import com.healthbroadcast.common.pipeline.HealthEvent;
+import com.healthbroadcast.common.pipeline.PriorityLanes;
+import com.healthbroadcast.common.pipeline.WaitStrategyType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 游戏线程 -> 发送线程的交接：测量生产者一侧 claim + publish 的耗时
+ * 消费者是真实的 {@link EventSender}，处理器只计数；关键通道满时生产者的等待也计入结果。
+ * 基线为 ArrayBlockingQueue + 消费线程 take (每个事件分配一个对象)。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Threads(1)
+public class HandoffBenchmark {
+    
+    @State(Scope.Benchmark)
+    public static class Lanes {
+        
+        @Param({"BUSY_SPIN", "PARK", "BLOCKING"})
+        public String waitStrategy;
+        
+        PriorityLanes lanes;
+        EventSender sender;
+        
+        @Setup(Level.Trial)
+        public void setup() {
+            lanes = new PriorityLanes(WaitStrategyType.valueOf(waitStrategy).create());
+            sender = new EventSender("benchmark-sender", lanes, new CountingHandler());
+            sender.start();
+        }
+        
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            sender.close(2000);
+        }
+    }
+    
+    @State(Scope.Benchmark)
+    public static class Queue {
+        
+        final ArrayBlockingQueue<HealthEvent> queue = new ArrayBlockingQueue<>(PriorityLanes.DEFAULT_CRITICAL_CAPACITY);
+        Thread consumer;
+        long consumed;
+        
+        @Setup(Level.Trial)
+        public void setup() {
+            consumer = new Thread(() -> {
+                try {
+                    while (true) {
+                        queue.take();
+                        consumed++;
+                    }
+                } catch (InterruptedException e) {
+                    // 结束
+                }
+            }, "benchmark-consumer");
+            consumer.setDaemon(true);
+            consumer.start();
+        }
+        
+        @TearDown(Level.Trial)
+        public void tearDown() throws InterruptedException {
+            consumer.interrupt();
+            consumer.join(2000);
+        }
+    }
+    
+    @Benchmark
+    public void lanesDamage(Lanes state) {
+        PriorityLanes lanes = state.lanes;
+        HealthEvent event = lanes.claim(EventType.DAMAGE);
+        event.type = EventType.DAMAGE;
+        event.amount = 1.0f;
+        event.health = 19.0f;
+        event.maxHealth = 20.0f;
+        event.nanos = System.nanoTime();
+        lanes.publish();
+    }
+    
+    @Benchmark
+    public void lanesHealth(Lanes state) {
+        PriorityLanes lanes = state.lanes;
+        HealthEvent event = lanes.claim(EventType.HEALTH);
+        event.type = EventType.HEALTH;
+        event.health = 19.0f;
+        event.maxHealth = 20.0f;
+        event.nanos = System.nanoTime();
+        lanes.publish();
+    }
+    
+    @Benchmark
+    public void arrayBlockingQueue(Queue state) throws InterruptedException {
+        HealthEvent event = new HealthEvent();
+        event.type = EventType.DAMAGE;
+        event.amount = 1.0f;
+        event.health = 19.0f;
+        event.maxHealth = 20.0f;
+        event.nanos = System.nanoTime();
+        state.queue.put(event);
+    }
+    
+    /**
+     * 只计数的处理器，不编码不发送
+     */
+    static final class CountingHandler implements EventHandler {
+        
+        long consumed;
+        
+        @Override
+        public void onEvent(HealthEvent event, long sequence, boolean endOfBatch) {
+            consumed++;
+        }
+        
+        @Override
+        public long nextDeadlineNanos() {
+            return Long.MAX_VALUE;
+        }
+        
+        @Override
+        public void onDeadline() {
+        }
+        
+        @Override
+        public void onShutdown() {
+        }
+    }
+}
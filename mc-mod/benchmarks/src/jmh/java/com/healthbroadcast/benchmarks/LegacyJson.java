@@ -0,0 +1,26 @@
+package com.healthbroadcast.benchmarks;
+
+/**
+ * 原来的 String.format 实现 (JsonEventEncoder 之前的 *Data.toJson)，作为对比基线
+ * 注意：输出受默认 Locale 影响，仅用于基准测试
+ */
+final class LegacyJson {
+    
+    private LegacyJson() {
+    }
+    
+    static String health(float health, float maxHealth, float percentage, long timestamp) {
+        return String.format(
+            "{\"type\":\"%s\",\"health\":%.1f,\"maxHealth\":%.1f,\"percentage\":%.3f,\"timestamp\":%d}",
+            "health", health, maxHealth, percentage, timestamp
+        );
+    }
+    
+    static String damage(float damage, float health, float maxHealth, float percentage, String source, long timestamp) {
+        String safeSource = source != null ? source.replace("\"", "\\\"") : "unknown";
+        return String.format(
+            "{\"type\":\"%s\",\"damage\":%.1f,\"health\":%.1f,\"maxHealth\":%.1f,\"percentage\":%.3f,\"source\":\"%s\",\"timestamp\":%d}",
+            "damage", damage, health, maxHealth, percentage, safeSource, timestamp
+        );
+    }
+}
@@ -1,78 +1,230 @@
 package com.healthbroadcast.common;
 
-import java.net.DatagramPacket;
-import java.net.DatagramSocket;
-import java.net.InetAddress;
-import java.nio.charset.StandardCharsets;
+import com.healthbroadcast.common.control.ControlChannel;
+import com.healthbroadcast.common.control.Subscriber;
+import com.healthbroadcast.common.log.Log;
+import com.healthbroadcast.common.log.LogLevel;
+import com.healthbroadcast.common.log.LogTopic;
+import com.healthbroadcast.common.metrics.BroadcastMetrics;
+import com.healthbroadcast.common.metrics.LatencyHistogram;
+import com.healthbroadcast.common.overlay.OverlayServer;
+import com.healthbroadcast.common.pipeline.EventHandler;
+import com.healthbroadcast.common.pipeline.EventSender;
+import com.healthbroadcast.common.pipeline.EventType;
+import com.healthbroadcast.common.pipeline.HealthEvent;
+import com.healthbroadcast.common.pipeline.PeriodicAggregator;
+import com.healthbroadcast.common.pipeline.PriorityLanes;
+import com.healthbroadcast.common.pipeline.RetransmitRing;
+import com.healthbroadcast.common.pipeline.SourceRegistry;
+import com.healthbroadcast.common.pipeline.WaitStrategyType;
+import com.healthbroadcast.common.transport.Destination;
+import com.healthbroadcast.common.transport.DestinationTransport;
+import com.healthbroadcast.common.transport.FanoutTransport;
+import com.healthbroadcast.common.transport.SendStatus;
+import com.healthbroadcast.common.transport.SharedMemoryLayout;
+import com.healthbroadcast.common.transport.SharedMemoryTransport;
+import com.healthbroadcast.common.transport.UnixSockets;
+import com.healthbroadcast.common.wire.BinaryEventEncoder;
+import com.healthbroadcast.common.wire.DatagramBatcher;
+import com.healthbroadcast.common.wire.EventEncoder;
+import com.healthbroadcast.common.wire.JsonEventEncoder;
+import com.healthbroadcast.common.wire.Nack;
+import com.healthbroadcast.common.wire.WireFormat;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * UDP 广播器 - 平台无关的共享代码
  * 支持 MC 1.12 ~ 最新版本
+ * 
+ * 游戏线程只把原始字段写入环形缓冲区，JSON 编码和 UDP 发送
+ * 都在专用发送线程中完成，socket 异常不会影响帧时间。
+ * 捕获方法 (send* / endTick / reset) 是单生产者的，同一时间只能由一个线程调用。
  */
 public class HealthBroadcaster {
     
     private static final String UDP_HOST = "127.0.0.1";
     public static final int DEFAULT_PORT = 39571;
+    /** 默认批量窗口：一个 tick */
+    public static final int DEFAULT_BATCH_WINDOW_MS = 50;
+    private static final int MAX_EVENT_BYTES = Math.max(JsonEventEncoder.MAX_EVENT_BYTES, BinaryEventEncoder.MAX_EVENT_BYTES);
+    private static final long CLOSE_TIMEOUT_MS = 2000;
+    public static final int MAX_CRITICAL_REDUNDANCY = 3;
+    /** 最近一次关键事件之后的这段时间内轮询 NACK */
+    private static final long RETRANSMIT_WINDOW_NANOS = TimeUnit.SECONDS.toNanos(10);
+    private static final long NACK_POLL_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(20);
+    public static final int MAX_STATS_INTERVAL_SECONDS = 3600;
+    private static final long NO_CAPTURE = Long.MIN_VALUE;
+    /** 二进制来源定义的刷新间隔 (与强制血量更新相同)，丢失的定义最多这么久后随下一次使用重新附带 */
+    private static final long SOURCE_DEFINITION_REFRESH_NANOS = TimeUnit.SECONDS.toNanos(5);
     
-    private static HealthBroadcaster instance;
+    // 仅由发送线程访问
+    private final FanoutTransport transport = new FanoutTransport();
+    private List<Destination> activeDestinations;
+    private SharedMemoryTransport sharedMemory;
+    private File activeSharedMemoryFile;
+    private OverlayServer overlayServer;
+    private int activeOverlayPort;
+    private ControlChannel control;
+    private int activeControlPort;
+    private final ControlHandler controlHandler = new ControlHandler();
+    /** 最近一个事件之后的状态，用于响应 SNAPSHOT */
+    private final HealthEvent latestState = new HealthEvent();
+    private boolean hasState;
+    private final HealthEvent snapshotEvent = new HealthEvent();
+    private final ByteBuffer frameBuffer = ByteBuffer.allocate(MAX_EVENT_BYTES);
+    private DatagramBatcher batcher = new DatagramBatcher(DatagramBatcher.DEFAULT_MAX_DATAGRAM_BYTES, MAX_EVENT_BYTES);
+    /** 输出流序号，跨发送线程重启保持递增 */
+    private long streamSequence;
+    private final RetransmitRing retransmitRing = new RetransmitRing(RetransmitRing.DEFAULT_CAPACITY);
+    /** NACK 重传复用的批次，每个请求开始时清空 */
+    private DatagramBatcher retransmitBatcher = new DatagramBatcher(DatagramBatcher.DEFAULT_MAX_DATAGRAM_BYTES, MAX_EVENT_BYTES);
+    /** 当前批次是否包含关键事件 (需要冗余发送) */
+    private boolean batchHasCritical;
+    private long nextNackPollNanos;
+    private long nextDefinitionRefreshNanos;
+    private final ByteBuffer nackBuffer = ByteBuffer.allocate(1024);
+    private final long[] nackSequences = new long[Nack.MAX_SEQUENCES];
+    /** 当前批次中各事件的捕获时间，用于记录捕获到发送的延迟；stats 帧不计入 */
+    private long[] batchCaptureNanos = new long[64];
+    private final LatencyHistogram.Interval statsLatency;
+    private final LatencyHistogram.Interval statsEncode;
+    private long activeStatsIntervalNanos;
+    private long nextStatsNanos;
     
-    private DatagramSocket socket;
-    private InetAddress address;
-    private int port = DEFAULT_PORT;
-    private boolean debugMode = true; // 调试模式
+    private volatile int port = DEFAULT_PORT;
+    /** 自定义目标列表，为空时发送到 127.0.0.1:port */
+    private volatile List<Destination> customDestinations = Collections.emptyList();
+    private volatile List<Destination> destinations = defaultDestinations(DEFAULT_PORT);
+    /** Unix 域套接字目标，null 表示不启用 */
+    private volatile Destination unixSocket;
+    /** 共享内存文件，null 表示不启用 */
+    private volatile File sharedMemoryFile;
+    /** 叠加层 HTTP 服务器端口，0 表示不启用 */
+    private volatile int overlayPort;
+    /** 控制通道端口，0 表示不启用 */
+    private volatile int controlPort;
+    /** 只发送给通过控制通道注册的订阅者，没有订阅者时不编码 */
+    private volatile boolean subscribersOnly;
+    private volatile WireFormat wireFormat = WireFormat.JSON;
+    private volatile long batchWindowNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_BATCH_WINDOW_MS);
+    private volatile int maxDatagramBytes = DatagramBatcher.DEFAULT_MAX_DATAGRAM_BYTES;
+    /** damage / death 所在数据包额外重复发送的次数 */
+    private volatile int criticalRedundancy;
+    /** stats 事件的发送间隔，0 表示不发送 */
+    private volatile long statsIntervalNanos;
     
     // 状态缓存 - 避免重复发送
     private float lastHealth = -1;
     private float lastMaxHealth = -1;
     
+    // 事件管线
+    private final BroadcastMetrics metrics = new BroadcastMetrics();
+    private final SourceRegistry sources = new SourceRegistry();
+    private final JsonEventEncoder jsonEncoder = new JsonEventEncoder(sources);
+    private final BinaryEventEncoder binaryEncoder = new BinaryEventEncoder(sources);
+    /** 生产者本地：周期性伤害/治疗的合并窗口 */
+    private final PeriodicAggregator aggregator = new PeriodicAggregator(sources);
+    /** 任意线程写入，捕获线程在下一次发布时按新策略重启管线 */
+    private volatile WaitStrategyType waitStrategy = WaitStrategyType.PARK;
+    /** 通道和发送线程作为一个整体替换，只在捕获线程上启动或重启 */
+    private volatile Pipeline pipeline;
+    /** 最近启动的管线的通道，关闭后计数仍然可读 */
+    private volatile PriorityLanes lastLanes;
+    /** 生产者本地：本 tick 是否发布过事件 */
+    private boolean tickDirty;
+    
     private HealthBroadcaster() {
-        initSocket();
+        statsLatency = new LatencyHistogram.Interval(metrics.captureToSend());
+        statsEncode = new LatencyHistogram.Interval(metrics.encodeTime());
+        pipeline = startPipeline(waitStrategy);
     }
     
-    private void initSocket() {
-        try {
-            if (socket != null && !socket.isClosed()) {
-                socket.close();
-            }
-            socket = new DatagramSocket();
-            address = InetAddress.getByName(UDP_HOST);
-            log("UDP socket created successfully, target: " + UDP_HOST + ":" + port);
-        } catch (Exception e) {
-            System.err.println("[HealthBroadcast] Failed to create UDP socket: " + e.getMessage());
-            e.printStackTrace();
+    private Pipeline startPipeline(WaitStrategyType strategy) {
+        PriorityLanes lanes = new PriorityLanes(strategy.create());
+        metrics.setLanes(lanes);
+        lastLanes = lanes;
+        EventSender sender = new EventSender("HealthBroadcast-Sender", lanes, new SendHandler());
+        sender.start();
+        Log.info("Sender thread started, wait strategy: {}", strategy);
+        return new Pipeline(lanes, sender, strategy);
+    }
+    
+    /**
+     * 当前管线 (捕获线程)：未启动、已关闭或等待策略变化时先排空旧的发送线程再启动新的
+     */
+    private Pipeline pipeline() {
+        Pipeline current = pipeline;
+        WaitStrategyType strategy = waitStrategy;
+        if (current != null && current.sender.isRunning() && current.strategy == strategy) {
+            return current;
         }
+        if (current != null && current.sender.isRunning() && !current.sender.close(CLOSE_TIMEOUT_MS)) {
+            Log.warn("Sender thread did not stop within {}ms", CLOSE_TIMEOUT_MS);
+        }
+        current = startPipeline(strategy);
+        pipeline = current;
+        return current;
     }
     
-    public static synchronized HealthBroadcaster getInstance() {
-        if (instance == null) {
-            instance = new HealthBroadcaster();
+    /**
+     * 一组优先级通道和消费它的发送线程
+     */
+    private static final class Pipeline {
+        final PriorityLanes lanes;
+        final EventSender sender;
+        final WaitStrategyType strategy;
+        
+        Pipeline(PriorityLanes lanes, EventSender sender, WaitStrategyType strategy) {
+            this.lanes = lanes;
+            this.sender = sender;
+            this.strategy = strategy;
         }
-        return instance;
     }
     
     /**
-     * 设置调试模式
+     * 延迟初始化，之后的调用只是读取一个 static final 字段
+     */
+    public static HealthBroadcaster getInstance() {
+        return Holder.INSTANCE;
+    }
+    
+    private static final class Holder {
+        static final HealthBroadcaster INSTANCE = new HealthBroadcaster();
+    }
+    
+    /**
+     * 开启/关闭调试日志 (每个事件、每个数据包)，默认关闭
      */
     public void setDebugMode(boolean debug) {
-        this.debugMode = debug;
+        Log.setVerbose(debug);
     }
     
-    private void log(String message) {
-        if (debugMode) {
-            System.out.println("[HealthBroadcast] " + message);
-        }
+    /**
+     * 设置日志级别 (默认 INFO) 和调试日志的抽样率 (每 N 条 health 输出 1 条)
+     */
+    public void setLogging(LogLevel level, int sampleEvery) {
+        Log.setLevel(level);
+        Log.setSampleEvery(sampleEvery);
     }
     
     /**
-     * 设置 UDP 端口
+     * 设置 UDP 端口 (发送线程在下一次发送时重新 connect)
      */
     public void setPort(int port) {
         if (port > 0 && port <= 65535) {
             if (this.port != port) {
                 this.port = port;
-                log("UDP port changed to: " + port);
-                // 重新初始化 socket
-                initSocket();
+                Log.info("UDP port changed to: {}", port);
+                updateDestinations();
             }
         }
     }
@@ -84,22 +236,239 @@ public class HealthBroadcaster {
         return port;
     }
     
+    /**
+     * 设置发送目标列表，格式见 {@link Destination#parse(String)}
+     * 列表为空时使用默认目标 127.0.0.1:port；无法解析的条目会被忽略
+     */
+    public void setDestinations(List<String> specs) {
+        List<Destination> parsed = new ArrayList<>();
+        if (specs != null) {
+            for (String spec : specs) {
+                try {
+                    Destination destination = Destination.parse(spec);
+                    if (destination.kind == Destination.Kind.UNIX && !UnixSockets.isSupported()) {
+                        Log.warn("Ignoring destination '{}': Unix domain sockets require Java 16+", spec);
+                        continue;
+                    }
+                    parsed.add(destination);
+                } catch (RuntimeException e) {
+                    Log.warn("Ignoring invalid destination '{}': {}", spec, e.getMessage());
+                }
+            }
+        }
+        if (!parsed.equals(customDestinations)) {
+            customDestinations = Collections.unmodifiableList(parsed);
+            updateDestinations();
+            Log.info("Destinations changed to: {}", destinations);
+        }
+    }
+    
+    /**
+     * 当前生效的目标列表
+     */
+    public List<Destination> getDestinations() {
+        return destinations;
+    }
+    
+    /**
+     * 各目标的发送计数与错误状态
+     */
+    public List<DestinationTransport> getDestinationStats() {
+        return transport.targets();
+    }
+    
+    /**
+     * 优先级通道的积压与丢弃/合并/阻塞计数 (关闭后返回最后一个管线的通道，不为 null)
+     */
+    public PriorityLanes getLanes() {
+        return lastLanes;
+    }
+    
+    /**
+     * 事件数、发送字节数、失败数、队列深度和延迟直方图
+     */
+    public BroadcastMetrics getMetrics() {
+        return metrics;
+    }
+    
+    /**
+     * 设置 stats 事件的发送间隔 (秒)，0 表示不发送
+     * stats 事件与其他事件走同一条流 (占用一个 seq)，只发给配置的目标
+     */
+    public void setStatsInterval(int seconds) {
+        int clamped = Math.max(0, Math.min(MAX_STATS_INTERVAL_SECONDS, seconds));
+        long nanos = TimeUnit.SECONDS.toNanos(clamped);
+        if (statsIntervalNanos != nanos) {
+            statsIntervalNanos = nanos;
+            Log.info("Stats events: {}", clamped != 0 ? "every " + clamped + "s" : "disabled");
+        }
+    }
+    
+    /**
+     * 启用/关闭 Unix 域套接字输出 (本机接收端不再经过 IP 协议栈)
+     * 启用后替代默认的 127.0.0.1 UDP 目标；Java 8 等不支持的运行环境中继续使用 UDP
+     * @param path 套接字路径，由接收端创建并监听
+     */
+    public void setUnixSocket(boolean enabled, String path) {
+        Destination wanted = null;
+        if (enabled && path != null && !path.trim().isEmpty()) {
+            if (UnixSockets.isSupported()) {
+                wanted = Destination.unix(path.trim());
+            } else {
+                Log.warn("Unix domain sockets require Java 16+, using UDP instead");
+            }
+        }
+        Destination current = unixSocket;
+        if (wanted == null ? current != null : !wanted.equals(current)) {
+            unixSocket = wanted;
+            updateDestinations();
+            Log.info("Destinations changed to: {}", destinations);
+        }
+    }
+    
+    private void updateDestinations() {
+        List<Destination> result = new ArrayList<>();
+        Destination unix = unixSocket;
+        if (unix != null) {
+            result.add(unix);
+        }
+        for (Destination destination : customDestinations) {
+            if (!result.contains(destination)) {
+                result.add(destination);
+            }
+        }
+        destinations = result.isEmpty() ? defaultDestinations(port) : Collections.unmodifiableList(result);
+    }
+    
+    private static List<Destination> defaultDestinations(int port) {
+        return Collections.singletonList(Destination.unicast(UDP_HOST, port));
+    }
+    
+    /**
+     * 启用/关闭共享内存输出
+     * @param path 文件路径，为空时使用 {@link SharedMemoryTransport#defaultFile()}
+     */
+    public void setSharedMemory(boolean enabled, String path) {
+        File file = null;
+        if (enabled) {
+            file = path == null || path.trim().isEmpty() ? SharedMemoryTransport.defaultFile() : new File(path.trim());
+        }
+        File current = sharedMemoryFile;
+        if (file == null ? current != null : !file.equals(current)) {
+            sharedMemoryFile = file;
+            Log.info("Shared memory output: {}", file != null ? file.getAbsolutePath() : "disabled");
+        }
+    }
+    
+    /**
+     * 启用/关闭叠加层 HTTP 服务器 (SSE / WebSocket，只监听 127.0.0.1)
+     */
+    public void setOverlayServer(boolean enabled, int port) {
+        int wanted = enabled && port > 0 && port <= 65535 ? port : 0;
+        if (overlayPort != wanted) {
+            overlayPort = wanted;
+            Log.info("Overlay server: {}", wanted != 0 ? "port " + wanted : "disabled");
+        }
+    }
+    
+    /**
+     * 启用/关闭控制通道 (只监听 127.0.0.1)
+     * 接收端可以注册订阅、请求当前状态、协商格式和速率，见 {@link ControlChannel}
+     * @param subscribersOnly true 时不再发送到配置的目标，只发送给订阅者；没有订阅者时跳过编码和发送
+     */
+    public void setControlChannel(boolean enabled, int port, boolean subscribersOnly) {
+        int wanted = enabled && port > 0 && port <= 65535 ? port : 0;
+        this.subscribersOnly = subscribersOnly;
+        if (controlPort != wanted) {
+            controlPort = wanted;
+            Log.info("Control channel: {}", wanted != 0 ? "port " + wanted : "disabled");
+        }
+    }
+    
+    /**
+     * 当前通过控制通道注册的订阅者
+     */
+    public List<Subscriber> getSubscribers() {
+        ControlChannel current = control;
+        return current != null ? current.subscribers() : Collections.<Subscriber>emptyList();
+    }
+    
+    /**
+     * 设置输出格式 (默认 JSON)
+     */
+    public void setWireFormat(WireFormat format) {
+        if (format != null && format != wireFormat) {
+            wireFormat = format;
+            Log.info("Wire format changed to: {}", format);
+        }
+    }
+    
+    public WireFormat getWireFormat() {
+        return wireFormat;
+    }
+    
+    /**
+     * 设置批量窗口：同一窗口内的事件合并为一个数据包
+     * tick 结束 ({@link #endTick()}) 或死亡事件会提前刷新；0 表示每个事件单独发送
+     */
+    public void setBatchWindowMillis(int millis) {
+        batchWindowNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, millis));
+    }
+    
+    /**
+     * 设置周期性伤害/治疗 (燃烧、中毒、凋零、饥饿、自然回复) 的合并窗口
+     * 同一来源在窗口内的事件合并为一个带 count / firstTimestamp / minHealth 的事件；0 表示不合并
+     */
+    public void setAggregationWindowMillis(int millis) {
+        aggregator.setWindowMillis(millis);
+    }
+    
+    /**
+     * 设置单个数据包的最大字节数 (默认 1400，低于常见以太网 MTU)
+     */
+    public void setMaxDatagramBytes(int bytes) {
+        if (bytes >= 256 && bytes <= 65507) {
+            maxDatagramBytes = bytes;
+        }
+    }
+    
+    /**
+     * 设置关键事件 (damage / death) 的冗余发送次数，接收端按 seq 去重
+     * 0 = 不冗余，最大 {@link #MAX_CRITICAL_REDUNDANCY}
+     */
+    public void setCriticalRedundancy(int copies) {
+        criticalRedundancy = Math.max(0, Math.min(MAX_CRITICAL_REDUNDANCY, copies));
+    }
+    
+    /**
+     * 设置发送线程的等待策略
+     * 可以在任意线程调用；捕获线程在下一次发布事件时排空并重启发送线程
+     */
+    public void setWaitStrategy(WaitStrategyType strategy) {
+        if (strategy != null) {
+            waitStrategy = strategy;
+        }
+    }
+    
+    /**
+     * 最近一次上报的最大血量，未知时为 -1 (只在捕获线程上读取)
+     */
+    public float getLastMaxHealth() {
+        return lastMaxHealth;
+    }
+    
     /**
      * 强制发送血量数据（忽略缓存）
      */
     public boolean forceHealthUpdate(float health, float maxHealth) {
+        publishAggregates(true);
         lastHealth = health;
         lastMaxHealth = maxHealth;
         
-        HealthData data = new HealthData();
-        data.type = "health";
-        data.health = health;
-        data.maxHealth = maxHealth;
-        data.percentage = maxHealth > 0 ? health / maxHealth : 0;
-        data.timestamp = System.currentTimeMillis();
-        
-        log("Force sending health: " + health + "/" + maxHealth);
-        return send(data.toJson());
+        if (Log.isEnabled(LogLevel.INFO, LogTopic.EVENTS) && Log.sample(LogTopic.EVENTS)) {
+            Log.verbose(LogTopic.EVENTS, "Force sending health: {}/{}", health, maxHealth);
+        }
+        return publish(EventType.HEALTH, health, maxHealth, 0, SourceRegistry.UNKNOWN);
     }
     
     /**
@@ -114,110 +483,693 @@ public class HealthBroadcaster {
         
         lastHealth = health;
         lastMaxHealth = maxHealth;
+        publishAggregates(true);
         
-        HealthData data = new HealthData();
-        data.type = "health";
-        data.health = health;
-        data.maxHealth = maxHealth;
-        data.percentage = maxHealth > 0 ? health / maxHealth : 0;
-        data.timestamp = System.currentTimeMillis();
-        
-        log("Sending health update: " + health + "/" + maxHealth);
-        return send(data.toJson());
+        if (Log.isEnabled(LogLevel.INFO, LogTopic.EVENTS) && Log.sample(LogTopic.EVENTS)) {
+            Log.verbose(LogTopic.EVENTS, "Sending health update: {}/{}", health, maxHealth);
+        }
+        return publish(EventType.HEALTH, health, maxHealth, 0, SourceRegistry.UNKNOWN);
     }
     
     /**
      * 发送受伤事件
      */
     public boolean sendDamageEvent(float damage, float healthAfter, float maxHealth, String source) {
-        DamageData data = new DamageData();
-        data.type = "damage";
-        data.damage = damage;
-        data.health = healthAfter;
-        data.maxHealth = maxHealth;
-        data.percentage = maxHealth > 0 ? healthAfter / maxHealth : 0;
-        data.source = source != null ? source : "unknown";
-        data.timestamp = System.currentTimeMillis();
-        
+        return sendDamageEvent(damage, healthAfter, maxHealth, sources.intern(source));
+    }
+    
+    /**
+     * 发送受伤事件
+     * @param sourceId {@link #sourceId(String, String)} 返回的来源 ID
+     */
+    public boolean sendDamageEvent(float damage, float healthAfter, float maxHealth, int sourceId) {
         // 更新缓存
         lastHealth = healthAfter;
         lastMaxHealth = maxHealth;
         
-        log("Sending damage event: " + damage + " from " + source + ", health now: " + healthAfter);
-        return send(data.toJson());
+        if (aggregate(EventType.DAMAGE, damage, healthAfter, maxHealth, sourceId)) {
+            return true;
+        }
+        if (Log.isEnabled(LogLevel.INFO, LogTopic.EVENTS)) {
+            Log.verbose(LogTopic.EVENTS, "Sending damage event: {} from {}, health now: {}",
+                damage, sources.name(sourceId), healthAfter);
+        }
+        return publish(EventType.DAMAGE, healthAfter, maxHealth, damage, sourceId);
     }
     
     /**
      * 发送死亡事件
      */
     public boolean sendDeathEvent(String source) {
-        DeathData data = new DeathData();
-        data.type = "death";
-        data.source = source != null ? source : "unknown";
-        data.timestamp = System.currentTimeMillis();
-        
+        return sendDeathEvent(sources.intern(source));
+    }
+    
+    /**
+     * 发送死亡事件
+     * @param sourceId {@link #sourceId(String, String)} 返回的来源 ID
+     */
+    public boolean sendDeathEvent(int sourceId) {
         lastHealth = 0;
+        publishAggregates(true);
         
-        log("Sending death event, source: " + source);
-        return send(data.toJson());
+        if (Log.isEnabled(LogLevel.INFO, LogTopic.EVENTS)) {
+            Log.verbose(LogTopic.EVENTS, "Sending death event, source: {}", sources.name(sourceId));
+        }
+        return publish(EventType.DEATH, 0, lastMaxHealth, 0, sourceId);
+    }
+    
+    /**
+     * 伤害类型 + 攻击者对应的来源 ID (输出为 "类型:攻击者")
+     * 已出现过的组合直接查表，不拼接字符串
+     * @param attacker 没有攻击者时为 null
+     */
+    public int sourceId(String type, String attacker) {
+        return sources.intern(type, attacker);
+    }
+    
+    /**
+     * 来源表 (只能在游戏线程上驻留新的来源)
+     */
+    public SourceRegistry getSources() {
+        return sources;
     }
     
     /**
      * 发送治疗事件
      */
     public boolean sendHealEvent(float amount, float healthAfter, float maxHealth) {
-        HealData data = new HealData();
-        data.type = "heal";
-        data.amount = amount;
-        data.health = healthAfter;
-        data.maxHealth = maxHealth;
-        data.percentage = maxHealth > 0 ? healthAfter / maxHealth : 0;
-        data.timestamp = System.currentTimeMillis();
-        
         lastHealth = healthAfter;
         lastMaxHealth = maxHealth;
         
-        log("Sending heal event: +" + amount + ", health now: " + healthAfter);
-        return send(data.toJson());
+        if (aggregate(EventType.HEAL, amount, healthAfter, maxHealth, SourceRegistry.UNKNOWN)) {
+            return true;
+        }
+        if (Log.isEnabled(LogLevel.INFO, LogTopic.EVENTS)) {
+            Log.verbose(LogTopic.EVENTS, "Sending heal event: +{}, health now: {}", amount, healthAfter);
+        }
+        return publish(EventType.HEAL, healthAfter, maxHealth, amount, SourceRegistry.UNKNOWN);
     }
     
     /**
      * 重置状态 (玩家断开/重生时调用)
      */
     public void reset() {
+        publishAggregates(true);
+        aggregator.clear();
         lastHealth = -1;
         lastMaxHealth = -1;
-        log("State reset");
+        Log.debug("State reset");
     }
     
-    private boolean send(String json) {
-        if (socket == null || socket.isClosed()) {
-            log("Socket is null or closed, attempting to reinitialize...");
-            initSocket();
-            if (socket == null || socket.isClosed()) {
-                log("Failed to reinitialize socket");
-                return false;
+    /**
+     * tick 结束时调用：让发送线程把本 tick 产生的事件合并成一个数据包发出
+     * 本 tick 没有事件时不做任何事
+     */
+    public void endTick() {
+        publishAggregates(false);
+        if (!tickDirty) {
+            return;
+        }
+        tickDirty = false;
+        PriorityLanes lanes = pipeline().lanes;
+        HealthEvent event = lanes.claim(EventType.TICK);
+        if (event != null) {
+            event.type = EventType.TICK;
+            event.nanos = System.nanoTime();
+            lanes.publish();
+        }
+    }
+    
+    /**
+     * 交给合并窗口
+     * @return true 如果事件被合并；否则先发出已合并的事件 (保持捕获顺序)，由调用方立即发送
+     */
+    private boolean aggregate(EventType type, float amount, float healthAfter, float maxHealth, int sourceId) {
+        if (!aggregator.isEnabled()) {
+            return false;
+        }
+        if (aggregator.offer(type, amount, healthAfter, maxHealth, sourceId, System.currentTimeMillis(), System.nanoTime())) {
+            return true;
+        }
+        publishAggregates(true);
+        return false;
+    }
+    
+    /**
+     * 发布合并好的周期性事件
+     * @param all true 时发布所有已合并的事件，否则只发布窗口已满的
+     */
+    private void publishAggregates(boolean all) {
+        long now = System.nanoTime();
+        int stream;
+        while ((stream = aggregator.nextReady(now, all)) >= 0) {
+            PriorityLanes lanes = pipeline().lanes;
+            HealthEvent event = lanes.claim(aggregator.type(stream));
+            if (event == null) {
+                Log.verbose(LogTopic.EVENTS, "Bulk lane full, dropping aggregated {} event", aggregator.type(stream).wireName());
+                aggregator.discard(stream);
+                continue;
+            }
+            aggregator.drainTo(stream, event);
+            if (Log.isEnabled(LogLevel.INFO, LogTopic.EVENTS)) {
+                Log.verbose(LogTopic.EVENTS, "Sending aggregated {} event: {} x{}, health now: {}",
+                    event.type.wireName(), event.amount, event.count, event.health);
+            }
+            lanes.publish();
+            tickDirty = true;
+        }
+    }
+    
+    /**
+     * 把原始字段写入对应的优先级通道 - 游戏线程上唯一的工作
+     */
+    private boolean publish(EventType type, float health, float maxHealth, float amount, int sourceId) {
+        PriorityLanes lanes = pipeline().lanes;
+        HealthEvent event = lanes.claim(type);
+        if (event == null) {
+            Log.verbose(LogTopic.EVENTS, "Bulk lane full, dropping {} event", type.wireName());
+            return false;
+        }
+        event.type = type;
+        event.health = health;
+        event.maxHealth = maxHealth;
+        event.amount = amount;
+        event.sourceId = sourceId;
+        event.timestamp = System.currentTimeMillis();
+        event.nanos = System.nanoTime();
+        lanes.publish();
+        tickDirty = true;
+        return true;
+    }
+    
+    /**
+     * 发送线程：编码、合并并发送 (在发送线程中运行)
+     */
+    private final class SendHandler implements EventHandler {
+        
+        @Override
+        public void onEvent(HealthEvent event, long sequence, boolean endOfBatch) {
+            if (event.type == EventType.TICK) {
+                flush();
+                return;
+            }
+            long now = System.nanoTime();
+            event.sequence = streamSequence++;
+            metrics.recordEvent(event.type);
+            if (isCritical(event.type)) {
+                retransmitRing.add(event, now);
             }
+            latestState.copyFrom(event);
+            hasState = true;
+            applySharedMemory();
+            if (sharedMemory != null) {
+                sharedMemory.onEvent(event);
+            }
+            applyOverlayServer();
+            if (overlayServer != null) {
+                overlayServer.onEvent(event);
+            }
+            applyControlChannel();
+            if (control != null) {
+                control.configure(maxDatagramBytes, criticalRedundancy);
+                control.onEvent(event, now);
+            }
+            
+            if (isBroadcasting()) {
+                broadcast(event, now);
+            }
+            
+            // 死亡是关键事件，立即发送
+            if (event.type == EventType.DEATH || batchWindowNanos == 0) {
+                flush();
+            }
+            pollNacks(now);
+            pollControl(now);
+            pollStats(now);
+        }
+        
+        @Override
+        public long nextDeadlineNanos() {
+            long deadline = batcher.isEmpty() ? Long.MAX_VALUE : batcher.firstEventNanos() + batchWindowNanos;
+            if (retransmitRing.size() > 0 && System.nanoTime() - retransmitRing.newestNanos() < RETRANSMIT_WINDOW_NANOS) {
+                deadline = Math.min(deadline, nextNackPollNanos);
+            }
+            if (control != null) {
+                long first = control.firstEventNanos();
+                if (first != Long.MAX_VALUE) {
+                    deadline = Math.min(deadline, first + batchWindowNanos);
+                }
+                deadline = Math.min(deadline, control.nextPollNanos());
+            }
+            applyStatsInterval(System.nanoTime());
+            if (activeStatsIntervalNanos != 0) {
+                deadline = Math.min(deadline, nextStatsNanos);
+            }
+            return deadline;
+        }
+        
+        @Override
+        public void onDeadline() {
+            long now = System.nanoTime();
+            if (!batcher.isEmpty() && now - (batcher.firstEventNanos() + batchWindowNanos) >= 0) {
+                flush();
+            } else if (control != null && control.firstEventNanos() != Long.MAX_VALUE
+                && now - (control.firstEventNanos() + batchWindowNanos) >= 0) {
+                flush();
+            }
+            pollNacks(now);
+            pollControl(now);
+            pollStats(now);
+        }
+        
+        @Override
+        public void onShutdown() {
+            flush();
+            transport.close();
+            if (sharedMemory != null) {
+                sharedMemory.close();
+                sharedMemory = null;
+                activeSharedMemoryFile = null;
+            }
+            if (overlayServer != null) {
+                overlayServer.close();
+                overlayServer = null;
+                activeOverlayPort = 0;
+            }
+            if (control != null) {
+                control.close();
+                control = null;
+                activeControlPort = 0;
+            }
+            Log.info("Socket closed");
+        }
+    }
+    
+    /**
+     * 是否发送到配置的目标 (只发给订阅者时跳过)
+     */
+    private boolean isBroadcasting() {
+        return !(subscribersOnly && control != null);
+    }
+    
+    /**
+     * 编码并加入发往配置目标的批次
+     */
+    private void broadcast(HealthEvent event, long now) {
+        applyDestinations();
+        if (transport.reconnect()) {
+            // 新连接的接收端需要重新获取来源定义
+            binaryEncoder.forgetSourceDefinitions();
+            Log.info("Receiver connected: {}", transport.describe());
+        }
+        if (now - nextDefinitionRefreshNanos >= 0) {
+            // UDP 丢包或接收端中途加入时，定期重新附带定义
+            binaryEncoder.forgetSourceDefinitions();
+            nextDefinitionRefreshNanos = now + SOURCE_DEFINITION_REFRESH_NANOS;
         }
         
+        EventEncoder encoder = wireFormat == WireFormat.BINARY ? binaryEncoder : jsonEncoder;
+        frameBuffer.clear();
+        long encodeStart = System.nanoTime();
+        encoder.encode(event, frameBuffer);
+        metrics.recordEncode(System.nanoTime() - encodeStart);
+        frameBuffer.flip();
+        
+        appendBroadcast(encoder.format(), event.nanos, now);
+        if (isCritical(event.type)) {
+            batchHasCritical = true;
+        }
+    }
+    
+    /**
+     * 把 frameBuffer 中的一帧加入批次，批次放不下时先发送
+     */
+    private void appendBroadcast(WireFormat format, long captureNanos, long now) {
+        if (batcher.count() == 0 && batcher.capacityBytes() != maxDatagramBytes) {
+            batcher = new DatagramBatcher(maxDatagramBytes, MAX_EVENT_BYTES);
+        }
+        if (!batcher.canAppend(format, frameBuffer.remaining())) {
+            // 这一帧附带的来源定义随它进入下一个批次，不随当前批次确认
+            int carried = format == WireFormat.BINARY ? binaryEncoder.detachFrameDefinition() : -1;
+            flushBroadcast();
+            binaryEncoder.restoreFrameDefinition(carried);
+        }
+        int index = batcher.count();
+        if (index == batchCaptureNanos.length) {
+            batchCaptureNanos = Arrays.copyOf(batchCaptureNanos, index * 2);
+        }
+        batchCaptureNanos[index] = captureNanos;
+        batcher.append(format, frameBuffer, now);
+    }
+    
+    /**
+     * 到达间隔时在配置的目标上发送一个 stats 事件 (单独成包)
+     */
+    private void pollStats(long now) {
+        applyStatsInterval(now);
+        if (activeStatsIntervalNanos == 0 || now - nextStatsNanos < 0) {
+            return;
+        }
+        nextStatsNanos = now + activeStatsIntervalNanos;
+        statsLatency.advance();
+        statsEncode.advance();
+        if (!isBroadcasting()) {
+            return;
+        }
+        applyDestinations();
+        flushBroadcast();
+        frameBuffer.clear();
+        long sequence = streamSequence++;
+        WireFormat format = wireFormat;
+        if (format == WireFormat.BINARY) {
+            BinaryEventEncoder.encodeStats(frameBuffer, metrics, statsLatency, statsEncode, sequence, now);
+        } else {
+            JsonEventEncoder.writeStats(frameBuffer, metrics, statsLatency, statsEncode, System.currentTimeMillis(), sequence);
+        }
+        frameBuffer.flip();
+        appendBroadcast(format, NO_CAPTURE, now);
+        flushBroadcast();
+    }
+    
+    /**
+     * stats 间隔变化时从现在开始重新计时
+     */
+    private void applyStatsInterval(long now) {
+        long wanted = statsIntervalNanos;
+        if (wanted != activeStatsIntervalNanos) {
+            activeStatsIntervalNanos = wanted;
+            nextStatsNanos = now + wanted;
+        }
+    }
+    
+    /**
+     * 目标列表变化时更新发送通道 (在编码前调用，保证来源定义随新目标重新发送)
+     */
+    private void applyDestinations() {
+        List<Destination> wanted = destinations;
+        if (wanted != activeDestinations) {
+            flushBroadcast();
+            activeDestinations = wanted;
+            if (transport.reconfigure(wanted)) {
+                // 新的接收端需要重新获取来源定义
+                binaryEncoder.forgetSourceDefinitions();
+            }
+            Log.info("Targets: {}", transport.describe());
+        }
+    }
+    
+    /**
+     * 共享内存配置变化时打开/关闭映射文件
+     */
+    private void applySharedMemory() {
+        File wanted = sharedMemoryFile;
+        if (wanted == activeSharedMemoryFile) {
+            return;
+        }
+        activeSharedMemoryFile = wanted;
+        if (sharedMemory != null) {
+            sharedMemory.close();
+            sharedMemory = null;
+        }
+        if (wanted != null) {
+            try {
+                sharedMemory = new SharedMemoryTransport(wanted, SharedMemoryLayout.DEFAULT_SLOT_COUNT, sources);
+                Log.info("Shared memory output opened: {}", sharedMemory.describe());
+            } catch (IOException e) {
+                Log.warn("Failed to open shared memory file {}: {}", wanted, e.getMessage());
+            }
+        }
+    }
+    
+    /**
+     * 叠加层端口变化时启动/停止 HTTP 服务器
+     */
+    private void applyOverlayServer() {
+        int wanted = overlayPort;
+        if (wanted == activeOverlayPort) {
+            return;
+        }
+        activeOverlayPort = wanted;
+        if (overlayServer != null) {
+            overlayServer.close();
+            overlayServer = null;
+        }
+        if (wanted != 0) {
+            try {
+                overlayServer = new OverlayServer(new InetSocketAddress(UDP_HOST, wanted), sources, metrics);
+                Log.info("Overlay server listening on {}", overlayServer.describe());
+            } catch (IOException e) {
+                Log.warn("Failed to start overlay server on port {}: {}", wanted, e.getMessage());
+            }
+        }
+    }
+    
+    /**
+     * 发送所有未满的批次 (配置的目标和订阅者)
+     */
+    private void flush() {
+        flushBroadcast();
+        if (control != null) {
+            control.flush();
+        }
+    }
+    
+    private void flushBroadcast() {
+        if (batcher.isEmpty()) {
+            return;
+        }
+        boolean delivered = false;
         try {
-            byte[] buffer = json.getBytes(StandardCharsets.UTF_8);
-            DatagramPacket packet = new DatagramPacket(buffer, buffer.length, address, port);
-            socket.send(packet);
-            log("Sent UDP packet to " + UDP_HOST + ":" + port + " - " + json);
-            return true;
-        } catch (Exception e) {
-            log("Failed to send UDP packet: " + e.getMessage());
-            e.printStackTrace();
-            return false;
+            ByteBuffer datagram = batcher.flip();
+            int start = datagram.position();
+            int limit = datagram.limit();
+            int events = batcher.count();
+            if (send(batcher.format(), events, datagram)) {
+                delivered = true;
+                long sent = System.nanoTime();
+                for (int i = 0; i < events; i++) {
+                    if (batchCaptureNanos[i] != NO_CAPTURE) {
+                        metrics.recordCaptureToSend(sent - batchCaptureNanos[i]);
+                    }
+                }
+            }
+            if (batchHasCritical) {
+                // 冗余副本，接收端按 seq 去重
+                for (int i = criticalRedundancy; i > 0; i--) {
+                    datagram.limit(limit);
+                    datagram.position(start);
+                    SendStatus status = transport.send(datagram);
+                    metrics.recordSend(status, limit - start);
+                    delivered |= status == SendStatus.SENT;
+                }
+            }
+        } finally {
+            // 来源定义只有在数据包交给内核后才算已发送
+            if (delivered) {
+                binaryEncoder.commitSourceDefinitions();
+            } else {
+                binaryEncoder.discardSourceDefinitions();
+            }
+            batcher.clear();
+            batchHasCritical = false;
+        }
+    }
+    
+    /**
+     * 控制端口变化时打开/关闭控制通道
+     */
+    private void applyControlChannel() {
+        int wanted = controlPort;
+        if (wanted == activeControlPort) {
+            return;
+        }
+        activeControlPort = wanted;
+        if (control != null) {
+            control.close();
+            control = null;
+        }
+        if (wanted != 0) {
+            try {
+                control = new ControlChannel(new InetSocketAddress(UDP_HOST, wanted), sources, jsonEncoder, MAX_EVENT_BYTES);
+                Log.info("Control channel listening on {}", control.describe());
+            } catch (IOException e) {
+                Log.warn("Failed to open control channel on port {}: {}", wanted, e.getMessage());
+            }
+        }
+    }
+    
+    private void pollControl(long now) {
+        if (control != null) {
+            control.poll(now, controlHandler);
+        }
+    }
+    
+    /**
+     * 处理订阅者的快照和重传请求 (在发送线程中运行)
+     */
+    private final class ControlHandler implements ControlChannel.Listener {
+        
+        @Override
+        public void onSnapshot(Subscriber subscriber) {
+            if (!hasState) {
+                return;
+            }
+            // 快照使用新的流序号：其他接收端看到的空缺与被过滤的类型一样，不需要重传
+            snapshotEvent.copyFrom(latestState);
+            snapshotEvent.type = EventType.HEALTH;
+            snapshotEvent.amount = 0;
+            snapshotEvent.sourceId = SourceRegistry.UNKNOWN;
+            snapshotEvent.count = 1;
+            snapshotEvent.timestamp = System.currentTimeMillis();
+            snapshotEvent.nanos = System.nanoTime();
+            snapshotEvent.sequence = streamSequence++;
+            control.send(subscriber, snapshotEvent, snapshotEvent.nanos);
+        }
+        
+        @Override
+        public void onNack(Subscriber subscriber, long[] sequences, int count) {
+            long now = System.nanoTime();
+            int resent = 0;
+            for (int i = 0; i < count; i++) {
+                HealthEvent event = retransmitRing.find(sequences[i]);
+                if (event != null) {
+                    control.forgetSourceDefinition(subscriber, event.sourceId);
+                    control.send(subscriber, event, now);
+                    resent++;
+                }
+            }
+            if (resent > 0) {
+                Log.verbose(LogTopic.PACKETS, "Retransmitted {} events to subscriber {}", resent, subscriber.getAddress());
+            }
+        }
+        
+        @Override
+        public void onSubscription(Subscriber subscriber, String change) {
+            Log.info("Subscriber {}: {}", change, subscriber);
+        }
+    }
+    
+    private static boolean isCritical(EventType type) {
+        return type == EventType.DAMAGE || type == EventType.DEATH;
+    }
+    
+    /**
+     * 读取各目标发回的 NACK 并重传窗口内的关键事件 (按间隔限频)
+     */
+    private void pollNacks(long now) {
+        if (retransmitRing.size() == 0 || now - nextNackPollNanos < 0) {
+            return;
+        }
+        nextNackPollNanos = now + NACK_POLL_INTERVAL_NANOS;
+        List<DestinationTransport> targets = transport.targets();
+        for (int i = 0; i < targets.size(); i++) {
+            DestinationTransport target = targets.get(i);
+            nackBuffer.clear();
+            while (target.receive(nackBuffer) > 0) {
+                nackBuffer.flip();
+                int count = Nack.parse(nackBuffer, nackSequences);
+                if (count > 0) {
+                    retransmit(target, count, now);
+                }
+                nackBuffer.clear();
+            }
+        }
+    }
+    
+    /**
+     * 把 NACK 请求的事件按原序号重新编码，只发给请求方
+     */
+    private void retransmit(DestinationTransport target, int count, long now) {
+        WireFormat format = wireFormat;
+        EventEncoder encoder = format == WireFormat.BINARY ? binaryEncoder : jsonEncoder;
+        int capacity = maxDatagramBytes;
+        if (retransmitBatcher.capacityBytes() != capacity) {
+            retransmitBatcher = new DatagramBatcher(capacity, MAX_EVENT_BYTES);
+        }
+        DatagramBatcher resend = retransmitBatcher;
+        resend.clear();
+        int resent = 0;
+        for (int i = 0; i < count; i++) {
+            HealthEvent event = retransmitRing.find(nackSequences[i]);
+            if (event == null) {
+                continue;
+            }
+            frameBuffer.clear();
+            if (format == WireFormat.BINARY) {
+                // 请求方可能也丢了来源定义；只发给它的帧不改变广播的定义记录
+                binaryEncoder.encodeSelfDescribing(event, frameBuffer);
+            } else {
+                encoder.encode(event, frameBuffer);
+            }
+            frameBuffer.flip();
+            if (!resend.canAppend(format, frameBuffer.remaining())) {
+                target.send(resend.flip());
+                resend.clear();
+            }
+            resend.append(format, frameBuffer, now);
+            resent++;
+        }
+        if (!resend.isEmpty()) {
+            target.send(resend.flip());
+        }
+        if (resent > 0) {
+            Log.verbose(LogTopic.PACKETS, "Retransmitted {} events to {}", resent, target.describe());
+        }
+    }
+    
+    private boolean send(WireFormat format, int events, ByteBuffer datagram) {
+        int start = datagram.position();
+        int length = datagram.remaining();
+        
+        SendStatus status = transport.send(datagram);
+        metrics.recordSend(status, length);
+        switch (status) {
+            case SENT:
+                // 关键事件的数据包总是记录，其余按抽样率
+                if (Log.isEnabled(LogLevel.INFO, LogTopic.PACKETS) && (batchHasCritical || Log.sample(LogTopic.PACKETS))) {
+                    Log.verbose(LogTopic.PACKETS, "Sent packet to {} ({} events) - {}", transport.describe(), events,
+                        format == WireFormat.JSON ? describeJson(datagram, start, length) : length + " bytes binary");
+                }
+                return true;
+            case BACKPRESSURE:
+                if (Log.isEnabled(LogLevel.INFO, LogTopic.PACKETS)) {
+                    Log.verbose(LogTopic.PACKETS, "Send buffer full, packet dropped (total {})", transport.getBackpressureCount());
+                }
+                return false;
+            case SUSPENDED:
+                // 所有目标都在熔断中，警告由 DestinationTransport 限频输出
+                return false;
+            case FAILED:
+            default:
+                if (Log.isEnabled(LogLevel.INFO, LogTopic.PACKETS)) {
+                    Log.verbose(LogTopic.PACKETS, "Failed to send packet to {} (total failures {})", transport.describe(), transport.getFailureCount());
+                }
+                return false;
         }
     }
     
+    private static String describeJson(ByteBuffer datagram, int start, int length) {
+        ByteBuffer copy = datagram.duplicate();
+        copy.limit(start + length);
+        copy.position(start);
+        ByteBuffer slice = copy.slice();
+        slice.position(length);
+        return JsonEventEncoder.toString(slice);
+    }
+    
+    /**
+     * 关闭广播器：排空缓冲区中剩余的事件后关闭 socket (捕获线程)
+     */
     public void close() {
-        if (socket != null && !socket.isClosed()) {
-            socket.close();
-            log("Socket closed");
+        if (pipeline != null) {
+            publishAggregates(true);
+            Pipeline current = pipeline;
+            pipeline = null;
+            if (current.sender.isRunning() && !current.sender.close(CLOSE_TIMEOUT_MS)) {
+                Log.warn("Sender thread did not stop within {}ms", CLOSE_TIMEOUT_MS);
+            }
         }
+        Log.flush(CLOSE_TIMEOUT_MS);
     }
     
     // ========== 数据类 ==========
@@ -230,10 +1182,9 @@ public class HealthBroadcaster {
         public long timestamp;
         
         public String toJson() {
-            return String.format(
-                "{\"type\":\"%s\",\"health\":%.1f,\"maxHealth\":%.1f,\"percentage\":%.3f,\"timestamp\":%d}",
-                type, health, maxHealth, percentage, timestamp
-            );
+            ByteBuffer buffer = ByteBuffer.allocate(JsonEventEncoder.MAX_EVENT_BYTES);
+            JsonEventEncoder.writeHealth(buffer, health, maxHealth, percentage, timestamp);
+            return JsonEventEncoder.toString(buffer);
         }
     }
     
@@ -247,11 +1198,9 @@ public class HealthBroadcaster {
         public long timestamp;
         
         public String toJson() {
-            String safeSource = source != null ? source.replace("\"", "\\\"") : "unknown";
-            return String.format(
-                "{\"type\":\"%s\",\"damage\":%.1f,\"health\":%.1f,\"maxHealth\":%.1f,\"percentage\":%.3f,\"source\":\"%s\",\"timestamp\":%d}",
-                type, damage, health, maxHealth, percentage, safeSource, timestamp
-            );
+            ByteBuffer buffer = ByteBuffer.allocate(JsonEventEncoder.MAX_EVENT_BYTES);
+            JsonEventEncoder.writeDamage(buffer, damage, health, maxHealth, percentage, source, timestamp);
+            return JsonEventEncoder.toString(buffer);
         }
     }
     
@@ -261,11 +1210,9 @@ public class HealthBroadcaster {
         public long timestamp;
         
         public String toJson() {
-            String safeSource = source != null ? source.replace("\"", "\\\"") : "unknown";
-            return String.format(
-                "{\"type\":\"%s\",\"source\":\"%s\",\"timestamp\":%d}",
-                type, safeSource, timestamp
-            );
+            ByteBuffer buffer = ByteBuffer.allocate(JsonEventEncoder.MAX_EVENT_BYTES);
+            JsonEventEncoder.writeDeath(buffer, source, timestamp);
+            return JsonEventEncoder.toString(buffer);
         }
     }
     
@@ -278,10 +1225,9 @@ public class HealthBroadcaster {
         public long timestamp;
         
         public String toJson() {
-            return String.format(
-                "{\"type\":\"%s\",\"amount\":%.1f,\"health\":%.1f,\"maxHealth\":%.1f,\"percentage\":%.3f,\"timestamp\":%d}",
-                type, amount, health, maxHealth, percentage, timestamp
-            );
+            ByteBuffer buffer = ByteBuffer.allocate(JsonEventEncoder.MAX_EVENT_BYTES);
+            JsonEventEncoder.writeHeal(buffer, amount, health, maxHealth, percentage, timestamp);
+            return JsonEventEncoder.toString(buffer);
         }
     }
 }
@@ -0,0 +1,491 @@
+package com.healthbroadcast.common.control;
+
+import com.healthbroadcast.common.log.Log;
+import com.healthbroadcast.common.pipeline.EventType;
+import com.healthbroadcast.common.pipeline.HealthEvent;
+import com.healthbroadcast.common.pipeline.SourceRegistry;
+import com.healthbroadcast.common.wire.BinaryEventEncoder;
+import com.healthbroadcast.common.wire.DatagramBatcher;
+import com.healthbroadcast.common.wire.JsonEventEncoder;
+import com.healthbroadcast.common.wire.Nack;
+import com.healthbroadcast.common.wire.WireFormat;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 控制通道 - 接收端向 Mod 的控制端口发送 ASCII 命令，事件从同一个 socket 发回命令的来源地址
+ * <pre>
+ *   REGISTER [lease=秒] [format=json|binary] [rate=每秒事件数] [types=health,damage,heal,death]
+ *            注册或续约；已注册时更新设置。回复 OK REGISTER ...，并立即发送一次当前状态
+ *   UNREGISTER          取消注册，回复 OK UNREGISTER
+ *   SNAPSHOT            立即发送当前状态 (health 事件)，未注册也可以使用
+ *   NACK 12 13          重传请求，见 {@link Nack}
+ * </pre>
+ * 
+ * 类型过滤在编码前判断；速率按令牌桶限制：damage / death 不受限制，
+ * 超出速率的 health 推迟到有令牌时只发送最新值，heal 被丢弃。
+ * 租约到期没有续约的订阅者会被移除。只在发送线程中使用 (订阅者列表可以从其他线程读取)。
+ */
+public final class ControlChannel {
+    
+    public static final int DEFAULT_PORT = 39573;
+    public static final int MAX_SUBSCRIBERS = 16;
+    public static final int DEFAULT_LEASE_SECONDS = 30;
+    public static final int MAX_LEASE_SECONDS = 300;
+    public static final int MAX_RATE = 1000;
+    /** 读取命令、检查租约和补发推迟事件的间隔 */
+    public static final long POLL_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(20);
+    private static final int MAX_COMMAND_BYTES = 512;
+    
+    /**
+     * 需要由广播器处理的命令 (在发送线程中回调)
+     */
+    public interface Listener {
+        
+        /**
+         * 订阅者请求当前状态：调用 {@link #send(Subscriber, HealthEvent, long)} 写入快照
+         */
+        void onSnapshot(Subscriber subscriber);
+        
+        /**
+         * 订阅者请求重传
+         */
+        void onNack(Subscriber subscriber, long[] sequences, int count);
+        
+        /**
+         * 订阅者注册、更新设置或被移除 (取消注册 / 租约到期)
+         */
+        void onSubscription(Subscriber subscriber, String change);
+    }
+    
+    private final DatagramChannel channel;
+    private final InetSocketAddress localAddress;
+    private final JsonEventEncoder jsonEncoder;
+    private final SourceRegistry sources;
+    private final int maxEventBytes;
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    
+    private final ByteBuffer inbound = ByteBuffer.allocate(MAX_COMMAND_BYTES);
+    private final ByteBuffer jsonFrame;
+    private final ByteBuffer binaryFrame;
+    private final long[] nackSequences = new long[Nack.MAX_SEQUENCES];
+    /** {@link #onEvent} 中当前事件的 JSON 是否已编码 (所有 JSON 订阅者共用一份) */
+    private boolean jsonEncoded;
+    
+    private int maxDatagramBytes = DatagramBatcher.DEFAULT_MAX_DATAGRAM_BYTES;
+    private int criticalRedundancy;
+    private long nextPollNanos;
+    
+    public ControlChannel(InetSocketAddress address, SourceRegistry sources, JsonEventEncoder jsonEncoder,
+                          int maxEventBytes) throws IOException {
+        this.sources = sources;
+        this.jsonEncoder = jsonEncoder;
+        this.maxEventBytes = maxEventBytes;
+        this.jsonFrame = ByteBuffer.allocate(maxEventBytes);
+        this.binaryFrame = ByteBuffer.allocate(maxEventBytes);
+        DatagramChannel opened = DatagramChannel.open();
+        try {
+            opened.configureBlocking(false);
+            opened.bind(address);
+        } catch (IOException e) {
+            opened.close();
+            throw e;
+        }
+        this.channel = opened;
+        this.localAddress = (InetSocketAddress) opened.getLocalAddress();
+    }
+    
+    public int getPort() {
+        return localAddress.getPort();
+    }
+    
+    /**
+     * 当前订阅者 (只读快照)
+     */
+    public List<Subscriber> subscribers() {
+        return subscribers;
+    }
+    
+    public boolean hasSubscribers() {
+        return !subscribers.isEmpty();
+    }
+    
+    /**
+     * 更新批次大小与冗余设置，在下一个批次生效
+     */
+    public void configure(int maxDatagramBytes, int criticalRedundancy) {
+        this.maxDatagramBytes = maxDatagramBytes;
+        this.criticalRedundancy = criticalRedundancy;
+    }
+    
+    // ==================== 入站命令 ====================
+    
+    /**
+     * 读取所有待处理的命令、移除租约到期的订阅者并补发推迟的 health (按间隔限频)
+     */
+    public void poll(long nowNanos, Listener listener) {
+        if (nowNanos - nextPollNanos < 0) {
+            return;
+        }
+        nextPollNanos = nowNanos + POLL_INTERVAL_NANOS;
+        
+        while (true) {
+            inbound.clear();
+            SocketAddress from;
+            try {
+                from = channel.receive(inbound);
+            } catch (IOException e) {
+                Log.warn("Control channel receive failed: {}", e.toString());
+                break;
+            }
+            if (from == null) {
+                break;
+            }
+            inbound.flip();
+            handle(from, nowNanos, listener);
+        }
+        
+        for (int i = subscribers.size() - 1; i >= 0; i--) {
+            Subscriber subscriber = subscribers.get(i);
+            if (nowNanos - subscriber.leaseExpiresNanos >= 0) {
+                remove(subscriber);
+                listener.onSubscription(subscriber, "lease expired");
+            } else if (subscriber.healthDeferred && subscriber.tryAcquire(nowNanos)) {
+                subscriber.healthDeferred = false;
+                append(subscriber, subscriber.deferredHealth, nowNanos, false);
+            }
+        }
+    }
+    
+    /**
+     * 下一次需要 {@link #poll} 的时间
+     */
+    public long nextPollNanos() {
+        return nextPollNanos;
+    }
+    
+    private void handle(SocketAddress from, long nowNanos, Listener listener) {
+        Subscriber subscriber = find(from);
+        
+        // NACK 最常见，先用不分配内存的解析器判断
+        int nacked = Nack.parse(inbound, nackSequences);
+        if (nacked >= 0) {
+            if (subscriber != null && nacked > 0) {
+                listener.onNack(subscriber, nackSequences, nacked);
+                flush(subscriber);
+            }
+            return;
+        }
+        
+        String line = StandardCharsets.US_ASCII.decode(inbound).toString().trim();
+        String[] parts = line.split("\\s+");
+        String command = parts[0].toUpperCase(Locale.ROOT);
+        switch (command) {
+            case "REGISTER":
+                register(from, subscriber, parts, nowNanos, listener);
+                break;
+            case "UNREGISTER":
+                if (subscriber != null) {
+                    remove(subscriber);
+                    listener.onSubscription(subscriber, "unregistered");
+                }
+                reply(from, "OK UNREGISTER");
+                break;
+            case "SNAPSHOT":
+                Subscriber target = subscriber != null ? subscriber : newSubscriber(from);
+                listener.onSnapshot(target);
+                flush(target);
+                break;
+            default:
+                reply(from, "ERR unknown command " + command);
+                break;
+        }
+    }
+    
+    private void register(SocketAddress from, Subscriber existing, String[] parts, long nowNanos, Listener listener) {
+        int lease = DEFAULT_LEASE_SECONDS;
+        WireFormat format = WireFormat.JSON;
+        int rate = 0;
+        int types = Subscriber.ALL_TYPES;
+        for (int i = 1; i < parts.length; i++) {
+            int eq = parts[i].indexOf('=');
+            String key = eq > 0 ? parts[i].substring(0, eq).toLowerCase(Locale.ROOT) : parts[i];
+            String value = eq > 0 ? parts[i].substring(eq + 1) : "";
+            try {
+                switch (key) {
+                    case "lease":
+                        lease = Math.max(1, Math.min(MAX_LEASE_SECONDS, Integer.parseInt(value)));
+                        break;
+                    case "format":
+                        if (!value.equalsIgnoreCase("json") && !value.equalsIgnoreCase("binary")) {
+                            reply(from, "ERR unknown format " + value);
+                            return;
+                        }
+                        format = WireFormat.fromName(value);
+                        break;
+                    case "rate":
+                        rate = Math.max(0, Math.min(MAX_RATE, Integer.parseInt(value)));
+                        break;
+                    case "types":
+                        types = Subscriber.parseTypes(value);
+                        if (types <= 0) {
+                            reply(from, "ERR unknown types " + value);
+                            return;
+                        }
+                        break;
+                    default:
+                        reply(from, "ERR unknown option " + key);
+                        return;
+                }
+            } catch (NumberFormatException e) {
+                reply(from, "ERR invalid number for " + key);
+                return;
+            }
+        }
+        
+        Subscriber subscriber = existing;
+        boolean added = subscriber == null;
+        if (added) {
+            if (subscribers.size() >= MAX_SUBSCRIBERS) {
+                reply(from, "ERR too many subscribers");
+                return;
+            }
+            subscriber = newSubscriber(from);
+        } else {
+            if (subscriber.format != format) {
+                // 格式变化前发出当前批次
+                flush(subscriber);
+            }
+            // 重新注册的接收端可能已经重启，来源定义需要重新发送
+            if (subscriber.binaryEncoder != null) {
+                subscriber.binaryEncoder.forgetSourceDefinitions();
+            }
+        }
+        subscriber.format = format;
+        subscriber.typeMask = types;
+        if (subscriber.maxRate != rate || added) {
+            subscriber.setMaxRate(rate, nowNanos);
+        }
+        subscriber.leaseSeconds = lease;
+        subscriber.leaseExpiresNanos = nowNanos + TimeUnit.SECONDS.toNanos(lease);
+        if (added) {
+            subscribers.add(subscriber);
+            listener.onSubscription(subscriber, "registered");
+        }
+        
+        reply(from, "OK REGISTER lease=" + lease + " format=" + format.name().toLowerCase(Locale.ROOT)
+            + " rate=" + rate + " types=" + Subscriber.describeTypes(types));
+        if (added) {
+            // 新订阅者不必等下一次定期更新
+            listener.onSnapshot(subscriber);
+            flush(subscriber);
+        }
+    }
+    
+    private Subscriber newSubscriber(SocketAddress from) {
+        return new Subscriber(from, new DatagramBatcher(maxDatagramBytes, maxEventBytes));
+    }
+    
+    private Subscriber find(SocketAddress from) {
+        for (int i = 0; i < subscribers.size(); i++) {
+            Subscriber subscriber = subscribers.get(i);
+            if (subscriber.address.equals(from)) {
+                return subscriber;
+            }
+        }
+        return null;
+    }
+    
+    private void remove(Subscriber subscriber) {
+        flush(subscriber);
+        subscribers.remove(subscriber);
+    }
+    
+    private void reply(SocketAddress to, String message) {
+        try {
+            channel.send(ByteBuffer.wrap(message.getBytes(StandardCharsets.US_ASCII)), to);
+        } catch (IOException e) {
+            // 回复丢失时接收端会重发命令
+        }
+    }
+    
+    // ==================== 出站事件 ====================
+    
+    /**
+     * 按每个订阅者的类型过滤和速率把事件加入其批次
+     */
+    public void onEvent(HealthEvent event, long nowNanos) {
+        EventType type = event.type;
+        boolean critical = type == EventType.DAMAGE || type == EventType.DEATH;
+        jsonEncoded = false;
+        for (int i = 0; i < subscribers.size(); i++) {
+            Subscriber subscriber = subscribers.get(i);
+            if (!subscriber.accepts(type)) {
+                continue;
+            }
+            if (!critical && !subscriber.tryAcquire(nowNanos)) {
+                if (type == EventType.HEALTH) {
+                    subscriber.deferredHealth.copyFrom(event);
+                    subscriber.healthDeferred = true;
+                } else {
+                    subscriber.droppedEvents++;
+                }
+                continue;
+            }
+            // 这个事件已经带着更新的血量
+            subscriber.healthDeferred = false;
+            append(subscriber, event, nowNanos, true);
+            if (critical) {
+                subscriber.batchHasCritical = true;
+            }
+        }
+    }
+    
+    /**
+     * 不经过过滤和速率限制，直接把事件加入订阅者的批次 (快照、重传)
+     */
+    public void send(Subscriber subscriber, HealthEvent event, long nowNanos) {
+        append(subscriber, event, nowNanos, false);
+    }
+    
+    private void append(Subscriber subscriber, HealthEvent event, long nowNanos, boolean shareJson) {
+        ByteBuffer frame;
+        if (subscriber.format == WireFormat.BINARY) {
+            if (subscriber.binaryEncoder == null) {
+                subscriber.binaryEncoder = new BinaryEventEncoder(sources);
+            }
+            binaryFrame.clear();
+            subscriber.binaryEncoder.encode(event, binaryFrame);
+            binaryFrame.flip();
+            frame = binaryFrame;
+        } else {
+            if (!shareJson || !jsonEncoded) {
+                jsonFrame.clear();
+                jsonEncoder.encode(event, jsonFrame);
+                jsonFrame.flip();
+                jsonEncoded = shareJson;
+            }
+            jsonFrame.position(0);
+            frame = jsonFrame;
+        }
+        
+        DatagramBatcher batcher = subscriber.batcher;
+        if (batcher.isEmpty() && batcher.capacityBytes() != maxDatagramBytes) {
+            batcher = subscriber.batcher = new DatagramBatcher(maxDatagramBytes, maxEventBytes);
+        }
+        if (!batcher.canAppend(subscriber.format, frame.remaining())) {
+            // 这一帧附带的来源定义随它进入下一个批次，不随当前批次确认
+            BinaryEventEncoder encoder = subscriber.format == WireFormat.BINARY ? subscriber.binaryEncoder : null;
+            int carried = encoder != null ? encoder.detachFrameDefinition() : -1;
+            flush(subscriber);
+            if (encoder != null) {
+                encoder.restoreFrameDefinition(carried);
+            }
+        }
+        batcher.append(subscriber.format, frame, nowNanos);
+    }
+    
+    /**
+     * 重传时请求方可能也丢了来源定义
+     */
+    public void forgetSourceDefinition(Subscriber subscriber, int sourceId) {
+        if (subscriber.binaryEncoder != null) {
+            subscriber.binaryEncoder.forgetSourceDefinition(sourceId);
+        }
+    }
+    
+    /**
+     * 最早的未发送批次开始的时间，没有时返回 Long.MAX_VALUE
+     */
+    public long firstEventNanos() {
+        long first = 0;
+        boolean found = false;
+        for (int i = 0; i < subscribers.size(); i++) {
+            DatagramBatcher batcher = subscribers.get(i).batcher;
+            if (!batcher.isEmpty() && (!found || batcher.firstEventNanos() - first < 0)) {
+                first = batcher.firstEventNanos();
+                found = true;
+            }
+        }
+        return found ? first : Long.MAX_VALUE;
+    }
+    
+    /**
+     * 发送所有订阅者的批次
+     */
+    public void flush() {
+        for (int i = 0; i < subscribers.size(); i++) {
+            flush(subscribers.get(i));
+        }
+    }
+    
+    private void flush(Subscriber subscriber) {
+        DatagramBatcher batcher = subscriber.batcher;
+        if (batcher.isEmpty()) {
+            return;
+        }
+        try {
+            ByteBuffer datagram = batcher.flip();
+            int start = datagram.position();
+            int limit = datagram.limit();
+            int copies = subscriber.batchHasCritical ? 1 + criticalRedundancy : 1;
+            boolean sent = false;
+            for (int i = 0; i < copies; i++) {
+                datagram.limit(limit);
+                datagram.position(start);
+                sent |= sendTo(subscriber, datagram);
+            }
+            if (subscriber.binaryEncoder != null) {
+                if (sent) {
+                    subscriber.binaryEncoder.commitSourceDefinitions();
+                } else {
+                    subscriber.binaryEncoder.discardSourceDefinitions();
+                }
+            }
+        } finally {
+            batcher.clear();
+            subscriber.batchHasCritical = false;
+        }
+    }
+    
+    /**
+     * @return true 如果数据包已交给内核
+     */
+    private boolean sendTo(Subscriber subscriber, ByteBuffer datagram) {
+        try {
+            if (channel.send(datagram, subscriber.address) == 0) {
+                subscriber.backpressureCount++;
+                return false;
+            }
+            subscriber.sentPackets++;
+            return true;
+        } catch (IOException e) {
+            subscriber.failureCount++;
+            subscriber.lastError = e.toString();
+            return false;
+        }
+    }
+    
+    public String describe() {
+        return "udp://" + localAddress.getHostString() + ":" + localAddress.getPort() + " (" + subscribers.size() + " subscribers)";
+    }
+    
+    public void close() {
+        flush();
+        subscribers.clear();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // 忽略
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.healthbroadcast.common.control;
+
+import com.healthbroadcast.common.pipeline.EventType;
+import com.healthbroadcast.common.pipeline.HealthEvent;
+import com.healthbroadcast.common.wire.BinaryEventEncoder;
+import com.healthbroadcast.common.wire.DatagramBatcher;
+import com.healthbroadcast.common.wire.WireFormat;
+
+import java.net.SocketAddress;
+import java.util.Locale;
+
+/**
+ * 通过控制通道注册的接收端
+ * 设置 (格式、类型过滤、速率、租约) 和批次只在发送线程中访问，计数可以从其他线程读取。
+ */
+public final class Subscriber {
+    
+    /** 所有可订阅的事件类型 */
+    public static final int ALL_TYPES = typeBit(EventType.HEALTH) | typeBit(EventType.DAMAGE)
+        | typeBit(EventType.HEAL) | typeBit(EventType.DEATH);
+    
+    final SocketAddress address;
+    WireFormat format = WireFormat.JSON;
+    /** 二进制格式的来源定义按接收端记录，所以每个订阅者一个编码器 */
+    BinaryEventEncoder binaryEncoder;
+    int typeMask = ALL_TYPES;
+    /** 每秒最多事件数，0 = 不限 */
+    int maxRate;
+    int leaseSeconds;
+    long leaseExpiresNanos;
+    DatagramBatcher batcher;
+    boolean batchHasCritical;
+    
+    // 令牌桶
+    private double tokens;
+    private long refillNanos;
+    
+    /** 超出速率而推迟的最新 health，有令牌时补发 */
+    final HealthEvent deferredHealth = new HealthEvent();
+    boolean healthDeferred;
+    
+    volatile long sentPackets;
+    volatile long droppedEvents;
+    volatile long backpressureCount;
+    volatile long failureCount;
+    volatile String lastError;
+    
+    Subscriber(SocketAddress address, DatagramBatcher batcher) {
+        this.address = address;
+        this.batcher = batcher;
+    }
+    
+    public SocketAddress getAddress() {
+        return address;
+    }
+    
+    public WireFormat getFormat() {
+        return format;
+    }
+    
+    public int getMaxRate() {
+        return maxRate;
+    }
+    
+    public int getLeaseSeconds() {
+        return leaseSeconds;
+    }
+    
+    /**
+     * 是否订阅了该类型 (在编码前判断)
+     */
+    public boolean accepts(EventType type) {
+        return (typeMask & typeBit(type)) != 0;
+    }
+    
+    public long getSentPackets() {
+        return sentPackets;
+    }
+    
+    /**
+     * 超出速率被丢弃的 heal 数 (health 只推迟不丢弃，damage / death 不受速率限制)
+     */
+    public long getDroppedEvents() {
+        return droppedEvents;
+    }
+    
+    public long getBackpressureCount() {
+        return backpressureCount;
+    }
+    
+    public long getFailureCount() {
+        return failureCount;
+    }
+    
+    public String getLastError() {
+        return lastError;
+    }
+    
+    void setMaxRate(int rate, long nowNanos) {
+        maxRate = rate;
+        tokens = rate;
+        refillNanos = nowNanos;
+    }
+    
+    /**
+     * 取一个令牌，速率不限时总是成功
+     */
+    boolean tryAcquire(long nowNanos) {
+        if (maxRate <= 0) {
+            return true;
+        }
+        long elapsed = nowNanos - refillNanos;
+        if (elapsed > 0) {
+            // 桶容量 = 一秒的量
+            tokens = Math.min(maxRate, tokens + elapsed * (maxRate / 1e9));
+            refillNanos = nowNanos;
+        }
+        if (tokens >= 1) {
+            tokens -= 1;
+            return true;
+        }
+        return false;
+    }
+    
+    static int typeBit(EventType type) {
+        return 1 << type.ordinal();
+    }
+    
+    /**
+     * 解析逗号分隔的类型列表，例如 "damage,death"
+     * @return 类型掩码，含无法识别的类型时返回 -1
+     */
+    static int parseTypes(String value) {
+        int mask = 0;
+        for (String name : value.split(",")) {
+            String trimmed = name.trim().toLowerCase(Locale.ROOT);
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            if (trimmed.equals("all")) {
+                mask |= ALL_TYPES;
+                continue;
+            }
+            int bit = 0;
+            for (EventType type : EventType.values()) {
+                if (type != EventType.TICK && type.wireName().equals(trimmed)) {
+                    bit = typeBit(type);
+                }
+            }
+            if (bit == 0) {
+                return -1;
+            }
+            mask |= bit;
+        }
+        return mask;
+    }
+    
+    static String describeTypes(int mask) {
+        StringBuilder sb = new StringBuilder();
+        for (EventType type : EventType.values()) {
+            if (type != EventType.TICK && (mask & typeBit(type)) != 0) {
+                if (sb.length() > 0) {
+                    sb.append(',');
+                }
+                sb.append(type.wireName());
+            }
+        }
+        return sb.toString();
+    }
+    
+    @Override
+    public String toString() {
+        return address + " (" + format.name().toLowerCase(Locale.ROOT) + ", types=" + describeTypes(typeMask)
+            + (maxRate > 0 ? ", rate=" + maxRate + "/s" : "") + ")";
+    }
+}
@@ -0,0 +1,49 @@
+package com.healthbroadcast.common.log;
+
+/**
+ * 没有日志库时的输出端：WARN 以上写 System.err，其余写 System.out
+ */
+final class ConsoleLogBackend implements LogBackend {
+    
+    @Override
+    public void write(LogLevel level, String template, Object[] args) {
+        print(level, template, args);
+    }
+    
+    static void print(LogLevel level, String template, Object[] args) {
+        String message = format(template, args);
+        if (level.compareTo(LogLevel.WARN) >= 0) {
+            System.err.println(message);
+        } else {
+            System.out.println(message);
+        }
+        Object last = args.length > 0 ? args[args.length - 1] : null;
+        if (last instanceof Throwable && level.compareTo(LogLevel.WARN) >= 0) {
+            ((Throwable) last).printStackTrace();
+        }
+    }
+    
+    /**
+     * 依次用参数替换 {}
+     */
+    static String format(String template, Object[] args) {
+        if (args.length == 0) {
+            return template;
+        }
+        StringBuilder sb = new StringBuilder(template.length() + 32);
+        int arg = 0;
+        int start = 0;
+        int index;
+        while ((index = template.indexOf("{}", start)) >= 0) {
+            sb.append(template, start, index);
+            sb.append(arg < args.length ? String.valueOf(args[arg++]) : "{}");
+            start = index + 2;
+        }
+        return sb.append(template, start, template.length()).toString();
+    }
+    
+    @Override
+    public String describe() {
+        return "console";
+    }
+}
@@ -0,0 +1,197 @@
+package com.healthbroadcast.common.log;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 异步日志 - 调用方只写入无锁环形缓冲区，格式化和 I/O 在后台写线程中完成
+ * 
+ * <ul>
+ *   <li>先判断级别和主题再构造任何字符串；消息是带 {} 占位符的常量模板，参数原样保存</li>
+ *   <li>输出到 SLF4J / Log4j 2 (Fabric 和 Forge 都自带)，都不可用时输出到控制台</li>
+ *   <li>高频主题 ({@link LogTopic#EVENTS} / {@link LogTopic#PACKETS}) 默认关闭，
+ *       开启后按 1/N 抽样 (只对 health 这类高频记录使用 {@link #sample})</li>
+ *   <li>缓冲区满时丢弃并计数，写线程稍后输出丢弃条数；调用方从不阻塞</li>
+ * </ul>
+ * 
+ * 热路径上参数需要装箱时，先用 {@link #isEnabled} 判断再调用。
+ */
+public final class Log {
+    
+    public static final int DEFAULT_SAMPLE_EVERY = 20;
+    private static final String LOGGER_NAME = "HealthBroadcast";
+    private static final String PREFIX = "[HealthBroadcast] ";
+    private static final int RING_CAPACITY = 1024;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+    private static final Object[] NO_ARGS = new Object[0];
+    
+    private static volatile LogLevel level = LogLevel.INFO;
+    private static volatile boolean verboseEnabled;
+    private static volatile int sampleEvery = DEFAULT_SAMPLE_EVERY;
+    private static final AtomicLong[] sampleCounters = new AtomicLong[LogTopic.values().length];
+    
+    static {
+        for (int i = 0; i < sampleCounters.length; i++) {
+            sampleCounters[i] = new AtomicLong();
+        }
+    }
+    
+    private Log() {
+    }
+    
+    /**
+     * 写线程和缓冲区在第一次写日志时创建
+     */
+    private static final class Writer implements Runnable {
+        
+        static final Writer INSTANCE = new Writer();
+        
+        final LogRing ring = new LogRing(RING_CAPACITY);
+        final LogBackend backend = LogBackend.detect(LOGGER_NAME);
+        final Thread thread = new Thread(this, "HealthBroadcast-Log");
+        
+        private Writer() {
+            thread.setDaemon(true);
+            thread.start();
+        }
+        
+        @Override
+        public void run() {
+            while (true) {
+                if (!drain()) {
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                }
+            }
+        }
+        
+        /**
+         * @return true 如果写出了记录
+         */
+        boolean drain() {
+            boolean wrote = false;
+            LogRing.Record record;
+            while ((record = ring.poll()) != null) {
+                LogLevel recordLevel = record.level;
+                String template = record.template;
+                Object[] args = record.args;
+                ring.release(record);
+                backend.write(recordLevel, PREFIX + template, args);
+                wrote = true;
+            }
+            long dropped = ring.takeDropped();
+            if (dropped > 0) {
+                backend.write(LogLevel.WARN, PREFIX + "{} log records dropped (log buffer full)", new Object[] {dropped});
+            }
+            return wrote;
+        }
+    }
+    
+    // ==================== 配置 ====================
+    
+    /**
+     * 设置最低输出级别 (默认 INFO)
+     */
+    public static void setLevel(LogLevel newLevel) {
+        if (newLevel != null) {
+            level = newLevel;
+        }
+    }
+    
+    public static LogLevel getLevel() {
+        return level;
+    }
+    
+    /**
+     * 开启/关闭高频主题 (每个事件、每个数据包)，默认关闭
+     */
+    public static void setVerbose(boolean enabled) {
+        verboseEnabled = enabled;
+    }
+    
+    public static boolean isVerbose() {
+        return verboseEnabled;
+    }
+    
+    /**
+     * 高频记录的抽样率：每 N 条输出 1 条，1 = 全部输出
+     */
+    public static void setSampleEvery(int every) {
+        sampleEvery = Math.max(1, every);
+    }
+    
+    // ==================== 写入 ====================
+    
+    /**
+     * 该级别和主题的日志是否会输出 (不分配内存)
+     * 高频主题在开启后以 INFO 级别输出，以便在默认的日志配置中可见。
+     */
+    public static boolean isEnabled(LogLevel recordLevel, LogTopic topic) {
+        if (topic.isVerbose()) {
+            return verboseEnabled && level != LogLevel.OFF;
+        }
+        return recordLevel.compareTo(level) >= 0 && level != LogLevel.OFF;
+    }
+    
+    /**
+     * 抽样：按主题计数，每 {@link #setSampleEvery N} 次返回一次 true
+     */
+    public static boolean sample(LogTopic topic) {
+        int every = sampleEvery;
+        return every <= 1 || sampleCounters[topic.ordinal()].getAndIncrement() % every == 0;
+    }
+    
+    public static void debug(String template, Object... args) {
+        log(LogLevel.DEBUG, LogTopic.GENERAL, template, args);
+    }
+    
+    public static void info(String template, Object... args) {
+        log(LogLevel.INFO, LogTopic.GENERAL, template, args);
+    }
+    
+    public static void warn(String template, Object... args) {
+        log(LogLevel.WARN, LogTopic.GENERAL, template, args);
+    }
+    
+    public static void error(String template, Object... args) {
+        log(LogLevel.ERROR, LogTopic.GENERAL, template, args);
+    }
+    
+    /**
+     * 高频主题的记录 (调用前应先用 {@link #isEnabled} 判断，避免装箱)
+     */
+    public static void verbose(LogTopic topic, String template, Object... args) {
+        log(LogLevel.INFO, topic, template, args);
+    }
+    
+    private static void log(LogLevel recordLevel, LogTopic topic, String template, Object[] args) {
+        if (!isEnabled(recordLevel, topic)) {
+            return;
+        }
+        Writer writer = Writer.INSTANCE;
+        writer.ring.offer(recordLevel, topic, template, args != null ? args : NO_ARGS);
+        if (recordLevel.compareTo(LogLevel.WARN) >= 0) {
+            // 警告和错误尽快输出
+            LockSupport.unpark(writer.thread);
+        }
+    }
+    
+    /**
+     * 等待缓冲区中的记录写出 (关闭时调用)
+     */
+    public static void flush(long timeoutMillis) {
+        Writer writer = Writer.INSTANCE;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        LockSupport.unpark(writer.thread);
+        while (!writer.ring.isEmpty() && System.nanoTime() - deadline < 0) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+    }
+    
+    /**
+     * 实际使用的日志输出端 (SLF4J / Log4j / console)
+     */
+    public static String backendName() {
+        return Writer.INSTANCE.backend.describe();
+    }
+}
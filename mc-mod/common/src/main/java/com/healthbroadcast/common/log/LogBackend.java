@@ -0,0 +1,28 @@
+package com.healthbroadcast.common.log;
+
+/**
+ * 日志输出端 - 只在日志写线程中调用
+ */
+interface LogBackend {
+    
+    /**
+     * @param template 带 {} 占位符的消息
+     * @param args     占位符参数，最后一个参数是 Throwable 时作为异常输出
+     */
+    void write(LogLevel level, String template, Object[] args);
+    
+    String describe();
+    
+    /**
+     * 按顺序尝试 SLF4J、Log4j 2 (两个加载器都自带)，都不可用时输出到控制台
+     */
+    static LogBackend detect(String name) {
+        LogBackend backend = ReflectiveLogBackend.tryCreate(name, "SLF4J",
+            "org.slf4j.LoggerFactory", "org.slf4j.Logger");
+        if (backend == null) {
+            backend = ReflectiveLogBackend.tryCreate(name, "Log4j",
+                "org.apache.logging.log4j.LogManager", "org.apache.logging.log4j.Logger");
+        }
+        return backend != null ? backend : new ConsoleLogBackend();
+    }
+}
@@ -0,0 +1,27 @@
+package com.healthbroadcast.common.log;
+
+/**
+ * 日志级别，从低到高
+ */
+public enum LogLevel {
+    DEBUG,
+    INFO,
+    WARN,
+    ERROR,
+    /** 不输出任何日志 */
+    OFF;
+    
+    /**
+     * 从配置字符串解析，无法识别时使用 INFO
+     */
+    public static LogLevel fromName(String name) {
+        if (name != null) {
+            for (LogLevel level : values()) {
+                if (level.name().equalsIgnoreCase(name.trim())) {
+                    return level;
+                }
+            }
+        }
+        return INFO;
+    }
+}
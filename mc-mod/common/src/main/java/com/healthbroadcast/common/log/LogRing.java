@@ -0,0 +1,109 @@
+package com.healthbroadcast.common.log;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 多生产者 / 单消费者 无锁有界环形缓冲区，槽位预分配
+ * 每个槽位带一个序号：生产者用 CAS 抢占写入位置，写完后推进槽位序号发布；
+ * 写线程只读取序号已发布的槽位。满时丢弃新记录并计数，生产者从不等待。
+ */
+final class LogRing {
+    
+    /**
+     * 结构化日志记录：模板和参数原样保存，由写线程交给日志库格式化
+     */
+    static final class Record {
+        LogLevel level;
+        LogTopic topic;
+        String template;
+        Object[] args;
+        
+        void clear() {
+            level = null;
+            topic = null;
+            template = null;
+            args = null;
+        }
+    }
+    
+    private final Record[] slots;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    /** 只由写线程修改 */
+    private volatile long head;
+    private final AtomicLong dropped = new AtomicLong();
+    
+    LogRing(int capacity) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("capacity must be a power of two: " + capacity);
+        }
+        slots = new Record[capacity];
+        sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = new Record();
+            sequences.set(i, i);
+        }
+        mask = capacity - 1;
+    }
+    
+    /**
+     * 写入一条记录 (任意线程)
+     * @return false 如果缓冲区已满，记录被丢弃
+     */
+    boolean offer(LogLevel level, LogTopic topic, String template, Object[] args) {
+        long position = tail.get();
+        while (true) {
+            int index = (int) position & mask;
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    Record record = slots[index];
+                    record.level = level;
+                    record.topic = topic;
+                    record.template = template;
+                    record.args = args;
+                    sequences.lazySet(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                dropped.incrementAndGet();
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+    
+    /**
+     * 取出下一条已发布的记录 (只在写线程中调用)，处理完后调用 {@link #release(Record)}
+     * @return 没有记录时返回 null
+     */
+    Record poll() {
+        int index = (int) head & mask;
+        if (sequences.get(index) != head + 1) {
+            return null;
+        }
+        return slots[index];
+    }
+    
+    void release(Record record) {
+        record.clear();
+        int index = (int) head & mask;
+        sequences.lazySet(index, head + slots.length);
+        head++;
+    }
+    
+    boolean isEmpty() {
+        return tail.get() == head;
+    }
+    
+    /**
+     * 取出并清零丢弃计数
+     */
+    long takeDropped() {
+        return dropped.getAndSet(0);
+    }
+}
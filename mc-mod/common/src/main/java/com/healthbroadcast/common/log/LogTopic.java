@@ -0,0 +1,26 @@
+package com.healthbroadcast.common.log;
+
+/**
+ * 日志主题 - 高频主题默认关闭，需要单独开启调试日志
+ */
+public enum LogTopic {
+    /** 配置变化、生命周期、错误 */
+    GENERAL(false),
+    /** 每个捕获的事件 (游戏线程) */
+    EVENTS(true),
+    /** 每个发出的数据包 (发送线程) */
+    PACKETS(true);
+    
+    private final boolean verbose;
+    
+    LogTopic(boolean verbose) {
+        this.verbose = verbose;
+    }
+    
+    /**
+     * 是否为高频主题 (只在开启调试日志时输出，并按采样率抽样)
+     */
+    public boolean isVerbose() {
+        return verbose;
+    }
+}
@@ -0,0 +1,62 @@
+package com.healthbroadcast.common.log;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * 通过 MethodHandle 调用 SLF4J / Log4j 2 的 Logger (common 模块不依赖任何日志库)
+ * 两者的 Logger 都有 debug/info/warn/error(String, Object...)，参数直接交给日志库格式化。
+ */
+final class ReflectiveLogBackend implements LogBackend {
+    
+    private final String description;
+    private final MethodHandle[] handles = new MethodHandle[LogLevel.OFF.ordinal()];
+    
+    private ReflectiveLogBackend(String description) {
+        this.description = description;
+    }
+    
+    /**
+     * @return 日志库不存在时返回 null
+     */
+    static ReflectiveLogBackend tryCreate(String name, String description, String factoryClass, String loggerClass) {
+        try {
+            ClassLoader loader = ReflectiveLogBackend.class.getClassLoader();
+            Class<?> factory = Class.forName(factoryClass, true, loader);
+            Class<?> type = Class.forName(loggerClass, true, loader);
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            Object logger = lookup.findStatic(factory, "getLogger", MethodType.methodType(type, String.class))
+                .invoke(name);
+            
+            ReflectiveLogBackend backend = new ReflectiveLogBackend(description);
+            MethodType signature = MethodType.methodType(void.class, String.class, Object[].class);
+            backend.handles[LogLevel.DEBUG.ordinal()] = bind(lookup, type, "debug", signature, logger);
+            backend.handles[LogLevel.INFO.ordinal()] = bind(lookup, type, "info", signature, logger);
+            backend.handles[LogLevel.WARN.ordinal()] = bind(lookup, type, "warn", signature, logger);
+            backend.handles[LogLevel.ERROR.ordinal()] = bind(lookup, type, "error", signature, logger);
+            return backend;
+        } catch (Throwable e) {
+            return null;
+        }
+    }
+    
+    private static MethodHandle bind(MethodHandles.Lookup lookup, Class<?> type, String method,
+                                     MethodType signature, Object logger) throws ReflectiveOperationException {
+        return lookup.findVirtual(type, method, signature).asFixedArity().bindTo(logger);
+    }
+    
+    @Override
+    public void write(LogLevel level, String template, Object[] args) {
+        try {
+            handles[level.ordinal()].invoke(template, args);
+        } catch (Throwable e) {
+            ConsoleLogBackend.print(level, template, args);
+        }
+    }
+    
+    @Override
+    public String describe() {
+        return description;
+    }
+}
@@ -0,0 +1,229 @@
+package com.healthbroadcast.common.metrics;
+
+import com.healthbroadcast.common.pipeline.EventType;
+import com.healthbroadcast.common.pipeline.PriorityLanes;
+import com.healthbroadcast.common.transport.SendStatus;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 广播器运行指标 - 发送线程记录，任意线程读取
+ * 
+ * 计数器都是启动以来的累计值；队列深度直接读取当前的 {@link PriorityLanes}。
+ * 同一组数字有三种输出：流中的 stats 事件、F3 调试行 ({@link #summaryLine()})
+ * 和叠加层服务器的 GET /metrics ({@link #writePrometheus(StringBuilder)})。
+ */
+public final class BroadcastMetrics {
+    
+    private static final long SUMMARY_REFRESH_NANOS = TimeUnit.SECONDS.toNanos(1);
+    /** Prometheus 直方图输出的桶范围：2^10 ns (~1 µs) 到 2^35 ns (~34 s) */
+    private static final int PROMETHEUS_MIN_BUCKET = 10;
+    private static final int PROMETHEUS_MAX_BUCKET = 35;
+    
+    private final LongAdder[] events = new LongAdder[EventType.values().length];
+    private final LongAdder packetsSent = new LongAdder();
+    private final LongAdder bytesSent = new LongAdder();
+    private final LongAdder sendFailures = new LongAdder();
+    private final LongAdder backpressure = new LongAdder();
+    private final LongAdder suspended = new LongAdder();
+    private final LatencyHistogram captureToSend = new LatencyHistogram();
+    private final LatencyHistogram encodeTime = new LatencyHistogram();
+    private volatile PriorityLanes lanes;
+    
+    // F3 调试行缓存
+    private final LatencyHistogram.Interval summaryInterval = new LatencyHistogram.Interval(captureToSend);
+    private long summaryNanos;
+    private String summary = "";
+    
+    public BroadcastMetrics() {
+        for (int i = 0; i < events.length; i++) {
+            events[i] = new LongAdder();
+        }
+    }
+    
+    /**
+     * 发送线程重启后指向新的优先级通道
+     */
+    public void setLanes(PriorityLanes lanes) {
+        this.lanes = lanes;
+    }
+    
+    // ==================== 记录 (发送线程) ====================
+    
+    public void recordEvent(EventType type) {
+        events[type.ordinal()].increment();
+    }
+    
+    public void recordEncode(long nanos) {
+        encodeTime.record(nanos);
+    }
+    
+    public void recordCaptureToSend(long nanos) {
+        captureToSend.record(nanos);
+    }
+    
+    public void recordSend(SendStatus status, int bytes) {
+        switch (status) {
+            case SENT:
+                packetsSent.increment();
+                bytesSent.add(bytes);
+                break;
+            case BACKPRESSURE:
+                backpressure.increment();
+                break;
+            case SUSPENDED:
+                suspended.increment();
+                break;
+            case FAILED:
+            default:
+                sendFailures.increment();
+                break;
+        }
+    }
+    
+    // ==================== 读取 ====================
+    
+    public long eventCount(EventType type) {
+        return events[type.ordinal()].sum();
+    }
+    
+    public long packetsSent() {
+        return packetsSent.sum();
+    }
+    
+    public long bytesSent() {
+        return bytesSent.sum();
+    }
+    
+    public long sendFailures() {
+        return sendFailures.sum();
+    }
+    
+    public long backpressureCount() {
+        return backpressure.sum();
+    }
+    
+    public long suspendedCount() {
+        return suspended.sum();
+    }
+    
+    public int criticalDepth() {
+        PriorityLanes current = lanes;
+        return current != null ? current.criticalDepth() : 0;
+    }
+    
+    public int bulkDepth() {
+        PriorityLanes current = lanes;
+        return current != null ? current.bulkDepth() : 0;
+    }
+    
+    public long bulkDropped() {
+        PriorityLanes current = lanes;
+        return current != null ? current.bulkDroppedCount() : 0;
+    }
+    
+    /**
+     * 从捕获 (游戏线程写入通道) 到交给 socket 的延迟
+     */
+    public LatencyHistogram captureToSend() {
+        return captureToSend;
+    }
+    
+    /**
+     * 单个事件的编码耗时
+     */
+    public LatencyHistogram encodeTime() {
+        return encodeTime;
+    }
+    
+    /**
+     * F3 调试界面的一行摘要，延迟百分位取最近一秒左右的数据 (每秒最多重新计算一次)
+     */
+    public synchronized String summaryLine() {
+        long now = System.nanoTime();
+        if (summaryNanos == 0 || now - summaryNanos >= SUMMARY_REFRESH_NANOS) {
+            summaryNanos = now;
+            summaryInterval.advance();
+            long events = 0;
+            for (LongAdder adder : this.events) {
+                events += adder.sum();
+            }
+            summary = String.format(Locale.ROOT, "HP Output: %d ev, %d pkt, %s | p50 %s p99 %s | q %d/%d | fail %d",
+                events, packetsSent(), formatBytes(bytesSent()),
+                formatNanos(summaryInterval.percentile(0.5)), formatNanos(summaryInterval.percentile(0.99)),
+                criticalDepth(), bulkDepth(), sendFailures() + backpressureCount());
+        }
+        return summary;
+    }
+    
+    /**
+     * Prometheus 文本格式 (0.0.4)
+     */
+    public void writePrometheus(StringBuilder out) {
+        out.append("# HELP hp_output_events_total Events captured, by type\n");
+        out.append("# TYPE hp_output_events_total counter\n");
+        for (EventType type : EventType.values()) {
+            if (type == EventType.TICK) {
+                continue;
+            }
+            out.append("hp_output_events_total{type=\"").append(type.wireName()).append("\"} ")
+                .append(eventCount(type)).append('\n');
+        }
+        counter(out, "hp_output_packets_sent_total", "Datagrams handed to the socket", packetsSent());
+        counter(out, "hp_output_bytes_sent_total", "Bytes handed to the socket", bytesSent());
+        out.append("# HELP hp_output_send_errors_total Datagrams not sent, by reason\n");
+        out.append("# TYPE hp_output_send_errors_total counter\n");
+        out.append("hp_output_send_errors_total{reason=\"failed\"} ").append(sendFailures()).append('\n');
+        out.append("hp_output_send_errors_total{reason=\"backpressure\"} ").append(backpressureCount()).append('\n');
+        out.append("hp_output_send_errors_total{reason=\"suspended\"} ").append(suspendedCount()).append('\n');
+        out.append("# HELP hp_output_queue_depth Events waiting in each priority lane\n");
+        out.append("# TYPE hp_output_queue_depth gauge\n");
+        out.append("hp_output_queue_depth{lane=\"critical\"} ").append(criticalDepth()).append('\n');
+        out.append("hp_output_queue_depth{lane=\"bulk\"} ").append(bulkDepth()).append('\n');
+        counter(out, "hp_output_bulk_dropped_total", "Heal events dropped because the bulk lane was full", bulkDropped());
+        histogram(out, "hp_output_capture_to_send_seconds", "Latency from capture to socket send", captureToSend);
+        histogram(out, "hp_output_encode_seconds", "Time to encode one event", encodeTime);
+    }
+    
+    private static void counter(StringBuilder out, String name, String help, long value) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(" counter\n");
+        out.append(name).append(' ').append(value).append('\n');
+    }
+    
+    private static void histogram(StringBuilder out, String name, String help, LatencyHistogram histogram) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(" histogram\n");
+        long cumulative = 0;
+        for (int b = 0; b < LatencyHistogram.BUCKETS; b++) {
+            cumulative += histogram.count(b);
+            if (b >= PROMETHEUS_MIN_BUCKET && b <= PROMETHEUS_MAX_BUCKET) {
+                // 桶 b 的值都小于 2^b ns
+                out.append(name).append("_bucket{le=\"").append((1L << b) / 1e9).append("\"} ")
+                    .append(cumulative).append('\n');
+            }
+        }
+        out.append(name).append("_bucket{le=\"+Inf\"} ").append(cumulative).append('\n');
+        out.append(name).append("_sum ").append(histogram.sum() / 1e9).append('\n');
+        out.append(name).append("_count ").append(cumulative).append('\n');
+    }
+    
+    private static String formatNanos(long nanos) {
+        if (nanos < 1_000_000) {
+            return String.format(Locale.ROOT, "%.0fus", nanos / 1e3);
+        }
+        return String.format(Locale.ROOT, "%.1fms", nanos / 1e6);
+    }
+    
+    private static String formatBytes(long bytes) {
+        if (bytes < 1024) {
+            return bytes + " B";
+        }
+        if (bytes < 1024 * 1024) {
+            return String.format(Locale.ROOT, "%.1f KB", bytes / 1024.0);
+        }
+        return String.format(Locale.ROOT, "%.1f MB", bytes / (1024.0 * 1024.0));
+    }
+}
@@ -0,0 +1,128 @@
+package com.healthbroadcast.common.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 无锁的对数桶直方图 (纳秒)
+ * 桶 b 记录 [2^(b-1), 2^b) 范围内的值，桶 0 记录 0；百分位取桶的上界，误差不超过 2 倍。
+ * 记录只做一次原子自增，其他线程可以随时读取。
+ */
+public final class LatencyHistogram {
+    
+    public static final int BUCKETS = 64;
+    
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+    
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        counts.incrementAndGet(bucketOf(nanos));
+        sum.addAndGet(nanos);
+        long current = max.get();
+        while (nanos > current && !max.compareAndSet(current, nanos)) {
+            current = max.get();
+        }
+    }
+    
+    public static int bucketOf(long nanos) {
+        return 64 - Long.numberOfLeadingZeros(nanos);
+    }
+    
+    /**
+     * 桶 b 中的最大值
+     */
+    public static long upperBound(int bucket) {
+        return bucket >= 63 ? Long.MAX_VALUE : (1L << bucket) - 1;
+    }
+    
+    public long count(int bucket) {
+        return counts.get(bucket);
+    }
+    
+    public long count() {
+        long total = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            total += counts.get(b);
+        }
+        return total;
+    }
+    
+    public long sum() {
+        return sum.get();
+    }
+    
+    public long max() {
+        return max.get();
+    }
+    
+    /**
+     * 启动以来的百分位 (q 取 0~1)，没有记录时为 0
+     */
+    public long percentile(double q) {
+        long[] snapshot = new long[BUCKETS];
+        for (int b = 0; b < BUCKETS; b++) {
+            snapshot[b] = counts.get(b);
+        }
+        return Math.min(percentile(snapshot, q), max.get());
+    }
+    
+    static long percentile(long[] counts, double q) {
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(q * total));
+        long seen = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            seen += counts[b];
+            if (seen >= rank) {
+                return upperBound(b);
+            }
+        }
+        return upperBound(BUCKETS - 1);
+    }
+    
+    /**
+     * 两次 {@link #advance} 之间的增量，用于计算最近一段时间的百分位
+     * 只由一个线程使用
+     */
+    public static final class Interval {
+        
+        private final LatencyHistogram histogram;
+        private final long[] previous = new long[BUCKETS];
+        private final long[] delta = new long[BUCKETS];
+        private long count;
+        
+        public Interval(LatencyHistogram histogram) {
+            this.histogram = histogram;
+        }
+        
+        public void advance() {
+            count = 0;
+            for (int b = 0; b < BUCKETS; b++) {
+                long current = histogram.counts.get(b);
+                delta[b] = current - previous[b];
+                previous[b] = current;
+                count += delta[b];
+            }
+        }
+        
+        /**
+         * 本区间的记录数
+         */
+        public long count() {
+            return count;
+        }
+        
+        public long percentile(double q) {
+            return Math.min(LatencyHistogram.percentile(delta, q), histogram.max());
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.healthbroadcast.common.overlay;
+
+import com.healthbroadcast.common.pipeline.EventType;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+
+/**
+ * 单个 HTTP 连接的状态 - 只在选择器线程中访问
+ * 
+ * 发送队列有上限，慢连接上：
+ * - health 只保留最新一条 (旧的血量已经没有意义)
+ * - 队列满时丢弃 heal 和心跳，damage / death 会挤掉一条可丢弃的消息
+ * - 队列里全是关键消息且超过硬上限时断开连接
+ */
+final class OverlayClient {
+    
+    enum Mode {
+        /** 等待请求头 */
+        HTTP,
+        /** text/event-stream */
+        SSE,
+        WEBSOCKET
+    }
+    
+    static final int MAX_REQUEST_BYTES = 8192;
+    static final int MAX_QUEUED = 64;
+    static final int MAX_CRITICAL_QUEUED = 256;
+    
+    final SocketChannel channel;
+    final SelectionKey key;
+    final ByteBuffer in = ByteBuffer.allocate(MAX_REQUEST_BYTES);
+    Mode mode = Mode.HTTP;
+    /** 队列写完后关闭连接 (普通 HTTP 响应、WebSocket close) */
+    boolean closeAfterFlush;
+    
+    private final ArrayDeque<OverlayMessage> queue = new ArrayDeque<>();
+    private ByteBuffer writing;
+    private long dropped;
+    
+    OverlayClient(SocketChannel channel, SelectionKey key) {
+        this.channel = channel;
+        this.key = key;
+    }
+    
+    boolean isStreaming() {
+        return mode != Mode.HTTP;
+    }
+    
+    /**
+     * 加入发送队列
+     * @return false 如果连接太慢，应当断开
+     */
+    boolean enqueue(OverlayMessage message) {
+        if (message.type == EventType.HEALTH) {
+            removeQueuedHealth();
+        }
+        if (queue.size() >= MAX_QUEUED) {
+            if (!message.critical) {
+                dropped++;
+                return true;
+            }
+            if (!evictDroppable() && queue.size() >= MAX_CRITICAL_QUEUED) {
+                return false;
+            }
+        }
+        queue.add(message);
+        return true;
+    }
+    
+    /**
+     * 直接加入原始字节 (HTTP 响应头等)，不参与丢弃
+     */
+    void enqueueRaw(byte[] bytes) {
+        queue.add(new OverlayMessage(null, true, bytes, bytes));
+    }
+    
+    /**
+     * 尽可能写出队列中的数据
+     * @return true 如果队列已全部写完
+     */
+    boolean flush() throws IOException {
+        while (true) {
+            if (writing == null) {
+                OverlayMessage next = queue.poll();
+                if (next == null) {
+                    return true;
+                }
+                writing = ByteBuffer.wrap(next.bytes(mode == Mode.WEBSOCKET));
+            }
+            channel.write(writing);
+            if (writing.hasRemaining()) {
+                return false;
+            }
+            writing = null;
+        }
+    }
+    
+    /**
+     * 返回并清零丢弃计数
+     */
+    long takeDropped() {
+        long count = dropped;
+        dropped = 0;
+        return count;
+    }
+    
+    private void removeQueuedHealth() {
+        for (Iterator<OverlayMessage> it = queue.iterator(); it.hasNext(); ) {
+            if (it.next().type == EventType.HEALTH) {
+                it.remove();
+                dropped++;
+                return;
+            }
+        }
+    }
+    
+    private boolean evictDroppable() {
+        for (Iterator<OverlayMessage> it = queue.iterator(); it.hasNext(); ) {
+            if (!it.next().critical) {
+                it.remove();
+                dropped++;
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,52 @@
+package com.healthbroadcast.common.overlay;
+
+import com.healthbroadcast.common.pipeline.EventType;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 已编码的推送消息 - 每个事件只编码一次，所有连接共享同一份只读字节
+ */
+final class OverlayMessage {
+    
+    private static final byte[] SSE_PREFIX = "data: ".getBytes(StandardCharsets.US_ASCII);
+    
+    /** 事件类型，控制消息 (心跳、pong、close) 为 null */
+    final EventType type;
+    /** 关键消息在慢连接上也不会被丢弃 */
+    final boolean critical;
+    final byte[] sse;
+    final byte[] webSocket;
+    
+    OverlayMessage(EventType type, boolean critical, byte[] sse, byte[] webSocket) {
+        this.type = type;
+        this.critical = critical;
+        this.sse = sse;
+        this.webSocket = webSocket;
+    }
+    
+    /**
+     * 由一段 JSON 同时生成 SSE 和 WebSocket 两种封装
+     */
+    static OverlayMessage event(EventType type, byte[] json, int offset, int length) {
+        byte[] sse = new byte[SSE_PREFIX.length + length + 2];
+        System.arraycopy(SSE_PREFIX, 0, sse, 0, SSE_PREFIX.length);
+        System.arraycopy(json, offset, sse, SSE_PREFIX.length, length);
+        sse[sse.length - 2] = '\n';
+        sse[sse.length - 1] = '\n';
+        byte[] webSocket = WebSocketFrames.frame(WebSocketFrames.OPCODE_TEXT, json, offset, length);
+        boolean critical = type == EventType.DAMAGE || type == EventType.DEATH;
+        return new OverlayMessage(type, critical, sse, webSocket);
+    }
+    
+    /**
+     * 可丢弃的控制消息 (心跳)
+     */
+    static OverlayMessage control(byte[] sse, byte[] webSocket) {
+        return new OverlayMessage(null, false, sse, webSocket);
+    }
+    
+    byte[] bytes(boolean webSocketClient) {
+        return webSocketClient ? webSocket : sse;
+    }
+}
@@ -0,0 +1,34 @@
+package com.healthbroadcast.common.overlay;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 内置的血条页面，可直接作为 OBS 浏览器源 (背景透明)
+ */
+final class OverlayPage {
+    
+    static final byte[] HTML = ("<!doctype html>\n"
+        + "<html><head><meta charset=\"utf-8\"><title>HP Output</title>\n"
+        + "<style>\n"
+        + "body{margin:0;background:transparent;font:bold 20px sans-serif;color:#fff;text-shadow:0 0 3px #000}\n"
+        + "#bar{width:300px;height:24px;background:rgba(60,0,0,.6);border:2px solid #000}\n"
+        + "#fill{height:100%;width:100%;background:#d22;transition:width .2s}\n"
+        + "</style></head><body>\n"
+        + "<div id=\"bar\"><div id=\"fill\"></div></div><div id=\"text\"></div>\n"
+        + "<script>\n"
+        + "var bar = document.getElementById('bar'), fill = document.getElementById('fill'), text = document.getElementById('text');\n"
+        + "new EventSource('/events').onmessage = function (message) {\n"
+        + "  var event = JSON.parse(message.data);\n"
+        + "  if (event.percentage !== undefined) {\n"
+        + "    fill.style.width = Math.max(0, Math.min(1, event.percentage)) * 100 + '%';\n"
+        + "    text.textContent = event.health.toFixed(1) + ' / ' + event.maxHealth.toFixed(1);\n"
+        + "  }\n"
+        + "  if (event.type === 'damage' || event.type === 'death') {\n"
+        + "    bar.animate([{opacity: 0.3}, {opacity: 1}], 250);\n"
+        + "  }\n"
+        + "};\n"
+        + "</script></body></html>\n").getBytes(StandardCharsets.UTF_8);
+    
+    private OverlayPage() {
+    }
+}
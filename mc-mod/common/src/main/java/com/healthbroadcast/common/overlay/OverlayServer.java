@@ -0,0 +1,458 @@
+package com.healthbroadcast.common.overlay;
+
+import com.healthbroadcast.common.log.Log;
+import com.healthbroadcast.common.metrics.BroadcastMetrics;
+import com.healthbroadcast.common.pipeline.EventType;
+import com.healthbroadcast.common.pipeline.HealthEvent;
+import com.healthbroadcast.common.pipeline.SourceRegistry;
+import com.healthbroadcast.common.transport.EventSink;
+import com.healthbroadcast.common.wire.JsonEventEncoder;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 内置 HTTP 服务器 - 给 OBS 浏览器源等网页叠加层推送事件
+ * <pre>
+ *   GET /        简单的血条页面
+ *   GET /events  Server-Sent Events，每条消息是一个事件的 JSON
+ *   GET /ws      WebSocket，每个文本帧是一个事件的 JSON
+ *   GET /metrics 运行指标 (Prometheus 文本格式)
+ * </pre>
+ * 
+ * 发送线程把每个事件编码一次 (SSE 和 WebSocket 各一份字节)，交给单个选择器线程
+ * 写入所有连接；不为连接创建线程。每个连接的发送队列有上限，见 {@link OverlayClient}。
+ */
+public final class OverlayServer implements EventSink, Runnable {
+    
+    public static final int DEFAULT_PORT = 39572;
+    private static final int MAX_CLIENTS = 64;
+    private static final long KEEPALIVE_NANOS = TimeUnit.SECONDS.toNanos(15);
+    private static final int MAX_CONTROL_PAYLOAD = 4096;
+    
+    private static final byte[] SSE_HEADERS = ascii("HTTP/1.1 200 OK\r\n"
+        + "Content-Type: text/event-stream\r\n"
+        + "Cache-Control: no-cache\r\n"
+        + "Connection: keep-alive\r\n"
+        + "Access-Control-Allow-Origin: *\r\n"
+        + "\r\n"
+        + "retry: 1000\n\n");
+    private static final OverlayMessage KEEPALIVE = OverlayMessage.control(
+        ascii(": keepalive\n\n"), WebSocketFrames.frame(WebSocketFrames.OPCODE_PING, new byte[0], 0, 0));
+    
+    private final ServerSocketChannel server;
+    private final Selector selector;
+    private final Thread thread;
+    private final int port;
+    private final BroadcastMetrics metrics;
+    private volatile boolean running = true;
+    
+    /** 发送线程 -> 选择器线程 */
+    private final ConcurrentLinkedQueue<OverlayMessage> outbox = new ConcurrentLinkedQueue<>();
+    private volatile int streamingClients;
+    /** 最新血量 (health 与 maxHealth 的 float 位拼成一个 long)，新连接先收到一条 health */
+    private volatile long snapshot;
+    private volatile boolean hasSnapshot;
+    private volatile long droppedMessages;
+    private volatile long slowClientsClosed;
+    
+    // 仅由发送线程访问
+    private final JsonEventEncoder encoder;
+    private final ByteBuffer scratch = ByteBuffer.allocate(JsonEventEncoder.MAX_EVENT_BYTES);
+    
+    // 仅由选择器线程访问
+    private final List<OverlayClient> clients = new ArrayList<>();
+    private final ByteBuffer controlPayload = ByteBuffer.allocate(MAX_CONTROL_PAYLOAD);
+    private final ByteBuffer snapshotBuffer = ByteBuffer.allocate(JsonEventEncoder.MAX_EVENT_BYTES);
+    
+    /**
+     * 绑定端口并启动选择器线程
+     * @throws IOException 端口被占用等
+     */
+    public OverlayServer(InetSocketAddress address, SourceRegistry sources, BroadcastMetrics metrics) throws IOException {
+        this.encoder = new JsonEventEncoder(sources);
+        this.metrics = metrics;
+        this.selector = Selector.open();
+        ServerSocketChannel opened = null;
+        try {
+            opened = ServerSocketChannel.open();
+            opened.bind(address);
+            opened.configureBlocking(false);
+            opened.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            if (opened != null) {
+                opened.close();
+            }
+            selector.close();
+            throw e;
+        }
+        this.server = opened;
+        this.port = ((InetSocketAddress) server.getLocalAddress()).getPort();
+        this.thread = new Thread(this, "HealthBroadcast-Overlay");
+        thread.setDaemon(true);
+        thread.start();
+    }
+    
+    public int getPort() {
+        return port;
+    }
+    
+    /**
+     * 当前 SSE / WebSocket 连接数
+     */
+    public int getClientCount() {
+        return streamingClients;
+    }
+    
+    /**
+     * 因连接过慢而丢弃的消息数 (被新值替换的 health 也计入)
+     */
+    public long getDroppedCount() {
+        return droppedMessages;
+    }
+    
+    public long getSlowClientsClosed() {
+        return slowClientsClosed;
+    }
+    
+    // ==================== 发送线程 ====================
+    
+    @Override
+    public void onEvent(HealthEvent event) {
+        if (event.type != EventType.DEATH) {
+            snapshot = ((long) Float.floatToRawIntBits(event.health) << 32)
+                | (Float.floatToRawIntBits(event.maxHealth) & 0xFFFFFFFFL);
+            hasSnapshot = true;
+        }
+        if (streamingClients == 0) {
+            return;
+        }
+        scratch.clear();
+        encoder.encode(event, scratch);
+        outbox.offer(OverlayMessage.event(event.type, scratch.array(), 0, scratch.position()));
+        selector.wakeup();
+    }
+    
+    @Override
+    public String describe() {
+        return "http://" + server.socket().getInetAddress().getHostAddress() + ":" + port + "/";
+    }
+    
+    @Override
+    public void close() {
+        running = false;
+        selector.wakeup();
+        try {
+            thread.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    // ==================== 选择器线程 ====================
+    
+    @Override
+    public void run() {
+        long nextKeepalive = System.nanoTime() + KEEPALIVE_NANOS;
+        try {
+            while (running) {
+                selector.select(TimeUnit.NANOSECONDS.toMillis(KEEPALIVE_NANOS));
+                deliverOutbox();
+                Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                while (it.hasNext()) {
+                    SelectionKey key = it.next();
+                    it.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                        continue;
+                    }
+                    OverlayClient client = (OverlayClient) key.attachment();
+                    try {
+                        if (key.isReadable()) {
+                            read(client);
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            flush(client);
+                        }
+                    } catch (IOException e) {
+                        closeClient(client);
+                    }
+                }
+                if (System.nanoTime() - nextKeepalive >= 0) {
+                    nextKeepalive = System.nanoTime() + KEEPALIVE_NANOS;
+                    broadcast(KEEPALIVE);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            Log.error("Overlay server stopped: {}", e.toString());
+        } finally {
+            shutdown();
+        }
+    }
+    
+    private void deliverOutbox() {
+        OverlayMessage message;
+        while ((message = outbox.poll()) != null) {
+            for (int i = clients.size() - 1; i >= 0; i--) {
+                OverlayClient client = clients.get(i);
+                if (client.isStreaming()) {
+                    enqueue(client, message);
+                }
+            }
+        }
+        for (int i = clients.size() - 1; i >= 0; i--) {
+            OverlayClient client = clients.get(i);
+            if (client.isStreaming()) {
+                flushQuietly(client);
+            }
+        }
+    }
+    
+    private void broadcast(OverlayMessage message) {
+        for (int i = clients.size() - 1; i >= 0; i--) {
+            OverlayClient client = clients.get(i);
+            if (client.isStreaming() && enqueue(client, message)) {
+                flushQuietly(client);
+            }
+        }
+    }
+    
+    /**
+     * @return false 如果连接因过慢被关闭
+     */
+    private boolean enqueue(OverlayClient client, OverlayMessage message) {
+        boolean keep = client.enqueue(message);
+        droppedMessages += client.takeDropped();
+        if (!keep) {
+            slowClientsClosed++;
+            closeClient(client);
+        }
+        return keep;
+    }
+    
+    private void accept() throws IOException {
+        SocketChannel channel = server.accept();
+        if (channel == null) {
+            return;
+        }
+        if (clients.size() >= MAX_CLIENTS) {
+            channel.close();
+            return;
+        }
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+        SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+        OverlayClient client = new OverlayClient(channel, key);
+        key.attach(client);
+        clients.add(client);
+    }
+    
+    private void read(OverlayClient client) throws IOException {
+        if (!client.in.hasRemaining()) {
+            client.in.clear();
+        }
+        if (client.channel.read(client.in) < 0) {
+            closeClient(client);
+            return;
+        }
+        switch (client.mode) {
+            case HTTP:
+                handleRequest(client);
+                break;
+            case WEBSOCKET:
+                handleFrames(client);
+                break;
+            case SSE:
+            default:
+                // SSE 客户端不会再发送数据
+                client.in.clear();
+                break;
+        }
+    }
+    
+    private void handleRequest(OverlayClient client) throws IOException {
+        int end = indexOfHeaderEnd(client.in);
+        if (end < 0) {
+            if (!client.in.hasRemaining()) {
+                respond(client, "431 Request Header Fields Too Large", "text/plain", ascii("request too large"));
+            }
+            return;
+        }
+        String[] lines = new String(client.in.array(), 0, end, StandardCharsets.ISO_8859_1).split("\r\n");
+        String[] requestLine = lines[0].split(" ");
+        String upgrade = null;
+        String key = null;
+        for (int i = 1; i < lines.length; i++) {
+            int colon = lines[i].indexOf(':');
+            if (colon <= 0) {
+                continue;
+            }
+            String name = lines[i].substring(0, colon).trim().toLowerCase(Locale.ROOT);
+            String value = lines[i].substring(colon + 1).trim();
+            if (name.equals("upgrade")) {
+                upgrade = value;
+            } else if (name.equals("sec-websocket-key")) {
+                key = value;
+            }
+        }
+        // 请求头之后的数据 (WebSocket 帧) 留在缓冲区
+        client.in.flip();
+        client.in.position(end + 4);
+        client.in.compact();
+        
+        if (requestLine.length < 2 || !requestLine[0].equals("GET")) {
+            respond(client, "405 Method Not Allowed", "text/plain", ascii("GET only"));
+            return;
+        }
+        String path = requestLine[1];
+        int query = path.indexOf('?');
+        if (query >= 0) {
+            path = path.substring(0, query);
+        }
+        if (path.equals("/events")) {
+            client.enqueueRaw(SSE_HEADERS);
+            startStreaming(client, OverlayClient.Mode.SSE);
+        } else if (path.equals("/ws") && "websocket".equalsIgnoreCase(upgrade) && key != null) {
+            client.enqueueRaw(ascii("HTTP/1.1 101 Switching Protocols\r\n"
+                + "Upgrade: websocket\r\n"
+                + "Connection: Upgrade\r\n"
+                + "Sec-WebSocket-Accept: " + WebSocketFrames.acceptKey(key) + "\r\n"
+                + "\r\n"));
+            startStreaming(client, OverlayClient.Mode.WEBSOCKET);
+            handleFrames(client);
+        } else if (path.equals("/metrics")) {
+            StringBuilder body = new StringBuilder(4096);
+            metrics.writePrometheus(body);
+            respond(client, "200 OK", "text/plain; version=0.0.4; charset=utf-8", body.toString().getBytes(StandardCharsets.UTF_8));
+        } else if (path.equals("/") || path.equals("/index.html")) {
+            respond(client, "200 OK", "text/html; charset=utf-8", OverlayPage.HTML);
+        } else {
+            respond(client, "404 Not Found", "text/plain", ascii("not found"));
+        }
+    }
+    
+    private void startStreaming(OverlayClient client, OverlayClient.Mode mode) {
+        client.mode = mode;
+        streamingClients++;
+        if (hasSnapshot) {
+            long packed = snapshot;
+            float health = Float.intBitsToFloat((int) (packed >>> 32));
+            float maxHealth = Float.intBitsToFloat((int) packed);
+            snapshotBuffer.clear();
+            JsonEventEncoder.writeHealth(snapshotBuffer, health, maxHealth,
+                JsonEventEncoder.percentage(health, maxHealth), System.currentTimeMillis());
+            client.enqueue(OverlayMessage.event(EventType.HEALTH, snapshotBuffer.array(), 0, snapshotBuffer.position()));
+        }
+        flushQuietly(client);
+    }
+    
+    private void handleFrames(OverlayClient client) {
+        client.in.flip();
+        while (true) {
+            int opcode = WebSocketFrames.read(client.in, controlPayload);
+            if (opcode == WebSocketFrames.INCOMPLETE) {
+                break;
+            }
+            if (opcode == WebSocketFrames.INVALID || opcode == WebSocketFrames.OPCODE_CLOSE) {
+                client.enqueueRaw(WebSocketFrames.frame(WebSocketFrames.OPCODE_CLOSE, new byte[0], 0, 0));
+                client.closeAfterFlush = true;
+                break;
+            }
+            if (opcode == WebSocketFrames.OPCODE_PING) {
+                byte[] payload = new byte[controlPayload.remaining()];
+                controlPayload.get(payload);
+                client.enqueueRaw(WebSocketFrames.frame(WebSocketFrames.OPCODE_PONG, payload, 0, payload.length));
+            }
+            // 客户端发来的文本/二进制/pong 帧忽略
+        }
+        client.in.compact();
+        flushQuietly(client);
+    }
+    
+    private void respond(OverlayClient client, String status, String contentType, byte[] body) {
+        client.enqueueRaw(ascii("HTTP/1.1 " + status + "\r\n"
+            + "Content-Type: " + contentType + "\r\n"
+            + "Content-Length: " + body.length + "\r\n"
+            + "Connection: close\r\n"
+            + "\r\n"));
+        client.enqueueRaw(body);
+        client.closeAfterFlush = true;
+        flushQuietly(client);
+    }
+    
+    private void flushQuietly(OverlayClient client) {
+        try {
+            flush(client);
+        } catch (IOException e) {
+            closeClient(client);
+        }
+    }
+    
+    private void flush(OverlayClient client) throws IOException {
+        if (!client.key.isValid()) {
+            return;
+        }
+        if (client.flush()) {
+            if (client.closeAfterFlush) {
+                closeClient(client);
+            } else {
+                client.key.interestOps(SelectionKey.OP_READ);
+            }
+        } else {
+            client.key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        }
+    }
+    
+    private void closeClient(OverlayClient client) {
+        if (clients.remove(client) && client.isStreaming()) {
+            streamingClients--;
+        }
+        client.key.cancel();
+        try {
+            client.channel.close();
+        } catch (IOException e) {
+            // 忽略
+        }
+    }
+    
+    private void shutdown() {
+        for (int i = clients.size() - 1; i >= 0; i--) {
+            closeClient(clients.get(i));
+        }
+        try {
+            server.close();
+            selector.close();
+        } catch (IOException e) {
+            // 忽略
+        }
+    }
+    
+    private static int indexOfHeaderEnd(ByteBuffer in) {
+        byte[] data = in.array();
+        for (int i = 0; i + 3 < in.position(); i++) {
+            if (data[i] == '\r' && data[i + 1] == '\n' && data[i + 2] == '\r' && data[i + 3] == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+    
+    private static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+}
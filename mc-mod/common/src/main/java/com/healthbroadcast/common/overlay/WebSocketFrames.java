@@ -0,0 +1,106 @@
+package com.healthbroadcast.common.overlay;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+
+/**
+ * RFC 6455 所需的最小子集：握手应答、服务端帧 (不加掩码)、解析客户端帧 (带掩码)
+ */
+final class WebSocketFrames {
+    
+    static final int OPCODE_TEXT = 0x1;
+    static final int OPCODE_CLOSE = 0x8;
+    static final int OPCODE_PING = 0x9;
+    static final int OPCODE_PONG = 0xA;
+    
+    /** 解析结果：数据不完整 */
+    static final int INCOMPLETE = -1;
+    /** 解析结果：帧不合法或超出缓冲区 */
+    static final int INVALID = -2;
+    
+    private static final String ACCEPT_GUID = "258EAFA5-E914-47DA-95CA-C5AB0DC85B11";
+    
+    private WebSocketFrames() {
+    }
+    
+    static String acceptKey(String key) {
+        try {
+            MessageDigest sha1 = MessageDigest.getInstance("SHA-1");
+            byte[] digest = sha1.digest((key.trim() + ACCEPT_GUID).getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            // 所有 JRE 都必须提供 SHA-1
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    static byte[] frame(int opcode, byte[] payload, int offset, int length) {
+        int header = length < 126 ? 2 : length <= 0xFFFF ? 4 : 10;
+        byte[] frame = new byte[header + length];
+        frame[0] = (byte) (0x80 | opcode);
+        if (length < 126) {
+            frame[1] = (byte) length;
+        } else if (length <= 0xFFFF) {
+            frame[1] = 126;
+            frame[2] = (byte) (length >>> 8);
+            frame[3] = (byte) length;
+        } else {
+            frame[1] = 127;
+            for (int i = 0; i < 8; i++) {
+                frame[2 + i] = (byte) ((long) length >>> (56 - 8 * i));
+            }
+        }
+        System.arraycopy(payload, offset, frame, header, length);
+        return frame;
+    }
+    
+    /**
+     * 从 in 的 position 开始解析一个客户端帧，成功时去掉掩码并把负载写入 payload
+     * @return 操作码；数据不完整时返回 {@link #INCOMPLETE} (position 不变)，帧不合法时返回 {@link #INVALID}
+     */
+    static int read(ByteBuffer in, ByteBuffer payload) {
+        int start = in.position();
+        if (in.remaining() < 2) {
+            return INCOMPLETE;
+        }
+        int b0 = in.get(start) & 0xFF;
+        int b1 = in.get(start + 1) & 0xFF;
+        if ((b1 & 0x80) == 0) {
+            // 客户端帧必须带掩码
+            return INVALID;
+        }
+        long length = b1 & 0x7F;
+        int header = 2;
+        if (length == 126) {
+            if (in.remaining() < 4) {
+                return INCOMPLETE;
+            }
+            length = in.getShort(start + 2) & 0xFFFF;
+            header = 4;
+        } else if (length == 127) {
+            if (in.remaining() < 10) {
+                return INCOMPLETE;
+            }
+            length = in.getLong(start + 2);
+            header = 10;
+        }
+        if (length < 0 || length > payload.capacity()) {
+            return INVALID;
+        }
+        if (in.remaining() < header + 4 + length) {
+            return INCOMPLETE;
+        }
+        int mask = start + header;
+        int data = mask + 4;
+        payload.clear();
+        for (int i = 0; i < length; i++) {
+            payload.put((byte) (in.get(data + i) ^ in.get(mask + (i & 3))));
+        }
+        payload.flip();
+        in.position(data + (int) length);
+        return b0 & 0x0F;
+    }
+}
@@ -0,0 +1,54 @@
+package com.healthbroadcast.common.pipeline;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 锁 + 条件变量阻塞策略 - CPU 占用最低，唤醒延迟最高
+ */
+public final class BlockingWaitStrategy implements WaitStrategy {
+    
+    private static final long MAX_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+    private volatile boolean waiting;
+    
+    @Override
+    public long waitFor(long sequence, AtomicLong cursor, AtomicBoolean alert, long timeoutNanos) throws InterruptedException {
+        if (cursor.get() < sequence && !alert.get()) {
+            long deadline = timeoutNanos == Long.MAX_VALUE ? Long.MAX_VALUE : System.nanoTime() + timeoutNanos;
+            lock.lock();
+            try {
+                waiting = true;
+                while (cursor.get() < sequence && !alert.get()) {
+                    long remaining = deadline == Long.MAX_VALUE ? MAX_WAIT_NANOS : deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    available.awaitNanos(Math.min(remaining, MAX_WAIT_NANOS));
+                }
+            } finally {
+                waiting = false;
+                lock.unlock();
+            }
+        }
+        return cursor.get();
+    }
+    
+    @Override
+    public void signal() {
+        // 发送线程未阻塞时跳过加锁，避免拖慢游戏线程
+        if (waiting) {
+            lock.lock();
+            try {
+                available.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
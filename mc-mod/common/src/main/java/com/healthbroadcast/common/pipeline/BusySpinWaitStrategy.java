@@ -0,0 +1,28 @@
+package com.healthbroadcast.common.pipeline;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 忙等策略 - 延迟最低，但会占满一个 CPU 核心
+ */
+public final class BusySpinWaitStrategy implements WaitStrategy {
+    
+    @Override
+    public long waitFor(long sequence, AtomicLong cursor, AtomicBoolean alert, long timeoutNanos) {
+        long deadline = timeoutNanos == Long.MAX_VALUE ? Long.MAX_VALUE : System.nanoTime() + timeoutNanos;
+        long available;
+        int counter = 0;
+        while ((available = cursor.get()) < sequence && !alert.get()) {
+            // 自旋，每 1024 次检查一次超时
+            if ((++counter & 1023) == 0 && deadline != Long.MAX_VALUE && System.nanoTime() - deadline >= 0) {
+                break;
+            }
+        }
+        return available;
+    }
+    
+    @Override
+    public void signal() {
+    }
+}
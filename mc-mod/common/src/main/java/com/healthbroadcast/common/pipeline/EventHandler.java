@@ -0,0 +1,28 @@
+package com.healthbroadcast.common.pipeline;
+
+/**
+ * 发送线程上的事件处理器 (编码 + 发送)
+ */
+public interface EventHandler {
+    
+    /**
+     * @param endOfBatch 本次唤醒中的最后一个事件，可在此刷新批量发送
+     */
+    void onEvent(HealthEvent event, long sequence, boolean endOfBatch) throws Exception;
+    
+    /**
+     * 下一次需要唤醒处理器的时间点 (System.nanoTime)，没有则返回 Long.MAX_VALUE
+     * 例如批量发送的刷新窗口
+     */
+    long nextDeadlineNanos();
+    
+    /**
+     * 到达 {@link #nextDeadlineNanos()} 且没有新事件时调用
+     */
+    void onDeadline() throws Exception;
+    
+    /**
+     * 发送线程退出前调用 (剩余事件已全部处理)
+     */
+    void onShutdown();
+}
@@ -0,0 +1,89 @@
+package com.healthbroadcast.common.pipeline;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 单生产者 / 单消费者 预分配环形缓冲区
+ * 生产者 (游戏线程) 调用 {@link #tryClaim()} + {@link #publish()}，
+ * 消费者 (发送线程) 通过 {@link #publishedSequence()} 获取可读范围。
+ * 缓冲区满时 tryClaim 返回 null，如何处理 (丢弃/等待) 由 {@link PriorityLanes} 按通道决定；
+ * 唤醒发送线程也由 PriorityLanes 负责。
+ */
+public final class EventRing {
+    
+    private final HealthEvent[] slots;
+    private final int mask;
+    
+    /** 已发布的最大序号 */
+    private final AtomicLong published = new AtomicLong(-1);
+    /** 已消费的最大序号 */
+    private final AtomicLong consumed = new AtomicLong(-1);
+    /** 生产者本地：已申请的最大序号 */
+    private long claimed = -1;
+    /** 生产者本地：消费进度缓存，减少对 consumed 的读取 */
+    private long cachedConsumed = -1;
+    
+    public EventRing(int capacity) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("capacity must be a power of two: " + capacity);
+        }
+        this.slots = new HealthEvent[capacity];
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = new HealthEvent();
+        }
+        this.mask = capacity - 1;
+    }
+    
+    /**
+     * 申请下一个槽位
+     * @return 已清空的槽位，缓冲区满时返回 null
+     */
+    public HealthEvent tryClaim() {
+        long next = claimed + 1;
+        long wrapPoint = next - slots.length;
+        if (wrapPoint > cachedConsumed) {
+            cachedConsumed = consumed.get();
+            if (wrapPoint > cachedConsumed) {
+                return null;
+            }
+        }
+        claimed = next;
+        HealthEvent event = slots[(int) next & mask];
+        event.clear();
+        return event;
+    }
+    
+    /**
+     * 发布最近申请的槽位
+     */
+    public void publish() {
+        published.lazySet(claimed);
+    }
+    
+    HealthEvent get(long sequence) {
+        return slots[(int) sequence & mask];
+    }
+    
+    void markConsumed(long sequence) {
+        consumed.lazySet(sequence);
+    }
+    
+    long publishedSequence() {
+        return published.get();
+    }
+    
+    long consumedSequence() {
+        return consumed.get();
+    }
+    
+    /**
+     * 当前积压的事件数
+     */
+    public int depth() {
+        return (int) (published.get() - consumed.get());
+    }
+    
+    public int capacity() {
+        return slots.length;
+    }
+}
@@ -0,0 +1,90 @@
+package com.healthbroadcast.common.pipeline;
+
+import com.healthbroadcast.common.log.Log;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 专用发送线程 - 从 {@link PriorityLanes} 取出事件交给 {@link EventHandler}
+ */
+public final class EventSender implements Runnable {
+    
+    private final PriorityLanes lanes;
+    private final EventHandler handler;
+    private final AtomicBoolean alert = new AtomicBoolean();
+    private final Thread thread;
+    
+    public EventSender(String name, PriorityLanes lanes, EventHandler handler) {
+        this.lanes = lanes;
+        this.handler = handler;
+        this.thread = new Thread(this, name);
+        this.thread.setDaemon(true);
+    }
+    
+    public void start() {
+        thread.start();
+    }
+    
+    @Override
+    public void run() {
+        long next = lanes.doorbellSequence() + 1;
+        boolean running = true;
+        while (running) {
+            long deadline = handler.nextDeadlineNanos();
+            long timeout = deadline == Long.MAX_VALUE ? Long.MAX_VALUE : deadline - System.nanoTime();
+            if (timeout <= 0) {
+                fireDeadline();
+                continue;
+            }
+            
+            long rung;
+            try {
+                rung = lanes.waitFor(next, alert, timeout);
+            } catch (InterruptedException e) {
+                alert.set(true);
+                rung = lanes.doorbellSequence();
+            }
+            
+            if (rung >= next || alert.get()) {
+                lanes.drain(handler);
+                next = Math.max(next, rung + 1);
+            }
+            
+            // 关闭时继续排空，直到没有新发布的事件
+            if (alert.get() && lanes.isEmpty()) {
+                running = false;
+            }
+        }
+        handler.onShutdown();
+    }
+    
+    private void fireDeadline() {
+        try {
+            handler.onDeadline();
+        } catch (Exception e) {
+            Log.error("Event handler failed", e);
+        }
+    }
+    
+    /**
+     * 停止发送线程，先排空所有已发布的事件
+     * @return true 如果线程在超时前退出
+     */
+    public boolean close(long timeoutMillis) {
+        alert.set(true);
+        lanes.wakeUp();
+        if (Thread.currentThread() == thread) {
+            return false;
+        }
+        try {
+            thread.join(timeoutMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return !thread.isAlive();
+    }
+    
+    public boolean isRunning() {
+        return !alert.get();
+    }
+}
@@ -0,0 +1,26 @@
+package com.healthbroadcast.common.pipeline;
+
+/**
+ * 事件类型 - 对应 UDP 数据中的 "type" 字段
+ */
+public enum EventType {
+    HEALTH("health"),
+    DAMAGE("damage"),
+    HEAL("heal"),
+    DEATH("death"),
+    /** 内部标记：生产者的一个 tick 结束，发送线程据此刷新批次，不会被编码 */
+    TICK("tick");
+    
+    private final String wireName;
+    
+    EventType(String wireName) {
+        this.wireName = wireName;
+    }
+    
+    /**
+     * 数据包中使用的类型名
+     */
+    public String wireName() {
+        return wireName;
+    }
+}
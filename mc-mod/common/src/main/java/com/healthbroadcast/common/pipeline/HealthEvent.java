@@ -0,0 +1,61 @@
+package com.healthbroadcast.common.pipeline;
+
+/**
+ * 环形缓冲区中的预分配事件槽位
+ * 游戏线程只写入原始字段，编码由发送线程完成
+ */
+public final class HealthEvent {
+    
+    public EventType type;
+    public float health;
+    public float maxHealth;
+    /** 受伤/治疗量 */
+    public float amount;
+    /** {@link SourceRegistry} 中的来源 ID */
+    public int sourceId;
+    public long timestamp;
+    /** 捕获时的 System.nanoTime()，用于二进制格式和延迟统计 */
+    public long nanos;
+    /** 输出流序号，由发送线程在编码前分配 (两种格式共用，重传时保持不变) */
+    public long sequence;
+    /** 合并的周期性伤害/治疗次数，1 表示普通事件 (见 {@link PeriodicAggregator}) */
+    public int count;
+    /** 合并事件中第一次的 timestamp / nanos (timestamp、nanos 为最后一次) */
+    public long firstTimestamp;
+    public long firstNanos;
+    /** 合并窗口内的最低血量 */
+    public float minHealth;
+    
+    void clear() {
+        type = null;
+        health = 0;
+        maxHealth = 0;
+        amount = 0;
+        sourceId = SourceRegistry.UNKNOWN;
+        timestamp = 0;
+        nanos = 0;
+        sequence = 0;
+        count = 1;
+        firstTimestamp = 0;
+        firstNanos = 0;
+        minHealth = 0;
+    }
+    
+    /**
+     * 复制所有字段 (发送线程保存副本时使用)
+     */
+    public void copyFrom(HealthEvent other) {
+        type = other.type;
+        health = other.health;
+        maxHealth = other.maxHealth;
+        amount = other.amount;
+        sourceId = other.sourceId;
+        timestamp = other.timestamp;
+        nanos = other.nanos;
+        sequence = other.sequence;
+        count = other.count;
+        firstTimestamp = other.firstTimestamp;
+        firstNanos = other.firstNanos;
+        minHealth = other.minHealth;
+    }
+}
@@ -0,0 +1,57 @@
+package com.healthbroadcast.common.pipeline;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 自旋 → 让出 → 休眠 的渐进策略 (默认)
+ * 空闲时几乎不占 CPU，生产者发布时直接唤醒休眠中的发送线程
+ */
+public final class ParkingWaitStrategy implements WaitStrategy {
+    
+    private static final int SPIN_TRIES = 100;
+    private static final int YIELD_TRIES = 10;
+    private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    
+    private volatile Thread parked;
+    
+    @Override
+    public long waitFor(long sequence, AtomicLong cursor, AtomicBoolean alert, long timeoutNanos) throws InterruptedException {
+        long deadline = timeoutNanos == Long.MAX_VALUE ? Long.MAX_VALUE : System.nanoTime() + timeoutNanos;
+        long available;
+        int counter = 0;
+        while ((available = cursor.get()) < sequence && !alert.get()) {
+            long remaining = deadline == Long.MAX_VALUE ? MAX_PARK_NANOS : deadline - System.nanoTime();
+            if (remaining <= 0) {
+                break;
+            }
+            if (counter < SPIN_TRIES) {
+                counter++;
+            } else if (counter < SPIN_TRIES + YIELD_TRIES) {
+                counter++;
+                Thread.yield();
+            } else {
+                parked = Thread.currentThread();
+                // 置位后再检查一次，避免错过发布时的唤醒
+                if (cursor.get() < sequence && !alert.get()) {
+                    LockSupport.parkNanos(this, Math.min(remaining, MAX_PARK_NANOS));
+                }
+                parked = null;
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+            }
+        }
+        return available;
+    }
+    
+    @Override
+    public void signal() {
+        Thread waiter = parked;
+        if (waiter != null) {
+            LockSupport.unpark(waiter);
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.healthbroadcast.common.pipeline;
+
+import java.util.BitSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 周期性伤害/治疗合并
+ * 燃烧、中毒、凋零、饥饿和自然回复每隔一段时间产生一个很小的 damage / heal 事件，
+ * 同一来源的这些事件在窗口内合并为一个 (总量、次数、首次/末次时间、最低血量)。
+ * 
+ * 一串周期事件的第一个照常立即发送 (接收端马上知道开始燃烧)，之后的按窗口合并，
+ * 连续一个窗口没有新事件时这一串结束。生物攻击、爆炸、摔落等离散伤害和致死的一击不合并，
+ * 发送它们之前先发出所有已合并的事件，保证输出顺序与捕获顺序一致。
+ * 
+ * 仅由生产者线程访问 (windowMillis 除外)。
+ */
+public final class PeriodicAggregator {
+    
+    public static final int DEFAULT_WINDOW_MS = 3000;
+    public static final int MAX_WINDOW_MS = 30000;
+    /** 同时合并的来源数，超出时按离散事件发送 */
+    private static final int MAX_STREAMS = 4;
+    /** 周期性伤害的单次上限 (岩浆、虚空为 4)，更大的同类伤害 (例如瞬间伤害药水) 按离散事件发送 */
+    private static final float MAX_PERIODIC_DAMAGE = 4f;
+    /** 自然回复和生命恢复效果每次 1 点，治疗药水等更大的治疗按离散事件发送 */
+    private static final float MAX_PERIODIC_HEAL = 1f;
+    private static final float EPSILON = 0.01f;
+    private static final int MAX_COUNT = 0xFFFF;
+    
+    /** 按固定间隔造成伤害的类型 (1.12 ~ 1.20 的 msgId，不带攻击者) */
+    private static final String[] PERIODIC_SOURCES = {
+        "onFire", "inFire", "lava", "hotFloor", "inWall", "cramming", "drown", "dryout",
+        "starve", "cactus", "sweetBerryBush", "freeze", "magic", "wither", "outOfWorld"
+    };
+    
+    private final SourceRegistry sources;
+    /** 已判断过的来源 ID，避免每次查字符串 */
+    private final BitSet classified = new BitSet();
+    private final BitSet periodic = new BitSet();
+    private volatile long windowNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_WINDOW_MS);
+    
+    // 每个来源一串，按下标存放
+    private final boolean[] active = new boolean[MAX_STREAMS];
+    private final EventType[] types = new EventType[MAX_STREAMS];
+    private final int[] sourceIds = new int[MAX_STREAMS];
+    /** 最近一个事件的 nanos，一个窗口内没有新事件时这一串结束 */
+    private final long[] lastActivity = new long[MAX_STREAMS];
+    private final int[] counts = new int[MAX_STREAMS];
+    private final float[] amounts = new float[MAX_STREAMS];
+    private final float[] health = new float[MAX_STREAMS];
+    private final float[] maxHealth = new float[MAX_STREAMS];
+    private final float[] minHealth = new float[MAX_STREAMS];
+    private final long[] firstTimestamps = new long[MAX_STREAMS];
+    private final long[] lastTimestamps = new long[MAX_STREAMS];
+    private final long[] firstNanos = new long[MAX_STREAMS];
+    private final long[] lastNanos = new long[MAX_STREAMS];
+    
+    public PeriodicAggregator(SourceRegistry sources) {
+        this.sources = sources;
+    }
+    
+    /**
+     * 设置合并窗口 (毫秒)，0 表示不合并
+     */
+    public void setWindowMillis(int millis) {
+        windowNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, Math.min(MAX_WINDOW_MS, millis)));
+    }
+    
+    public boolean isEnabled() {
+        return windowNanos != 0;
+    }
+    
+    /**
+     * 提交一个 damage / heal 事件
+     * @return true 如果事件被合并 (稍后由 {@link #nextReady} 发出)；false 时调用方照常发送，
+     *         发送前应先发出所有已合并的事件
+     */
+    public boolean offer(EventType type, float amount, float healthAfter, float max, int sourceId,
+                         long timestamp, long nanos) {
+        if (!isPeriodic(type, amount, healthAfter, sourceId)) {
+            return false;
+        }
+        int stream = find(type, sourceId);
+        if (stream < 0) {
+            // 一串的第一个事件立即发送，之后的开始合并
+            open(type, sourceId, nanos);
+            return false;
+        }
+        if (counts[stream] >= MAX_COUNT) {
+            return false;
+        }
+        if (counts[stream] == 0) {
+            firstTimestamps[stream] = timestamp;
+            firstNanos[stream] = nanos;
+            minHealth[stream] = healthAfter;
+            amounts[stream] = 0;
+        }
+        counts[stream]++;
+        amounts[stream] += amount;
+        health[stream] = healthAfter;
+        maxHealth[stream] = max;
+        minHealth[stream] = Math.min(minHealth[stream], healthAfter);
+        lastTimestamps[stream] = timestamp;
+        lastNanos[stream] = nanos;
+        lastActivity[stream] = nanos;
+        return true;
+    }
+    
+    private boolean isPeriodic(EventType type, float amount, float healthAfter, int sourceId) {
+        if (windowNanos == 0 || healthAfter <= 0) {
+            return false;
+        }
+        switch (type) {
+            case DAMAGE:
+                return amount <= MAX_PERIODIC_DAMAGE + EPSILON && isPeriodicSource(sourceId);
+            case HEAL:
+                return amount <= MAX_PERIODIC_HEAL + EPSILON;
+            default:
+                return false;
+        }
+    }
+    
+    private boolean isPeriodicSource(int sourceId) {
+        if (!classified.get(sourceId)) {
+            String name = sources.name(sourceId);
+            for (String candidate : PERIODIC_SOURCES) {
+                if (candidate.equals(name)) {
+                    periodic.set(sourceId);
+                    break;
+                }
+            }
+            classified.set(sourceId);
+        }
+        return periodic.get(sourceId);
+    }
+    
+    private int find(EventType type, int sourceId) {
+        for (int i = 0; i < MAX_STREAMS; i++) {
+            if (active[i] && types[i] == type && sourceIds[i] == sourceId) {
+                return i;
+            }
+        }
+        return -1;
+    }
+    
+    private void open(EventType type, int sourceId, long nanos) {
+        for (int i = 0; i < MAX_STREAMS; i++) {
+            if (!active[i]) {
+                active[i] = true;
+                types[i] = type;
+                sourceIds[i] = sourceId;
+                counts[i] = 0;
+                lastActivity[i] = nanos;
+                return;
+            }
+        }
+        // 没有空位：这个来源按离散事件发送
+    }
+    
+    /**
+     * 下一个该发出的合并事件 (最早开始的先发出)，同时结束已经停止的串
+     * @param all true 时发出所有已合并的事件 (离散事件之前、重置或关闭时)，否则只发出窗口已满的
+     * @return 串的下标，交给 {@link #drainTo}；没有时返回 -1
+     */
+    public int nextReady(long now, boolean all) {
+        long window = windowNanos;
+        int ready = -1;
+        for (int i = 0; i < MAX_STREAMS; i++) {
+            if (!active[i]) {
+                continue;
+            }
+            if (counts[i] == 0) {
+                if (now - lastActivity[i] >= window) {
+                    active[i] = false;
+                }
+                continue;
+            }
+            if ((all || now - firstNanos[i] >= window)
+                && (ready < 0 || firstNanos[i] - firstNanos[ready] < 0)) {
+                ready = i;
+            }
+        }
+        return ready;
+    }
+    
+    public EventType type(int stream) {
+        return types[stream];
+    }
+    
+    /**
+     * 把合并的结果写入事件槽位 (timestamp / nanos 为最后一次)，这一串继续合并之后的事件
+     */
+    public void drainTo(int stream, HealthEvent event) {
+        event.type = types[stream];
+        event.health = health[stream];
+        event.maxHealth = maxHealth[stream];
+        event.amount = amounts[stream];
+        event.sourceId = sourceIds[stream];
+        event.timestamp = lastTimestamps[stream];
+        event.nanos = lastNanos[stream];
+        event.count = counts[stream];
+        event.firstTimestamp = firstTimestamps[stream];
+        event.firstNanos = firstNanos[stream];
+        event.minHealth = minHealth[stream];
+        discard(stream);
+    }
+    
+    /**
+     * 丢弃已合并的部分 (通道已满时)
+     */
+    public void discard(int stream) {
+        counts[stream] = 0;
+    }
+    
+    /**
+     * 结束所有串 (先用 nextReady(now, true) 发出已合并的事件)
+     */
+    public void clear() {
+        for (int i = 0; i < MAX_STREAMS; i++) {
+            active[i] = false;
+            counts[i] = 0;
+        }
+    }
+}
@@ -0,0 +1,325 @@
+package com.healthbroadcast.common.pipeline;
+
+import com.healthbroadcast.common.log.Log;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 按优先级分开的事件通道 - 游戏线程写入，发送线程合并读取
+ * 
+ * <pre>
+ * 关键通道  damage / death   有界环形缓冲区，绝不丢弃：满时生产者最多等待一小段时间，
+ *                             仍然满则放入溢出队列；等待次数和时长计入统计
+ * 批量通道  health           只保留最新值 (latest-value-wins)，被覆盖的旧值计入合并数
+ *           heal / tick 标记  有界环形缓冲区，满时丢弃新事件
+ * </pre>
+ * 
+ * 任何通道发布后都会增加门铃计数并唤醒发送线程。发送线程按捕获时间 (nanos) 合并各通道，
+ * 输出顺序与捕获顺序一致；health 心跳再多也只占一个槽位，不会把 death 挤在后面。
+ * 生产者端为单线程 (与 {@link EventRing} 相同)。
+ */
+public final class PriorityLanes {
+    
+    public static final int DEFAULT_CRITICAL_CAPACITY = 256;
+    public static final int DEFAULT_BULK_CAPACITY = 256;
+    /** 关键通道满时生产者最长等待时间 */
+    public static final long DEFAULT_CRITICAL_BLOCK_NANOS = TimeUnit.MILLISECONDS.toNanos(2);
+    private static final long BLOCK_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+    
+    private static final int LANE_CRITICAL = 0;
+    private static final int LANE_OVERFLOW = 1;
+    private static final int LANE_BULK = 2;
+    private static final int LANE_HEALTH = 3;
+    
+    private final WaitStrategy waitStrategy;
+    private final long criticalBlockNanos;
+    /** 每次发布加 1，发送线程按它等待 */
+    private final AtomicLong doorbell = new AtomicLong(-1);
+    
+    private final EventRing critical;
+    /** 关键通道满且等待超时后的溢出 (不为空时后续关键事件也进入溢出队列，保持顺序) */
+    private final ConcurrentLinkedQueue<HealthEvent> criticalOverflow = new ConcurrentLinkedQueue<>();
+    private final EventRing bulk;
+    private final AtomicReference<HealthEvent> latestHealth = new AtomicReference<>();
+    /** health 槽位的备用对象，在生产者和消费者之间循环使用 */
+    private final AtomicReference<HealthEvent> spareHealth = new AtomicReference<>(new HealthEvent());
+    
+    // 生产者本地
+    private HealthEvent claimedEvent;
+    private int claimedLane;
+    
+    // 消费者本地
+    private long criticalNext;
+    private long bulkNext;
+    private long delivered;
+    
+    // 统计
+    private final AtomicLong healthCoalesced = new AtomicLong();
+    private final AtomicLong bulkDropped = new AtomicLong();
+    private final AtomicLong criticalBlocked = new AtomicLong();
+    private final AtomicLong criticalBlockedNanos = new AtomicLong();
+    private volatile long criticalMaxBlockedNanos;
+    private final AtomicLong criticalSpilled = new AtomicLong();
+    
+    public PriorityLanes(int criticalCapacity, int bulkCapacity, long criticalBlockNanos, WaitStrategy waitStrategy) {
+        this.critical = new EventRing(criticalCapacity);
+        this.bulk = new EventRing(bulkCapacity);
+        this.criticalBlockNanos = criticalBlockNanos;
+        this.waitStrategy = waitStrategy;
+    }
+    
+    public PriorityLanes(WaitStrategy waitStrategy) {
+        this(DEFAULT_CRITICAL_CAPACITY, DEFAULT_BULK_CAPACITY, DEFAULT_CRITICAL_BLOCK_NANOS, waitStrategy);
+    }
+    
+    // ==================== 生产者 ====================
+    
+    /**
+     * 按事件类型申请槽位，填写字段后调用 {@link #publish()}
+     * @return 已清空的槽位；批量通道满时返回 null (事件被丢弃)。关键事件永远不会返回 null
+     */
+    public HealthEvent claim(EventType type) {
+        HealthEvent slot;
+        switch (type) {
+            case DAMAGE:
+            case DEATH:
+                return claimCritical();
+            case HEALTH:
+                slot = spareHealth.getAndSet(null);
+                if (slot == null) {
+                    slot = new HealthEvent();
+                }
+                slot.clear();
+                claimedLane = LANE_HEALTH;
+                break;
+            case HEAL:
+            case TICK:
+            default:
+                slot = bulk.tryClaim();
+                if (slot == null) {
+                    if (type != EventType.TICK) {
+                        bulkDropped.incrementAndGet();
+                    }
+                    return null;
+                }
+                claimedLane = LANE_BULK;
+                break;
+        }
+        claimedEvent = slot;
+        return slot;
+    }
+    
+    private HealthEvent claimCritical() {
+        if (criticalOverflow.isEmpty()) {
+            HealthEvent slot = critical.tryClaim();
+            if (slot == null) {
+                slot = awaitCritical();
+            }
+            if (slot != null) {
+                claimedLane = LANE_CRITICAL;
+                claimedEvent = slot;
+                return slot;
+            }
+        }
+        criticalSpilled.incrementAndGet();
+        HealthEvent spill = new HealthEvent();
+        spill.clear();
+        claimedLane = LANE_OVERFLOW;
+        claimedEvent = spill;
+        return spill;
+    }
+    
+    /**
+     * 关键通道满：唤醒发送线程并等待空位，超时返回 null
+     */
+    private HealthEvent awaitCritical() {
+        criticalBlocked.incrementAndGet();
+        long start = System.nanoTime();
+        HealthEvent slot = null;
+        long waited = 0;
+        while (slot == null && waited < criticalBlockNanos) {
+            waitStrategy.signal();
+            LockSupport.parkNanos(BLOCK_PARK_NANOS);
+            slot = critical.tryClaim();
+            waited = System.nanoTime() - start;
+        }
+        criticalBlockedNanos.addAndGet(waited);
+        if (waited > criticalMaxBlockedNanos) {
+            criticalMaxBlockedNanos = waited;
+        }
+        return slot;
+    }
+    
+    /**
+     * 发布最近申请的槽位并唤醒发送线程
+     */
+    public void publish() {
+        switch (claimedLane) {
+            case LANE_CRITICAL:
+                critical.publish();
+                break;
+            case LANE_OVERFLOW:
+                criticalOverflow.offer(claimedEvent);
+                break;
+            case LANE_HEALTH:
+                HealthEvent replaced = latestHealth.getAndSet(claimedEvent);
+                if (replaced != null) {
+                    healthCoalesced.incrementAndGet();
+                    spareHealth.set(replaced);
+                }
+                break;
+            case LANE_BULK:
+            default:
+                bulk.publish();
+                break;
+        }
+        claimedEvent = null;
+        doorbell.incrementAndGet();
+        waitStrategy.signal();
+    }
+    
+    // ==================== 消费者 ====================
+    
+    long waitFor(long sequence, AtomicBoolean alert, long timeoutNanos) throws InterruptedException {
+        return waitStrategy.waitFor(sequence, doorbell, alert, timeoutNanos);
+    }
+    
+    long doorbellSequence() {
+        return doorbell.get();
+    }
+    
+    void wakeUp() {
+        waitStrategy.signal();
+    }
+    
+    /**
+     * 处理当前所有可见的事件，按捕获时间合并各通道
+     * @return 处理的事件数
+     */
+    int drain(EventHandler handler) {
+        // 先取溢出队列长度再取环形缓冲区进度：溢出队列中的事件一定晚于此刻环中已发布的事件
+        int overflowLeft = criticalOverflow.isEmpty() ? 0 : criticalOverflow.size();
+        long criticalEnd = critical.publishedSequence();
+        long bulkEnd = bulk.publishedSequence();
+        HealthEvent health = latestHealth.getAndSet(null);
+        
+        int total = (int) (criticalEnd - criticalNext + 1) + overflowLeft
+            + (int) (bulkEnd - bulkNext + 1) + (health != null ? 1 : 0);
+        int processed = 0;
+        while (processed < total) {
+            HealthEvent criticalHead = null;
+            if (criticalNext <= criticalEnd) {
+                criticalHead = critical.get(criticalNext);
+            } else if (overflowLeft > 0) {
+                criticalHead = criticalOverflow.peek();
+            }
+            HealthEvent bulkHead = bulkNext <= bulkEnd ? bulk.get(bulkNext) : null;
+            
+            int lane = LANE_CRITICAL;
+            HealthEvent next = criticalHead;
+            if (health != null && (next == null || health.nanos < next.nanos)) {
+                lane = LANE_HEALTH;
+                next = health;
+            }
+            if (bulkHead != null && (next == null || bulkHead.nanos < next.nanos)) {
+                lane = LANE_BULK;
+                next = bulkHead;
+            }
+            
+            processed++;
+            try {
+                handler.onEvent(next, delivered++, processed == total);
+            } catch (Exception e) {
+                Log.error("Event handler failed", e);
+            }
+            
+            if (lane == LANE_CRITICAL) {
+                if (criticalNext <= criticalEnd) {
+                    critical.markConsumed(criticalNext++);
+                } else {
+                    criticalOverflow.poll();
+                    overflowLeft--;
+                }
+            } else if (lane == LANE_BULK) {
+                bulk.markConsumed(bulkNext++);
+            } else {
+                spareHealth.set(health);
+                health = null;
+            }
+        }
+        return processed;
+    }
+    
+    /**
+     * 所有通道都已处理完
+     */
+    boolean isEmpty() {
+        return critical.depth() == 0 && bulk.depth() == 0
+            && criticalOverflow.isEmpty() && latestHealth.get() == null;
+    }
+    
+    // ==================== 统计 ====================
+    
+    /**
+     * 关键通道积压 (含溢出队列)
+     */
+    public int criticalDepth() {
+        return critical.depth() + criticalOverflow.size();
+    }
+    
+    /**
+     * 批量通道积压 (含待发送的最新 health)
+     */
+    public int bulkDepth() {
+        return bulk.depth() + (latestHealth.get() != null ? 1 : 0);
+    }
+    
+    public int criticalCapacity() {
+        return critical.capacity();
+    }
+    
+    public int bulkCapacity() {
+        return bulk.capacity();
+    }
+    
+    /**
+     * 被更新的值覆盖、未单独发送的 health 数
+     */
+    public long healthCoalescedCount() {
+        return healthCoalesced.get();
+    }
+    
+    /**
+     * 批量通道满而丢弃的 heal 数
+     */
+    public long bulkDroppedCount() {
+        return bulkDropped.get();
+    }
+    
+    /**
+     * 关键通道满、生产者不得不等待的次数
+     */
+    public long criticalBlockedCount() {
+        return criticalBlocked.get();
+    }
+    
+    public long criticalBlockedNanos() {
+        return criticalBlockedNanos.get();
+    }
+    
+    public long criticalMaxBlockedNanos() {
+        return criticalMaxBlockedNanos;
+    }
+    
+    /**
+     * 等待超时后进入溢出队列的关键事件数 (仍会按顺序发送)
+     */
+    public long criticalSpilledCount() {
+        return criticalSpilled.get();
+    }
+}
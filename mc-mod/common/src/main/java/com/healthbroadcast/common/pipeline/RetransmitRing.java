@@ -0,0 +1,67 @@
+package com.healthbroadcast.common.pipeline;
+
+/**
+ * 最近 N 个关键事件 (damage / death) 的副本，用于响应接收端的 NACK 重传
+ * 槽位预分配，只在发送线程中访问。
+ */
+public final class RetransmitRing {
+    
+    public static final int DEFAULT_CAPACITY = 64;
+    
+    private final HealthEvent[] slots;
+    private final long[] addedNanos;
+    private int next;
+    private int size;
+    
+    public RetransmitRing(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        slots = new HealthEvent[capacity];
+        addedNanos = new long[capacity];
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = new HealthEvent();
+        }
+    }
+    
+    /**
+     * 保存事件副本，满时覆盖最旧的一个
+     */
+    public void add(HealthEvent event, long nowNanos) {
+        slots[next].copyFrom(event);
+        addedNanos[next] = nowNanos;
+        next = (next + 1) % slots.length;
+        if (size < slots.length) {
+            size++;
+        }
+    }
+    
+    /**
+     * 按流序号查找，不在窗口内时返回 null
+     */
+    public HealthEvent find(long sequence) {
+        for (int i = 0; i < size; i++) {
+            HealthEvent event = slots[i];
+            if (event.sequence == sequence) {
+                return event;
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * 最近一次 add 的时间，没有事件时返回 Long.MIN_VALUE
+     */
+    public long newestNanos() {
+        return size == 0 ? Long.MIN_VALUE : addedNanos[(next - 1 + slots.length) % slots.length];
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    public void clear() {
+        size = 0;
+        next = 0;
+    }
+}
@@ -0,0 +1,130 @@
+package com.healthbroadcast.common.pipeline;
+
+import com.healthbroadcast.common.wire.JsonWriter;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 伤害来源字符串驻留表
+ * 游戏线程只传递整数 ID，发送线程再查回字符串或预先转义好的 JSON 字节
+ */
+public final class SourceRegistry {
+    
+    /** "unknown" 固定占用 0 号 */
+    public static final int UNKNOWN = 0;
+    /** 上限与二进制格式中的 u16 一致 */
+    public static final int MAX_SOURCES = 0xFFFF;
+    
+    private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+    /** 类型 -> 攻击者 -> ID，命中时不需要拼接字符串 */
+    private final ConcurrentHashMap<String, ConcurrentHashMap<String, Integer>> pairs = new ConcurrentHashMap<>();
+    private volatile String[] names = new String[64];
+    private volatile byte[][] jsonStrings = new byte[64][];
+    private int size;
+    
+    public SourceRegistry() {
+        intern("unknown");
+    }
+    
+    /**
+     * 获取来源 ID，首次出现时分配新 ID
+     * 已存在的来源不产生分配
+     */
+    public int intern(String source) {
+        if (source == null) {
+            return UNKNOWN;
+        }
+        Integer id = ids.get(source);
+        if (id != null) {
+            return id;
+        }
+        return register(source);
+    }
+    
+    /**
+     * 按伤害类型和攻击者获取来源 ID，对应的字符串为 "类型:攻击者" (没有攻击者时只有类型)
+     * 已存在的组合不拼接字符串也不产生分配
+     */
+    public int intern(String type, String attacker) {
+        if (type == null) {
+            return UNKNOWN;
+        }
+        String key = attacker != null ? attacker : "";
+        ConcurrentHashMap<String, Integer> byAttacker = pairs.get(type);
+        if (byAttacker != null) {
+            Integer id = byAttacker.get(key);
+            if (id != null) {
+                return id;
+            }
+        } else {
+            byAttacker = new ConcurrentHashMap<>();
+            ConcurrentHashMap<String, Integer> existing = pairs.putIfAbsent(type, byAttacker);
+            if (existing != null) {
+                byAttacker = existing;
+            }
+        }
+        int id = intern(attacker != null ? type + ":" + attacker : type);
+        if (id != UNKNOWN) {
+            // 表满时不缓存 unknown
+            byAttacker.put(key, id);
+        }
+        return id;
+    }
+    
+    private synchronized int register(String source) {
+        Integer id = ids.get(source);
+        if (id != null) {
+            return id;
+        }
+        if (size >= MAX_SOURCES) {
+            return UNKNOWN;
+        }
+        String[] current = names;
+        byte[][] currentJson = jsonStrings;
+        if (size == current.length) {
+            current = Arrays.copyOf(current, current.length * 2);
+            currentJson = Arrays.copyOf(currentJson, currentJson.length * 2);
+        }
+        current[size] = source;
+        currentJson[size] = escape(source);
+        int newId = size++;
+        // 先发布数组再发布映射，保证其他线程拿到 ID 时能查到名称
+        jsonStrings = currentJson;
+        names = current;
+        ids.put(source, newId);
+        return newId;
+    }
+    
+    /**
+     * 根据 ID 查回来源字符串
+     */
+    public String name(int id) {
+        String[] current = names;
+        if (id < 0 || id >= current.length || current[id] == null) {
+            return "unknown";
+        }
+        return current[id];
+    }
+    
+    /**
+     * 带引号、已转义的 JSON 字符串字节，编码时直接复制
+     */
+    public byte[] jsonString(int id) {
+        byte[][] current = jsonStrings;
+        if (id < 0 || id >= current.length || current[id] == null) {
+            return current[UNKNOWN];
+        }
+        return current[id];
+    }
+    
+    /**
+     * 每个来源只在注册时转义一次
+     */
+    private static byte[] escape(String source) {
+        ByteBuffer buffer = ByteBuffer.allocate(JsonWriter.MAX_STRING_CHARS * 6 + 2);
+        JsonWriter.writeString(buffer, source);
+        return Arrays.copyOf(buffer.array(), buffer.position());
+    }
+}
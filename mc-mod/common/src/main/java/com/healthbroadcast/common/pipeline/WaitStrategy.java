@@ -0,0 +1,22 @@
+package com.healthbroadcast.common.pipeline;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 发送线程等待新事件的策略
+ */
+public interface WaitStrategy {
+    
+    /**
+     * 等待直到 cursor 到达 sequence、alert 被置位或超时
+     * @param timeoutNanos 最长等待时间，Long.MAX_VALUE 表示不超时
+     * @return 当前已发布的最大序号 (关闭或超时时可能小于 sequence)
+     */
+    long waitFor(long sequence, AtomicLong cursor, AtomicBoolean alert, long timeoutNanos) throws InterruptedException;
+    
+    /**
+     * 生产者发布事件后调用，唤醒可能在阻塞的发送线程
+     */
+    void signal();
+}
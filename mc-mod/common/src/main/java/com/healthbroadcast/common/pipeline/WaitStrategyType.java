@@ -0,0 +1,36 @@
+package com.healthbroadcast.common.pipeline;
+
+/**
+ * 可配置的等待策略
+ */
+public enum WaitStrategyType {
+    BUSY_SPIN,
+    PARK,
+    BLOCKING;
+    
+    public WaitStrategy create() {
+        switch (this) {
+            case BUSY_SPIN:
+                return new BusySpinWaitStrategy();
+            case BLOCKING:
+                return new BlockingWaitStrategy();
+            case PARK:
+            default:
+                return new ParkingWaitStrategy();
+        }
+    }
+    
+    /**
+     * 从配置字符串解析，无法识别时使用 PARK
+     */
+    public static WaitStrategyType fromName(String name) {
+        if (name != null) {
+            for (WaitStrategyType type : values()) {
+                if (type.name().equalsIgnoreCase(name.trim().replace('-', '_'))) {
+                    return type;
+                }
+            }
+        }
+        return PARK;
+    }
+}
@@ -0,0 +1,118 @@
+package com.healthbroadcast.common.server;
+
+import com.healthbroadcast.common.log.Log;
+import com.healthbroadcast.common.transport.Destination;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * 服务器模式的目标列表和按玩家路由
+ * <pre>
+ *   destinations: 127.0.0.1:39571, 10.0.0.5:40000   没有单独路由的玩家发送到这些目标
+ *   routes:       Steve=192.168.1.20:39571           玩家名或 UUID = 一个或多个目标 (逗号分隔)
+ * </pre>
+ * 所有目标合并去重后按下标编号，每个玩家的路由是一个 64 位掩码。
+ */
+public final class PlayerRoutes {
+    
+    /** 路由掩码的位数 */
+    public static final int MAX_DESTINATIONS = 64;
+    
+    private final List<Destination> destinations;
+    private final long defaultMask;
+    /** 小写玩家名或 UUID 字符串 -> 掩码 */
+    private final Map<String, Long> routes;
+    
+    private PlayerRoutes(List<Destination> destinations, long defaultMask, Map<String, Long> routes) {
+        this.destinations = destinations;
+        this.defaultMask = defaultMask;
+        this.routes = routes;
+    }
+    
+    /**
+     * 解析配置，无效的条目记录警告后跳过
+     * @param defaults 默认目标
+     * @param routeSpecs "玩家=目标[,目标...]"
+     */
+    public static PlayerRoutes parse(List<String> defaults, List<String> routeSpecs) {
+        List<Destination> destinations = new ArrayList<>();
+        long defaultMask = 0;
+        if (defaults != null) {
+            for (String spec : defaults) {
+                defaultMask |= add(destinations, spec);
+            }
+        }
+        
+        Map<String, Long> routes = new HashMap<>();
+        if (routeSpecs != null) {
+            for (String route : routeSpecs) {
+                int equals = route != null ? route.indexOf('=') : -1;
+                if (equals <= 0) {
+                    Log.warn("Ignoring player route (expected player=destination): {}", route);
+                    continue;
+                }
+                long mask = 0;
+                for (String spec : route.substring(equals + 1).split(",")) {
+                    mask |= add(destinations, spec);
+                }
+                if (mask != 0) {
+                    routes.put(key(route.substring(0, equals)), mask);
+                }
+            }
+        }
+        return new PlayerRoutes(Collections.unmodifiableList(destinations), defaultMask, routes);
+    }
+    
+    /**
+     * @return 目标对应的位，无效或超出上限时为 0
+     */
+    private static long add(List<Destination> destinations, String spec) {
+        Destination destination;
+        try {
+            destination = Destination.parse(spec);
+        } catch (RuntimeException e) {
+            Log.warn("Ignoring invalid destination '{}': {}", spec, e.getMessage());
+            return 0;
+        }
+        int index = destinations.indexOf(destination);
+        if (index < 0) {
+            if (destinations.size() >= MAX_DESTINATIONS) {
+                Log.warn("Ignoring destination {}: at most {} destinations", destination, MAX_DESTINATIONS);
+                return 0;
+            }
+            destinations.add(destination);
+            index = destinations.size() - 1;
+        }
+        return 1L << index;
+    }
+    
+    private static String key(String player) {
+        return player.trim().toLowerCase(Locale.ROOT);
+    }
+    
+    public List<Destination> destinations() {
+        return destinations;
+    }
+    
+    /**
+     * 玩家的目标掩码：先按 UUID，再按名称，都没有时为默认目标
+     */
+    public long maskFor(UUID uuid, String name) {
+        if (!routes.isEmpty()) {
+            Long mask = routes.get(uuid.toString());
+            if (mask == null && name != null) {
+                mask = routes.get(key(name));
+            }
+            if (mask != null) {
+                return mask;
+            }
+        }
+        return defaultMask;
+    }
+}
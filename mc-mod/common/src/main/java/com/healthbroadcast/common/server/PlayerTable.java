@@ -0,0 +1,201 @@
+package com.healthbroadcast.common.server;
+
+import com.healthbroadcast.common.pipeline.EventType;
+import com.healthbroadcast.common.pipeline.SourceRegistry;
+import com.healthbroadcast.common.wire.JsonWriter;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * 在线玩家的血量状态 - 按列存放的原始数组 (struct-of-arrays)，用紧凑的槽位号索引
+ * 每个 tick 先写入所有玩家的当前值，tick 结束时和上次发出的值比较，只把变化写入帧。
+ * 本 tick 没有出现的玩家视为离线，槽位回收给之后加入的玩家。
+ * 仅由服务器线程访问。
+ */
+final class PlayerTable {
+    
+    /** 每个玩家每隔多少 tick 强制发送一次 (按槽位错开，不会集中在同一个 tick) */
+    static final int FORCE_UPDATE_INTERVAL = 100;
+    /** 玩家标识字段的最大字节数 (名称按最坏转义计算) */
+    static final int MAX_PLAYER_FIELD_BYTES = 64 + JsonWriter.MAX_STRING_CHARS * 6;
+    private static final float EPSILON = 0.01f;
+    
+    private final Map<UUID, Integer> slots = new HashMap<>();
+    private int[] freeSlots = new int[16];
+    private int freeCount;
+    /** 用过的最大槽位号 + 1，遍历到这里为止 */
+    private int limit;
+    
+    private boolean[] active;
+    private UUID[] uuids;
+    private String[] names;
+    private long[] routes;
+    private byte[][] players;
+    private long[] seenTick;
+    private float[] health;
+    private float[] maxHealth;
+    /** 上次发出的值，-1 表示刚加入还没发过 */
+    private float[] sentHealth;
+    private float[] sentMaxHealth;
+    private int[] pendingSource;
+    private boolean[] pendingDeath;
+    
+    PlayerTable(int capacity) {
+        active = new boolean[capacity];
+        uuids = new UUID[capacity];
+        names = new String[capacity];
+        routes = new long[capacity];
+        players = new byte[capacity][];
+        seenTick = new long[capacity];
+        health = new float[capacity];
+        maxHealth = new float[capacity];
+        sentHealth = new float[capacity];
+        sentMaxHealth = new float[capacity];
+        pendingSource = new int[capacity];
+        pendingDeath = new boolean[capacity];
+    }
+    
+    int size() {
+        return slots.size();
+    }
+    
+    /**
+     * 玩家的槽位，第一次出现时分配
+     */
+    int slot(UUID uuid, String name, PlayerRoutes playerRoutes) {
+        Integer existing = slots.get(uuid);
+        if (existing != null) {
+            return existing;
+        }
+        int slot = freeCount > 0 ? freeSlots[--freeCount] : limit++;
+        if (slot == active.length) {
+            grow();
+        }
+        slots.put(uuid, slot);
+        active[slot] = true;
+        uuids[slot] = uuid;
+        names[slot] = name;
+        routes[slot] = playerRoutes.maskFor(uuid, name);
+        players[slot] = playerFields(uuid, name);
+        sentHealth[slot] = -1;
+        sentMaxHealth[slot] = -1;
+        pendingSource[slot] = SourceRegistry.UNKNOWN;
+        pendingDeath[slot] = false;
+        return slot;
+    }
+    
+    /**
+     * 写入玩家本 tick 的血量
+     */
+    void capture(int slot, long tick, float currentHealth, float currentMaxHealth) {
+        seenTick[slot] = tick;
+        health[slot] = currentHealth;
+        maxHealth[slot] = currentMaxHealth;
+        if (currentHealth <= 0 && sentHealth[slot] > 0) {
+            // 即使这个 tick 的差异没有发出 (发送线程跟不上)，死亡也不会被之后的重生覆盖
+            pendingDeath[slot] = true;
+        }
+    }
+    
+    /**
+     * 玩家受到伤害的来源，归给本 tick 结束时的血量下降 (或死亡)
+     */
+    void damageSource(UUID uuid, int sourceId) {
+        Integer slot = slots.get(uuid);
+        if (slot != null) {
+            pendingSource[slot] = sourceId;
+        }
+    }
+    
+    /**
+     * 配置变化后重新计算所有玩家的路由
+     */
+    void reroute(PlayerRoutes playerRoutes) {
+        for (int slot = 0; slot < limit; slot++) {
+            if (active[slot]) {
+                routes[slot] = playerRoutes.maskFor(uuids[slot], names[slot]);
+            }
+        }
+    }
+    
+    /**
+     * 与上次发出的值比较，把变化写入 frame，并回收本 tick 没有出现的玩家
+     */
+    void diff(long tick, ServerFrame frame) {
+        for (int slot = 0; slot < limit; slot++) {
+            if (!active[slot]) {
+                continue;
+            }
+            if (seenTick[slot] != tick) {
+                release(slot);
+                continue;
+            }
+            float current = health[slot];
+            float max = maxHealth[slot];
+            float previous = sentHealth[slot];
+            long route = routes[slot];
+            byte[] player = players[slot];
+            
+            // 强制更新只在没有其他变化时发出，不会吞掉恰好落在这个 tick 的伤害或治疗
+            boolean forced = previous < 0 || (tick + slot) % FORCE_UPDATE_INTERVAL == 0;
+            if (previous >= 0 && current - previous < -EPSILON) {
+                frame.add(EventType.DAMAGE, previous - current, current, max, pendingSource[slot], route, player);
+            } else if (previous >= 0 && current - previous > EPSILON) {
+                frame.add(EventType.HEAL, current - previous, current, max, SourceRegistry.UNKNOWN, route, player);
+            } else if (forced || Math.abs(max - sentMaxHealth[slot]) >= EPSILON) {
+                frame.add(EventType.HEALTH, 0, current, max, SourceRegistry.UNKNOWN, route, player);
+            }
+            if (pendingDeath[slot]) {
+                frame.add(EventType.DEATH, 0, 0, max, pendingSource[slot], route, player);
+                pendingDeath[slot] = false;
+            }
+            // 来源只归给本 tick 的变化 (被吸收的伤害不会带到之后无关的伤害上)
+            pendingSource[slot] = SourceRegistry.UNKNOWN;
+            sentHealth[slot] = current;
+            sentMaxHealth[slot] = max;
+        }
+    }
+    
+    private void release(int slot) {
+        slots.remove(uuids[slot]);
+        active[slot] = false;
+        uuids[slot] = null;
+        names[slot] = null;
+        players[slot] = null;
+        if (freeCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+        }
+        freeSlots[freeCount++] = slot;
+    }
+    
+    private void grow() {
+        int capacity = active.length * 2;
+        active = Arrays.copyOf(active, capacity);
+        uuids = Arrays.copyOf(uuids, capacity);
+        names = Arrays.copyOf(names, capacity);
+        routes = Arrays.copyOf(routes, capacity);
+        players = Arrays.copyOf(players, capacity);
+        seenTick = Arrays.copyOf(seenTick, capacity);
+        health = Arrays.copyOf(health, capacity);
+        maxHealth = Arrays.copyOf(maxHealth, capacity);
+        sentHealth = Arrays.copyOf(sentHealth, capacity);
+        sentMaxHealth = Arrays.copyOf(sentMaxHealth, capacity);
+        pendingSource = Arrays.copyOf(pendingSource, capacity);
+        pendingDeath = Arrays.copyOf(pendingDeath, capacity);
+    }
+    
+    /**
+     * 玩家标识字段只在加入时编码一次，之后每个事件直接复制
+     */
+    private static byte[] playerFields(UUID uuid, String name) {
+        ByteBuffer buffer = ByteBuffer.allocate(MAX_PLAYER_FIELD_BYTES);
+        buffer.put(JsonWriter.ascii(",\"player\":"));
+        JsonWriter.writeString(buffer, name != null ? name : uuid.toString());
+        buffer.put(JsonWriter.ascii(",\"uuid\":\"" + uuid + "\""));
+        return Arrays.copyOf(buffer.array(), buffer.position());
+    }
+}
@@ -0,0 +1,133 @@
+package com.healthbroadcast.common.server;
+
+import com.healthbroadcast.common.log.Log;
+import com.healthbroadcast.common.pipeline.SourceRegistry;
+import com.healthbroadcast.common.transport.DestinationTransport;
+import com.healthbroadcast.common.wire.DatagramBatcher;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 服务器模式广播器 - 专用服务器上跟踪所有在线玩家，每个事件带 "player" / "uuid" 字段
+ * 
+ * 服务器线程每个 tick 调用 {@link #capture} 写入每个玩家的血量，tick 结束时
+ * {@link #endTick()} 与上次发出的值做差异，只把变化写入一帧交给发送线程池。
+ * 输出为 JSON (与客户端相同的事件格式)，每个目标有独立的 "seq"。
+ * 
+ * capture / damageSource / endTick / configure 只能在服务器线程上调用。
+ */
+public final class ServerBroadcaster {
+    
+    public static final int DEFAULT_SENDER_THREADS = 2;
+    public static final int MAX_SENDER_THREADS = ServerSenderPool.MAX_THREADS;
+    private static final int INITIAL_PLAYERS = 64;
+    private static final long CLOSE_TIMEOUT_MS = 2000;
+    /** 发送线程跟不上时的警告间隔 */
+    private static final long SKIP_WARN_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(30);
+    
+    private final SourceRegistry sources = new SourceRegistry();
+    private final PlayerTable players = new PlayerTable(INITIAL_PLAYERS);
+    private PlayerRoutes routes = PlayerRoutes.parse(null, null);
+    private ServerSenderPool pool;
+    private long tick;
+    private long skippedTicks;
+    private long lastSkipWarnNanos;
+    
+    /**
+     * 应用配置：重建发送线程池 (先发完已提交的帧)，并重新计算在线玩家的路由
+     * @param destinations 没有单独路由的玩家发送到这些目标
+     * @param playerRoutes "玩家名或 UUID=目标[,目标...]"
+     */
+    public void configure(List<String> destinations, List<String> playerRoutes, int senderThreads, int maxDatagramBytes) {
+        PlayerRoutes parsed = PlayerRoutes.parse(destinations, playerRoutes);
+        int threads = Math.max(1, Math.min(MAX_SENDER_THREADS, senderThreads));
+        int datagramBytes = maxDatagramBytes >= 256 && maxDatagramBytes <= 65507
+            ? maxDatagramBytes : DatagramBatcher.DEFAULT_MAX_DATAGRAM_BYTES;
+        
+        closePool();
+        routes = parsed;
+        players.reroute(parsed);
+        pool = new ServerSenderPool(parsed.destinations(), threads, datagramBytes, sources);
+        Log.info("Server mode: {} destinations, {} sender threads", parsed.destinations().size(), threads);
+    }
+    
+    /**
+     * 伤害类型 + 攻击者对应的来源 ID，见 {@link SourceRegistry#intern(String, String)}
+     */
+    public int sourceId(String type, String attacker) {
+        return sources.intern(type, attacker);
+    }
+    
+    public SourceRegistry getSources() {
+        return sources;
+    }
+    
+    /**
+     * 写入一个在线玩家本 tick 的血量 (每个 tick 对每个玩家调用一次)
+     */
+    public void capture(UUID uuid, String name, float health, float maxHealth) {
+        players.capture(players.slot(uuid, name, routes), tick, health, maxHealth);
+    }
+    
+    /**
+     * 玩家受到伤害时记录来源，本 tick 结束时的血量下降 (或死亡) 使用它
+     */
+    public void damageSource(UUID uuid, int sourceId) {
+        players.damageSource(uuid, sourceId);
+    }
+    
+    /**
+     * tick 结束：把快照差异交给发送线程池
+     * 所有帧都在途时跳过这一次差异，变化留到下一个 tick 一起发出
+     */
+    public void endTick() {
+        long current = tick++;
+        if (pool == null) {
+            return;
+        }
+        ServerFrame frame = pool.acquire();
+        if (frame == null) {
+            skippedTicks++;
+            long now = System.nanoTime();
+            if (now - lastSkipWarnNanos > SKIP_WARN_INTERVAL_NANOS) {
+                lastSkipWarnNanos = now;
+                Log.warn("Server senders are falling behind, skipped {} ticks so far", skippedTicks);
+            }
+            return;
+        }
+        frame.clear(System.currentTimeMillis());
+        players.diff(current, frame);
+        pool.submit(frame);
+    }
+    
+    public int getPlayerCount() {
+        return players.size();
+    }
+    
+    public long getSkippedTicks() {
+        return skippedTicks;
+    }
+    
+    /**
+     * 服务器关闭时调用：发完已提交的帧后关闭 socket
+     */
+    public void close() {
+        closePool();
+        Log.flush(CLOSE_TIMEOUT_MS);
+    }
+    
+    private void closePool() {
+        if (pool != null) {
+            for (DestinationTransport transport : pool.transports()) {
+                Log.info("Server destination {}: {} packets, {} failures", transport.describe(),
+                    transport.getSentPackets(), transport.getFailureCount());
+            }
+            if (!pool.close(CLOSE_TIMEOUT_MS)) {
+                Log.warn("Server senders did not stop within {}ms", CLOSE_TIMEOUT_MS);
+            }
+            pool = null;
+        }
+    }
+}
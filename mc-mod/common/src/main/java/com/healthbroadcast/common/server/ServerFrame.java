@@ -0,0 +1,70 @@
+package com.healthbroadcast.common.server;
+
+import com.healthbroadcast.common.pipeline.EventType;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 一个服务器 tick 的快照差异 - 按列存放的事件 (struct-of-arrays)
+ * 服务器线程填写后交给发送线程池，所有发送线程处理完后回到空闲池复用。
+ * 事件中复制了玩家的路由和 JSON 字段，玩家槽位在此期间被复用也不影响已提交的帧。
+ */
+final class ServerFrame {
+    
+    long timestamp;
+    int size;
+    EventType[] types;
+    float[] amounts;
+    float[] health;
+    float[] maxHealth;
+    int[] sourceIds;
+    /** 事件发往的目标掩码 ({@link PlayerRoutes}) */
+    long[] routes;
+    /** 玩家的 JSON 字段 (,"player":...,"uuid":...)，每个玩家一份，不可变 */
+    byte[][] players;
+    /** 还没处理完这一帧的发送线程数 */
+    final AtomicInteger pending = new AtomicInteger();
+    
+    ServerFrame(int capacity) {
+        types = new EventType[capacity];
+        amounts = new float[capacity];
+        health = new float[capacity];
+        maxHealth = new float[capacity];
+        sourceIds = new int[capacity];
+        routes = new long[capacity];
+        players = new byte[capacity][];
+    }
+    
+    void clear(long now) {
+        // 清掉引用，离线玩家的字段可以被回收
+        Arrays.fill(players, 0, size, null);
+        size = 0;
+        timestamp = now;
+    }
+    
+    void add(EventType type, float amount, float healthAfter, float max, int sourceId, long route, byte[] player) {
+        if (size == types.length) {
+            grow();
+        }
+        types[size] = type;
+        amounts[size] = amount;
+        health[size] = healthAfter;
+        maxHealth[size] = max;
+        sourceIds[size] = sourceId;
+        routes[size] = route;
+        players[size] = player;
+        size++;
+    }
+    
+    private void grow() {
+        int capacity = types.length * 2;
+        types = Arrays.copyOf(types, capacity);
+        amounts = Arrays.copyOf(amounts, capacity);
+        health = Arrays.copyOf(health, capacity);
+        maxHealth = Arrays.copyOf(maxHealth, capacity);
+        sourceIds = Arrays.copyOf(sourceIds, capacity);
+        routes = Arrays.copyOf(routes, capacity);
+        players = Arrays.copyOf(players, capacity);
+    }
+}
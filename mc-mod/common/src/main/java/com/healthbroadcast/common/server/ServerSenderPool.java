@@ -0,0 +1,214 @@
+package com.healthbroadcast.common.server;
+
+import com.healthbroadcast.common.log.Log;
+import com.healthbroadcast.common.log.LogLevel;
+import com.healthbroadcast.common.log.LogTopic;
+import com.healthbroadcast.common.pipeline.SourceRegistry;
+import com.healthbroadcast.common.transport.Destination;
+import com.healthbroadcast.common.transport.DestinationTransport;
+import com.healthbroadcast.common.wire.DatagramBatcher;
+import com.healthbroadcast.common.wire.JsonEventEncoder;
+import com.healthbroadcast.common.wire.WireFormat;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 服务器模式的发送线程池
+ * 目标按下标分给各个线程 (目标 i 属于线程 i % N)，每个线程独占自己的 socket、批次和序号，
+ * 线程之间不共享可变状态。每一帧交给所有线程，各自编码发往自己目标的事件，
+ * 每个事件只编码一次，再按目标追加各自的 "seq"；一帧结束时刷新所有批次。
+ */
+final class ServerSenderPool {
+    
+    public static final int MAX_THREADS = 8;
+    /** 同时在途的帧数，发送线程跟不上时服务器线程跳过差异，下一帧自然合并这些变化 */
+    private static final int FRAMES = 4;
+    private static final int INITIAL_FRAME_EVENTS = 128;
+    private static final int MAX_EVENT_BYTES = JsonEventEncoder.MAX_EVENT_BYTES + PlayerTable.MAX_PLAYER_FIELD_BYTES;
+    private static final long POLL_MILLIS = 100;
+    
+    private final ArrayBlockingQueue<ServerFrame> free = new ArrayBlockingQueue<>(FRAMES);
+    private final Worker[] workers;
+    private final Thread[] threads;
+    private final List<DestinationTransport> transports = new ArrayList<>();
+    
+    ServerSenderPool(List<Destination> destinations, int threadCount, int maxDatagramBytes, SourceRegistry sources) {
+        for (int i = 0; i < FRAMES; i++) {
+            free.add(new ServerFrame(INITIAL_FRAME_EVENTS));
+        }
+        for (Destination destination : destinations) {
+            transports.add(DestinationTransport.create(destination));
+        }
+        int count = Math.max(1, Math.min(Math.min(MAX_THREADS, threadCount), Math.max(1, destinations.size())));
+        workers = new Worker[count];
+        threads = new Thread[count];
+        for (int w = 0; w < count; w++) {
+            List<Integer> owned = new ArrayList<>();
+            for (int i = w; i < transports.size(); i += count) {
+                owned.add(i);
+            }
+            workers[w] = new Worker(owned, maxDatagramBytes, sources);
+            threads[w] = new Thread(workers[w], "HealthBroadcast-ServerSender-" + w);
+            threads[w].setDaemon(true);
+            threads[w].start();
+        }
+    }
+    
+    /**
+     * 取一个空闲帧，所有帧都在途时返回 null
+     */
+    ServerFrame acquire() {
+        return free.poll();
+    }
+    
+    /**
+     * 交给所有发送线程；空帧直接回收
+     */
+    void submit(ServerFrame frame) {
+        if (frame.size == 0) {
+            free.offer(frame);
+            return;
+        }
+        frame.pending.set(workers.length);
+        for (Worker worker : workers) {
+            // 在途帧最多 FRAMES 个，队列不会满
+            worker.inbox.offer(frame);
+        }
+    }
+    
+    private void release(ServerFrame frame) {
+        if (frame.pending.decrementAndGet() == 0) {
+            free.offer(frame);
+        }
+    }
+    
+    List<DestinationTransport> transports() {
+        return transports;
+    }
+    
+    /**
+     * 发完已提交的帧后关闭所有 socket
+     * @return false 如果有线程没有在超时内结束
+     */
+    boolean close(long timeoutMillis) {
+        for (Worker worker : workers) {
+            worker.running = false;
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        boolean stopped = true;
+        for (Thread thread : threads) {
+            try {
+                thread.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            stopped &= !thread.isAlive();
+        }
+        if (stopped) {
+            for (DestinationTransport transport : transports) {
+                transport.close();
+            }
+        }
+        return stopped;
+    }
+    
+    private final class Worker implements Runnable {
+        
+        final ArrayBlockingQueue<ServerFrame> inbox = new ArrayBlockingQueue<>(FRAMES);
+        volatile boolean running = true;
+        private final SourceRegistry sources;
+        /** 本线程负责的目标在全局列表中的下标 (路由掩码中的位) */
+        private final int[] indices;
+        private final DestinationTransport[] targets;
+        private final DatagramBatcher[] batchers;
+        /** 每个目标独立的输出流序号 */
+        private final long[] sequences;
+        private final long mask;
+        private final ByteBuffer body = ByteBuffer.allocate(MAX_EVENT_BYTES);
+        private final ByteBuffer frameBuffer = ByteBuffer.allocate(MAX_EVENT_BYTES + 32);
+        
+        Worker(List<Integer> owned, int maxDatagramBytes, SourceRegistry sources) {
+            this.sources = sources;
+            indices = new int[owned.size()];
+            targets = new DestinationTransport[owned.size()];
+            batchers = new DatagramBatcher[owned.size()];
+            sequences = new long[owned.size()];
+            long ownedMask = 0;
+            for (int i = 0; i < indices.length; i++) {
+                indices[i] = owned.get(i);
+                targets[i] = transports.get(indices[i]);
+                batchers[i] = new DatagramBatcher(maxDatagramBytes, MAX_EVENT_BYTES + 32);
+                ownedMask |= 1L << indices[i];
+            }
+            mask = ownedMask;
+        }
+        
+        @Override
+        public void run() {
+            while (true) {
+                ServerFrame frame;
+                try {
+                    frame = inbox.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    break;
+                }
+                if (frame != null) {
+                    try {
+                        process(frame);
+                    } catch (RuntimeException e) {
+                        Log.error("Server sender failed: {}", e.toString());
+                    } finally {
+                        release(frame);
+                    }
+                } else if (!running) {
+                    break;
+                }
+            }
+        }
+        
+        private void process(ServerFrame frame) {
+            long now = System.nanoTime();
+            for (int e = 0; e < frame.size; e++) {
+                long route = frame.routes[e] & mask;
+                if (route == 0) {
+                    continue;
+                }
+                body.clear();
+                JsonEventEncoder.writePlayerEvent(body, frame.types[e], frame.amounts[e], frame.health[e],
+                    frame.maxHealth[e], sources.jsonString(frame.sourceIds[e]), frame.timestamp, frame.players[e]);
+                int length = body.position();
+                for (int i = 0; i < targets.length; i++) {
+                    if ((route & (1L << indices[i])) == 0) {
+                        continue;
+                    }
+                    frameBuffer.clear();
+                    frameBuffer.put(body.array(), 0, length);
+                    JsonEventEncoder.appendSequence(frameBuffer, sequences[i]++);
+                    frameBuffer.flip();
+                    if (!batchers[i].canAppend(WireFormat.JSON, frameBuffer.remaining())) {
+                        flush(i);
+                    }
+                    batchers[i].append(WireFormat.JSON, frameBuffer, now);
+                }
+            }
+            for (int i = 0; i < targets.length; i++) {
+                if (!batchers[i].isEmpty()) {
+                    flush(i);
+                }
+            }
+        }
+        
+        private void flush(int i) {
+            int events = batchers[i].count();
+            targets[i].send(batchers[i].flip());
+            batchers[i].clear();
+            if (Log.isEnabled(LogLevel.INFO, LogTopic.PACKETS) && Log.sample(LogTopic.PACKETS)) {
+                Log.verbose(LogTopic.PACKETS, "Sent {} player events to {}", events, targets[i].describe());
+            }
+        }
+    }
+}
@@ -0,0 +1,351 @@
+package com.healthbroadcast.common.tools;
+
+import com.healthbroadcast.common.HealthBroadcaster;
+import com.healthbroadcast.common.log.LogLevel;
+import com.healthbroadcast.common.metrics.BroadcastMetrics;
+import com.healthbroadcast.common.pipeline.EventType;
+import com.healthbroadcast.common.pipeline.PriorityLanes;
+import com.healthbroadcast.common.pipeline.WaitStrategyType;
+import com.healthbroadcast.common.wire.DecodedEvent;
+import com.healthbroadcast.common.wire.WireDecoder;
+import com.healthbroadcast.common.wire.WireFormat;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.DatagramChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 端到端负载与延迟测试 (无需 Minecraft)
+ * 
+ * 用法: java -cp common.jar com.healthbroadcast.common.tools.LoadTest [--选项=值 ...]
+ * <pre>
+ *   --rate=2000        平均每秒事件数 (health / damage / heal 合计)
+ *   --seconds=10       持续时间
+ *   --clients=4        本地接收端数量 (每个接收端是一个发送目标)
+ *   --pattern=burst    steady: 均匀分布；burst: 周期性的伤害爆发 + 随后的治疗
+ *   --burst-every=1000 爆发周期 (毫秒)
+ *   --burst-size=200   每次爆发的 damage 事件数 (在一个 tick 内发出)
+ *   --tick=50          模拟的 tick 长度 (毫秒)，每个 tick 结束调用 endTick()
+ *   --format=binary    json / binary；json 只有毫秒时间戳，延迟精度为 1ms
+ *   --batch=50 --redundancy=0 --wait=park --max-datagram=1400
+ *   --seed=1           随机数种子，相同参数和种子生成相同的事件序列
+ * </pre>
+ * 
+ * 游戏线程由当前线程模拟：按 tick 生成血量轨迹并调用 {@link HealthBroadcaster} 的公开方法。
+ * 每个接收端独立统计丢失、乱序、重复和捕获到接收的延迟分位数。
+ * 被合并的 health 不分配序号，所以丢失 = 已分配序号的事件数 - 收到的不同序号数。
+ */
+public final class LoadTest {
+    
+    private static final int RECEIVE_BUFFER_BYTES = 8 << 20;
+    private static final long DRAIN_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+    
+    private LoadTest() {
+    }
+    
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        int rate = intOption(options, "rate", 2000);
+        int seconds = intOption(options, "seconds", 10);
+        int clients = intOption(options, "clients", 4);
+        String pattern = options.containsKey("pattern") ? options.get("pattern") : "burst";
+        int burstEveryMs = intOption(options, "burst-every", 1000);
+        int burstSize = intOption(options, "burst-size", 200);
+        int tickMs = Math.max(1, intOption(options, "tick", 50));
+        WireFormat format = WireFormat.fromName(options.containsKey("format") ? options.get("format") : "binary");
+        long seed = intOption(options, "seed", 1);
+        if (!pattern.equals("steady") && !pattern.equals("burst")) {
+            throw new IllegalArgumentException("Unknown pattern: " + pattern);
+        }
+        
+        List<Receiver> receivers = new ArrayList<>();
+        List<String> destinations = new ArrayList<>();
+        for (int i = 0; i < clients; i++) {
+            Receiver receiver = new Receiver(i);
+            receivers.add(receiver);
+            destinations.add("127.0.0.1:" + receiver.port);
+            receiver.start();
+        }
+        
+        HealthBroadcaster broadcaster = HealthBroadcaster.getInstance();
+        broadcaster.setLogging(LogLevel.WARN, 1);
+        broadcaster.setWaitStrategy(WaitStrategyType.fromName(options.containsKey("wait") ? options.get("wait") : "park"));
+        broadcaster.setWireFormat(format);
+        broadcaster.setBatchWindowMillis(intOption(options, "batch", HealthBroadcaster.DEFAULT_BATCH_WINDOW_MS));
+        broadcaster.setMaxDatagramBytes(intOption(options, "max-datagram", 1400));
+        broadcaster.setCriticalRedundancy(intOption(options, "redundancy", 0));
+        broadcaster.setDestinations(destinations);
+        
+        System.out.println("rate=" + rate + "/s seconds=" + seconds + " clients=" + clients + " pattern=" + pattern
+            + " tick=" + tickMs + "ms format=" + format + " batch=" + options.getOrDefault("batch", "50") + "ms"
+            + " redundancy=" + options.getOrDefault("redundancy", "0"));
+        
+        Trace trace = new Trace(broadcaster, new Random(seed));
+        long published = trace.run(rate, seconds, tickMs, pattern.equals("burst"), burstEveryMs, burstSize);
+        
+        // 通道计数在关闭前读取
+        PriorityLanes lanes = broadcaster.getLanes();
+        long[] laneCounts = {lanes.healthCoalescedCount(), lanes.bulkDroppedCount(),
+            lanes.criticalBlockedCount(), lanes.criticalSpilledCount()};
+        broadcaster.close();
+        long drainUntil = System.nanoTime() + DRAIN_NANOS;
+        while (System.nanoTime() < drainUntil) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+        }
+        for (Receiver receiver : receivers) {
+            receiver.close();
+        }
+        
+        report(broadcaster, published, seconds, laneCounts, receivers, format);
+    }
+    
+    private static void report(HealthBroadcaster broadcaster, long published, int seconds, long[] laneCounts,
+                               List<Receiver> receivers, WireFormat format) {
+        BroadcastMetrics metrics = broadcaster.getMetrics();
+        long sequenced = 0;
+        for (EventType type : EventType.values()) {
+            if (type != EventType.TICK) {
+                sequenced += metrics.eventCount(type);
+            }
+        }
+        System.out.println("sender:");
+        System.out.printf("  published=%d (%.0f/s) sequenced=%d health-coalesced=%d bulk-dropped=%d critical-blocked=%d spilled=%d%n",
+            published, published / (double) seconds, sequenced, laneCounts[0], laneCounts[1],
+            laneCounts[2], laneCounts[3]);
+        System.out.printf("  packets=%d bytes=%d failures=%d backpressure=%d%n",
+            metrics.packetsSent(), metrics.bytesSent(), metrics.sendFailures(), metrics.backpressureCount());
+        System.out.printf("  capture-to-send p50=%.1fus p99=%.1fus p999=%.1fus (bucket upper bounds)%n",
+            metrics.captureToSend().percentile(0.5) / 1000.0, metrics.captureToSend().percentile(0.99) / 1000.0,
+            metrics.captureToSend().percentile(0.999) / 1000.0);
+        
+        for (Receiver receiver : receivers) {
+            long unique = receiver.seen.cardinality();
+            long lost = Math.max(0, sequenced - unique);
+            System.out.printf("client %d: received=%d unique=%d lost=%d (%.3f%%) reordered=%d duplicates=%d datagrams=%d%n",
+                receiver.index, receiver.received, unique, lost, sequenced > 0 ? lost * 100.0 / sequenced : 0.0,
+                receiver.reordered, receiver.duplicates, receiver.datagrams);
+            if (receiver.latencyCount > 0) {
+                long[] latencies = Arrays.copyOf(receiver.latencies, receiver.latencyCount);
+                System.out.println("  capture-to-receive " + TransportLatencyComparison.percentiles(latencies)
+                    + (format == WireFormat.JSON ? " (1ms resolution)" : ""));
+            }
+        }
+    }
+    
+    /**
+     * 合成的玩家血量轨迹：受伤、治疗、死亡和重生，按 tick 推进
+     */
+    private static final class Trace {
+        
+        private static final float MAX_HEALTH = 20f;
+        private static final String[] SOURCES = {"mob:Zombie", "mob:Skeleton", "fall", "lava", "player:Steve"};
+        
+        private final HealthBroadcaster broadcaster;
+        private final Random random;
+        private float health = MAX_HEALTH;
+        
+        Trace(HealthBroadcaster broadcaster, Random random) {
+            this.broadcaster = broadcaster;
+            this.random = random;
+        }
+        
+        /**
+         * @return 调用的事件方法次数 (包括之后被合并的 health)
+         */
+        long run(int rate, int seconds, int tickMs, boolean bursts, int burstEveryMs, int burstSize) {
+            long tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMs);
+            long ticks = TimeUnit.SECONDS.toMillis(seconds) / tickMs;
+            long burstEveryTicks = Math.max(1, burstEveryMs / tickMs);
+            double perTick = rate * tickMs / 1000.0;
+            double carry = 0;
+            long published = 0;
+            
+            broadcaster.forceHealthUpdate(health, MAX_HEALTH);
+            long tickStart = System.nanoTime();
+            for (long tick = 0; tick < ticks; tick++) {
+                carry += perTick;
+                int events = (int) carry;
+                carry -= events;
+                boolean burst = bursts && tick % burstEveryTicks == 0;
+                if (burst) {
+                    events += burstSize;
+                }
+                
+                // 事件均匀分布在本 tick 的前半段，后半段留给发送线程
+                long spacing = events > 0 ? tickNanos / 2 / events : 0;
+                for (int i = 0; i < events; i++) {
+                    if (burst && i < burstSize) {
+                        damage(0.05f + random.nextFloat() * 0.2f);
+                    } else {
+                        step();
+                    }
+                    published++;
+                    pace(tickStart + spacing * (i + 1));
+                }
+                broadcaster.endTick();
+                tickStart += tickNanos;
+                pace(tickStart);
+            }
+            return published;
+        }
+        
+        private void step() {
+            float roll = random.nextFloat();
+            if (roll < 0.3f) {
+                damage(0.5f + random.nextFloat() * 3f);
+            } else if (roll < 0.5f && health < MAX_HEALTH) {
+                float amount = Math.min(MAX_HEALTH - health, 0.5f + random.nextFloat() * 2f);
+                health += amount;
+                broadcaster.sendHealEvent(amount, health, MAX_HEALTH);
+            } else {
+                broadcaster.forceHealthUpdate(health, MAX_HEALTH);
+            }
+        }
+        
+        private void damage(float amount) {
+            String source = SOURCES[random.nextInt(SOURCES.length)];
+            health = Math.max(0f, health - amount);
+            broadcaster.sendDamageEvent(amount, health, MAX_HEALTH, source);
+            if (health <= 0f) {
+                broadcaster.sendDeathEvent(source);
+                broadcaster.reset();
+                health = MAX_HEALTH;
+            }
+        }
+        
+        private static void pace(long until) {
+            long remaining;
+            while ((remaining = until - System.nanoTime()) > 0) {
+                if (remaining > TimeUnit.MICROSECONDS.toNanos(200)) {
+                    LockSupport.parkNanos(remaining - TimeUnit.MICROSECONDS.toNanos(100));
+                }
+            }
+        }
+    }
+    
+    /**
+     * 本地接收端：解码每个数据包，按序号统计
+     */
+    private static final class Receiver implements Runnable {
+        
+        final int index;
+        final int port;
+        private final DatagramChannel channel;
+        private final Thread thread;
+        private final WireDecoder decoder = new WireDecoder();
+        
+        // 仅由接收线程写入，close() 之后读取
+        final BitSet seen = new BitSet();
+        long received;
+        long reordered;
+        long duplicates;
+        long datagrams;
+        long[] latencies = new long[1 << 16];
+        int latencyCount;
+        private long highest = -1;
+        
+        Receiver(int index) throws IOException {
+            this.index = index;
+            this.channel = DatagramChannel.open();
+            channel.setOption(StandardSocketOptions.SO_RCVBUF, RECEIVE_BUFFER_BYTES);
+            channel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+            this.port = ((InetSocketAddress) channel.getLocalAddress()).getPort();
+            this.thread = new Thread(this, "load-receiver-" + index);
+            thread.setDaemon(true);
+        }
+        
+        void start() {
+            thread.start();
+        }
+        
+        @Override
+        public void run() {
+            ByteBuffer in = ByteBuffer.allocate(65536);
+            List<DecodedEvent> events = new ArrayList<>();
+            try {
+                while (true) {
+                    in.clear();
+                    channel.receive(in);
+                    long nanos = System.nanoTime();
+                    long millis = System.currentTimeMillis();
+                    in.flip();
+                    datagrams++;
+                    events.clear();
+                    decoder.decodeDatagram(in, events);
+                    for (int i = 0; i < events.size(); i++) {
+                        onEvent(events.get(i), nanos, millis);
+                    }
+                }
+            } catch (ClosedChannelException e) {
+                // close() 结束接收
+            } catch (IOException e) {
+                System.err.println("client " + index + ": " + e);
+            }
+        }
+        
+        private void onEvent(DecodedEvent event, long nanos, long millis) {
+            received++;
+            long sequence = event.sequence;
+            if (sequence < 0 || sequence > Integer.MAX_VALUE) {
+                return;
+            }
+            if (seen.get((int) sequence)) {
+                duplicates++;
+                return;
+            }
+            seen.set((int) sequence);
+            if (sequence < highest) {
+                reordered++;
+            } else {
+                highest = sequence;
+            }
+            long latency;
+            if (event.nanos >= 0) {
+                latency = nanos - event.nanos;
+            } else if (event.timestamp >= 0) {
+                latency = TimeUnit.MILLISECONDS.toNanos(millis - event.timestamp);
+            } else {
+                return;
+            }
+            if (latencyCount == latencies.length) {
+                latencies = Arrays.copyOf(latencies, latencyCount * 2);
+            }
+            latencies[latencyCount++] = Math.max(0, latency);
+        }
+        
+        void close() throws InterruptedException, IOException {
+            channel.close();
+            thread.join(1000);
+        }
+    }
+    
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || arg.indexOf('=') < 0) {
+                throw new IllegalArgumentException("Expected --name=value, got: " + arg);
+            }
+            int eq = arg.indexOf('=');
+            options.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+        return options;
+    }
+    
+    private static int intOption(Map<String, String> options, String name, int defaultValue) {
+        String value = options.get(name);
+        return value != null ? Integer.parseInt(value) : defaultValue;
+    }
+}
@@ -0,0 +1,234 @@
+package com.healthbroadcast.common.tools;
+
+import com.healthbroadcast.common.pipeline.EventType;
+import com.healthbroadcast.common.pipeline.HealthEvent;
+import com.healthbroadcast.common.pipeline.SourceRegistry;
+import com.healthbroadcast.common.transport.Destination;
+import com.healthbroadcast.common.transport.SendStatus;
+import com.healthbroadcast.common.transport.SharedMemoryReader;
+import com.healthbroadcast.common.transport.SharedMemoryTransport;
+import com.healthbroadcast.common.transport.UdpTransport;
+import com.healthbroadcast.common.transport.UnixSocketTransport;
+import com.healthbroadcast.common.transport.UnixSockets;
+import com.healthbroadcast.common.wire.DecodedEvent;
+
+import java.io.File;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 回环 UDP、Unix 域套接字与共享内存输出的延迟对比 (无需 Minecraft)
+ * 
+ * 用法: java -cp common.jar com.healthbroadcast.common.tools.TransportLatencyComparison [事件数] [间隔微秒]
+ * 
+ * 每个事件携带发送时的 System.nanoTime，接收线程记录到达时间差，
+ * 分别输出发送端单次调用耗时和端到端延迟的分位数。
+ */
+public final class TransportLatencyComparison {
+    
+    private TransportLatencyComparison() {
+    }
+    
+    public static void main(String[] args) throws Exception {
+        int events = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        long intervalNanos = TimeUnit.MICROSECONDS.toNanos(args.length > 1 ? Long.parseLong(args[1]) : 20);
+        
+        System.out.println("events=" + events + " interval=" + TimeUnit.NANOSECONDS.toMicros(intervalNanos) + "us");
+        // 先各跑一轮预热 JIT
+        runUdp(Math.min(events, 20_000), intervalNanos, false);
+        runSharedMemory(Math.min(events, 20_000), intervalNanos, false);
+        runUdp(events, intervalNanos, true);
+        if (UnixSockets.isSupported()) {
+            runUnixSocket(Math.min(events, 20_000), intervalNanos, false);
+            runUnixSocket(events, intervalNanos, true);
+        } else {
+            System.out.println("unix socket: not supported on this JVM");
+        }
+        runSharedMemory(events, intervalNanos, true);
+    }
+    
+    private static void runUdp(int events, long intervalNanos, boolean report) throws Exception {
+        DatagramChannel receiver = DatagramChannel.open();
+        receiver.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        int port = ((InetSocketAddress) receiver.getLocalAddress()).getPort();
+        
+        long[] latencies = new long[events];
+        CountDownLatch ready = new CountDownLatch(1);
+        Thread thread = new Thread(() -> {
+            ByteBuffer in = ByteBuffer.allocateDirect(64);
+            ready.countDown();
+            try {
+                for (int i = 0; i < events; i++) {
+                    in.clear();
+                    receiver.receive(in);
+                    long now = System.nanoTime();
+                    int index = in.getInt(8);
+                    latencies[index] = now - in.getLong(0);
+                }
+            } catch (Exception e) {
+                // 超时关闭时退出
+            }
+        }, "udp-receiver");
+        thread.setDaemon(true);
+        thread.start();
+        ready.await();
+        
+        UdpTransport transport = new UdpTransport(Destination.unicast("127.0.0.1", port));
+        ByteBuffer out = ByteBuffer.allocateDirect(64);
+        long[] sendCost = new long[events];
+        int failed = 0;
+        for (int i = 0; i < events; i++) {
+            pace(intervalNanos);
+            long start = System.nanoTime();
+            out.clear();
+            out.putLong(start).putInt(i).flip();
+            if (transport.send(out) != SendStatus.SENT) {
+                failed++;
+            }
+            sendCost[i] = System.nanoTime() - start;
+        }
+        thread.join(2000);
+        receiver.close();
+        transport.close();
+        if (report) {
+            print("udp loopback", sendCost, latencies, failed);
+        }
+    }
+    
+    private static void runUnixSocket(int events, long intervalNanos, boolean report) throws Exception {
+        File path = new File(System.getProperty("java.io.tmpdir"), "hp_output-latency-" + System.nanoTime() + ".sock");
+        ServerSocketChannel server = UnixSockets.openServer();
+        server.bind(UnixSockets.address(path.getPath()));
+        
+        long[] latencies = new long[events];
+        Thread thread = new Thread(() -> {
+            ByteBuffer in = ByteBuffer.allocateDirect(64 * 1024);
+            try (SocketChannel client = server.accept()) {
+                int received = 0;
+                while (received < events && client.read(in) >= 0) {
+                    in.flip();
+                    // [u32 len][u64 nanos][u32 index]
+                    while (in.remaining() >= 4 && in.remaining() >= 4 + in.getInt(in.position())) {
+                        long now = System.nanoTime();
+                        int length = in.getInt();
+                        int start = in.position();
+                        latencies[in.getInt(start + 8)] = now - in.getLong(start);
+                        in.position(start + length);
+                        received++;
+                    }
+                    in.compact();
+                }
+            } catch (Exception e) {
+                // 超时关闭时退出
+            }
+        }, "uds-receiver");
+        thread.setDaemon(true);
+        thread.start();
+        
+        UnixSocketTransport transport = new UnixSocketTransport(Destination.unix(path.getPath()));
+        transport.reconnect();
+        ByteBuffer out = ByteBuffer.allocateDirect(64);
+        long[] sendCost = new long[events];
+        int failed = 0;
+        for (int i = 0; i < events; i++) {
+            pace(intervalNanos);
+            long start = System.nanoTime();
+            out.clear();
+            out.putLong(start).putInt(i).flip();
+            if (transport.send(out) != SendStatus.SENT) {
+                failed++;
+            }
+            sendCost[i] = System.nanoTime() - start;
+        }
+        thread.join(2000);
+        transport.close();
+        server.close();
+        path.delete();
+        if (report) {
+            print("unix socket", sendCost, latencies, failed);
+        }
+    }
+    
+    private static void runSharedMemory(int events, long intervalNanos, boolean report) throws Exception {
+        File file = File.createTempFile("hp_output-latency", ".shm");
+        file.deleteOnExit();
+        SourceRegistry sources = new SourceRegistry();
+        SharedMemoryTransport writer = new SharedMemoryTransport(file, 4096, sources);
+        SharedMemoryReader reader = new SharedMemoryReader(file);
+        
+        long[] latencies = new long[events];
+        Thread thread = new Thread(() -> {
+            DecodedEvent event = new DecodedEvent();
+            int received = 0;
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+            while (received < events && System.nanoTime() < deadline) {
+                if (reader.poll(event)) {
+                    latencies[(int) event.sequence] = System.nanoTime() - event.nanos;
+                    received++;
+                }
+            }
+        }, "shm-reader");
+        thread.setDaemon(true);
+        thread.start();
+        
+        HealthEvent event = new HealthEvent();
+        event.type = EventType.DAMAGE;
+        event.maxHealth = 20;
+        event.sourceId = sources.intern("mob:Zombie");
+        long[] sendCost = new long[events];
+        for (int i = 0; i < events; i++) {
+            pace(intervalNanos);
+            long start = System.nanoTime();
+            event.health = i % 20;
+            event.nanos = start;
+            event.timestamp = System.currentTimeMillis();
+            writer.onEvent(event);
+            sendCost[i] = System.nanoTime() - start;
+        }
+        thread.join(2000);
+        reader.close();
+        writer.close();
+        if (report) {
+            print("shared memory", sendCost, latencies, 0);
+            System.out.println("  reader lost: " + reader.getLostCount());
+        }
+    }
+    
+    private static void pace(long intervalNanos) {
+        long until = System.nanoTime() + intervalNanos;
+        while (System.nanoTime() < until) {
+            // 忙等，避免 sleep 的调度抖动
+        }
+    }
+    
+    private static void print(String name, long[] sendCost, long[] latencies, int failed) {
+        int missing = 0;
+        for (long latency : latencies) {
+            if (latency == 0) {
+                missing++;
+            }
+        }
+        System.out.println(name + ":");
+        System.out.println("  send call   " + percentiles(sendCost));
+        System.out.println("  end-to-end  " + percentiles(latencies) + " missing=" + missing + " failed=" + failed);
+    }
+    
+    static String percentiles(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return String.format("p50=%.1fus p99=%.1fus p999=%.1fus max=%.1fus",
+            at(sorted, 0.50), at(sorted, 0.99), at(sorted, 0.999), sorted[sorted.length - 1] / 1000.0);
+    }
+    
+    private static double at(long[] sorted, double quantile) {
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(quantile * sorted.length) - 1);
+        return sorted[Math.max(0, index)] / 1000.0;
+    }
+}
@@ -0,0 +1,147 @@
+package com.healthbroadcast.common.transport;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 发送熔断器 - 目标持续失败时暂停发送，按指数退避定期试探
+ * <pre>
+ *   CLOSED     正常发送；窗口内连续出现 {@link #FAILURE_THRESHOLD} 次失败后 -> OPEN
+ *   OPEN       不发送 (只比较一次时间)；退避时间到 -> HALF_OPEN
+ *   HALF_OPEN  放行一个试探包：成功 -> CLOSED，失败 -> OPEN 且退避时间翻倍
+ * </pre>
+ * 
+ * 无连接的 UDP 在对端没有监听时，失败 (ICMP port unreachable) 要到下一次发送才报告，
+ * 试探包本身总是"成功"。因此恢复后不久再次熔断时退避时间继续翻倍，
+ * 只有稳定运行 {@link #STABLE_NANOS} 之后才回到初始值。
+ * 只在发送线程中修改，状态和计数可以从其他线程读取。
+ */
+public final class CircuitBreaker {
+    
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+    
+    public static final int FAILURE_THRESHOLD = 3;
+    /** 统计失败次数的窗口 */
+    public static final long FAILURE_WINDOW_NANOS = TimeUnit.SECONDS.toNanos(5);
+    public static final long INITIAL_BACKOFF_NANOS = TimeUnit.MILLISECONDS.toNanos(250);
+    public static final long MAX_BACKOFF_NANOS = TimeUnit.SECONDS.toNanos(30);
+    /** 恢复后稳定运行这么久，退避时间才重置 */
+    public static final long STABLE_NANOS = TimeUnit.SECONDS.toNanos(60);
+    
+    private volatile State state = State.CLOSED;
+    private int windowFailures;
+    private long windowStartNanos;
+    private long backoffNanos = INITIAL_BACKOFF_NANOS;
+    private long retryAtNanos;
+    private long closedAtNanos;
+    private boolean everOpened;
+    
+    private volatile long openCount;
+    private volatile long rejectedCount;
+    
+    /**
+     * 发送前调用
+     * @return false 表示熔断中，不应发送
+     */
+    public boolean allowSend(long nowNanos) {
+        if (state == State.CLOSED) {
+            return true;
+        }
+        if (state == State.OPEN) {
+            if (nowNanos - retryAtNanos < 0) {
+                rejectedCount++;
+                return false;
+            }
+            state = State.HALF_OPEN;
+        }
+        return true;
+    }
+    
+    /**
+     * 发送成功
+     * @return true 如果熔断器因此从试探状态恢复
+     */
+    public boolean onSuccess(long nowNanos) {
+        if (state == State.HALF_OPEN) {
+            close(nowNanos);
+            return true;
+        }
+        return false;
+    }
+    
+    /**
+     * 发送失败
+     * @return true 如果熔断器因此打开
+     */
+    public boolean onFailure(long nowNanos) {
+        if (state == State.HALF_OPEN) {
+            open(nowNanos, true);
+            return true;
+        }
+        if (state == State.OPEN) {
+            return false;
+        }
+        if (nowNanos - windowStartNanos > FAILURE_WINDOW_NANOS) {
+            windowStartNanos = nowNanos;
+            windowFailures = 0;
+        }
+        if (++windowFailures >= FAILURE_THRESHOLD) {
+            // 刚恢复不久又失败：继续退避
+            open(nowNanos, everOpened && nowNanos - closedAtNanos < STABLE_NANOS);
+            return true;
+        }
+        return false;
+    }
+    
+    /**
+     * 连接已重新建立 (面向连接的通道)，立即恢复发送
+     */
+    public void reset(long nowNanos) {
+        if (state != State.CLOSED) {
+            close(nowNanos);
+        }
+    }
+    
+    private void open(long nowNanos, boolean escalate) {
+        backoffNanos = escalate ? Math.min(MAX_BACKOFF_NANOS, backoffNanos * 2) : INITIAL_BACKOFF_NANOS;
+        retryAtNanos = nowNanos + backoffNanos;
+        state = State.OPEN;
+        everOpened = true;
+        openCount++;
+    }
+    
+    private void close(long nowNanos) {
+        state = State.CLOSED;
+        closedAtNanos = nowNanos;
+        windowFailures = 0;
+        windowStartNanos = nowNanos;
+    }
+    
+    public State getState() {
+        return state;
+    }
+    
+    /**
+     * 当前 (或最近一次) 的退避时间
+     */
+    public long getBackoffNanos() {
+        return backoffNanos;
+    }
+    
+    /**
+     * 熔断次数
+     */
+    public long getOpenCount() {
+        return openCount;
+    }
+    
+    /**
+     * 熔断期间跳过的发送次数
+     */
+    public long getRejectedCount() {
+        return rejectedCount;
+    }
+}
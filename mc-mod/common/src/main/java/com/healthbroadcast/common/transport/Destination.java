@@ -0,0 +1,159 @@
+package com.healthbroadcast.common.transport;
+
+import java.util.Locale;
+
+/**
+ * 发送目标 - 从配置字符串解析
+ * <pre>
+ *   127.0.0.1:39571                      单播 (省略 scheme)
+ *   udp://192.168.1.20:39571             单播
+ *   multicast://239.255.42.99:39571?ttl=1  组播，ttl 默认 1
+ *   broadcast://255.255.255.255:39571    局域网广播
+ *   unix:///home/me/.minecraft/config/hp_output.sock  Unix 域套接字 (Java 16+)
+ * </pre>
+ */
+public final class Destination {
+    
+    public enum Kind {
+        UNICAST("udp"),
+        MULTICAST("multicast"),
+        BROADCAST("broadcast"),
+        /** host 为套接字路径，port 固定为 0 */
+        UNIX("unix");
+        
+        private final String scheme;
+        
+        Kind(String scheme) {
+            this.scheme = scheme;
+        }
+        
+        public String scheme() {
+            return scheme;
+        }
+    }
+    
+    public static final int DEFAULT_TTL = 1;
+    
+    public final Kind kind;
+    public final String host;
+    public final int port;
+    /** 仅组播使用 */
+    public final int ttl;
+    
+    public Destination(Kind kind, String host, int port, int ttl) {
+        this.kind = kind;
+        this.host = host;
+        this.port = port;
+        this.ttl = ttl;
+    }
+    
+    public static Destination unicast(String host, int port) {
+        return new Destination(Kind.UNICAST, host, port, DEFAULT_TTL);
+    }
+    
+    public static Destination unix(String path) {
+        return new Destination(Kind.UNIX, path, 0, DEFAULT_TTL);
+    }
+    
+    /**
+     * 解析配置字符串
+     * @throws IllegalArgumentException 格式错误时
+     */
+    public static Destination parse(String spec) {
+        if (spec == null || spec.trim().isEmpty()) {
+            throw new IllegalArgumentException("empty destination");
+        }
+        String rest = spec.trim();
+        Kind kind = Kind.UNICAST;
+        int schemeEnd = rest.indexOf("://");
+        if (schemeEnd >= 0) {
+            String scheme = rest.substring(0, schemeEnd).toLowerCase(Locale.ROOT);
+            kind = null;
+            for (Kind k : Kind.values()) {
+                if (k.scheme.equals(scheme)) {
+                    kind = k;
+                }
+            }
+            if (kind == null) {
+                throw new IllegalArgumentException("unknown scheme: " + scheme);
+            }
+            rest = rest.substring(schemeEnd + 3);
+        }
+        if (kind == Kind.UNIX) {
+            if (rest.isEmpty()) {
+                throw new IllegalArgumentException("missing socket path: " + spec);
+            }
+            return unix(rest);
+        }
+        
+        int ttl = DEFAULT_TTL;
+        int query = rest.indexOf('?');
+        if (query >= 0) {
+            for (String param : rest.substring(query + 1).split("&")) {
+                if (param.startsWith("ttl=")) {
+                    ttl = Integer.parseInt(param.substring(4));
+                }
+            }
+            rest = rest.substring(0, query);
+        }
+        
+        int colon = rest.lastIndexOf(':');
+        if (colon <= 0) {
+            throw new IllegalArgumentException("missing port: " + spec);
+        }
+        String host = rest.substring(0, colon);
+        if (host.startsWith("[") && host.endsWith("]")) {
+            host = host.substring(1, host.length() - 1);
+        }
+        int port = Integer.parseInt(rest.substring(colon + 1));
+        if (port < 1 || port > 65535) {
+            throw new IllegalArgumentException("port out of range: " + spec);
+        }
+        if (ttl < 0 || ttl > 255) {
+            throw new IllegalArgumentException("ttl out of range: " + spec);
+        }
+        return new Destination(kind, host, port, ttl);
+    }
+    
+    /**
+     * 配置校验用
+     */
+    public static boolean isValid(String spec) {
+        try {
+            parse(spec);
+            return true;
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+    
+    /**
+     * 除端口外是否相同 (可复用同一个 channel，只需重新 connect)
+     */
+    boolean sameEndpointExceptPort(Destination other) {
+        return kind == other.kind && host.equals(other.host) && ttl == other.ttl;
+    }
+    
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof Destination)) {
+            return false;
+        }
+        Destination other = (Destination) o;
+        return sameEndpointExceptPort(other) && port == other.port;
+    }
+    
+    @Override
+    public int hashCode() {
+        return (kind.hashCode() * 31 + host.hashCode()) * 31 + port;
+    }
+    
+    @Override
+    public String toString() {
+        if (kind == Kind.UNIX) {
+            return kind.scheme + "://" + host;
+        }
+        String base = kind.scheme + "://" + host + ":" + port;
+        return kind == Kind.MULTICAST ? base + "?ttl=" + ttl : base;
+    }
+}
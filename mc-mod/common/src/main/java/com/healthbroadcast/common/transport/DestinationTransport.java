@@ -0,0 +1,170 @@
+package com.healthbroadcast.common.transport;
+
+import com.healthbroadcast.common.log.Log;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 单个发送目标的通道基类，统一维护统计计数和熔断器
+ * 计数器只由发送线程写入，其他线程可随时读取。
+ * 
+ * 目标持续失败时由 {@link CircuitBreaker} 暂停发送，失败只计数，
+ * 每个目标最多每 {@link #WARN_INTERVAL_NANOS} 输出一次警告。
+ */
+public abstract class DestinationTransport implements Transport {
+    
+    /** 同一目标两次熔断警告的最小间隔 */
+    private static final long WARN_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(30);
+    
+    protected Destination destination;
+    private final CircuitBreaker breaker = new CircuitBreaker();
+    private long lastWarnNanos;
+    private boolean warned;
+    private int suppressedWarnings;
+    
+    private volatile long sentPackets;
+    private volatile long sentBytes;
+    private volatile long backpressureCount;
+    private volatile long failureCount;
+    private volatile String lastError;
+    private volatile long lastErrorMillis;
+    
+    protected DestinationTransport(Destination destination) {
+        this.destination = destination;
+    }
+    
+    /**
+     * 按目标类型创建对应的发送通道
+     */
+    public static DestinationTransport create(Destination destination) {
+        if (destination.kind == Destination.Kind.UNIX) {
+            return new UnixSocketTransport(destination);
+        }
+        return new UdpTransport(destination);
+    }
+    
+    public Destination getDestination() {
+        return destination;
+    }
+    
+    /**
+     * 经过熔断器发送；熔断中直接返回 {@link SendStatus#SUSPENDED}
+     */
+    @Override
+    public final SendStatus send(ByteBuffer frame) {
+        long now = System.nanoTime();
+        if (!breaker.allowSend(now)) {
+            return SendStatus.SUSPENDED;
+        }
+        SendStatus status = sendFrame(frame);
+        if (status == SendStatus.FAILED) {
+            if (breaker.onFailure(now)) {
+                warnOpened(now);
+            }
+        } else if (status == SendStatus.SENT) {
+            // UDP 的试探包总是"成功"，不代表对端在监听，所以这里不输出恢复信息
+            breaker.onSuccess(now);
+        }
+        return status;
+    }
+    
+    /**
+     * 实际发送 frame 中 position 到 limit 之间的字节 (不经过熔断器)
+     */
+    protected abstract SendStatus sendFrame(ByteBuffer frame);
+    
+    /**
+     * 面向连接的通道重新建立连接后调用，立即恢复发送
+     */
+    protected void onConnected() {
+        breaker.reset(System.nanoTime());
+        if (warned) {
+            warned = false;
+            Log.info("{} is reachable again, sending resumed", describe());
+        }
+    }
+    
+    private void warnOpened(long now) {
+        if (warned && now - lastWarnNanos < WARN_INTERVAL_NANOS) {
+            suppressedWarnings++;
+            return;
+        }
+        Log.warn("{} is unreachable ({}), pausing sends for {}ms{}", describe(), lastError,
+            TimeUnit.NANOSECONDS.toMillis(breaker.getBackoffNanos()),
+            suppressedWarnings > 0 ? " (" + suppressedWarnings + " similar warnings suppressed)" : "");
+        lastWarnNanos = now;
+        warned = true;
+        suppressedWarnings = 0;
+    }
+    
+    public CircuitBreaker getBreaker() {
+        return breaker;
+    }
+    
+    protected void recordSent(int length) {
+        sentPackets++;
+        sentBytes += length;
+    }
+    
+    protected void recordBackpressure() {
+        backpressureCount++;
+    }
+    
+    protected void recordFailure(String error) {
+        failureCount++;
+        lastError = error;
+        lastErrorMillis = System.currentTimeMillis();
+    }
+    
+    public long getSentPackets() {
+        return sentPackets;
+    }
+    
+    public long getSentBytes() {
+        return sentBytes;
+    }
+    
+    /**
+     * 非阻塞写入时因发送缓冲区满而未发送的次数
+     */
+    public long getBackpressureCount() {
+        return backpressureCount;
+    }
+    
+    public long getFailureCount() {
+        return failureCount;
+    }
+    
+    /**
+     * 最近一次错误，没有错误时为 null
+     */
+    public String getLastError() {
+        return lastError;
+    }
+    
+    public long getLastErrorMillis() {
+        return lastErrorMillis;
+    }
+    
+    /**
+     * 面向连接的通道在断开后尝试重连 (发送线程中、编码事件之前调用)
+     * @return true 如果新建立了连接 (新的接收端需要重新获取来源定义)；无连接的通道始终返回 false
+     */
+    public boolean reconnect() {
+        return false;
+    }
+    
+    /**
+     * 非阻塞读取接收端发回的数据 (例如 NACK)
+     * @return 读取的字节数；没有数据时为 0；不支持回读时为 -1
+     */
+    public int receive(ByteBuffer in) {
+        return -1;
+    }
+    
+    @Override
+    public String describe() {
+        return destination.toString();
+    }
+}
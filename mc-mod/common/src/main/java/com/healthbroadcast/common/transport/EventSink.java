@@ -0,0 +1,16 @@
+package com.healthbroadcast.common.transport;
+
+import com.healthbroadcast.common.pipeline.HealthEvent;
+
+/**
+ * 事件级输出 - 在发送线程中逐个接收事件 (不经过批量合并)
+ * 用于共享内存等本地输出
+ */
+public interface EventSink {
+    
+    void onEvent(HealthEvent event);
+    
+    String describe();
+    
+    void close();
+}
@@ -0,0 +1,142 @@
+package com.healthbroadcast.common.transport;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 多目标扇出 - 同一份已编码的数据依次发送到所有目标
+ * 数据只编码一次，每个目标只是重置 position 后再写一次
+ */
+public final class FanoutTransport implements Transport {
+    
+    private volatile List<DestinationTransport> targets = Collections.emptyList();
+    
+    /**
+     * 更新目标列表 (发送线程中调用)
+     * 只有端口不同的目标复用原有 channel，其余关闭或新建
+     * @return true 如果有新增的目标 (需要重新发送来源定义等状态)
+     */
+    public boolean reconfigure(List<Destination> destinations) {
+        List<DestinationTransport> old = new ArrayList<>(targets);
+        List<DestinationTransport> updated = new ArrayList<>(destinations.size());
+        boolean added = false;
+        for (Destination destination : destinations) {
+            DestinationTransport reused = null;
+            for (DestinationTransport transport : old) {
+                if (transport.getDestination().sameEndpointExceptPort(destination)) {
+                    reused = transport;
+                    break;
+                }
+            }
+            if (reused != null) {
+                old.remove(reused);
+                if (reused instanceof UdpTransport && ((UdpTransport) reused).getPort() != destination.port) {
+                    ((UdpTransport) reused).setPort(destination.port);
+                    added = true;
+                }
+                updated.add(reused);
+            } else {
+                updated.add(DestinationTransport.create(destination));
+                added = true;
+            }
+        }
+        for (DestinationTransport unused : old) {
+            unused.close();
+        }
+        targets = Collections.unmodifiableList(updated);
+        return added;
+    }
+    
+    /**
+     * 让断开的面向连接目标尝试重连 (编码事件之前调用)
+     * @return true 如果有目标新建立了连接
+     */
+    public boolean reconnect() {
+        List<DestinationTransport> current = targets;
+        boolean connected = false;
+        for (int i = 0; i < current.size(); i++) {
+            connected |= current.get(i).reconnect();
+        }
+        return connected;
+    }
+    
+    /**
+     * @return 至少一个目标发送成功时为 SENT；否则有背压时为 BACKPRESSURE，有失败时为 FAILED，
+     *         全部目标都在熔断中时为 SUSPENDED
+     */
+    @Override
+    public SendStatus send(ByteBuffer frame) {
+        List<DestinationTransport> current = targets;
+        int start = frame.position();
+        int limit = frame.limit();
+        boolean sent = false;
+        boolean backpressure = false;
+        boolean failed = false;
+        for (int i = 0; i < current.size(); i++) {
+            frame.limit(limit).position(start);
+            SendStatus status = current.get(i).send(frame);
+            if (status == SendStatus.SENT) {
+                sent = true;
+            } else if (status == SendStatus.BACKPRESSURE) {
+                backpressure = true;
+            } else if (status == SendStatus.FAILED) {
+                failed = true;
+            }
+        }
+        if (sent) {
+            return SendStatus.SENT;
+        }
+        if (backpressure) {
+            return SendStatus.BACKPRESSURE;
+        }
+        return failed || current.isEmpty() ? SendStatus.FAILED : SendStatus.SUSPENDED;
+    }
+    
+    /**
+     * 各目标的发送通道 (只读，用于统计)
+     */
+    public List<DestinationTransport> targets() {
+        return targets;
+    }
+    
+    public long getFailureCount() {
+        long total = 0;
+        for (DestinationTransport transport : targets) {
+            total += transport.getFailureCount();
+        }
+        return total;
+    }
+    
+    public long getBackpressureCount() {
+        long total = 0;
+        for (DestinationTransport transport : targets) {
+            total += transport.getBackpressureCount();
+        }
+        return total;
+    }
+    
+    @Override
+    public String describe() {
+        List<DestinationTransport> current = targets;
+        if (current.size() == 1) {
+            return current.get(0).describe();
+        }
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < current.size(); i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(current.get(i).describe());
+        }
+        return sb.append(']').toString();
+    }
+    
+    @Override
+    public void close() {
+        for (DestinationTransport transport : targets) {
+            transport.close();
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.healthbroadcast.common.transport;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+
+/**
+ * 内存屏障 - 用于跨进程共享内存的读写顺序
+ * Java 9+ 使用 VarHandle 的静态屏障方法，Java 8 退回 sun.misc.Unsafe
+ * 两者都不可用时退回 volatile 写/读 (x86 上等价)
+ */
+final class Fences {
+    
+    private static final MethodHandle RELEASE;
+    private static final MethodHandle ACQUIRE;
+    private static volatile int fallback;
+    
+    static {
+        MethodHandle release = null;
+        MethodHandle acquire = null;
+        MethodType voidType = MethodType.methodType(void.class);
+        try {
+            Class<?> varHandle = Class.forName("java.lang.invoke.VarHandle");
+            release = MethodHandles.publicLookup().findStatic(varHandle, "releaseFence", voidType);
+            acquire = MethodHandles.publicLookup().findStatic(varHandle, "acquireFence", voidType);
+        } catch (ReflectiveOperationException e) {
+            try {
+                Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+                Field field = unsafeClass.getDeclaredField("theUnsafe");
+                field.setAccessible(true);
+                Object unsafe = field.get(null);
+                release = MethodHandles.lookup().findVirtual(unsafeClass, "storeFence", voidType).bindTo(unsafe);
+                acquire = MethodHandles.lookup().findVirtual(unsafeClass, "loadFence", voidType).bindTo(unsafe);
+            } catch (ReflectiveOperationException | RuntimeException e2) {
+                release = null;
+                acquire = null;
+            }
+        }
+        RELEASE = release;
+        ACQUIRE = acquire;
+    }
+    
+    private Fences() {
+    }
+    
+    /**
+     * 之前的读写不会被重排到之后的写之后
+     */
+    static void release() {
+        if (RELEASE != null) {
+            try {
+                RELEASE.invokeExact();
+                return;
+            } catch (Throwable t) {
+                // 退回 volatile
+            }
+        }
+        fallback = 0;
+    }
+    
+    /**
+     * 之前的读不会被重排到之后的读写之后
+     */
+    static void acquire() {
+        if (ACQUIRE != null) {
+            try {
+                ACQUIRE.invokeExact();
+                return;
+            } catch (Throwable t) {
+                // 退回 volatile
+            }
+        }
+        if (fallback != 0) {
+            fallback = 0;
+        }
+    }
+}
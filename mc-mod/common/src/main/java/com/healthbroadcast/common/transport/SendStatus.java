@@ -0,0 +1,15 @@
+package com.healthbroadcast.common.transport;
+
+/**
+ * 单次发送的结果
+ */
+public enum SendStatus {
+    /** 已交给内核 */
+    SENT,
+    /** 发送缓冲区已满 (非阻塞模式下的背压)，数据未发送 */
+    BACKPRESSURE,
+    /** 发送失败 (无监听者、socket 损坏等) */
+    FAILED,
+    /** 目标熔断中 ({@link CircuitBreaker})，没有尝试发送 */
+    SUSPENDED
+}
@@ -0,0 +1,88 @@
+package com.healthbroadcast.common.transport;
+
+/**
+ * 共享内存文件布局 (小端序)
+ * 
+ * <pre>
+ * 文件头 @0 (64 字节)
+ *   u32 magic       0x4D534248 ("HBSM")
+ *   u32 version     1
+ *   u32 slotCount   2 的幂
+ *   u32 slotSize    128
+ *   i64 epoch       写入端打开文件时的毫秒时间戳，变化表示写入端重启
+ *   i64 writeSeq    最近写入的事件序号，-1 表示还没有事件
+ * 
+ * 最新状态页 @64 (seqlock 保护，读取不消耗环形缓冲区)
+ *   i64 version     写入时为奇数
+ *   f32 health, f32 maxHealth, f32 percentage
+ *   i32 lastType    最近事件类型 (0=health 1=damage 2=heal 3=death)
+ *   i64 lastSeq     最近事件序号
+ *   i64 timestamp   毫秒
+ *   i64 nanos       捕获时的 System.nanoTime
+ *   u16 sourceLen + 最近一次伤害/死亡来源 (UTF-8)
+ * 
+ * 事件环 @4096，每个槽位 128 字节
+ *   i64 seq         写入中为 -1，写完后为事件序号
+ *   i32 type
+ *   f32 health, f32 maxHealth, f32 amount, f32 percentage
+ *   u16 sourceLen, u16 保留
+ *   i64 timestamp
+ *   i64 nanos
+ *   source (UTF-8)
+ * </pre>
+ */
+public final class SharedMemoryLayout {
+    
+    public static final int MAGIC = 0x4D534248;
+    public static final int VERSION = 1;
+    
+    // 文件头
+    public static final int HEADER_MAGIC = 0;
+    public static final int HEADER_VERSION = 4;
+    public static final int HEADER_SLOT_COUNT = 8;
+    public static final int HEADER_SLOT_SIZE = 12;
+    public static final int HEADER_EPOCH = 16;
+    public static final int HEADER_WRITE_SEQ = 24;
+    
+    // 最新状态页
+    public static final int STATE_BASE = 64;
+    public static final int STATE_VERSION = STATE_BASE;
+    public static final int STATE_HEALTH = STATE_BASE + 8;
+    public static final int STATE_MAX_HEALTH = STATE_BASE + 12;
+    public static final int STATE_PERCENTAGE = STATE_BASE + 16;
+    public static final int STATE_LAST_TYPE = STATE_BASE + 20;
+    public static final int STATE_LAST_SEQ = STATE_BASE + 24;
+    public static final int STATE_TIMESTAMP = STATE_BASE + 32;
+    public static final int STATE_NANOS = STATE_BASE + 40;
+    public static final int STATE_SOURCE_LENGTH = STATE_BASE + 48;
+    public static final int STATE_SOURCE = STATE_BASE + 50;
+    public static final int STATE_MAX_SOURCE_BYTES = 128;
+    
+    // 事件环
+    public static final int RING_BASE = 4096;
+    public static final int SLOT_SIZE = 128;
+    public static final int SLOT_SEQ = 0;
+    public static final int SLOT_TYPE = 8;
+    public static final int SLOT_HEALTH = 12;
+    public static final int SLOT_MAX_HEALTH = 16;
+    public static final int SLOT_AMOUNT = 20;
+    public static final int SLOT_PERCENTAGE = 24;
+    public static final int SLOT_SOURCE_LENGTH = 28;
+    public static final int SLOT_TIMESTAMP = 32;
+    public static final int SLOT_NANOS = 40;
+    public static final int SLOT_SOURCE = 48;
+    public static final int SLOT_MAX_SOURCE_BYTES = SLOT_SIZE - SLOT_SOURCE;
+    
+    public static final int DEFAULT_SLOT_COUNT = 1024;
+    
+    private SharedMemoryLayout() {
+    }
+    
+    public static long fileSize(int slotCount) {
+        return RING_BASE + (long) slotCount * SLOT_SIZE;
+    }
+    
+    public static int slotOffset(long sequence, int slotCount) {
+        return RING_BASE + (int) (sequence & (slotCount - 1)) * SLOT_SIZE;
+    }
+}
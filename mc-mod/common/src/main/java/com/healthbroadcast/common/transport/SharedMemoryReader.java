@@ -0,0 +1,157 @@
+package com.healthbroadcast.common.transport;
+
+import com.healthbroadcast.common.wire.DecodedEvent;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+import static com.healthbroadcast.common.transport.SharedMemoryLayout.*;
+
+/**
+ * 共享内存读取端 (参考实现)
+ * - {@link #poll(DecodedEvent)} 按序读取事件环，落后太多时跳到最旧的可用事件并计入丢失
+ * - {@link #readState(DecodedEvent)} 读取最新状态页，不消耗事件环
+ * 每个读取者使用自己的实例，可同时存在任意多个读取者。
+ */
+public final class SharedMemoryReader implements AutoCloseable {
+    
+    private static final String[] TYPE_NAMES = {"health", "damage", "heal", "death"};
+    
+    private final RandomAccessFile raf;
+    private final MappedByteBuffer buffer;
+    private final int slotCount;
+    private final byte[] sourceBytes = new byte[Math.max(SLOT_MAX_SOURCE_BYTES, STATE_MAX_SOURCE_BYTES)];
+    private long epoch;
+    private long next;
+    private long lost;
+    
+    public SharedMemoryReader(File file) throws IOException {
+        raf = new RandomAccessFile(file, "r");
+        FileChannel channel = raf.getChannel();
+        buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.getInt(HEADER_MAGIC) != MAGIC || buffer.getInt(HEADER_VERSION) != VERSION) {
+            raf.close();
+            throw new IOException("not a health broadcast shared memory file: " + file);
+        }
+        slotCount = buffer.getInt(HEADER_SLOT_COUNT);
+        seekToLatest();
+    }
+    
+    /**
+     * 跳过已有事件，只读取之后写入的事件
+     */
+    public void seekToLatest() {
+        epoch = buffer.getLong(HEADER_EPOCH);
+        Fences.acquire();
+        next = buffer.getLong(HEADER_WRITE_SEQ) + 1;
+    }
+    
+    /**
+     * 读取下一个事件
+     * @return false 如果暂时没有新事件
+     */
+    public boolean poll(DecodedEvent out) {
+        if (buffer.getLong(HEADER_EPOCH) != epoch) {
+            // 写入端重启，序号从头开始
+            epoch = buffer.getLong(HEADER_EPOCH);
+            next = 0;
+        }
+        while (true) {
+            int slot = slotOffset(next, slotCount);
+            long seq = buffer.getLong(slot + SLOT_SEQ);
+            Fences.acquire();
+            if (seq == next) {
+                out.type = typeName(buffer.getInt(slot + SLOT_TYPE));
+                out.health = buffer.getFloat(slot + SLOT_HEALTH);
+                out.maxHealth = buffer.getFloat(slot + SLOT_MAX_HEALTH);
+                out.amount = buffer.getFloat(slot + SLOT_AMOUNT);
+                out.percentage = buffer.getFloat(slot + SLOT_PERCENTAGE);
+                out.timestamp = buffer.getLong(slot + SLOT_TIMESTAMP);
+                out.nanos = buffer.getLong(slot + SLOT_NANOS);
+                int sourceLength = Math.min(buffer.getShort(slot + SLOT_SOURCE_LENGTH) & 0xFFFF, SLOT_MAX_SOURCE_BYTES);
+                copySource(slot + SLOT_SOURCE, sourceLength);
+                out.sequence = seq;
+                out.format = null;
+                Fences.acquire();
+                if (buffer.getLong(slot + SLOT_SEQ) == seq) {
+                    out.source = new String(sourceBytes, 0, sourceLength, StandardCharsets.UTF_8);
+                    next++;
+                    return true;
+                }
+                // 读取过程中槽位被覆盖，说明已落后一整圈，重新判断
+                continue;
+            }
+            
+            long written = buffer.getLong(HEADER_WRITE_SEQ);
+            if (written < next) {
+                return false;
+            }
+            long oldest = written - slotCount + 1;
+            if (next < oldest) {
+                lost += oldest - next;
+                next = oldest;
+                continue;
+            }
+            // 槽位正在写入
+            return false;
+        }
+    }
+    
+    /**
+     * 读取最新状态 (type 为最近事件类型，source 为最近一次伤害/死亡来源)
+     */
+    public boolean readState(DecodedEvent out) {
+        for (int attempt = 0; attempt < 1000; attempt++) {
+            long v1 = buffer.getLong(STATE_VERSION);
+            if ((v1 & 1) != 0) {
+                continue;
+            }
+            Fences.acquire();
+            out.health = buffer.getFloat(STATE_HEALTH);
+            out.maxHealth = buffer.getFloat(STATE_MAX_HEALTH);
+            out.percentage = buffer.getFloat(STATE_PERCENTAGE);
+            out.type = typeName(buffer.getInt(STATE_LAST_TYPE));
+            out.sequence = buffer.getLong(STATE_LAST_SEQ);
+            out.timestamp = buffer.getLong(STATE_TIMESTAMP);
+            out.nanos = buffer.getLong(STATE_NANOS);
+            int sourceLength = Math.min(buffer.getShort(STATE_SOURCE_LENGTH) & 0xFFFF, STATE_MAX_SOURCE_BYTES);
+            copySource(STATE_SOURCE, sourceLength);
+            out.format = null;
+            out.amount = 0;
+            Fences.acquire();
+            if (buffer.getLong(STATE_VERSION) == v1) {
+                out.source = new String(sourceBytes, 0, sourceLength, StandardCharsets.UTF_8);
+                return v1 != 0;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * 因落后超过一整圈而丢失的事件数
+     */
+    public long getLostCount() {
+        return lost;
+    }
+    
+    private void copySource(int offset, int length) {
+        for (int i = 0; i < length; i++) {
+            sourceBytes[i] = buffer.get(offset + i);
+        }
+    }
+    
+    private static String typeName(int type) {
+        return type >= 0 && type < TYPE_NAMES.length ? TYPE_NAMES[type] : "unknown";
+    }
+    
+    @Override
+    public void close() throws IOException {
+        raf.close();
+    }
+}
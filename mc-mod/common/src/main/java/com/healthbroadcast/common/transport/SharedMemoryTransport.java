@@ -0,0 +1,155 @@
+package com.healthbroadcast.common.transport;
+
+import com.healthbroadcast.common.pipeline.EventType;
+import com.healthbroadcast.common.pipeline.HealthEvent;
+import com.healthbroadcast.common.pipeline.SourceRegistry;
+import com.healthbroadcast.common.wire.BinaryEventEncoder;
+import com.healthbroadcast.common.wire.JsonEventEncoder;
+import com.healthbroadcast.common.wire.Utf8;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import static com.healthbroadcast.common.transport.SharedMemoryLayout.*;
+
+/**
+ * 共享内存输出 - 同机消费者无需经过网络栈
+ * 事件写入内存映射文件中的单生产者环形缓冲区，同时更新 seqlock 保护的最新状态页。
+ * 布局见 {@link SharedMemoryLayout}，读取端见 {@link SharedMemoryReader}。
+ */
+public final class SharedMemoryTransport implements EventSink {
+    
+    private final File file;
+    private final int slotCount;
+    private final SourceRegistry sources;
+    private RandomAccessFile raf;
+    private MappedByteBuffer buffer;
+    private long sequence = -1;
+    
+    public SharedMemoryTransport(File file, int slotCount, SourceRegistry sources) throws IOException {
+        if (slotCount < 2 || Integer.bitCount(slotCount) != 1) {
+            throw new IllegalArgumentException("slotCount must be a power of two: " + slotCount);
+        }
+        this.file = file;
+        this.slotCount = slotCount;
+        this.sources = sources;
+        open();
+    }
+    
+    /**
+     * 默认文件位置：Linux 上为 /dev/shm (内存文件系统)，其他系统为临时目录
+     */
+    public static File defaultFile() {
+        File shm = new File("/dev/shm");
+        File dir = shm.isDirectory() && shm.canWrite() ? shm : new File(System.getProperty("java.io.tmpdir"));
+        return new File(dir, "hp_output.shm");
+    }
+    
+    private void open() throws IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("cannot create directory " + parent);
+        }
+        raf = new RandomAccessFile(file, "rw");
+        long size = fileSize(slotCount);
+        raf.setLength(size);
+        buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        
+        // 先作废文件头，再初始化，避免读取端看到半初始化的文件
+        buffer.putInt(HEADER_MAGIC, 0);
+        Fences.release();
+        buffer.putInt(HEADER_VERSION, VERSION);
+        buffer.putInt(HEADER_SLOT_COUNT, slotCount);
+        buffer.putInt(HEADER_SLOT_SIZE, SLOT_SIZE);
+        buffer.putLong(HEADER_EPOCH, System.currentTimeMillis());
+        buffer.putLong(HEADER_WRITE_SEQ, -1);
+        buffer.putLong(STATE_VERSION, 0);
+        for (int i = 0; i < slotCount; i++) {
+            buffer.putLong(RING_BASE + i * SLOT_SIZE + SLOT_SEQ, -1);
+        }
+        Fences.release();
+        buffer.putInt(HEADER_MAGIC, MAGIC);
+    }
+    
+    @Override
+    public void onEvent(HealthEvent event) {
+        if (buffer == null || event.type == EventType.TICK) {
+            return;
+        }
+        long seq = ++sequence;
+        int type = BinaryEventEncoder.typeCode(event.type);
+        boolean hasSource = event.type == EventType.DAMAGE || event.type == EventType.DEATH;
+        String source = hasSource ? sources.name(event.sourceId) : "";
+        float percentage = JsonEventEncoder.percentage(event.health, event.maxHealth);
+        
+        // 事件槽位：先标记写入中，写完字段后再发布序号
+        int slot = slotOffset(seq, slotCount);
+        buffer.putLong(slot + SLOT_SEQ, -1);
+        Fences.release();
+        buffer.putInt(slot + SLOT_TYPE, type);
+        buffer.putFloat(slot + SLOT_HEALTH, event.health);
+        buffer.putFloat(slot + SLOT_MAX_HEALTH, event.maxHealth);
+        buffer.putFloat(slot + SLOT_AMOUNT, event.amount);
+        buffer.putFloat(slot + SLOT_PERCENTAGE, percentage);
+        buffer.putLong(slot + SLOT_TIMESTAMP, event.timestamp);
+        buffer.putLong(slot + SLOT_NANOS, event.nanos);
+        buffer.position(slot + SLOT_SOURCE);
+        buffer.putShort(slot + SLOT_SOURCE_LENGTH, (short) Utf8.put(buffer, source, SLOT_MAX_SOURCE_BYTES));
+        Fences.release();
+        buffer.putLong(slot + SLOT_SEQ, seq);
+        buffer.putLong(HEADER_WRITE_SEQ, seq);
+        
+        // 最新状态页 (seqlock)
+        long version = buffer.getLong(STATE_VERSION);
+        buffer.putLong(STATE_VERSION, version + 1);
+        Fences.release();
+        if (event.type == EventType.DEATH) {
+            buffer.putFloat(STATE_HEALTH, 0);
+            buffer.putFloat(STATE_PERCENTAGE, 0);
+        } else {
+            buffer.putFloat(STATE_HEALTH, event.health);
+            buffer.putFloat(STATE_MAX_HEALTH, event.maxHealth);
+            buffer.putFloat(STATE_PERCENTAGE, percentage);
+        }
+        buffer.putInt(STATE_LAST_TYPE, type);
+        buffer.putLong(STATE_LAST_SEQ, seq);
+        buffer.putLong(STATE_TIMESTAMP, event.timestamp);
+        buffer.putLong(STATE_NANOS, event.nanos);
+        if (hasSource) {
+            buffer.position(STATE_SOURCE);
+            buffer.putShort(STATE_SOURCE_LENGTH, (short) Utf8.put(buffer, source, STATE_MAX_SOURCE_BYTES));
+        }
+        Fences.release();
+        buffer.putLong(STATE_VERSION, version + 2);
+    }
+    
+    public File getFile() {
+        return file;
+    }
+    
+    @Override
+    public String describe() {
+        return "shm://" + file.getAbsolutePath();
+    }
+    
+    /**
+     * 关闭映射 (文件保留，读取端仍可读到最后的状态)
+     */
+    @Override
+    public void close() {
+        buffer = null;
+        if (raf != null) {
+            try {
+                raf.close();
+            } catch (IOException e) {
+                // 忽略
+            }
+            raf = null;
+        }
+    }
+}
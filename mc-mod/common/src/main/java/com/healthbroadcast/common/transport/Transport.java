@@ -0,0 +1,22 @@
+package com.healthbroadcast.common.transport;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 数据发送通道 - 只在发送线程中使用
+ */
+public interface Transport {
+    
+    /**
+     * 发送 frame 中 position 到 limit 之间的字节
+     * 发送后 frame 的 position 不保证保持不变
+     */
+    SendStatus send(ByteBuffer frame);
+    
+    /**
+     * 描述目标地址 (用于日志)
+     */
+    String describe();
+    
+    void close();
+}
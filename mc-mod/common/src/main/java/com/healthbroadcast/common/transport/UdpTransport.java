@@ -0,0 +1,121 @@
+package com.healthbroadcast.common.transport;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.PortUnreachableException;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+
+/**
+ * 基于 NIO DatagramChannel 的 UDP 发送通道 (单播 / 组播 / 广播)
+ * - connect() 到目标，JDK 不再对每个包做地址检查
+ * - 非阻塞写入，发送缓冲区满时返回 {@link SendStatus#BACKPRESSURE}
+ * - 目标主机只解析一次，修改端口只需重新 connect
+ */
+public final class UdpTransport extends DestinationTransport {
+    
+    private InetAddress address;
+    private DatagramChannel channel;
+    private boolean connected;
+    
+    public UdpTransport(Destination destination) {
+        super(destination);
+    }
+    
+    public int getPort() {
+        return destination.port;
+    }
+    
+    /**
+     * 修改目标端口 - 复用已打开的 channel，只重新 connect
+     */
+    public void setPort(int port) {
+        if (destination.port != port) {
+            destination = new Destination(destination.kind, destination.host, port, destination.ttl);
+            connected = false;
+        }
+    }
+    
+    @Override
+    protected SendStatus sendFrame(ByteBuffer frame) {
+        int length = frame.remaining();
+        try {
+            ensureConnected();
+            if (channel.write(frame) == 0 && frame.hasRemaining()) {
+                recordBackpressure();
+                return SendStatus.BACKPRESSURE;
+            }
+            recordSent(length);
+            return SendStatus.SENT;
+        } catch (PortUnreachableException e) {
+            // 目标端口没有监听者 (上一个包触发了 ICMP)，channel 仍然可用
+            recordFailure("port unreachable");
+            return SendStatus.FAILED;
+        } catch (IOException e) {
+            recordFailure(e.toString());
+            closeChannel();
+            return SendStatus.FAILED;
+        }
+    }
+    
+    /**
+     * 读取已连接的对端发回的数据报 (只有单播目标能收到，组播/广播的回复来自其他地址)
+     */
+    @Override
+    public int receive(ByteBuffer in) {
+        if (channel == null || !connected) {
+            return 0;
+        }
+        try {
+            return Math.max(0, channel.read(in));
+        } catch (PortUnreachableException e) {
+            return 0;
+        } catch (IOException e) {
+            recordFailure(e.toString());
+            closeChannel();
+            return 0;
+        }
+    }
+    
+    private void ensureConnected() throws IOException {
+        if (channel == null || !channel.isOpen()) {
+            channel = DatagramChannel.open();
+            channel.configureBlocking(false);
+            if (destination.kind == Destination.Kind.MULTICAST) {
+                channel.setOption(StandardSocketOptions.IP_MULTICAST_TTL, destination.ttl);
+            } else if (destination.kind == Destination.Kind.BROADCAST) {
+                channel.setOption(StandardSocketOptions.SO_BROADCAST, true);
+            }
+            connected = false;
+        }
+        if (!connected) {
+            if (address == null) {
+                address = InetAddress.getByName(destination.host);
+            }
+            if (channel.isConnected()) {
+                channel.disconnect();
+            }
+            channel.connect(new InetSocketAddress(address, destination.port));
+            connected = true;
+        }
+    }
+    
+    @Override
+    public void close() {
+        closeChannel();
+    }
+    
+    private void closeChannel() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // 忽略
+            }
+            channel = null;
+        }
+        connected = false;
+    }
+}
@@ -0,0 +1,142 @@
+package com.healthbroadcast.common.transport;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unix 域套接字发送通道 (Java 16+，见 {@link UnixSockets})
+ * 
+ * JDK 只提供流式 Unix 套接字，因此每个数据包前加 u32 大端长度，接收端按长度切分：
+ * <pre>[u32 len][数据包][u32 len][数据包]...</pre>
+ * 
+ * - 非阻塞写入；一个数据包一个字节都没写出时丢弃并返回 {@link SendStatus#BACKPRESSURE}，
+ *   只写出一部分时剩余字节暂存，下次发送前先写完，保证流中的分帧完整
+ * - 接收端退出时写入失败 (EPIPE)，通道关闭，由 {@link #reconnect()} 定期重连
+ */
+public final class UnixSocketTransport extends DestinationTransport {
+    
+    /** 连接失败后的重试间隔 */
+    private static final long RECONNECT_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final int LENGTH_PREFIX_BYTES = 4;
+    private static final int MAX_PACKET_BYTES = 0xFFFF;
+    
+    private final ByteBuffer header = ByteBuffer.allocateDirect(LENGTH_PREFIX_BYTES);
+    private final ByteBuffer[] parts = new ByteBuffer[2];
+    /** 部分写出的数据包剩余字节 */
+    private ByteBuffer pending;
+    private SocketChannel channel;
+    private long nextAttemptNanos;
+    
+    public UnixSocketTransport(Destination destination) {
+        super(destination);
+        parts[0] = header;
+    }
+    
+    /**
+     * 没有连接且到了重试时间时尝试连接
+     * @return true 如果新建立了连接 (新的接收端需要重新获取来源定义)
+     */
+    @Override
+    public boolean reconnect() {
+        if (channel != null) {
+            return false;
+        }
+        long now = System.nanoTime();
+        if (now - nextAttemptNanos < 0) {
+            return false;
+        }
+        nextAttemptNanos = now + RECONNECT_INTERVAL_NANOS;
+        SocketChannel opened = null;
+        try {
+            opened = UnixSockets.openChannel();
+            // 本机套接字的 connect 立即完成或立即失败
+            opened.connect(UnixSockets.address(destination.host));
+            opened.configureBlocking(false);
+            channel = opened;
+            if (pending == null) {
+                pending = ByteBuffer.allocateDirect(LENGTH_PREFIX_BYTES + MAX_PACKET_BYTES);
+            }
+            pending.clear().flip();
+            onConnected();
+            return true;
+        } catch (IOException | RuntimeException e) {
+            closeQuietly(opened);
+            recordFailure("connect: " + e);
+            return false;
+        }
+    }
+    
+    @Override
+    protected SendStatus sendFrame(ByteBuffer frame) {
+        int length = frame.remaining();
+        if (channel == null) {
+            recordFailure("not connected");
+            return SendStatus.FAILED;
+        }
+        if (length > MAX_PACKET_BYTES) {
+            recordFailure("packet too large: " + length);
+            return SendStatus.FAILED;
+        }
+        try {
+            if (pending.hasRemaining()) {
+                channel.write(pending);
+                if (pending.hasRemaining()) {
+                    recordBackpressure();
+                    return SendStatus.BACKPRESSURE;
+                }
+            }
+            header.clear();
+            header.putInt(0, length);
+            parts[1] = frame;
+            long written = channel.write(parts);
+            parts[1] = null;
+            if (written == 0) {
+                recordBackpressure();
+                return SendStatus.BACKPRESSURE;
+            }
+            if (frame.hasRemaining()) {
+                pending.clear();
+                pending.put(header).put(frame);
+                pending.flip();
+            }
+            recordSent(length);
+            return SendStatus.SENT;
+        } catch (IOException e) {
+            parts[1] = null;
+            // 接收端已关闭 (broken pipe)
+            recordFailure("receiver gone: " + e.getMessage());
+            closeChannel();
+            return SendStatus.FAILED;
+        }
+    }
+    
+    /**
+     * 是否已连接到接收端
+     */
+    public boolean isConnected() {
+        return channel != null;
+    }
+    
+    @Override
+    public void close() {
+        closeChannel();
+    }
+    
+    private void closeChannel() {
+        closeQuietly(channel);
+        channel = null;
+        nextAttemptNanos = System.nanoTime() + RECONNECT_INTERVAL_NANOS;
+    }
+    
+    private static void closeQuietly(SocketChannel target) {
+        if (target != null) {
+            try {
+                target.close();
+            } catch (IOException e) {
+                // 忽略
+            }
+        }
+    }
+}
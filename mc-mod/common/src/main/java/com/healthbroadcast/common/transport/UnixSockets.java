@@ -0,0 +1,104 @@
+package com.healthbroadcast.common.transport;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.net.ProtocolFamily;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Unix 域套接字支持 (Java 16+)
+ * common 模块按 Java 8 编译，UnixDomainSocketAddress 和 SocketChannel.open(ProtocolFamily)
+ * 通过反射在启动时查找一次，找不到时 {@link #isSupported()} 返回 false。
+ * JDK 只支持流式 Unix 套接字，没有数据报通道。
+ */
+public final class UnixSockets {
+    
+    private static final ProtocolFamily UNIX;
+    private static final MethodHandle ADDRESS_OF;
+    private static final MethodHandle OPEN_CHANNEL;
+    private static final MethodHandle OPEN_SERVER;
+    
+    static {
+        ProtocolFamily family = null;
+        MethodHandle addressOf = null;
+        MethodHandle openChannel = null;
+        MethodHandle openServer = null;
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            Class<?> addressClass = Class.forName("java.net.UnixDomainSocketAddress");
+            addressOf = lookup.findStatic(addressClass, "of", MethodType.methodType(addressClass, String.class));
+            openChannel = lookup.findStatic(SocketChannel.class, "open",
+                MethodType.methodType(SocketChannel.class, ProtocolFamily.class));
+            openServer = lookup.findStatic(ServerSocketChannel.class, "open",
+                MethodType.methodType(ServerSocketChannel.class, ProtocolFamily.class));
+            // Java 8 中没有 UNIX 常量，按名字查找
+            family = StandardProtocolFamily.valueOf("UNIX");
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            family = null;
+        }
+        UNIX = family;
+        ADDRESS_OF = family != null ? addressOf : null;
+        OPEN_CHANNEL = family != null ? openChannel : null;
+        OPEN_SERVER = family != null ? openServer : null;
+    }
+    
+    private UnixSockets() {
+    }
+    
+    /**
+     * 当前 JVM 是否支持 Unix 域套接字
+     */
+    public static boolean isSupported() {
+        return UNIX != null;
+    }
+    
+    public static SocketAddress address(String path) {
+        checkSupported();
+        try {
+            return (SocketAddress) ADDRESS_OF.invoke(path);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    /**
+     * 打开一个未连接的 Unix 域 SocketChannel
+     */
+    public static SocketChannel openChannel() throws IOException {
+        checkSupported();
+        try {
+            return (SocketChannel) OPEN_CHANNEL.invoke(UNIX);
+        } catch (IOException | RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    /**
+     * 打开一个未绑定的 Unix 域 ServerSocketChannel (供接收端使用)
+     */
+    public static ServerSocketChannel openServer() throws IOException {
+        checkSupported();
+        try {
+            return (ServerSocketChannel) OPEN_SERVER.invoke(UNIX);
+        } catch (IOException | RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    private static void checkSupported() {
+        if (UNIX == null) {
+            throw new UnsupportedOperationException("Unix domain sockets require Java 16+");
+        }
+    }
+}
@@ -0,0 +1,277 @@
+package com.healthbroadcast.common.wire;
+
+import com.healthbroadcast.common.metrics.BroadcastMetrics;
+import com.healthbroadcast.common.metrics.LatencyHistogram;
+import com.healthbroadcast.common.pipeline.EventType;
+import com.healthbroadcast.common.pipeline.HealthEvent;
+import com.healthbroadcast.common.pipeline.SourceRegistry;
+
+import java.nio.ByteBuffer;
+import java.util.BitSet;
+
+/**
+ * 紧凑二进制帧编码器 (大端序)
+ * 
+ * <pre>
+ * 帧头 (17 字节)
+ *   u16 magic     0x4842 ("HB")
+ *   u8  version   1
+ *   u8  type      0=health 1=damage 2=heal 3=death 4=stats
+ *   u8  flags     bit0: 帧尾附带来源定义  bit1: 合并的周期性事件
+ *   u32 sequence  流序号 (与 JSON 的 "seq" 相同，取低 32 位)
+ *   i64 nanos     捕获时的单调时钟 (System.nanoTime)
+ * 帧体
+ *   health: i16 health, i16 maxHealth, u16 percentage
+ *   damage: i16 damage, i16 health, i16 maxHealth, u16 percentage, u16 sourceId
+ *   heal:   i16 amount, i16 health, i16 maxHealth, u16 percentage
+ *   death:  u16 sourceId
+ *   stats:  u32 health/damage/heal/death 事件数, u32 packets, u64 bytes, u32 failures, u32 dropped,
+ *           u16 criticalDepth, u16 bulkDepth, u32 latency p50/p99/p999 (µs), u32 encode p50/p99 (ns)
+ * 合并信息 (flags bit1，damage / heal，帧体之后)
+ *   u16 count, i16 minHealth, u32 spanMicros  第一次到最后一次 (帧头 nanos) 的间隔
+ * 来源定义 (flags bit0)
+ *   u8 length, UTF-8 bytes - 帧体中 sourceId 对应的字符串
+ * </pre>
+ * 
+ * 血量类数值以 0.1 个半心为单位 (与 JSON 的一位小数精度相同)，
+ * percentage 以 1/65535 为单位。来源字符串按字典编码：
+ * 每个 ID 第一次出现时在帧尾附带定义，之后只发送 ID。
+ * 定义在所在的数据包发送成功 ({@link #commitSourceDefinitions()}) 后才算已发送，
+ * 没有发出的定义在下一次编码该来源时重新附带。
+ */
+public final class BinaryEventEncoder implements EventEncoder {
+    
+    public static final short MAGIC = 0x4842;
+    public static final byte VERSION = 1;
+    public static final int HEADER_BYTES = 17;
+    public static final int FLAG_SOURCE_DEF = 0x01;
+    public static final int FLAG_AGGREGATE = 0x02;
+    public static final int AGGREGATE_BYTES = 8;
+    /** 血量定点数缩放：1 = 0.1 个半心 */
+    public static final float HEALTH_SCALE = 10f;
+    public static final int PERCENT_SCALE = 0xFFFF;
+    public static final int MAX_SOURCE_BYTES = 255;
+    public static final int MAX_EVENT_BYTES = HEADER_BYTES + 10 + AGGREGATE_BYTES + 1 + MAX_SOURCE_BYTES;
+    
+    public static final byte TYPE_HEALTH = 0;
+    public static final byte TYPE_DAMAGE = 1;
+    public static final byte TYPE_HEAL = 2;
+    public static final byte TYPE_DEATH = 3;
+    public static final byte TYPE_STATS = 4;
+    public static final int STATS_BODY_BYTES = 60;
+    
+    private final SourceRegistry sources;
+    /** 已随发送成功的数据包送出的定义 */
+    private final BitSet definedSources = new BitSet();
+    /** 已编码进当前批次、还没确认发出的定义 */
+    private final BitSet pendingSources = new BitSet();
+    /** 最近一次 encode 附带的定义，没有时为 -1 */
+    private int frameDefinition = -1;
+    
+    public BinaryEventEncoder(SourceRegistry sources) {
+        this.sources = sources;
+    }
+    
+    @Override
+    public WireFormat format() {
+        return WireFormat.BINARY;
+    }
+    
+    @Override
+    public void encode(HealthEvent event, ByteBuffer out) {
+        boolean defineSource = hasSource(event.type) && !definedSources.get(event.sourceId)
+            && !pendingSources.get(event.sourceId);
+        encode(event, out, defineSource);
+        frameDefinition = defineSource ? event.sourceId : -1;
+        if (defineSource) {
+            pendingSources.set(event.sourceId);
+        }
+    }
+    
+    /**
+     * 总是附带来源定义，不改变定义的发送记录 (只发给一个接收端的重传帧必须自描述)
+     */
+    public void encodeSelfDescribing(HealthEvent event, ByteBuffer out) {
+        encode(event, out, hasSource(event.type));
+    }
+    
+    private static boolean hasSource(EventType type) {
+        return type == EventType.DAMAGE || type == EventType.DEATH;
+    }
+    
+    private void encode(HealthEvent event, ByteBuffer out, boolean defineSource) {
+        EventType type = event.type;
+        boolean aggregate = event.count > 1 && (type == EventType.DAMAGE || type == EventType.HEAL);
+        
+        out.putShort(MAGIC);
+        out.put(VERSION);
+        out.put(typeCode(type));
+        out.put((byte) ((defineSource ? FLAG_SOURCE_DEF : 0) | (aggregate ? FLAG_AGGREGATE : 0)));
+        out.putInt((int) event.sequence);
+        out.putLong(event.nanos);
+        
+        float percentage = JsonEventEncoder.percentage(event.health, event.maxHealth);
+        switch (type) {
+            case DAMAGE:
+                out.putShort(quantizeHealth(event.amount));
+                putHealthFields(out, event.health, event.maxHealth, percentage);
+                out.putShort((short) event.sourceId);
+                break;
+            case HEAL:
+                out.putShort(quantizeHealth(event.amount));
+                putHealthFields(out, event.health, event.maxHealth, percentage);
+                break;
+            case DEATH:
+                out.putShort((short) event.sourceId);
+                break;
+            case HEALTH:
+            default:
+                putHealthFields(out, event.health, event.maxHealth, percentage);
+                break;
+        }
+        
+        if (aggregate) {
+            out.putShort((short) Math.min(0xFFFF, event.count));
+            out.putShort(quantizeHealth(event.minHealth));
+            out.putInt(saturate(Math.max(0, event.nanos - event.firstNanos) / 1000));
+        }
+        if (defineSource) {
+            putSourceDefinition(out, sources.name(event.sourceId));
+        }
+    }
+    
+    /**
+     * 运行指标帧，字段含义与 JSON 的 stats 事件相同；计数器超出 u32 时取低 32 位
+     */
+    public static void encodeStats(ByteBuffer out, BroadcastMetrics metrics, LatencyHistogram.Interval latency,
+                                   LatencyHistogram.Interval encode, long sequence, long nanos) {
+        out.putShort(MAGIC);
+        out.put(VERSION);
+        out.put(TYPE_STATS);
+        out.put((byte) 0);
+        out.putInt((int) sequence);
+        out.putLong(nanos);
+        out.putInt((int) metrics.eventCount(EventType.HEALTH));
+        out.putInt((int) metrics.eventCount(EventType.DAMAGE));
+        out.putInt((int) metrics.eventCount(EventType.HEAL));
+        out.putInt((int) metrics.eventCount(EventType.DEATH));
+        out.putInt((int) metrics.packetsSent());
+        out.putLong(metrics.bytesSent());
+        out.putInt((int) (metrics.sendFailures() + metrics.backpressureCount() + metrics.suspendedCount()));
+        out.putInt((int) metrics.bulkDropped());
+        out.putShort((short) Math.min(0xFFFF, metrics.criticalDepth()));
+        out.putShort((short) Math.min(0xFFFF, metrics.bulkDepth()));
+        out.putInt(saturate(latency.percentile(0.5) / 1000));
+        out.putInt(saturate(latency.percentile(0.99) / 1000));
+        out.putInt(saturate(latency.percentile(0.999) / 1000));
+        out.putInt(saturate(encode.percentile(0.5)));
+        out.putInt(saturate(encode.percentile(0.99)));
+    }
+    
+    private static int saturate(long value) {
+        return (int) Math.min(0xFFFFFFFFL, value);
+    }
+    
+    /**
+     * 当前批次已发送成功：其中附带的定义视为接收端已知
+     */
+    public void commitSourceDefinitions() {
+        definedSources.or(pendingSources);
+        pendingSources.clear();
+        frameDefinition = -1;
+    }
+    
+    /**
+     * 当前批次没有发出 (背压、熔断、发送失败)：其中的定义在下次编码时重新附带
+     */
+    public void discardSourceDefinitions() {
+        pendingSources.clear();
+        frameDefinition = -1;
+    }
+    
+    /**
+     * 刚编码的帧放不进当前批次、要先发送当前批次时调用：把这一帧的定义从当前批次中取出
+     * @return 交给 {@link #restoreFrameDefinition(int)} 的值
+     */
+    public int detachFrameDefinition() {
+        int sourceId = frameDefinition;
+        if (sourceId >= 0) {
+            pendingSources.clear(sourceId);
+        }
+        frameDefinition = -1;
+        return sourceId;
+    }
+    
+    /**
+     * 当前批次发送后，把取出的定义记入这一帧所在的新批次
+     */
+    public void restoreFrameDefinition(int sourceId) {
+        if (sourceId >= 0) {
+            pendingSources.set(sourceId);
+            frameDefinition = sourceId;
+        }
+    }
+    
+    /**
+     * 让接收端重新获取来源定义 (例如接收端重启后，或定期刷新以应对丢包)
+     */
+    public void forgetSourceDefinitions() {
+        definedSources.clear();
+        pendingSources.clear();
+        frameDefinition = -1;
+    }
+    
+    /**
+     * 下次编码该来源时重新附带定义 (重传的帧必须自描述)
+     */
+    public void forgetSourceDefinition(int sourceId) {
+        definedSources.clear(sourceId);
+        pendingSources.clear(sourceId);
+    }
+    
+    public static byte typeCode(EventType type) {
+        switch (type) {
+            case DAMAGE:
+                return TYPE_DAMAGE;
+            case HEAL:
+                return TYPE_HEAL;
+            case DEATH:
+                return TYPE_DEATH;
+            case HEALTH:
+            default:
+                return TYPE_HEALTH;
+        }
+    }
+    
+    private static void putHealthFields(ByteBuffer out, float health, float maxHealth, float percentage) {
+        out.putShort(quantizeHealth(health));
+        out.putShort(quantizeHealth(maxHealth));
+        out.putShort(quantizePercentage(percentage));
+    }
+    
+    public static short quantizeHealth(float value) {
+        if (Float.isNaN(value)) {
+            return 0;
+        }
+        int scaled = Math.round(value * HEALTH_SCALE);
+        return (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, scaled));
+    }
+    
+    public static short quantizePercentage(float percentage) {
+        if (Float.isNaN(percentage)) {
+            return 0;
+        }
+        int scaled = Math.round(Math.max(0f, Math.min(1f, percentage)) * PERCENT_SCALE);
+        return (short) scaled;
+    }
+    
+    /**
+     * 写入 u8 长度 + UTF-8 字节，超过 255 字节时在字符边界截断
+     */
+    private static void putSourceDefinition(ByteBuffer out, String source) {
+        int lengthIndex = out.position();
+        out.put((byte) 0);
+        int written = Utf8.put(out, source, MAX_SOURCE_BYTES);
+        out.put(lengthIndex, (byte) written);
+    }
+}
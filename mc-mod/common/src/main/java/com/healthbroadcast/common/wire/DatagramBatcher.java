@@ -0,0 +1,115 @@
+package com.healthbroadcast.common.wire;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 把多个已编码事件合并到一个 UDP 数据包中
+ * - JSON: 多个事件组成数组 [{...},{...}]；只有一个事件时仍发送单个对象，兼容旧接收端
+ * - 二进制: 每帧前加 u16 长度前缀，依次排列
+ * 数据包总长度不超过 maxDatagramBytes (单个超长事件除外)
+ */
+public final class DatagramBatcher {
+    
+    public static final int DEFAULT_MAX_DATAGRAM_BYTES = 1400;
+    /** 二进制格式中每帧的长度前缀 */
+    public static final int LENGTH_PREFIX_BYTES = 2;
+    
+    private final ByteBuffer datagram;
+    private final int maxDatagramBytes;
+    private WireFormat format;
+    private int count;
+    private long firstEventNanos;
+    
+    /**
+     * @param maxEventBytes 单个事件编码后的最大字节数
+     */
+    public DatagramBatcher(int maxDatagramBytes, int maxEventBytes) {
+        this.maxDatagramBytes = maxDatagramBytes;
+        // 预留数组括号和分隔符，保证单个超长事件也放得下
+        this.datagram = ByteBuffer.allocateDirect(Math.max(maxDatagramBytes, maxEventBytes + LENGTH_PREFIX_BYTES) + 2);
+        clear();
+    }
+    
+    /**
+     * 判断 frame 能否追加到当前批次，不能时需要先 {@link #flip()} 发送
+     */
+    public boolean canAppend(WireFormat frameFormat, int frameBytes) {
+        if (count == 0) {
+            return true;
+        }
+        if (frameFormat != format) {
+            return false;
+        }
+        // JSON: 逗号 + 结尾的 ']'；二进制：长度前缀
+        int overhead = format == WireFormat.JSON ? 2 : LENGTH_PREFIX_BYTES;
+        return datagram.position() + overhead + frameBytes <= maxDatagramBytes;
+    }
+    
+    /**
+     * 追加一个已编码的事件 (frame 的 position 到 limit)
+     */
+    public void append(WireFormat frameFormat, ByteBuffer frame, long nowNanos) {
+        if (count == 0) {
+            format = frameFormat;
+            firstEventNanos = nowNanos;
+            if (format == WireFormat.JSON) {
+                datagram.put((byte) '[');
+            }
+        } else if (format == WireFormat.JSON) {
+            datagram.put((byte) ',');
+        }
+        if (format == WireFormat.BINARY) {
+            datagram.putShort((short) frame.remaining());
+        }
+        datagram.put(frame);
+        count++;
+    }
+    
+    /**
+     * 准备发送：返回 position/limit 已设置好的数据包
+     * 发送完成后调用 {@link #clear()}
+     */
+    public ByteBuffer flip() {
+        if (format == WireFormat.JSON) {
+            if (count == 1) {
+                // 单个事件不包数组
+                datagram.flip();
+                datagram.position(1);
+                return datagram;
+            }
+            datagram.put((byte) ']');
+        }
+        datagram.flip();
+        return datagram;
+    }
+    
+    public void clear() {
+        datagram.clear();
+        count = 0;
+        format = null;
+        firstEventNanos = 0;
+    }
+    
+    public int capacityBytes() {
+        return maxDatagramBytes;
+    }
+    
+    public boolean isEmpty() {
+        return count == 0;
+    }
+    
+    public int count() {
+        return count;
+    }
+    
+    public WireFormat format() {
+        return format;
+    }
+    
+    /**
+     * 当前批次中第一个事件加入的时间
+     */
+    public long firstEventNanos() {
+        return firstEventNanos;
+    }
+}
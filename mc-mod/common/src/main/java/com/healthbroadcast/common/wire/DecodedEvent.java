@@ -0,0 +1,51 @@
+package com.healthbroadcast.common.wire;
+
+/**
+ * 解码后的事件 (两种格式统一的表示)
+ * 格式中不存在的字段为 -1 / null
+ */
+public final class DecodedEvent {
+    
+    public WireFormat format;
+    public String type;
+    public long sequence = -1;
+    public long nanos = -1;
+    public long timestamp = -1;
+    public float health;
+    public float maxHealth;
+    public float percentage;
+    /** damage 事件的伤害值或 heal 事件的治疗量 */
+    public float amount;
+    public String source;
+    /** 合并的周期性事件次数，普通事件为 1 */
+    public int count = 1;
+    /** 合并事件中第一次的时间 (JSON 为 firstTimestamp，二进制为 nanos 减去间隔) */
+    public long firstTimestamp = -1;
+    public long firstNanos = -1;
+    public float minHealth = -1;
+    
+    void clear() {
+        format = null;
+        type = null;
+        sequence = -1;
+        nanos = -1;
+        timestamp = -1;
+        health = 0;
+        maxHealth = 0;
+        percentage = 0;
+        amount = 0;
+        source = null;
+        count = 1;
+        firstTimestamp = -1;
+        firstNanos = -1;
+        minHealth = -1;
+    }
+    
+    @Override
+    public String toString() {
+        return format + " " + type + " seq=" + sequence + " health=" + health + "/" + maxHealth
+            + " pct=" + percentage + " amount=" + amount + " source=" + source
+            + " timestamp=" + timestamp + " nanos=" + nanos
+            + (count > 1 ? " count=" + count + " first=" + firstTimestamp + "/" + firstNanos + " minHealth=" + minHealth : "");
+    }
+}
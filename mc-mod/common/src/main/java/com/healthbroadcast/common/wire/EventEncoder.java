@@ -0,0 +1,18 @@
+package com.healthbroadcast.common.wire;
+
+import com.healthbroadcast.common.pipeline.HealthEvent;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 事件编码器 - 只在发送线程中使用
+ */
+public interface EventEncoder {
+    
+    /**
+     * 把事件编码到 out 的当前位置
+     */
+    void encode(HealthEvent event, ByteBuffer out);
+    
+    WireFormat format();
+}
@@ -0,0 +1,284 @@
+package com.healthbroadcast.common.wire;
+
+import com.healthbroadcast.common.metrics.BroadcastMetrics;
+import com.healthbroadcast.common.metrics.LatencyHistogram;
+import com.healthbroadcast.common.pipeline.EventType;
+import com.healthbroadcast.common.pipeline.HealthEvent;
+import com.healthbroadcast.common.pipeline.SourceRegistry;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * JSON 编码器 - 字段布局与 README 中的数据格式一致
+ * 直接写入可复用的 ByteBuffer，每个事件零分配
+ */
+public final class JsonEventEncoder implements EventEncoder {
+    
+    /** 单个事件编码后的最大字节数 (来源字符串按最坏转义计算) */
+    public static final int MAX_EVENT_BYTES = 320 + JsonWriter.MAX_STRING_CHARS * 6;
+    
+    private static final byte[] TYPE_HEALTH = JsonWriter.ascii("{\"type\":\"health\"");
+    private static final byte[] TYPE_DAMAGE = JsonWriter.ascii("{\"type\":\"damage\"");
+    private static final byte[] TYPE_HEAL = JsonWriter.ascii("{\"type\":\"heal\"");
+    private static final byte[] TYPE_DEATH = JsonWriter.ascii("{\"type\":\"death\"");
+    private static final byte[] TYPE_STATS = JsonWriter.ascii("{\"type\":\"stats\"");
+    private static final byte[] DAMAGE = JsonWriter.ascii(",\"damage\":");
+    private static final byte[] AMOUNT = JsonWriter.ascii(",\"amount\":");
+    private static final byte[] HEALTH = JsonWriter.ascii(",\"health\":");
+    private static final byte[] MAX_HEALTH = JsonWriter.ascii(",\"maxHealth\":");
+    private static final byte[] PERCENTAGE = JsonWriter.ascii(",\"percentage\":");
+    private static final byte[] SOURCE = JsonWriter.ascii(",\"source\":");
+    private static final byte[] TIMESTAMP = JsonWriter.ascii(",\"timestamp\":");
+    private static final byte[] SEQ = JsonWriter.ascii(",\"seq\":");
+    private static final byte[] COUNT = JsonWriter.ascii(",\"count\":");
+    private static final byte[] FIRST_TIMESTAMP = JsonWriter.ascii(",\"firstTimestamp\":");
+    private static final byte[] MIN_HEALTH = JsonWriter.ascii(",\"minHealth\":");
+    private static final byte[] HEALTH_EVENTS = JsonWriter.ascii(",\"healthEvents\":");
+    private static final byte[] DAMAGE_EVENTS = JsonWriter.ascii(",\"damageEvents\":");
+    private static final byte[] HEAL_EVENTS = JsonWriter.ascii(",\"healEvents\":");
+    private static final byte[] DEATH_EVENTS = JsonWriter.ascii(",\"deathEvents\":");
+    private static final byte[] PACKETS = JsonWriter.ascii(",\"packets\":");
+    private static final byte[] BYTES = JsonWriter.ascii(",\"bytes\":");
+    private static final byte[] FAILURES = JsonWriter.ascii(",\"failures\":");
+    private static final byte[] DROPPED = JsonWriter.ascii(",\"dropped\":");
+    private static final byte[] CRITICAL_DEPTH = JsonWriter.ascii(",\"criticalDepth\":");
+    private static final byte[] BULK_DEPTH = JsonWriter.ascii(",\"bulkDepth\":");
+    private static final byte[] LATENCY_P50 = JsonWriter.ascii(",\"latencyP50Us\":");
+    private static final byte[] LATENCY_P99 = JsonWriter.ascii(",\"latencyP99Us\":");
+    private static final byte[] LATENCY_P999 = JsonWriter.ascii(",\"latencyP999Us\":");
+    private static final byte[] ENCODE_P50 = JsonWriter.ascii(",\"encodeP50Ns\":");
+    private static final byte[] ENCODE_P99 = JsonWriter.ascii(",\"encodeP99Ns\":");
+    
+    private final SourceRegistry sources;
+    
+    public JsonEventEncoder(SourceRegistry sources) {
+        this.sources = sources;
+    }
+    
+    @Override
+    public WireFormat format() {
+        return WireFormat.JSON;
+    }
+    
+    @Override
+    public void encode(HealthEvent event, ByteBuffer out) {
+        float percentage = percentage(event.health, event.maxHealth);
+        switch (event.type) {
+            case DAMAGE:
+                writeDamage(out, event.amount, event.health, event.maxHealth, percentage,
+                    sources.jsonString(event.sourceId), event.timestamp);
+                break;
+            case HEAL:
+                writeHeal(out, event.amount, event.health, event.maxHealth, percentage, event.timestamp);
+                break;
+            case DEATH:
+                writeDeath(out, sources.jsonString(event.sourceId), event.timestamp);
+                break;
+            case HEALTH:
+            default:
+                writeHealth(out, event.health, event.maxHealth, percentage, event.timestamp);
+                break;
+        }
+        if (event.count > 1) {
+            appendAggregate(out, event.count, event.firstTimestamp, event.minHealth);
+        }
+        appendSequence(out, event.sequence);
+    }
+    
+    /**
+     * 合并的周期性事件：在末尾追加次数、第一次的时间和窗口内的最低血量
+     * (damage / amount 为总量，health 与 timestamp 为最后一次)
+     */
+    private static void appendAggregate(ByteBuffer out, int count, long firstTimestamp, float minHealth) {
+        out.position(out.position() - 1);
+        out.put(COUNT);
+        JsonWriter.writeLong(out, count);
+        out.put(FIRST_TIMESTAMP);
+        JsonWriter.writeLong(out, firstTimestamp);
+        out.put(MIN_HEALTH);
+        JsonWriter.writeFixed(out, minHealth, 1);
+        out.put((byte) '}');
+    }
+    
+    /**
+     * 服务器模式：带玩家标识的事件 (不含 "seq"，每个目标的序号由发送线程追加)
+     * @param source {@link SourceRegistry#jsonString(int)} 中预先转义好的字符串
+     * @param player 预先编码好的 ,"player":...,"uuid":... 字段
+     */
+    public static void writePlayerEvent(ByteBuffer out, EventType type, float amount, float health, float maxHealth,
+                                        byte[] source, long timestamp, byte[] player) {
+        float percentage = percentage(health, maxHealth);
+        switch (type) {
+            case DAMAGE:
+                writeDamage(out, amount, health, maxHealth, percentage, source, timestamp);
+                break;
+            case HEAL:
+                writeHeal(out, amount, health, maxHealth, percentage, timestamp);
+                break;
+            case DEATH:
+                writeDeath(out, source, timestamp);
+                break;
+            case HEALTH:
+            default:
+                writeHealth(out, health, maxHealth, percentage, timestamp);
+                break;
+        }
+        out.position(out.position() - 1);
+        out.put(player);
+        out.put((byte) '}');
+    }
+    
+    /**
+     * 在刚写完的对象末尾 (替换结尾的 '}') 追加 "seq" 字段
+     */
+    public static void appendSequence(ByteBuffer out, long sequence) {
+        out.position(out.position() - 1);
+        out.put(SEQ);
+        JsonWriter.writeLong(out, sequence);
+        out.put((byte) '}');
+    }
+    
+    public static float percentage(float health, float maxHealth) {
+        return maxHealth > 0 ? health / maxHealth : 0;
+    }
+    
+    public static void writeHealth(ByteBuffer out, float health, float maxHealth, float percentage, long timestamp) {
+        out.put(TYPE_HEALTH);
+        writeHealthFields(out, health, maxHealth, percentage);
+        out.put(TIMESTAMP);
+        JsonWriter.writeLong(out, timestamp);
+        out.put((byte) '}');
+    }
+    
+    public static void writeDamage(ByteBuffer out, float damage, float health, float maxHealth,
+                                   float percentage, String source, long timestamp) {
+        writeDamageFields(out, damage, health, maxHealth, percentage);
+        JsonWriter.writeString(out, source != null ? source : "unknown");
+        out.put(TIMESTAMP);
+        JsonWriter.writeLong(out, timestamp);
+        out.put((byte) '}');
+    }
+    
+    /**
+     * @param source {@link SourceRegistry#jsonString(int)} 中预先转义好的字符串
+     */
+    public static void writeDamage(ByteBuffer out, float damage, float health, float maxHealth,
+                                   float percentage, byte[] source, long timestamp) {
+        writeDamageFields(out, damage, health, maxHealth, percentage);
+        out.put(source);
+        out.put(TIMESTAMP);
+        JsonWriter.writeLong(out, timestamp);
+        out.put((byte) '}');
+    }
+    
+    public static void writeHeal(ByteBuffer out, float amount, float health, float maxHealth,
+                                 float percentage, long timestamp) {
+        out.put(TYPE_HEAL);
+        out.put(AMOUNT);
+        JsonWriter.writeFixed(out, amount, 1);
+        writeHealthFields(out, health, maxHealth, percentage);
+        out.put(TIMESTAMP);
+        JsonWriter.writeLong(out, timestamp);
+        out.put((byte) '}');
+    }
+    
+    public static void writeDeath(ByteBuffer out, String source, long timestamp) {
+        out.put(TYPE_DEATH);
+        out.put(SOURCE);
+        JsonWriter.writeString(out, source != null ? source : "unknown");
+        out.put(TIMESTAMP);
+        JsonWriter.writeLong(out, timestamp);
+        out.put((byte) '}');
+    }
+    
+    /**
+     * @param source {@link SourceRegistry#jsonString(int)} 中预先转义好的字符串
+     */
+    public static void writeDeath(ByteBuffer out, byte[] source, long timestamp) {
+        out.put(TYPE_DEATH);
+        out.put(SOURCE);
+        out.put(source);
+        out.put(TIMESTAMP);
+        JsonWriter.writeLong(out, timestamp);
+        out.put((byte) '}');
+    }
+    
+    /**
+     * 运行指标：计数器为累计值 (failures 包括背压和熔断)，百分位取自上一个 stats 事件以来的区间
+     */
+    public static void writeStats(ByteBuffer out, BroadcastMetrics metrics, LatencyHistogram.Interval latency,
+                                  LatencyHistogram.Interval encode, long timestamp, long sequence) {
+        out.put(TYPE_STATS);
+        out.put(HEALTH_EVENTS);
+        JsonWriter.writeLong(out, metrics.eventCount(EventType.HEALTH));
+        out.put(DAMAGE_EVENTS);
+        JsonWriter.writeLong(out, metrics.eventCount(EventType.DAMAGE));
+        out.put(HEAL_EVENTS);
+        JsonWriter.writeLong(out, metrics.eventCount(EventType.HEAL));
+        out.put(DEATH_EVENTS);
+        JsonWriter.writeLong(out, metrics.eventCount(EventType.DEATH));
+        out.put(PACKETS);
+        JsonWriter.writeLong(out, metrics.packetsSent());
+        out.put(BYTES);
+        JsonWriter.writeLong(out, metrics.bytesSent());
+        out.put(FAILURES);
+        JsonWriter.writeLong(out, metrics.sendFailures() + metrics.backpressureCount() + metrics.suspendedCount());
+        out.put(DROPPED);
+        JsonWriter.writeLong(out, metrics.bulkDropped());
+        out.put(CRITICAL_DEPTH);
+        JsonWriter.writeLong(out, metrics.criticalDepth());
+        out.put(BULK_DEPTH);
+        JsonWriter.writeLong(out, metrics.bulkDepth());
+        out.put(LATENCY_P50);
+        JsonWriter.writeLong(out, latency.percentile(0.5) / 1000);
+        out.put(LATENCY_P99);
+        JsonWriter.writeLong(out, latency.percentile(0.99) / 1000);
+        out.put(LATENCY_P999);
+        JsonWriter.writeLong(out, latency.percentile(0.999) / 1000);
+        out.put(ENCODE_P50);
+        JsonWriter.writeLong(out, encode.percentile(0.5));
+        out.put(ENCODE_P99);
+        JsonWriter.writeLong(out, encode.percentile(0.99));
+        out.put(TIMESTAMP);
+        JsonWriter.writeLong(out, timestamp);
+        out.put((byte) '}');
+        appendSequence(out, sequence);
+    }
+    
+    /**
+     * damage 事件中来源之前的部分 (写到 "source": 为止)
+     */
+    private static void writeDamageFields(ByteBuffer out, float damage, float health, float maxHealth,
+                                          float percentage) {
+        out.put(TYPE_DAMAGE);
+        out.put(DAMAGE);
+        JsonWriter.writeFixed(out, damage, 1);
+        writeHealthFields(out, health, maxHealth, percentage);
+        out.put(SOURCE);
+    }
+    
+    private static void writeHealthFields(ByteBuffer out, float health, float maxHealth, float percentage) {
+        out.put(HEALTH);
+        JsonWriter.writeFixed(out, health, 1);
+        out.put(MAX_HEALTH);
+        JsonWriter.writeFixed(out, maxHealth, 1);
+        out.put(PERCENTAGE);
+        JsonWriter.writeFixed(out, percentage, 3);
+    }
+    
+    /**
+     * 把 buffer 中 0 到 position 的内容转为字符串
+     * 供 *Data.toJson() 和调试日志使用 (会分配，不在发送路径上使用)
+     */
+    public static String toString(ByteBuffer buffer) {
+        if (buffer.hasArray()) {
+            return new String(buffer.array(), buffer.arrayOffset(), buffer.position(), StandardCharsets.UTF_8);
+        }
+        byte[] bytes = new byte[buffer.position()];
+        ByteBuffer copy = buffer.duplicate();
+        copy.flip();
+        copy.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,130 @@
+package com.healthbroadcast.common.wire;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 无分配的 JSON 片段写入工具
+ * 直接把 ASCII/UTF-8 字节写入 ByteBuffer，与默认 Locale 无关 (小数点永远是 '.')
+ */
+public final class JsonWriter {
+    
+    private static final long[] POW10 = {1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L};
+    private static final byte[] HEX = {
+        '0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'a', 'b', 'c', 'd', 'e', 'f'
+    };
+    private static final byte[] LONG_MIN = ascii("-9223372036854775808");
+    /** 来源字符串最多写入的字符数，保证单个事件的长度有上限 */
+    public static final int MAX_STRING_CHARS = 256;
+    
+    private JsonWriter() {
+    }
+    
+    /**
+     * 写入 ASCII 常量 (预先编码好的字段名等)
+     */
+    public static void writeRaw(ByteBuffer out, byte[] ascii) {
+        out.put(ascii);
+    }
+    
+    /**
+     * 写入十进制整数
+     */
+    public static void writeLong(ByteBuffer out, long value) {
+        if (value == Long.MIN_VALUE) {
+            // -value 会溢出，单独处理
+            writeRaw(out, LONG_MIN);
+            return;
+        }
+        if (value < 0) {
+            out.put((byte) '-');
+            value = -value;
+        }
+        int digits = 1;
+        for (long v = value; v >= 10; v /= 10) {
+            digits++;
+        }
+        int start = out.position();
+        int index = start + digits - 1;
+        do {
+            out.put(index--, (byte) ('0' + (int) (value % 10)));
+            value /= 10;
+        } while (value != 0);
+        out.position(start + digits);
+    }
+    
+    /**
+     * 写入固定小数位的浮点数，四舍五入 (与 %.Nf 一致)
+     * 非有限值写为 0，保证输出总是合法 JSON
+     */
+    public static void writeFixed(ByteBuffer out, float value, int decimals) {
+        long scale = POW10[decimals];
+        double d = value;
+        if (Double.isNaN(d) || Double.isInfinite(d)) {
+            d = 0;
+        }
+        long scaled = Math.round(Math.abs(d) * scale);
+        if (d < 0 && scaled != 0) {
+            out.put((byte) '-');
+        }
+        writeLong(out, scaled / scale);
+        if (decimals > 0) {
+            out.put((byte) '.');
+            long fraction = scaled % scale;
+            for (int i = decimals - 1; i >= 0; i--) {
+                out.put((byte) ('0' + (int) (fraction / POW10[i] % 10)));
+            }
+        }
+    }
+    
+    /**
+     * 写入带引号的 JSON 字符串，转义引号/反斜杠/控制字符，按 UTF-8 编码
+     */
+    public static void writeString(ByteBuffer out, String value) {
+        out.put((byte) '"');
+        int length = Math.min(value.length(), MAX_STRING_CHARS);
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.put((byte) '\\');
+                out.put((byte) c);
+            } else if (c < 0x20) {
+                out.put((byte) '\\');
+                out.put((byte) 'u');
+                out.put((byte) '0');
+                out.put((byte) '0');
+                out.put(HEX[c >> 4]);
+                out.put(HEX[c & 0xF]);
+            } else if (c < 0x80) {
+                out.put((byte) c);
+            } else if (c < 0x800) {
+                out.put((byte) (0xC0 | (c >> 6)));
+                out.put((byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, value.charAt(++i));
+                out.put((byte) (0xF0 | (cp >> 18)));
+                out.put((byte) (0x80 | ((cp >> 12) & 0x3F)));
+                out.put((byte) (0x80 | ((cp >> 6) & 0x3F)));
+                out.put((byte) (0x80 | (cp & 0x3F)));
+            } else if (Character.isSurrogate(c)) {
+                // 孤立代理项，与 String.getBytes(UTF_8) 一样替换为 '?'
+                out.put((byte) '?');
+            } else {
+                out.put((byte) (0xE0 | (c >> 12)));
+                out.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                out.put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+        out.put((byte) '"');
+    }
+    
+    /**
+     * 把 ASCII 常量预先编码为字节 (仅在类初始化时使用)
+     */
+    public static byte[] ascii(String s) {
+        byte[] bytes = new byte[s.length()];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) s.charAt(i);
+        }
+        return bytes;
+    }
+}
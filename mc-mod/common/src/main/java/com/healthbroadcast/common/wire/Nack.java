@@ -0,0 +1,66 @@
+package com.healthbroadcast.common.wire;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 重传请求 - 接收端从收数据的同一个 socket 发回给 Mod 的 ASCII 文本
+ * <pre>NACK 12 13 27</pre>
+ * 序号用空格分隔，每条最多 {@link #MAX_SEQUENCES} 个。只有 damage / death 会被重传，
+ * 其他序号或已超出重传窗口的序号会被忽略。
+ */
+public final class Nack {
+    
+    public static final int MAX_SEQUENCES = 32;
+    public static final int MAX_BYTES = 5 + MAX_SEQUENCES * 21;
+    
+    private static final byte[] PREFIX = JsonWriter.ascii("NACK");
+    
+    private Nack() {
+    }
+    
+    /**
+     * 写入一条 NACK
+     * @return 写入的序号个数 (最多 {@link #MAX_SEQUENCES})
+     */
+    public static int write(ByteBuffer out, long[] sequences, int count) {
+        int written = Math.min(count, MAX_SEQUENCES);
+        out.put(PREFIX);
+        for (int i = 0; i < written; i++) {
+            out.put((byte) ' ');
+            JsonWriter.writeLong(out, sequences[i]);
+        }
+        return written;
+    }
+    
+    /**
+     * 解析 in 中 position 到 limit 的一条 NACK，不分配内存
+     * @return 解析出的序号个数；不是 NACK 时返回 -1
+     */
+    public static int parse(ByteBuffer in, long[] out) {
+        int i = in.position();
+        int end = in.limit();
+        if (end - i < PREFIX.length) {
+            return -1;
+        }
+        for (byte b : PREFIX) {
+            if (in.get(i++) != b) {
+                return -1;
+            }
+        }
+        int count = 0;
+        while (i < end && count < out.length) {
+            byte b = in.get(i);
+            if (b < '0' || b > '9') {
+                i++;
+                continue;
+            }
+            long value = 0;
+            while (i < end && (b = in.get(i)) >= '0' && b <= '9' && value < Long.MAX_VALUE / 10) {
+                value = value * 10 + (b - '0');
+                i++;
+            }
+            out[count++] = value;
+        }
+        return count;
+    }
+}
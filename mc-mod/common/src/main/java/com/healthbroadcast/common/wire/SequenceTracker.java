@@ -0,0 +1,120 @@
+package com.healthbroadcast.common.wire;
+
+import java.util.Arrays;
+
+/**
+ * 接收端参考实现：按流序号去重并检测丢包
+ * 
+ * 维护最近 {@link #WINDOW} 个序号的位图：
+ * - {@link #accept(long)} 对重复的 (重传或冗余发送的) 事件返回 false
+ * - {@link #missing(long[])} 列出窗口内尚未收到的序号，可直接用于 {@link Nack#write}
+ * 序号大幅回退时认为发送端已重启，重新开始计数。
+ */
+public final class SequenceTracker {
+    
+    public static final int WINDOW = 1024;
+    
+    private final long[] seen = new long[WINDOW / 64];
+    private long highest = -1;
+    /** 收到的第一个序号，之前的序号不算丢失 (中途接入) */
+    private long first = -1;
+    private long duplicates;
+    private long gaps;
+    
+    /**
+     * @return true 如果是第一次收到该序号
+     */
+    public boolean accept(long sequence) {
+        if (sequence < 0) {
+            // 没有序号的旧格式，无法去重
+            return true;
+        }
+        if (highest >= 0 && sequence <= highest - WINDOW) {
+            if (highest - sequence > WINDOW * 4L) {
+                reset();
+            } else {
+                // 太旧，无法判断是否重复，当作重复丢弃
+                duplicates++;
+                return false;
+            }
+        }
+        if (sequence > highest) {
+            long from = Math.max(highest + 1, sequence - WINDOW + 1);
+            for (long s = from; s <= sequence; s++) {
+                clear(s);
+            }
+            if (highest >= 0) {
+                gaps += sequence - highest - 1;
+            } else {
+                first = sequence;
+            }
+            highest = sequence;
+            set(sequence);
+            return true;
+        }
+        if (isSet(sequence)) {
+            duplicates++;
+            return false;
+        }
+        // 迟到或重传补齐的事件
+        if (sequence > first) {
+            gaps--;
+        }
+        set(sequence);
+        return true;
+    }
+    
+    /**
+     * 列出窗口内未收到的序号 (从旧到新)
+     * @return 写入 out 的个数
+     */
+    public int missing(long[] out) {
+        int count = 0;
+        if (highest < 0) {
+            return 0;
+        }
+        for (long s = Math.max(first, highest - WINDOW + 1); s < highest && count < out.length; s++) {
+            if (!isSet(s)) {
+                out[count++] = s;
+            }
+        }
+        return count;
+    }
+    
+    public long getHighest() {
+        return highest;
+    }
+    
+    public long getDuplicateCount() {
+        return duplicates;
+    }
+    
+    /**
+     * 丢失且未被补齐的序号数 (包括已经移出窗口的)
+     */
+    public long getGapCount() {
+        return gaps;
+    }
+    
+    public void reset() {
+        Arrays.fill(seen, 0);
+        highest = -1;
+        first = -1;
+        gaps = 0;
+    }
+    
+    private boolean isSet(long sequence) {
+        int bit = (int) (sequence % WINDOW);
+        return (seen[bit >>> 6] & (1L << bit)) != 0;
+    }
+    
+    private void set(long sequence) {
+        int bit = (int) (sequence % WINDOW);
+        seen[bit >>> 6] |= 1L << bit;
+    }
+    
+    private void clear(long sequence) {
+        int bit = (int) (sequence % WINDOW);
+        seen[bit >>> 6] &= ~(1L << bit);
+    }
+}
@@ -0,0 +1,52 @@
+package com.healthbroadcast.common.wire;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 无分配的 UTF-8 写入
+ */
+public final class Utf8 {
+    
+    private Utf8() {
+    }
+    
+    /**
+     * 把 value 按 UTF-8 写入 out，最多 maxBytes 字节，在字符边界截断
+     * 孤立代理项写为 '?' (与 String.getBytes(UTF_8) 一致)
+     * @return 写入的字节数
+     */
+    public static int put(ByteBuffer out, String value, int maxBytes) {
+        int written = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            int cp = c;
+            if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+                cp = Character.toCodePoint(c, value.charAt(i + 1));
+            } else if (Character.isSurrogate(c)) {
+                cp = '?';
+            }
+            int bytes = cp < 0x80 ? 1 : cp < 0x800 ? 2 : cp < 0x10000 ? 3 : 4;
+            if (written + bytes > maxBytes) {
+                break;
+            }
+            if (bytes == 1) {
+                out.put((byte) cp);
+            } else if (bytes == 2) {
+                out.put((byte) (0xC0 | (cp >> 6)));
+                out.put((byte) (0x80 | (cp & 0x3F)));
+            } else if (bytes == 3) {
+                out.put((byte) (0xE0 | (cp >> 12)));
+                out.put((byte) (0x80 | ((cp >> 6) & 0x3F)));
+                out.put((byte) (0x80 | (cp & 0x3F)));
+            } else {
+                out.put((byte) (0xF0 | (cp >> 18)));
+                out.put((byte) (0x80 | ((cp >> 12) & 0x3F)));
+                out.put((byte) (0x80 | ((cp >> 6) & 0x3F)));
+                out.put((byte) (0x80 | (cp & 0x3F)));
+                i++;
+            }
+            written += bytes;
+        }
+        return written;
+    }
+}
@@ -0,0 +1,314 @@
+package com.healthbroadcast.common.wire;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 参考解码器 - 同时支持 JSON 和二进制格式，供接收端和测试使用
+ * 根据首字节自动识别格式。二进制来源字典按流维护，每个流使用一个实例。
+ * 
+ * 数据包格式：
+ * - JSON 单个事件 {...} 或批量数组 [{...},{...}]
+ * - 二进制：一个或多个 [u16 长度][帧]
+ */
+public final class WireDecoder {
+    
+    private final Map<Integer, String> sourceDictionary = new HashMap<>();
+    
+    /**
+     * 解码一个数据包中的所有事件，追加到 out
+     * @return 解码出的事件数，无法识别的部分被跳过
+     */
+    public int decodeDatagram(ByteBuffer packet, List<DecodedEvent> out) {
+        if (!packet.hasRemaining()) {
+            return 0;
+        }
+        byte first = packet.get(packet.position());
+        if (first == '{' || first == '[') {
+            return decodeJsonDatagram(packet, out);
+        }
+        
+        int decoded = 0;
+        while (packet.remaining() >= DatagramBatcher.LENGTH_PREFIX_BYTES) {
+            int length = packet.getShort() & 0xFFFF;
+            if (length > packet.remaining()) {
+                break;
+            }
+            ByteBuffer frame = packet.slice();
+            frame.limit(length);
+            packet.position(packet.position() + length);
+            DecodedEvent event = new DecodedEvent();
+            if (decodeFrame(frame, event)) {
+                out.add(event);
+                decoded++;
+            }
+        }
+        return decoded;
+    }
+    
+    /**
+     * 解码单个事件：一个 JSON 对象或一个不带长度前缀的二进制帧
+     * @return false 如果数据无法识别
+     */
+    public boolean decodeFrame(ByteBuffer frame, DecodedEvent out) {
+        out.clear();
+        if (!frame.hasRemaining()) {
+            return false;
+        }
+        if (frame.get(frame.position()) == '{') {
+            byte[] bytes = new byte[frame.remaining()];
+            frame.get(bytes);
+            String json = new String(bytes, StandardCharsets.UTF_8).trim();
+            return decodeJsonObject(json, 0, json.length(), out);
+        }
+        return decodeBinary(frame, out);
+    }
+    
+    // ========== 二进制 ==========
+    
+    private boolean decodeBinary(ByteBuffer in, DecodedEvent out) {
+        if (in.remaining() < BinaryEventEncoder.HEADER_BYTES
+            || in.getShort() != BinaryEventEncoder.MAGIC
+            || in.get() != BinaryEventEncoder.VERSION) {
+            return false;
+        }
+        byte type = in.get();
+        int flags = in.get() & 0xFF;
+        out.format = WireFormat.BINARY;
+        out.sequence = in.getInt() & 0xFFFFFFFFL;
+        out.nanos = in.getLong();
+        
+        int sourceId = -1;
+        switch (type) {
+            case BinaryEventEncoder.TYPE_HEALTH:
+                out.type = "health";
+                readHealthFields(in, out);
+                break;
+            case BinaryEventEncoder.TYPE_DAMAGE:
+                out.type = "damage";
+                out.amount = readHealth(in);
+                readHealthFields(in, out);
+                sourceId = in.getShort() & 0xFFFF;
+                break;
+            case BinaryEventEncoder.TYPE_HEAL:
+                out.type = "heal";
+                out.amount = readHealth(in);
+                readHealthFields(in, out);
+                break;
+            case BinaryEventEncoder.TYPE_DEATH:
+                out.type = "death";
+                sourceId = in.getShort() & 0xFFFF;
+                break;
+            case BinaryEventEncoder.TYPE_STATS:
+                // 运行指标，只保留类型和序号
+                out.type = "stats";
+                in.position(Math.min(in.limit(), in.position() + BinaryEventEncoder.STATS_BODY_BYTES));
+                break;
+            default:
+                return false;
+        }
+        
+        if ((flags & BinaryEventEncoder.FLAG_AGGREGATE) != 0) {
+            out.count = in.getShort() & 0xFFFF;
+            out.minHealth = readHealth(in);
+            out.firstNanos = out.nanos - (in.getInt() & 0xFFFFFFFFL) * 1000;
+        }
+        if (sourceId >= 0) {
+            if ((flags & BinaryEventEncoder.FLAG_SOURCE_DEF) != 0) {
+                byte[] bytes = new byte[in.get() & 0xFF];
+                in.get(bytes);
+                sourceDictionary.put(sourceId, new String(bytes, StandardCharsets.UTF_8));
+            }
+            String source = sourceDictionary.get(sourceId);
+            out.source = source != null ? source : "#" + sourceId;
+        }
+        return true;
+    }
+    
+    private static void readHealthFields(ByteBuffer in, DecodedEvent out) {
+        out.health = readHealth(in);
+        out.maxHealth = readHealth(in);
+        out.percentage = (in.getShort() & 0xFFFF) / (float) BinaryEventEncoder.PERCENT_SCALE;
+    }
+    
+    private static float readHealth(ByteBuffer in) {
+        return in.getShort() / BinaryEventEncoder.HEALTH_SCALE;
+    }
+    
+    // ========== JSON ==========
+    
+    private static int decodeJsonDatagram(ByteBuffer in, List<DecodedEvent> out) {
+        byte[] bytes = new byte[in.remaining()];
+        in.get(bytes);
+        String json = new String(bytes, StandardCharsets.UTF_8);
+        
+        // 按顶层 {...} 切分 (忽略字符串中的括号)
+        int decoded = 0;
+        int depth = 0;
+        int objectStart = -1;
+        boolean inString = false;
+        for (int i = 0; i < json.length(); i++) {
+            char c = json.charAt(i);
+            if (inString) {
+                if (c == '\\') {
+                    i++;
+                } else if (c == '"') {
+                    inString = false;
+                }
+            } else if (c == '"') {
+                inString = true;
+            } else if (c == '{') {
+                if (depth++ == 0) {
+                    objectStart = i;
+                }
+            } else if (c == '}' && depth > 0 && --depth == 0) {
+                DecodedEvent event = new DecodedEvent();
+                if (decodeJsonObject(json, objectStart, i + 1, event)) {
+                    out.add(event);
+                    decoded++;
+                }
+            }
+        }
+        return decoded;
+    }
+    
+    /**
+     * 解码 json 中 [start, end) 范围内的扁平对象
+     */
+    private static boolean decodeJsonObject(String json, int start, int end, DecodedEvent out) {
+        out.clear();
+        if (end - start < 2 || json.charAt(start) != '{' || json.charAt(end - 1) != '}') {
+            return false;
+        }
+        out.format = WireFormat.JSON;
+        
+        int i = start + 1;
+        end--;
+        while (i < end) {
+            i = skipWhitespace(json, i);
+            if (json.charAt(i) == ',') {
+                i = skipWhitespace(json, i + 1);
+            }
+            if (json.charAt(i) != '"') {
+                return false;
+            }
+            StringBuilder key = new StringBuilder();
+            i = readString(json, i, key);
+            i = skipWhitespace(json, i);
+            if (json.charAt(i) != ':') {
+                return false;
+            }
+            i = skipWhitespace(json, i + 1);
+            
+            if (json.charAt(i) == '"') {
+                StringBuilder value = new StringBuilder();
+                i = readString(json, i, value);
+                applyString(out, key.toString(), value.toString());
+            } else {
+                int valueStart = i;
+                while (i < end && json.charAt(i) != ',' && !Character.isWhitespace(json.charAt(i))) {
+                    i++;
+                }
+                applyNumber(out, key.toString(), json.substring(valueStart, i));
+            }
+            i = skipWhitespace(json, i);
+        }
+        return out.type != null;
+    }
+    
+    private static void applyString(DecodedEvent out, String key, String value) {
+        if ("type".equals(key)) {
+            out.type = value;
+        } else if ("source".equals(key)) {
+            out.source = value;
+        }
+    }
+    
+    private static void applyNumber(DecodedEvent out, String key, String value) {
+        switch (key) {
+            case "health":
+                out.health = Float.parseFloat(value);
+                break;
+            case "maxHealth":
+                out.maxHealth = Float.parseFloat(value);
+                break;
+            case "percentage":
+                out.percentage = Float.parseFloat(value);
+                break;
+            case "damage":
+            case "amount":
+                out.amount = Float.parseFloat(value);
+                break;
+            case "timestamp":
+                out.timestamp = Long.parseLong(value);
+                break;
+            case "seq":
+                out.sequence = Long.parseLong(value);
+                break;
+            case "count":
+                out.count = Integer.parseInt(value);
+                break;
+            case "firstTimestamp":
+                out.firstTimestamp = Long.parseLong(value);
+                break;
+            case "minHealth":
+                out.minHealth = Float.parseFloat(value);
+                break;
+            default:
+                break;
+        }
+    }
+    
+    private static int skipWhitespace(String json, int i) {
+        while (i < json.length() && Character.isWhitespace(json.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+    
+    /**
+     * 读取从 i (引号) 开始的字符串，返回结束引号之后的位置
+     */
+    private static int readString(String json, int i, StringBuilder out) {
+        i++;
+        while (i < json.length()) {
+            char c = json.charAt(i++);
+            if (c == '"') {
+                return i;
+            }
+            if (c == '\\' && i < json.length()) {
+                char escaped = json.charAt(i++);
+                switch (escaped) {
+                    case 'n':
+                        out.append('\n');
+                        break;
+                    case 't':
+                        out.append('\t');
+                        break;
+                    case 'r':
+                        out.append('\r');
+                        break;
+                    case 'b':
+                        out.append('\b');
+                        break;
+                    case 'f':
+                        out.append('\f');
+                        break;
+                    case 'u':
+                        out.append((char) Integer.parseInt(json.substring(i, i + 4), 16));
+                        i += 4;
+                        break;
+                    default:
+                        out.append(escaped);
+                        break;
+                }
+            } else {
+                out.append(c);
+            }
+        }
+        return i;
+    }
+}
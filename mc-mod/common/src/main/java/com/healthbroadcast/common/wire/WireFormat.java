@@ -0,0 +1,25 @@
+package com.healthbroadcast.common.wire;
+
+/**
+ * 输出数据格式
+ */
+public enum WireFormat {
+    /** 默认：README 中描述的 JSON 文本 */
+    JSON,
+    /** 紧凑二进制帧，见 {@link BinaryEventEncoder} */
+    BINARY;
+    
+    /**
+     * 从配置字符串解析，无法识别时使用 JSON
+     */
+    public static WireFormat fromName(String name) {
+        if (name != null) {
+            for (WireFormat format : values()) {
+                if (format.name().equalsIgnoreCase(name.trim())) {
+                    return format;
+                }
+            }
+        }
+        return JSON;
+    }
+}
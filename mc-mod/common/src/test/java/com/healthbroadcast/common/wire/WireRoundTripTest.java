@@ -0,0 +1,288 @@
+package com.healthbroadcast.common.wire;
+
+import com.healthbroadcast.common.pipeline.EventType;
+import com.healthbroadcast.common.pipeline.HealthEvent;
+import com.healthbroadcast.common.pipeline.SourceRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 两种格式的往返测试：同一组事件分别用 JSON 和二进制编码、经 DatagramBatcher 打包，
+ * 再用 WireDecoder 解码，两边的结果必须一致
+ */
+class WireRoundTripTest {
+    
+    private static final float HEALTH_DELTA = 1e-4f;
+    /** JSON 保留 3 位小数，二进制为 1/65535 */
+    private static final float PERCENT_DELTA = 1e-3f;
+    
+    private final SourceRegistry sources = new SourceRegistry();
+    private Locale defaultLocale;
+    
+    @BeforeEach
+    void useCommaLocale() {
+        // 小数点为逗号的区域设置下 JSON 仍然必须输出 '.'
+        defaultLocale = Locale.getDefault();
+        Locale.setDefault(Locale.GERMANY);
+    }
+    
+    @AfterEach
+    void restoreLocale() {
+        Locale.setDefault(defaultLocale);
+    }
+    
+    @Test
+    void jsonAndBinaryDecodeToTheSameEvents() {
+        List<HealthEvent> events = sampleEvents();
+        
+        List<DecodedEvent> json = decode(batch(new JsonEventEncoder(sources), events,
+            DatagramBatcher.DEFAULT_MAX_DATAGRAM_BYTES));
+        List<DecodedEvent> binary = decode(batch(new BinaryEventEncoder(sources), events,
+            DatagramBatcher.DEFAULT_MAX_DATAGRAM_BYTES));
+        
+        assertEquals(events.size(), json.size());
+        assertEquals(events.size(), binary.size());
+        for (int i = 0; i < events.size(); i++) {
+            assertMatches(events.get(i), json.get(i));
+            assertMatches(events.get(i), binary.get(i));
+        }
+    }
+    
+    @Test
+    void batchesRespectTheDatagramLimit() {
+        List<HealthEvent> events = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            events.addAll(sampleEvents());
+        }
+        for (int i = 0; i < events.size(); i++) {
+            events.get(i).sequence = i;
+        }
+        int maxDatagramBytes = 300;
+        
+        for (EventEncoder encoder : new EventEncoder[] {new JsonEventEncoder(sources), new BinaryEventEncoder(sources)}) {
+            List<ByteBuffer> datagrams = batch(encoder, events, maxDatagramBytes);
+            assertTrue(datagrams.size() > 1, encoder.format() + " should need several datagrams");
+            for (ByteBuffer datagram : datagrams) {
+                assertTrue(datagram.remaining() <= maxDatagramBytes,
+                    encoder.format() + " datagram of " + datagram.remaining() + " bytes");
+            }
+            List<DecodedEvent> decoded = decode(datagrams);
+            assertEquals(events.size(), decoded.size(), encoder.format().toString());
+            for (int i = 0; i < events.size(); i++) {
+                assertMatches(events.get(i), decoded.get(i));
+            }
+        }
+    }
+    
+    @Test
+    void sourceDefinitionIsResentAfterADroppedPacket() {
+        BinaryEventEncoder encoder = new BinaryEventEncoder(sources);
+        WireDecoder decoder = new WireDecoder();
+        HealthEvent first = damage(1, 4, 16, 20, sources.intern("mob", "Creeper"));
+        HealthEvent second = damage(2, 2, 14, 20, first.sourceId);
+        
+        // 第一个数据包没有发出 (背压/熔断/发送失败)，定义不算已发送
+        encodeFrame(encoder, first);
+        encoder.discardSourceDefinitions();
+        
+        // 下一次使用同一来源时重新附带定义
+        DecodedEvent resent = decodeFrame(decoder, encodeFrame(encoder, second));
+        encoder.commitSourceDefinitions();
+        assertEquals("mob:Creeper", resent.source);
+        
+        // 已确认发出后只发送 ID，接收端用字典还原
+        HealthEvent third = damage(3, 1, 13, 20, first.sourceId);
+        ByteBuffer idOnly = encodeFrame(encoder, third);
+        assertEquals(0, idOnly.get(4) & BinaryEventEncoder.FLAG_SOURCE_DEF);
+        assertEquals("mob:Creeper", decodeFrame(decoder, idOnly).source);
+        
+        // 重传帧总是自描述，没见过定义的接收端也能解码
+        ByteBuffer retransmit = ByteBuffer.allocate(BinaryEventEncoder.MAX_EVENT_BYTES);
+        encoder.encodeSelfDescribing(third, retransmit);
+        retransmit.flip();
+        assertEquals("mob:Creeper", decodeFrame(new WireDecoder(), retransmit).source);
+    }
+    
+    @Test
+    void definitionOfAnOverflowingFrameBelongsToTheNextBatch() {
+        BinaryEventEncoder encoder = new BinaryEventEncoder(sources);
+        WireDecoder decoder = new WireDecoder();
+        int skeleton = sources.intern("mob", "Skeleton");
+        int spider = sources.intern("mob", "Spider");
+        DatagramBatcher batcher = new DatagramBatcher(60, BinaryEventEncoder.MAX_EVENT_BYTES);
+        
+        ByteBuffer first = encodeFrame(encoder, damage(1, 2, 18, 20, skeleton));
+        batcher.append(WireFormat.BINARY, first, 0);
+        ByteBuffer second = encodeFrame(encoder, damage(2, 2, 16, 20, spider));
+        assertTrue(!batcher.canAppend(WireFormat.BINARY, second.remaining()));
+        
+        // 第一个批次放不下第二帧，先发送但丢失；第二帧的定义不能随它一起被丢弃或确认
+        int carried = encoder.detachFrameDefinition();
+        batcher.clear();
+        encoder.discardSourceDefinitions();
+        encoder.restoreFrameDefinition(carried);
+        batcher.append(WireFormat.BINARY, second, 0);
+        List<DecodedEvent> decoded = new ArrayList<>();
+        decoder.decodeDatagram(batcher.flip(), decoded);
+        batcher.clear();
+        encoder.commitSourceDefinitions();
+        assertEquals("mob:Spider", decoded.get(0).source);
+        
+        // 丢失批次中的定义重新附带，已送达的不再附带
+        ByteBuffer again = encodeFrame(encoder, damage(3, 2, 14, 20, skeleton));
+        assertEquals(BinaryEventEncoder.FLAG_SOURCE_DEF, again.get(4) & BinaryEventEncoder.FLAG_SOURCE_DEF);
+        assertEquals("mob:Skeleton", decodeFrame(decoder, again).source);
+        ByteBuffer known = encodeFrame(encoder, damage(4, 2, 12, 20, spider));
+        assertEquals(0, known.get(4) & BinaryEventEncoder.FLAG_SOURCE_DEF);
+    }
+    
+    private List<HealthEvent> sampleEvents() {
+        List<HealthEvent> events = new ArrayList<>();
+        events.add(health(0, 20, 20));
+        events.add(damage(1, 3.5f, 16.5f, 20, sources.intern("mob", "Zombie")));
+        events.add(heal(2, 1, 17.5f, 20));
+        events.add(damage(3, 0.75f, 16.75f, 20, sources.intern("fall")));
+        // 名称需要 JSON 转义，且包含多字节 UTF-8
+        events.add(damage(4, 2, 14.75f, 20, sources.intern("player", "\"Steve\" 史蒂夫")));
+        events.add(health(5, 13.37f, 26));
+        HealthEvent periodic = damage(6, 3, 10.37f, 26, sources.intern("onFire"));
+        periodic.count = 3;
+        periodic.minHealth = 10.37f;
+        periodic.firstNanos = periodic.nanos - 1_500_000_000L;
+        periodic.firstTimestamp = periodic.timestamp - 1500;
+        events.add(periodic);
+        events.add(death(7, sources.intern("mob", "Zombie")));
+        return events;
+    }
+    
+    private static HealthEvent health(long sequence, float health, float maxHealth) {
+        return event(EventType.HEALTH, sequence, 0, health, maxHealth, SourceRegistry.UNKNOWN);
+    }
+    
+    private static HealthEvent damage(long sequence, float amount, float health, float maxHealth, int sourceId) {
+        return event(EventType.DAMAGE, sequence, amount, health, maxHealth, sourceId);
+    }
+    
+    private static HealthEvent heal(long sequence, float amount, float health, float maxHealth) {
+        return event(EventType.HEAL, sequence, amount, health, maxHealth, SourceRegistry.UNKNOWN);
+    }
+    
+    private static HealthEvent death(long sequence, int sourceId) {
+        return event(EventType.DEATH, sequence, 0, 0, 20, sourceId);
+    }
+    
+    private static HealthEvent event(EventType type, long sequence, float amount, float health, float maxHealth,
+                                     int sourceId) {
+        HealthEvent event = new HealthEvent();
+        event.type = type;
+        event.sequence = sequence;
+        event.amount = amount;
+        event.health = health;
+        event.maxHealth = maxHealth;
+        event.sourceId = sourceId;
+        event.count = 1;
+        event.timestamp = 1_700_000_000_000L + sequence;
+        event.nanos = 5_000_000_000L + sequence * 1_000_000L;
+        return event;
+    }
+    
+    /**
+     * 按发送线程的方式打包：放不下时先发出当前批次，发出后确认其中的来源定义
+     */
+    private static List<ByteBuffer> batch(EventEncoder encoder, List<HealthEvent> events, int maxDatagramBytes) {
+        int maxEventBytes = Math.max(JsonEventEncoder.MAX_EVENT_BYTES, BinaryEventEncoder.MAX_EVENT_BYTES);
+        DatagramBatcher batcher = new DatagramBatcher(maxDatagramBytes, maxEventBytes);
+        ByteBuffer frame = ByteBuffer.allocate(maxEventBytes);
+        List<ByteBuffer> datagrams = new ArrayList<>();
+        for (HealthEvent event : events) {
+            frame.clear();
+            encoder.encode(event, frame);
+            frame.flip();
+            if (!batcher.canAppend(encoder.format(), frame.remaining())) {
+                BinaryEventEncoder binary = encoder instanceof BinaryEventEncoder ? (BinaryEventEncoder) encoder : null;
+                int carried = binary != null ? binary.detachFrameDefinition() : -1;
+                datagrams.add(send(batcher, encoder));
+                if (binary != null) {
+                    binary.restoreFrameDefinition(carried);
+                }
+            }
+            batcher.append(encoder.format(), frame, event.nanos);
+        }
+        if (!batcher.isEmpty()) {
+            datagrams.add(send(batcher, encoder));
+        }
+        return datagrams;
+    }
+    
+    private static ByteBuffer send(DatagramBatcher batcher, EventEncoder encoder) {
+        ByteBuffer datagram = batcher.flip();
+        ByteBuffer copy = ByteBuffer.allocate(datagram.remaining());
+        copy.put(datagram);
+        copy.flip();
+        batcher.clear();
+        if (encoder instanceof BinaryEventEncoder) {
+            ((BinaryEventEncoder) encoder).commitSourceDefinitions();
+        }
+        return copy;
+    }
+    
+    private static List<DecodedEvent> decode(List<ByteBuffer> datagrams) {
+        WireDecoder decoder = new WireDecoder();
+        List<DecodedEvent> decoded = new ArrayList<>();
+        for (ByteBuffer datagram : datagrams) {
+            decoder.decodeDatagram(datagram, decoded);
+        }
+        return decoded;
+    }
+    
+    private static ByteBuffer encodeFrame(BinaryEventEncoder encoder, HealthEvent event) {
+        ByteBuffer frame = ByteBuffer.allocate(BinaryEventEncoder.MAX_EVENT_BYTES);
+        encoder.encode(event, frame);
+        frame.flip();
+        return frame;
+    }
+    
+    private static DecodedEvent decodeFrame(WireDecoder decoder, ByteBuffer frame) {
+        DecodedEvent decoded = new DecodedEvent();
+        assertTrue(decoder.decodeFrame(frame, decoded));
+        return decoded;
+    }
+    
+    private void assertMatches(HealthEvent expected, DecodedEvent actual) {
+        String context = actual.toString();
+        assertEquals(expected.type.name().toLowerCase(Locale.ROOT), actual.type, context);
+        assertEquals(expected.sequence, actual.sequence, context);
+        if (expected.type == EventType.DAMAGE || expected.type == EventType.DEATH) {
+            assertEquals(sources.name(expected.sourceId), actual.source, context);
+        }
+        if (expected.type == EventType.DEATH) {
+            return;
+        }
+        assertEquals(quantize(expected.health), actual.health, HEALTH_DELTA, context);
+        assertEquals(quantize(expected.maxHealth), actual.maxHealth, HEALTH_DELTA, context);
+        assertEquals(expected.health / expected.maxHealth, actual.percentage, PERCENT_DELTA, context);
+        if (expected.type != EventType.HEALTH) {
+            assertEquals(quantize(expected.amount), actual.amount, HEALTH_DELTA, context);
+        }
+        assertEquals(expected.count, actual.count, context);
+        if (expected.count > 1) {
+            assertEquals(quantize(expected.minHealth), actual.minHealth, HEALTH_DELTA, context);
+        }
+    }
+    
+    /**
+     * 两种格式都保留一位小数
+     */
+    private static float quantize(float value) {
+        return Math.round(value * BinaryEventEncoder.HEALTH_SCALE) / BinaryEventEncoder.HEALTH_SCALE;
+    }
+}
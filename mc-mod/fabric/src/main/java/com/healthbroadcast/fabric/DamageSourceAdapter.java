@@ -0,0 +1,45 @@
+package com.healthbroadcast.fabric;
+
+import com.healthbroadcast.common.pipeline.SourceRegistry;
+
+import net.minecraft.entity.Entity;
+import net.minecraft.entity.damage.DamageSource;
+import net.minecraft.entity.player.PlayerEntity;
+
+/**
+ * 伤害来源解析 - 当前 MC 版本 (1.20.1) 的伤害来源 API 集中在这里
+ * 直接调用，由 Loom 重映射到运行时的方法名 (按名称反射在正式环境中找不到 intermediary 名称)；
+ * 切换 minecraft_version 时只需要修改这个类。
+ * 结果按 (类型, 攻击者) 驻留为来源 ID，不拼接字符串
+ */
+final class DamageSourceAdapter {
+    
+    private final SourceRegistry sources;
+    
+    /**
+     * @param sources 客户端广播器或服务器模式广播器的来源表
+     */
+    DamageSourceAdapter(SourceRegistry sources) {
+        this.sources = sources;
+    }
+    
+    /**
+     * 最后的伤害来源 ID，对应 "mob:Zombie" 或 "fall" 这样的描述；无法获取时为 unknown
+     */
+    int lastDamageSource(PlayerEntity player) {
+        DamageSource source = player.getRecentDamageSource();
+        return source != null ? sourceId(source) : SourceRegistry.UNKNOWN;
+    }
+    
+    /**
+     * 伤害类型名称，有攻击者时带上攻击者名称
+     */
+    int sourceId(DamageSource source) {
+        try {
+            Entity attacker = source.getAttacker();
+            return sources.intern(source.getType().msgId(), attacker != null ? attacker.getName().getString() : null);
+        } catch (RuntimeException e) {
+            return SourceRegistry.UNKNOWN;
+        }
+    }
+}
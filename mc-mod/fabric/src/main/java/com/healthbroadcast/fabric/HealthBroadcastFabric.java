@@ -3,10 +3,10 @@ package com.healthbroadcast.fabric;
 import com.healthbroadcast.common.HealthBroadcaster;
 
 import net.fabricmc.api.ClientModInitializer;
+import net.fabricmc.fabric.api.client.event.lifecycle.v1.ClientLifecycleEvents;
 import net.fabricmc.fabric.api.client.event.lifecycle.v1.ClientTickEvents;
+import net.fabricmc.fabric.api.client.rendering.v1.HudRenderCallback;
 import net.minecraft.client.MinecraftClient;
-import net.minecraft.entity.damage.DamageSource;
-import net.minecraft.entity.player.PlayerEntity;
 
 /**
  * Health Broadcast Mod - Fabric 版本
@@ -18,10 +18,7 @@ public class HealthBroadcastFabric implements ClientModInitializer {
     public static final String MOD_ID = "hp_output";
     
     private final HealthBroadcaster broadcaster = HealthBroadcaster.getInstance();
-    private float previousHealth = -1;
-    private float previousMaxHealth = -1;
-    private int tickCounter = 0;
-    private static final int FORCE_UPDATE_INTERVAL = 100; // 每100tick强制发送一次
+    private HealthTracker tracker;
     
     @Override
     public void onInitializeClient() {
@@ -31,133 +28,30 @@ public class HealthBroadcastFabric implements ClientModInitializer {
         ModConfig config = ModConfig.getInstance();
         broadcaster.setPort(config.udpPort);
         
-        // 注册 tick 事件监听血量变化
-        ClientTickEvents.END_CLIENT_TICK.register(this::onClientTick);
-        
-        System.out.println("[HealthBroadcast] Fabric mod initialized! UDP port: " + config.udpPort);
-    }
-    
-    private void onClientTick(MinecraftClient client) {
-        PlayerEntity player = client.player;
-        
-        if (player == null) {
-            if (previousHealth != -1) {
-                broadcaster.reset();
-                previousHealth = -1;
-                previousMaxHealth = -1;
-                tickCounter = 0;
+        // 伤害来源解析为广播器来源表中的 ID
+        tracker = new HealthTracker(broadcaster, new DamageSourceAdapter(broadcaster.getSources()));
+        // 血量变化由 Mixin 在收到服务器血量包时上报
+        HealthTracker.install(tracker);
+        
+        // tick 事件：低频兜底轮询
+        ClientTickEvents.END_CLIENT_TICK.register(client -> {
+            tracker.onTick(client);
+            tracker.endTick();
+        });
+        
+        // F3 调试界面打开时在左下角显示发送指标
+        HudRenderCallback.EVENT.register((context, tickDelta) -> {
+            MinecraftClient client = MinecraftClient.getInstance();
+            if (client.options.debugEnabled && ModConfig.getInstance().showDebugMetrics) {
+                String line = broadcaster.getMetrics().summaryLine();
+                int y = context.getScaledWindowHeight() - client.textRenderer.fontHeight - 2;
+                context.drawTextWithShadow(client.textRenderer, line, 2, y, 0xE0E0E0);
             }
-            return;
-        }
-        
-        float currentHealth = player.getHealth();
-        float maxHealth = player.getMaxHealth();
-        
-        tickCounter++;
-        
-        // 定期强制发送（确保数据被发送）
-        if (tickCounter >= FORCE_UPDATE_INTERVAL) {
-            tickCounter = 0;
-            broadcaster.forceHealthUpdate(currentHealth, maxHealth);
-            previousHealth = currentHealth;
-            previousMaxHealth = maxHealth;
-            return;
-        }
-        
-        // 首次进入游戏时强制发送
-        if (previousHealth < 0) {
-            broadcaster.forceHealthUpdate(currentHealth, maxHealth);
-            previousHealth = currentHealth;
-            previousMaxHealth = maxHealth;
-            return;
-        }
-        
-        // 检测血量变化
-        float healthDiff = currentHealth - previousHealth;
+        });
         
-        if (healthDiff < -0.01f) {
-            // 受伤了
-            float damage = -healthDiff;
-            String source = getLastDamageSource(player);
-            broadcaster.sendDamageEvent(damage, currentHealth, maxHealth, source);
-            
-            // 检测死亡
-            if (currentHealth <= 0 && previousHealth > 0) {
-                broadcaster.sendDeathEvent(source);
-            }
-        } else if (healthDiff > 0.01f) {
-            // 治疗了
-            broadcaster.sendHealEvent(healthDiff, currentHealth, maxHealth);
-        } else {
-            // 普通血量更新（内部会判断是否变化）
-            broadcaster.sendHealthUpdate(currentHealth, maxHealth);
-        }
+        // 退出游戏时排空发送队列
+        ClientLifecycleEvents.CLIENT_STOPPING.register(client -> tracker.close());
         
-        previousHealth = currentHealth;
-        previousMaxHealth = maxHealth;
-    }
-    
-    /**
-     * 获取最后的伤害来源描述
-     * 使用反射兼容不同 MC 版本
-     */
-    private String getLastDamageSource(PlayerEntity player) {
-        try {
-            // 尝试新版 API (1.19.4+): getRecentDamageSource()
-            DamageSource source = null;
-            try {
-                source = (DamageSource) player.getClass()
-                    .getMethod("getRecentDamageSource")
-                    .invoke(player);
-            } catch (NoSuchMethodException e) {
-                // 旧版 API - 无法直接获取
-            }
-            
-            if (source == null) {
-                return "unknown";
-            }
-            
-            return getDamageSourceName(source);
-        } catch (Exception e) {
-            return "unknown";
-        }
-    }
-    
-    /**
-     * 获取伤害来源名称，兼容多版本
-     */
-    private String getDamageSourceName(DamageSource source) {
-        try {
-            String typeName = "unknown";
-            
-            // 尝试 1.19.4+ API: source.getType().msgId()
-            try {
-                Object type = source.getClass().getMethod("getType").invoke(source);
-                typeName = (String) type.getClass().getMethod("msgId").invoke(type);
-            } catch (Exception e) {
-                // 尝试 1.14 ~ 1.19.3 API: source.getName()
-                try {
-                    typeName = (String) source.getClass().getMethod("getName").invoke(source);
-                } catch (Exception e2) {
-                    typeName = source.toString();
-                }
-            }
-            
-            // 获取攻击者名称
-            try {
-                Object attacker = source.getClass().getMethod("getAttacker").invoke(source);
-                if (attacker != null) {
-                    Object name = attacker.getClass().getMethod("getName").invoke(attacker);
-                    Object nameStr = name.getClass().getMethod("getString").invoke(name);
-                    return typeName + ":" + nameStr;
-                }
-            } catch (Exception e) {
-                // 忽略
-            }
-            
-            return typeName;
-        } catch (Exception e) {
-            return "unknown";
-        }
+        System.out.println("[HealthBroadcast] Fabric mod initialized! UDP port: " + config.udpPort);
     }
 }
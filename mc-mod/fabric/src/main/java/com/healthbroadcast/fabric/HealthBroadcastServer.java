@@ -0,0 +1,50 @@
+package com.healthbroadcast.fabric;
+
+import com.healthbroadcast.common.log.Log;
+import com.healthbroadcast.common.server.ServerBroadcaster;
+
+import net.fabricmc.api.DedicatedServerModInitializer;
+import net.fabricmc.fabric.api.entity.event.v1.ServerLivingEntityEvents;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerLifecycleEvents;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerTickEvents;
+import net.minecraft.server.network.ServerPlayerEntity;
+
+/**
+ * Health Broadcast Mod - Fabric 专用服务器入口
+ * 每个服务器 tick 读取所有在线玩家的血量，变化带上玩家名和 UUID 发送到配置的目标
+ */
+public class HealthBroadcastServer implements DedicatedServerModInitializer {
+    
+    private final ServerBroadcaster broadcaster = new ServerBroadcaster();
+    private DamageSourceAdapter damageSources;
+    
+    @Override
+    public void onInitializeServer() {
+        Log.info("Fabric server mode initializing...");
+        
+        ServerModConfig config = ServerModConfig.load();
+        config.apply(broadcaster);
+        damageSources = new DamageSourceAdapter(broadcaster.getSources());
+        
+        // 受伤来源归给该玩家下一次血量下降，不拦截伤害
+        ServerLivingEntityEvents.ALLOW_DAMAGE.register((entity, source, amount) -> {
+            if (entity instanceof ServerPlayerEntity) {
+                broadcaster.damageSource(entity.getUuid(), damageSources.sourceId(source));
+            }
+            return true;
+        });
+        
+        // tick 结束时写入所有玩家的血量并发出差异
+        ServerTickEvents.END_SERVER_TICK.register(server -> {
+            for (ServerPlayerEntity player : server.getPlayerManager().getPlayerList()) {
+                broadcaster.capture(player.getUuid(), player.getGameProfile().getName(),
+                    player.getHealth(), player.getMaxHealth());
+            }
+            broadcaster.endTick();
+        });
+        
+        ServerLifecycleEvents.SERVER_STOPPING.register(server -> broadcaster.close());
+        
+        Log.info("Fabric server mode initialized! Destinations: {}", String.join(", ", config.destinations));
+    }
+}
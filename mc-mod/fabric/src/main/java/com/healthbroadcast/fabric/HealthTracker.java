@@ -0,0 +1,225 @@
+package com.healthbroadcast.fabric;
+
+import com.healthbroadcast.common.HealthBroadcaster;
+
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.entity.damage.DamageSource;
+import net.minecraft.entity.player.PlayerEntity;
+import net.minecraft.network.packet.s2c.play.EntityDamageS2CPacket;
+
+/**
+ * 玩家血量跟踪 - 服务器每次更新血量时由 Mixin 直接调用，每个血量包产生一个事件
+ * tick 轮询只作为低频兜底 (Mixin 未生效时退回每 tick 轮询)
+ * 
+ * 低延迟模式下血量包和伤害包在 Netty I/O 线程解码后立即上报，不等主线程处理；
+ * 主线程随后应用同一个包时不再重复上报。事件通道是单生产者的，所以捕获方法都在本对象上同步。
+ */
+public final class HealthTracker {
+    
+    private static final int FORCE_UPDATE_INTERVAL = 100; // 每100tick强制发送一次
+    /** Mixin 生效后兜底轮询的间隔 */
+    private static final int FALLBACK_INTERVAL = 20;
+    /** 伤害包之后多少 tick 内的血量下降归因于它 */
+    private static final int PENDING_SOURCE_TICKS = 20;
+    private static final int NO_SOURCE = -1;
+    
+    private static volatile HealthTracker instance;
+    
+    private final HealthBroadcaster broadcaster;
+    private final DamageSourceAdapter damageSources;
+    private float previousHealth = -1;
+    private float previousMaxHealth = -1;
+    private int tickCounter = 0;
+    private long ticks;
+    /** 收到过血量更新回调，说明 Mixin 已生效 */
+    private boolean hooked;
+    /** EntityDamageS2CPacket 带来的来源，等待下一次血量下降 */
+    private int pendingSource = NO_SOURCE;
+    private long pendingSourceTick;
+    /** Netty 线程已上报、主线程还没有应用的血量包数量 */
+    private int unappliedHealthPackets;
+    private long unappliedSinceTick;
+    /** Netty 线程已处理的伤害包，主线程再次应用时跳过 */
+    private EntityDamageS2CPacket capturedDamagePacket;
+    
+    HealthTracker(HealthBroadcaster broadcaster, DamageSourceAdapter damageSources) {
+        this.broadcaster = broadcaster;
+        this.damageSources = damageSources;
+    }
+    
+    static void install(HealthTracker tracker) {
+        instance = tracker;
+    }
+    
+    /**
+     * Mixin 使用；Mod 初始化之前为 null
+     */
+    public static HealthTracker get() {
+        return instance;
+    }
+    
+    /**
+     * 是否在 Netty 线程上直接上报 (配置项 lowLatencyCapture)
+     */
+    public boolean isLowLatency() {
+        return ModConfig.getInstance().lowLatencyCapture;
+    }
+    
+    /**
+     * 服务器更新了本地玩家的血量 (ClientPlayerEntity.updateHealth 之后，主线程)
+     */
+    public synchronized void onHealthUpdate(PlayerEntity player) {
+        hooked = true;
+        if (unappliedHealthPackets > 0) {
+            // Netty 线程已经上报过这个包
+            unappliedHealthPackets--;
+            return;
+        }
+        report(player, player.getHealth(), player.getMaxHealth());
+    }
+    
+    /**
+     * Netty I/O 线程：血量包刚解码，主线程还没有应用
+     * 最大血量取上一次的值 (属性变化由主线程上报)，还不知道最大血量时交给主线程处理
+     */
+    public synchronized void onHealthPacket(PlayerEntity player, float health) {
+        if (previousHealth < 0 || previousMaxHealth <= 0) {
+            return;
+        }
+        if (unappliedHealthPackets == 0) {
+            unappliedSinceTick = ticks;
+        }
+        unappliedHealthPackets++;
+        // 与 LivingEntity.setHealth 相同的范围
+        report(player, Math.max(0f, Math.min(previousMaxHealth, health)), previousMaxHealth);
+    }
+    
+    /**
+     * 服务器通知本地玩家受到伤害 (1.19.4+ 的 EntityDamageS2CPacket，先于血量更新到达，主线程)
+     */
+    public synchronized void onDamagePacket(EntityDamageS2CPacket packet, PlayerEntity player) {
+        if (packet == capturedDamagePacket) {
+            capturedDamagePacket = null;
+            return;
+        }
+        remember(damageSources.sourceId(packet.createDamageSource(player.getWorld())));
+    }
+    
+    /**
+     * Netty I/O 线程：伤害包刚解码
+     * 在这里查询世界和实体不是线程安全的，失败时交给主线程重新解析
+     */
+    public synchronized void captureDamagePacket(EntityDamageS2CPacket packet, PlayerEntity player) {
+        DamageSource source;
+        try {
+            source = packet.createDamageSource(player.getWorld());
+        } catch (RuntimeException e) {
+            return;
+        }
+        remember(damageSources.sourceId(source));
+        capturedDamagePacket = packet;
+    }
+    
+    private void remember(int sourceId) {
+        pendingSource = sourceId;
+        pendingSourceTick = ticks;
+    }
+    
+    /**
+     * tick 兜底：定期强制发送，并补上 Mixin 没有报告的变化
+     */
+    synchronized void onTick(MinecraftClient client) {
+        ticks++;
+        PlayerEntity player = client.player;
+        
+        if (player == null) {
+            if (previousHealth != -1) {
+                broadcaster.reset();
+                previousHealth = -1;
+                previousMaxHealth = -1;
+                tickCounter = 0;
+                pendingSource = NO_SOURCE;
+                unappliedHealthPackets = 0;
+                capturedDamagePacket = null;
+            }
+            return;
+        }
+        
+        if (unappliedHealthPackets > 0) {
+            if (ticks - unappliedSinceTick <= PENDING_SOURCE_TICKS) {
+                // 实体上还是旧血量，等主线程应用 Netty 线程已上报的包
+                return;
+            }
+            unappliedHealthPackets = 0;
+        }
+        
+        if (pendingSource != NO_SOURCE && ticks - pendingSourceTick > PENDING_SOURCE_TICKS) {
+            // 伤害被完全吸收，血量没有变化
+            pendingSource = NO_SOURCE;
+        }
+        
+        float currentHealth = player.getHealth();
+        float maxHealth = player.getMaxHealth();
+        
+        tickCounter++;
+        
+        // 定期强制发送（确保数据被发送）
+        if (tickCounter >= FORCE_UPDATE_INTERVAL) {
+            tickCounter = 0;
+            broadcaster.forceHealthUpdate(currentHealth, maxHealth);
+            previousHealth = currentHealth;
+            previousMaxHealth = maxHealth;
+            return;
+        }
+        
+        if (!hooked || previousHealth < 0 || ticks % FALLBACK_INTERVAL == 0) {
+            report(player, currentHealth, maxHealth);
+        }
+    }
+    
+    /**
+     * 本 tick 产生的事件合并为一个数据包
+     */
+    synchronized void endTick() {
+        broadcaster.endTick();
+    }
+    
+    synchronized void close() {
+        broadcaster.close();
+    }
+    
+    private void report(PlayerEntity player, float currentHealth, float maxHealth) {
+        // 首次进入游戏时强制发送
+        if (previousHealth < 0) {
+            broadcaster.forceHealthUpdate(currentHealth, maxHealth);
+            previousHealth = currentHealth;
+            previousMaxHealth = maxHealth;
+            return;
+        }
+        
+        // 检测血量变化
+        float healthDiff = currentHealth - previousHealth;
+        
+        if (healthDiff < -0.01f) {
+            // 受伤了
+            float damage = -healthDiff;
+            int source = pendingSource != NO_SOURCE ? pendingSource : damageSources.lastDamageSource(player);
+            pendingSource = NO_SOURCE;
+            broadcaster.sendDamageEvent(damage, currentHealth, maxHealth, source);
+            
+            // 检测死亡
+            if (currentHealth <= 0 && previousHealth > 0) {
+                broadcaster.sendDeathEvent(source);
+            }
+        } else if (healthDiff > 0.01f) {
+            // 治疗了
+            broadcaster.sendHealEvent(healthDiff, currentHealth, maxHealth);
+        } else {
+            // 普通血量更新（内部会判断是否变化）
+            broadcaster.sendHealthUpdate(currentHealth, maxHealth);
+        }
+        
+        previousHealth = currentHealth;
+        previousMaxHealth = maxHealth;
+    }
+}
@@ -3,11 +3,21 @@ package com.healthbroadcast.fabric;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.healthbroadcast.common.HealthBroadcaster;
+import com.healthbroadcast.common.control.ControlChannel;
+import com.healthbroadcast.common.log.Log;
+import com.healthbroadcast.common.log.LogLevel;
+import com.healthbroadcast.common.overlay.OverlayServer;
+import com.healthbroadcast.common.pipeline.PeriodicAggregator;
+import com.healthbroadcast.common.pipeline.WaitStrategyType;
+import com.healthbroadcast.common.wire.DatagramBatcher;
+import com.healthbroadcast.common.wire.WireFormat;
 import net.fabricmc.loader.api.FabricLoader;
 
 import java.io.File;
 import java.io.FileReader;
 import java.io.FileWriter;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * 配置管理器 - 处理配置文件的读写
@@ -16,11 +26,59 @@ public class ModConfig {
     
     private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
     private static final String CONFIG_FILE = "health-broadcast.json";
+    private static final String SOCKET_FILE = "hp_output.sock";
     
     private static ModConfig instance;
     
     // 配置项
     public int udpPort = HealthBroadcaster.DEFAULT_PORT;
+    /**
+     * 额外的发送目标，为空时发送到 127.0.0.1:udpPort
+     * 例: "127.0.0.1:39571", "multicast://239.255.42.99:39571?ttl=1", "broadcast://255.255.255.255:39571"
+     */
+    public List<String> destinations = new ArrayList<>();
+    /** 发送线程等待策略: busy_spin / park / blocking */
+    public String waitStrategy = "park";
+    /** 输出格式: json / binary */
+    public String wireFormat = "json";
+    /** 批量窗口 (毫秒)，窗口内的事件合并为一个数据包；0 = 每个事件单独发送 */
+    public int batchWindowMs = HealthBroadcaster.DEFAULT_BATCH_WINDOW_MS;
+    /** 单个数据包最大字节数 */
+    public int maxDatagramBytes = DatagramBatcher.DEFAULT_MAX_DATAGRAM_BYTES;
+    /** damage / death 所在数据包额外重复发送的次数 (0~3)，接收端按 seq 去重 */
+    public int criticalRedundancy = 0;
+    /** 是否同时写入共享内存文件 (同机读取方可直接 mmap 读取) */
+    public boolean sharedMemoryEnabled = false;
+    /** 共享内存文件路径，为空时使用 /dev/shm/hp_output.shm 或系统临时目录 */
+    public String sharedMemoryPath = "";
+    /** 是否通过 Unix 域套接字发送 (需要 Java 16+，替代默认的 127.0.0.1 UDP 目标，不支持时继续使用 UDP) */
+    public boolean unixSocketEnabled = false;
+    /** 套接字路径，为空时使用 config/hp_output.sock */
+    public String unixSocketPath = "";
+    /** 是否启用叠加层 HTTP 服务器 (OBS 浏览器源可直接读取 SSE / WebSocket) */
+    public boolean overlayServerEnabled = false;
+    /** 叠加层 HTTP 服务器端口 (只监听 127.0.0.1) */
+    public int overlayServerPort = OverlayServer.DEFAULT_PORT;
+    /** 是否启用控制通道 (接收端注册订阅、请求当前状态、协商格式和速率) */
+    public boolean controlEnabled = false;
+    /** 控制通道端口 (只监听 127.0.0.1) */
+    public int controlPort = ControlChannel.DEFAULT_PORT;
+    /** 只发送给已注册的订阅者，没有订阅者时不编码也不发送 */
+    public boolean subscribersOnly = false;
+    /** 日志级别: debug / info / warn / error / off */
+    public String logLevel = "info";
+    /** 是否记录每个事件和每个数据包 (调试用，默认关闭) */
+    public boolean debugLogging = false;
+    /** 调试日志抽样：每 N 条 health 记录 1 条 (damage / death 总是记录) */
+    public int debugLogSampling = Log.DEFAULT_SAMPLE_EVERY;
+    /** 每隔 N 秒在输出流中发送一个 stats 事件 (运行指标)，0 = 不发送 */
+    public int statsIntervalSeconds = 0;
+    /** 在 F3 调试界面显示一行发送指标 */
+    public boolean showDebugMetrics = true;
+    /** 低延迟模式：血量包和伤害包在网络线程解码后立即上报，不等下一个客户端 tick (最多快 50 ms) */
+    public boolean lowLatencyCapture = false;
+    /** 周期性伤害/治疗 (燃烧、中毒、凋零、饥饿、自然回复) 的合并窗口 (毫秒)，0 = 每次单独发送 */
+    public int aggregationWindowMs = PeriodicAggregator.DEFAULT_WINDOW_MS;
     
     public static ModConfig getInstance() {
         if (instance == null) {
@@ -70,7 +128,29 @@ public class ModConfig {
      * 应用配置到广播器
      */
     public void apply() {
-        HealthBroadcaster.getInstance().setPort(udpPort);
+        HealthBroadcaster broadcaster = HealthBroadcaster.getInstance();
+        broadcaster.setLogging(LogLevel.fromName(logLevel), debugLogSampling);
+        broadcaster.setDebugMode(debugLogging);
+        broadcaster.setPort(udpPort);
+        broadcaster.setDestinations(destinations);
+        broadcaster.setWaitStrategy(WaitStrategyType.fromName(waitStrategy));
+        broadcaster.setWireFormat(WireFormat.fromName(wireFormat));
+        broadcaster.setBatchWindowMillis(batchWindowMs);
+        broadcaster.setMaxDatagramBytes(maxDatagramBytes);
+        broadcaster.setCriticalRedundancy(criticalRedundancy);
+        broadcaster.setSharedMemory(sharedMemoryEnabled, sharedMemoryPath);
+        broadcaster.setUnixSocket(unixSocketEnabled, getUnixSocketPath());
+        broadcaster.setOverlayServer(overlayServerEnabled, overlayServerPort);
+        broadcaster.setControlChannel(controlEnabled, controlPort, subscribersOnly);
+        broadcaster.setStatsInterval(statsIntervalSeconds);
+        broadcaster.setAggregationWindowMillis(aggregationWindowMs);
+    }
+    
+    private String getUnixSocketPath() {
+        if (unixSocketPath != null && !unixSocketPath.trim().isEmpty()) {
+            return unixSocketPath;
+        }
+        return FabricLoader.getInstance().getConfigDir().resolve(SOCKET_FILE).toString();
     }
     
     private static File getConfigFile() {
@@ -0,0 +1,89 @@
+package com.healthbroadcast.fabric;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.healthbroadcast.common.HealthBroadcaster;
+import com.healthbroadcast.common.log.Log;
+import com.healthbroadcast.common.log.LogLevel;
+import com.healthbroadcast.common.server.ServerBroadcaster;
+import com.healthbroadcast.common.wire.DatagramBatcher;
+import net.fabricmc.loader.api.FabricLoader;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 专用服务器配置 - 与客户端配置分开保存，不会创建客户端广播器
+ */
+public class ServerModConfig {
+    
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+    private static final String CONFIG_FILE = "health-broadcast-server.json";
+    
+    /** 没有单独路由的玩家发送到这些目标 */
+    public List<String> destinations = new ArrayList<>(defaultDestinations());
+    /**
+     * 按玩家路由: "玩家名或 UUID=目标[,目标...]"
+     * 例: "Steve=192.168.1.20:39571", "069a79f4-44e9-4726-a5be-fca90e38aaf5=10.0.0.5:39571,10.0.0.6:39571"
+     */
+    public List<String> playerRoutes = new ArrayList<>();
+    /** 发送线程数 (1~8)，目标按线程分片 */
+    public int senderThreads = ServerBroadcaster.DEFAULT_SENDER_THREADS;
+    /** 单个数据包最大字节数 */
+    public int maxDatagramBytes = DatagramBatcher.DEFAULT_MAX_DATAGRAM_BYTES;
+    /** 日志级别: debug / info / warn / error / off */
+    public String logLevel = "info";
+    
+    private static List<String> defaultDestinations() {
+        List<String> list = new ArrayList<>();
+        list.add("127.0.0.1:" + HealthBroadcaster.DEFAULT_PORT);
+        return list;
+    }
+    
+    /**
+     * 加载配置，文件不存在时写入默认配置
+     */
+    public static ServerModConfig load() {
+        File configFile = getConfigFile();
+        
+        if (configFile.exists()) {
+            try (FileReader reader = new FileReader(configFile)) {
+                ServerModConfig config = GSON.fromJson(reader, ServerModConfig.class);
+                if (config != null) {
+                    return config;
+                }
+            } catch (Exception e) {
+                Log.warn("Failed to load server config: {}", e.getMessage());
+            }
+        }
+        
+        ServerModConfig config = new ServerModConfig();
+        config.save();
+        return config;
+    }
+    
+    public void save() {
+        File configFile = getConfigFile();
+        
+        try (FileWriter writer = new FileWriter(configFile)) {
+            GSON.toJson(this, writer);
+        } catch (Exception e) {
+            Log.warn("Failed to save server config: {}", e.getMessage());
+        }
+    }
+    
+    /**
+     * 应用配置到服务器模式广播器
+     */
+    public void apply(ServerBroadcaster broadcaster) {
+        Log.setLevel(LogLevel.fromName(logLevel));
+        broadcaster.configure(destinations, playerRoutes, senderThreads, maxDatagramBytes);
+    }
+    
+    private static File getConfigFile() {
+        return FabricLoader.getInstance().getConfigDir().resolve(CONFIG_FILE).toFile();
+    }
+}
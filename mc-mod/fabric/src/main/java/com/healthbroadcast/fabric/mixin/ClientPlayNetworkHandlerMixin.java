@@ -0,0 +1,57 @@
+package com.healthbroadcast.fabric.mixin;
+
+import com.healthbroadcast.fabric.HealthTracker;
+
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.network.ClientPlayNetworkHandler;
+import net.minecraft.client.network.ClientPlayerEntity;
+import net.minecraft.network.packet.s2c.play.EntityDamageS2CPacket;
+import net.minecraft.network.packet.s2c.play.HealthUpdateS2CPacket;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+/**
+ * 1.19.4+ 服务器单独发送伤害来源 (EntityDamageS2CPacket)，先于血量包到达
+ * 记录下来供下一次血量下降使用，同一 tick 内的多次受伤各自带上正确的来源
+ * 
+ * 处理方法第一次在 Netty I/O 线程上被调用 (随后 forceMainThread 把包转交给主线程)，
+ * 低延迟模式在这一次调用时直接上报
+ */
+@Mixin(ClientPlayNetworkHandler.class)
+public abstract class ClientPlayNetworkHandlerMixin {
+    
+    @Inject(method = "onHealthUpdate", at = @At("HEAD"))
+    private void hp_output$captureHealth(HealthUpdateS2CPacket packet, CallbackInfo ci) {
+        HealthTracker tracker = HealthTracker.get();
+        MinecraftClient client = MinecraftClient.getInstance();
+        if (tracker != null && !client.isOnThread() && tracker.isLowLatency()) {
+            ClientPlayerEntity player = client.player;
+            if (player != null) {
+                tracker.onHealthPacket(player, packet.getHealth());
+            }
+        }
+    }
+    
+    @Inject(method = "onEntityDamage", at = @At("HEAD"))
+    private void hp_output$captureDamage(EntityDamageS2CPacket packet, CallbackInfo ci) {
+        HealthTracker tracker = HealthTracker.get();
+        MinecraftClient client = MinecraftClient.getInstance();
+        if (tracker != null && !client.isOnThread() && tracker.isLowLatency()) {
+            ClientPlayerEntity player = client.player;
+            if (player != null && packet.entityId() == player.getId()) {
+                tracker.captureDamagePacket(packet, player);
+            }
+        }
+    }
+    
+    @Inject(method = "onEntityDamage", at = @At("TAIL"))
+    private void hp_output$onEntityDamage(EntityDamageS2CPacket packet, CallbackInfo ci) {
+        HealthTracker tracker = HealthTracker.get();
+        ClientPlayerEntity player = MinecraftClient.getInstance().player;
+        if (tracker != null && player != null && packet.entityId() == player.getId()) {
+            tracker.onDamagePacket(packet, player);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.healthbroadcast.fabric.mixin;
+
+import com.healthbroadcast.fabric.HealthTracker;
+
+import net.minecraft.client.network.ClientPlayerEntity;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+/**
+ * 服务器血量包 (HealthUpdateS2CPacket) 在主线程应用到本地玩家之后上报血量变化
+ */
+@Mixin(ClientPlayerEntity.class)
+public abstract class ClientPlayerEntityMixin {
+    
+    @Inject(method = "updateHealth", at = @At("TAIL"))
+    private void hp_output$onUpdateHealth(float health, CallbackInfo ci) {
+        HealthTracker tracker = HealthTracker.get();
+        if (tracker != null) {
+            tracker.onHealthUpdate((ClientPlayerEntity) (Object) this);
+        }
+    }
+}